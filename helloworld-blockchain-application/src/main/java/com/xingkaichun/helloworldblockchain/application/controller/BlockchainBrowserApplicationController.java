@@ -9,6 +9,7 @@ import com.xingkaichun.helloworldblockchain.application.vo.node.QueryBlockchainH
 import com.xingkaichun.helloworldblockchain.application.vo.node.QueryBlockchainHeightResponse;
 import com.xingkaichun.helloworldblockchain.application.vo.transaction.*;
 import com.xingkaichun.helloworldblockchain.core.BlockchainCore;
+import com.xingkaichun.helloworldblockchain.core.ReadView;
 import com.xingkaichun.helloworldblockchain.core.model.Block;
 import com.xingkaichun.helloworldblockchain.core.tools.BlockTool;
 import com.xingkaichun.helloworldblockchain.core.tools.SizeTool;
@@ -167,7 +168,7 @@ public class BlockchainBrowserApplicationController {
     public ServiceResult<QueryUnconfirmedTransactionsResponse> queryUnconfirmedTransactions(@RequestBody QueryUnconfirmedTransactionsRequest request){
         try {
             PageCondition pageCondition = request.getPageCondition();
-            List<TransactionDto> transactionDtoList = blockchainCore.queryUnconfirmedTransactions(pageCondition.getFrom(),pageCondition.getSize());
+            List<TransactionDto> transactionDtoList = blockchainCore.queryUnconfirmedTransactions(request.getAfterTransactionHash(),pageCondition.getSize());
             if(transactionDtoList == null){
                 return ServiceResult.createSuccessServiceResult("未查询到未确认的交易");
             }
@@ -181,6 +182,10 @@ public class BlockchainBrowserApplicationController {
             }
             QueryUnconfirmedTransactionsResponse response = new QueryUnconfirmedTransactionsResponse();
             response.setTransactions(transactionDtoListResp);
+            //查询到的交易不足一页时没有下一页
+            if(!transactionDtoList.isEmpty() && transactionDtoList.size() >= pageCondition.getSize()){
+                response.setLastTransactionHash(TransactionDtoTool.calculateTransactionHash(transactionDtoList.get(transactionDtoList.size()-1)));
+            }
             return ServiceResult.createSuccessServiceResult("查询未确认交易成功",response);
         } catch (Exception e){
             String message = "查询未确认交易失败";
@@ -235,7 +240,7 @@ public class BlockchainBrowserApplicationController {
      */
     @RequestMapping(value = BlockchainBrowserApplicationApi.QUERY_TOP10_BLOCKS,method={RequestMethod.GET,RequestMethod.POST})
     public ServiceResult<QueryTop10BlocksResponse> queryTop10Blocks(@RequestBody QueryTop10BlocksRequest request){
-        try {
+        try (ReadView readView = blockchainCore.openReadView()) {
             List<Block> blockList = new ArrayList<>();
             long blockHeight = blockchainCore.queryBlockchainHeight();
             while (true){
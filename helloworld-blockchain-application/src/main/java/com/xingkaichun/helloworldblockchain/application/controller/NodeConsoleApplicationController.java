@@ -6,6 +6,7 @@ import com.xingkaichun.helloworldblockchain.application.vo.block.DeleteBlocksRes
 import com.xingkaichun.helloworldblockchain.application.vo.framwork.ServiceResult;
 import com.xingkaichun.helloworldblockchain.application.vo.miner.*;
 import com.xingkaichun.helloworldblockchain.application.vo.node.*;
+import com.xingkaichun.helloworldblockchain.application.vo.storage.*;
 import com.xingkaichun.helloworldblockchain.application.vo.synchronizer.*;
 import com.xingkaichun.helloworldblockchain.core.BlockchainCore;
 import com.xingkaichun.helloworldblockchain.netcore.BlockchainNetCore;
@@ -281,4 +282,41 @@ public class NodeConsoleApplicationController {
             return ServiceResult.createFailServiceResult(message);
         }
     }
-}
\ No newline at end of file
+
+
+
+    /**
+     * 查询存储统计信息：各个数据库每一层的数据文件数量与大小、待压缩字节数、写停顿耗时，以及区块链数据库每个主键前缀的数据大小、主键数量。
+     */
+    @RequestMapping(value = NodeConsoleApplicationApi.QUERY_STORAGE_STATISTICS,method={RequestMethod.GET,RequestMethod.POST})
+    public ServiceResult<QueryStorageStatisticsResponse> queryStorageStatistics(@RequestBody QueryStorageStatisticsRequest request){
+        try {
+            boolean countKeys = request.getCountKeys() != null && request.getCountKeys();
+            QueryStorageStatisticsResponse response = new QueryStorageStatisticsResponse();
+            response.setDatabaseStatistics(blockchainCore.getStorageMaintainer().queryStorageStatistics(countKeys));
+            return ServiceResult.createSuccessServiceResult("查询存储统计信息成功",response);
+        } catch (Exception e){
+            String message = "查询存储统计信息失败";
+            LogUtil.error(message,e);
+            return ServiceResult.createFailServiceResult(message);
+        }
+    }
+    /**
+     * 压缩存储：压缩全部数据库，压缩完成后返回。压缩耗时较长，适合在业务低峰期调用。
+     */
+    @RequestMapping(value = NodeConsoleApplicationApi.COMPACT_STORAGE,method={RequestMethod.GET,RequestMethod.POST})
+    public ServiceResult<CompactStorageResponse> compactStorage(@RequestBody CompactStorageRequest request){
+        try {
+            if(!blockchainCore.getStorageMaintainer().compact()){
+                return ServiceResult.createFailServiceResult("压缩存储失败，已经有压缩正在进行。");
+            }
+            CompactStorageResponse response = new CompactStorageResponse();
+            response.setCompactStorageSuccess(true);
+            return ServiceResult.createSuccessServiceResult("压缩存储成功",response);
+        } catch (Exception e){
+            String message = "压缩存储失败";
+            LogUtil.error(message,e);
+            return ServiceResult.createFailServiceResult(message);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.xingkaichun.helloworldblockchain.application.service;
 import com.xingkaichun.helloworldblockchain.application.vo.block.BlockVo;
 import com.xingkaichun.helloworldblockchain.application.vo.transaction.*;
 import com.xingkaichun.helloworldblockchain.core.BlockchainCore;
+import com.xingkaichun.helloworldblockchain.core.ReadView;
 import com.xingkaichun.helloworldblockchain.core.model.Block;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
@@ -35,108 +36,116 @@ public class BlockchainBrowserApplicationServiceImpl implements BlockchainBrowse
 
     @Override
     public TransactionOutputDetailVo queryTransactionOutputByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
-        //查询交易输出
-        TransactionOutput transactionOutput = blockchainCore.getBlockchainDatabase().queryTransactionOutputByTransactionOutputId(transactionHash,transactionOutputIndex);
-        if(transactionOutput == null){
-            return null;
-        }
+        try (ReadView readView = blockchainCore.openReadView()) {
+            //查询交易输出
+            TransactionOutput transactionOutput = blockchainCore.getBlockchainDatabase().queryTransactionOutputByTransactionOutputId(transactionHash,transactionOutputIndex);
+            if(transactionOutput == null){
+                return null;
+            }
 
-        TransactionOutputDetailVo transactionOutputDetailVo = new TransactionOutputDetailVo();
-        transactionOutputDetailVo.setFromBlockHeight(transactionOutput.getBlockHeight());
-        transactionOutputDetailVo.setFromBlockHash(transactionOutput.getBlockHash());
-        transactionOutputDetailVo.setFromTransactionHash(transactionOutput.getTransactionHash());
-        transactionOutputDetailVo.setValue(transactionOutput.getValue());
-        transactionOutputDetailVo.setFromOutputScript(ScriptTool.toString(transactionOutput.getOutputScript()));
-        transactionOutputDetailVo.setFromTransactionOutputIndex(transactionOutput.getTransactionOutputIndex());
+            TransactionOutputDetailVo transactionOutputDetailVo = new TransactionOutputDetailVo();
+            transactionOutputDetailVo.setFromBlockHeight(transactionOutput.getBlockHeight());
+            transactionOutputDetailVo.setFromBlockHash(transactionOutput.getBlockHash());
+            transactionOutputDetailVo.setFromTransactionHash(transactionOutput.getTransactionHash());
+            transactionOutputDetailVo.setValue(transactionOutput.getValue());
+            transactionOutputDetailVo.setFromOutputScript(ScriptTool.toString(transactionOutput.getOutputScript()));
+            transactionOutputDetailVo.setFromTransactionOutputIndex(transactionOutput.getTransactionOutputIndex());
 
-        //是否是未花费输出
-        TransactionOutput transactionOutputTemp = blockchainCore.getBlockchainDatabase().queryUnspentTransactionOutputByTransactionOutputId(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex());
-        transactionOutputDetailVo.setSpent(transactionOutputTemp==null);
+            //是否是未花费输出
+            TransactionOutput transactionOutputTemp = blockchainCore.getBlockchainDatabase().queryUnspentTransactionOutputByTransactionOutputId(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex());
+            transactionOutputDetailVo.setSpent(transactionOutputTemp==null);
 
-        //来源
-        TransactionVo inputTransactionVo = queryTransactionByTransactionHash(transactionOutput.getTransactionHash());
-        transactionOutputDetailVo.setInputTransaction(inputTransactionVo);
-        transactionOutputDetailVo.setTransactionType(inputTransactionVo.getTransactionType());
+            //来源
+            TransactionVo inputTransactionVo = queryTransactionByTransactionHash(transactionOutput.getTransactionHash());
+            transactionOutputDetailVo.setInputTransaction(inputTransactionVo);
+            transactionOutputDetailVo.setTransactionType(inputTransactionVo.getTransactionType());
 
 
-        //去向
-        TransactionVo outputTransactionVo;
-        if(transactionOutputTemp == null){
-            Transaction destinationTransaction = blockchainCore.getBlockchainDatabase().queryDestinationTransactionByTransactionOutputId(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex());
-            outputTransactionVo = queryTransactionByTransactionHash(destinationTransaction.getTransactionHash());
+            //去向
+            TransactionVo outputTransactionVo;
+            if(transactionOutputTemp == null){
+                Transaction destinationTransaction = blockchainCore.getBlockchainDatabase().queryDestinationTransactionByTransactionOutputId(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex());
+                outputTransactionVo = queryTransactionByTransactionHash(destinationTransaction.getTransactionHash());
 
-            Transaction outputTransaction = blockchainCore.getBlockchainDatabase().queryTransactionByTransactionHash(destinationTransaction.getTransactionHash());
-            List<TransactionInput> inputs = outputTransaction.getInputs();
-            if(inputs != null){
-                for(TransactionInput transactionInput : inputs){
-                    TransactionOutput unspentTransactionOutput = transactionInput.getUnspentTransactionOutput();
-                    if(transactionOutput.getTransactionHash().equals(unspentTransactionOutput.getTransactionHash()) &&
-                            transactionOutput.getTransactionOutputIndex()==unspentTransactionOutput.getTransactionOutputIndex()){
-                        transactionOutputDetailVo.setToTransactionInputIndex(outputTransactionVo.getTransactionInputCount());
-                        transactionOutputDetailVo.setToInputScript(ScriptTool.toString(transactionInput.getInputScript()));
-                        break;
+                Transaction outputTransaction = blockchainCore.getBlockchainDatabase().queryTransactionByTransactionHash(destinationTransaction.getTransactionHash());
+                List<TransactionInput> inputs = outputTransaction.getInputs();
+                if(inputs != null){
+                    for(TransactionInput transactionInput : inputs){
+                        TransactionOutput unspentTransactionOutput = transactionInput.getUnspentTransactionOutput();
+                        if(transactionOutput.getTransactionHash().equals(unspentTransactionOutput.getTransactionHash()) &&
+                                transactionOutput.getTransactionOutputIndex()==unspentTransactionOutput.getTransactionOutputIndex()){
+                            transactionOutputDetailVo.setToTransactionInputIndex(outputTransactionVo.getTransactionInputCount());
+                            transactionOutputDetailVo.setToInputScript(ScriptTool.toString(transactionInput.getInputScript()));
+                            break;
+                        }
                     }
                 }
+                transactionOutputDetailVo.setToBlockHeight(outputTransactionVo.getBlockHeight());
+                transactionOutputDetailVo.setToBlockHash(outputTransactionVo.getBlockHash());
+                transactionOutputDetailVo.setToTransactionHash(outputTransactionVo.getTransactionHash());
+                transactionOutputDetailVo.setOutputTransaction(outputTransactionVo);
             }
-            transactionOutputDetailVo.setToBlockHeight(outputTransactionVo.getBlockHeight());
-            transactionOutputDetailVo.setToBlockHash(outputTransactionVo.getBlockHash());
-            transactionOutputDetailVo.setToTransactionHash(outputTransactionVo.getTransactionHash());
-            transactionOutputDetailVo.setOutputTransaction(outputTransactionVo);
+            return transactionOutputDetailVo;
         }
-        return transactionOutputDetailVo;
     }
 
     @Override
     public TransactionOutputDetailVo queryTransactionOutputByAddress(String address) {
-        TransactionOutput transactionOutput = blockchainCore.queryTransactionOutputByAddress(address);
-        if(transactionOutput == null){
-            return null;
+        try (ReadView readView = blockchainCore.openReadView()) {
+            TransactionOutput transactionOutput = blockchainCore.queryTransactionOutputByAddress(address);
+            if(transactionOutput == null){
+                return null;
+            }
+            TransactionOutputDetailVo transactionOutputDetailVo = queryTransactionOutputByTransactionOutputId(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex());
+            return transactionOutputDetailVo;
         }
-        TransactionOutputDetailVo transactionOutputDetailVo = queryTransactionOutputByTransactionOutputId(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex());
-        return transactionOutputDetailVo;
     }
 
     @Override
     public List<TransactionVo> queryTransactionListByBlockHashTransactionHeight(String blockHash, long from, long size) {
-        Block block = blockchainCore.queryBlockByBlockHash(blockHash);
-        List<TransactionVo> transactionVos = new ArrayList<>();
-        for(long i=from;i<from+size;i++){
-            if(from < 0){
-                break;
-            }
-            if(i > block.getTransactionCount()){
-                break;
+        try (ReadView readView = blockchainCore.openReadView()) {
+            Block block = blockchainCore.queryBlockByBlockHash(blockHash);
+            List<TransactionVo> transactionVos = new ArrayList<>();
+            for(long i=from;i<from+size;i++){
+                if(from < 0){
+                    break;
+                }
+                if(i > block.getTransactionCount()){
+                    break;
+                }
+                long transactionHeight = block.getPreviousTransactionHeight() + i;
+                Transaction transaction = blockchainCore.queryTransactionByTransactionHeight(transactionHeight);
+                TransactionVo transactionVo = queryTransactionByTransactionHash(transaction.getTransactionHash());
+                transactionVos.add(transactionVo);
             }
-            long transactionHeight = block.getPreviousTransactionHeight() + i;
-            Transaction transaction = blockchainCore.queryTransactionByTransactionHeight(transactionHeight);
-            TransactionVo transactionVo = queryTransactionByTransactionHash(transaction.getTransactionHash());
-            transactionVos.add(transactionVo);
+            return transactionVos;
         }
-        return transactionVos;
     }
 
     @Override
     public BlockVo queryBlockViewByBlockHeight(Long blockHeight) {
-        Block block = blockchainCore.queryBlockByBlockHeight(blockHeight);
-        if(block == null){
-            return null;
+        try (ReadView readView = blockchainCore.openReadView()) {
+            Block block = blockchainCore.queryBlockByBlockHeight(blockHeight);
+            if(block == null){
+                return null;
+            }
+            Block nextBlock = blockchainCore.queryBlockByBlockHeight(block.getHeight()+1);
+
+            BlockVo blockVo = new BlockVo();
+            blockVo.setHeight(block.getHeight());
+            blockVo.setConfirmCount(BlockTool.getTransactionCount(block));
+            blockVo.setBlockSize(SizeTool.calculateBlockSize(block)+"字符");
+            blockVo.setTransactionCount(BlockTool.getTransactionCount(block));
+            blockVo.setTime(TimeUtil.formatMillisecondTimestamp2TimeString(block.getTimestamp()));
+            blockVo.setMinerIncentiveValue(BlockTool.getWritedIncentiveValue(block));
+            blockVo.setDifficulty(BlockTool.formatDifficulty(block.getDifficulty()));
+            blockVo.setNonce(block.getNonce());
+            blockVo.setHash(block.getHash());
+            blockVo.setPreviousBlockHash(block.getPreviousHash());
+            blockVo.setNextBlockHash(nextBlock==null?null:nextBlock.getHash());
+            blockVo.setMerkleTreeRoot(block.getMerkleTreeRoot());
+            return blockVo;
         }
-        Block nextBlock = blockchainCore.queryBlockByBlockHeight(block.getHeight()+1);
-
-        BlockVo blockVo = new BlockVo();
-        blockVo.setHeight(block.getHeight());
-        blockVo.setConfirmCount(BlockTool.getTransactionCount(block));
-        blockVo.setBlockSize(SizeTool.calculateBlockSize(block)+"字符");
-        blockVo.setTransactionCount(BlockTool.getTransactionCount(block));
-        blockVo.setTime(TimeUtil.formatMillisecondTimestamp2TimeString(block.getTimestamp()));
-        blockVo.setMinerIncentiveValue(BlockTool.getWritedIncentiveValue(block));
-        blockVo.setDifficulty(BlockTool.formatDifficulty(block.getDifficulty()));
-        blockVo.setNonce(block.getNonce());
-        blockVo.setHash(block.getHash());
-        blockVo.setPreviousBlockHash(block.getPreviousHash());
-        blockVo.setNextBlockHash(nextBlock==null?null:nextBlock.getHash());
-        blockVo.setMerkleTreeRoot(block.getMerkleTreeRoot());
-        return blockVo;
     }
 
     @Override
@@ -186,69 +195,71 @@ public class BlockchainBrowserApplicationServiceImpl implements BlockchainBrowse
 
     @Override
     public TransactionVo queryTransactionByTransactionHash(String transactionHash) {
-        Transaction transaction = blockchainCore.queryTransactionByTransactionHash(transactionHash);
-        if(transaction == null){
-            return null;
-        }
+        try (ReadView readView = blockchainCore.openReadView()) {
+            Transaction transaction = blockchainCore.queryTransactionByTransactionHash(transactionHash);
+            if(transaction == null){
+                return null;
+            }
+
+            TransactionVo transactionVo = new TransactionVo();
+            transactionVo.setTransactionHash(transaction.getTransactionHash());
+            transactionVo.setBlockHeight(transaction.getBlockHeight());
+
+            transactionVo.setTransactionFee(TransactionTool.calculateTransactionFee(transaction));
+            transactionVo.setTransactionType(transaction.getTransactionType().name());
+            transactionVo.setTransactionInputCount(TransactionTool.getTransactionInputCount(transaction));
+            transactionVo.setTransactionOutputCount(TransactionTool.getTransactionOutputCount(transaction));
+            transactionVo.setTransactionInputValues(TransactionTool.getInputValue(transaction));
+            transactionVo.setTransactionOutputValues(TransactionTool.getOutputValue(transaction));
+
+            long blockchainHeight = blockchainCore.queryBlockchainHeight();
+            Block block = blockchainCore.queryBlockByBlockHeight(transaction.getBlockHeight());
+            transactionVo.setConfirmCount(blockchainHeight-block.getHeight()+1);
+            transactionVo.setBlockTime(TimeUtil.formatMillisecondTimestamp2TimeString(block.getTimestamp()));
+            transactionVo.setBlockHash(block.getHash());
 
-        TransactionVo transactionVo = new TransactionVo();
-        transactionVo.setTransactionHash(transaction.getTransactionHash());
-        transactionVo.setBlockHeight(transaction.getBlockHeight());
-
-        transactionVo.setTransactionFee(TransactionTool.calculateTransactionFee(transaction));
-        transactionVo.setTransactionType(transaction.getTransactionType().name());
-        transactionVo.setTransactionInputCount(TransactionTool.getTransactionInputCount(transaction));
-        transactionVo.setTransactionOutputCount(TransactionTool.getTransactionOutputCount(transaction));
-        transactionVo.setTransactionInputValues(TransactionTool.getInputValue(transaction));
-        transactionVo.setTransactionOutputValues(TransactionTool.getOutputValue(transaction));
-
-        long blockchainHeight = blockchainCore.queryBlockchainHeight();
-        Block block = blockchainCore.queryBlockByBlockHeight(transaction.getBlockHeight());
-        transactionVo.setConfirmCount(blockchainHeight-block.getHeight()+1);
-        transactionVo.setBlockTime(TimeUtil.formatMillisecondTimestamp2TimeString(block.getTimestamp()));
-        transactionVo.setBlockHash(block.getHash());
-
-        List<TransactionInput> inputs = transaction.getInputs();
-        List<TransactionInputVo> transactionInputVos = new ArrayList<>();
-        if(inputs != null){
-            for(TransactionInput transactionInput:inputs){
-                TransactionInputVo transactionInputVo = new TransactionInputVo();
-                transactionInputVo.setAddress(transactionInput.getUnspentTransactionOutput().getAddress());
-                transactionInputVo.setValue(transactionInput.getUnspentTransactionOutput().getValue());
-                transactionInputVo.setInputScript(ScriptTool.toString(transactionInput.getInputScript()));
-                transactionInputVo.setTransactionHash(transactionInput.getUnspentTransactionOutput().getTransactionHash());
-                transactionInputVo.setTransactionOutputIndex(transactionInput.getUnspentTransactionOutput().getTransactionOutputIndex());
-                transactionInputVos.add(transactionInputVo);
+            List<TransactionInput> inputs = transaction.getInputs();
+            List<TransactionInputVo> transactionInputVos = new ArrayList<>();
+            if(inputs != null){
+                for(TransactionInput transactionInput:inputs){
+                    TransactionInputVo transactionInputVo = new TransactionInputVo();
+                    transactionInputVo.setAddress(transactionInput.getUnspentTransactionOutput().getAddress());
+                    transactionInputVo.setValue(transactionInput.getUnspentTransactionOutput().getValue());
+                    transactionInputVo.setInputScript(ScriptTool.toString(transactionInput.getInputScript()));
+                    transactionInputVo.setTransactionHash(transactionInput.getUnspentTransactionOutput().getTransactionHash());
+                    transactionInputVo.setTransactionOutputIndex(transactionInput.getUnspentTransactionOutput().getTransactionOutputIndex());
+                    transactionInputVos.add(transactionInputVo);
+                }
             }
-        }
-        transactionVo.setTransactionInputs(transactionInputVos);
-
-        List<TransactionOutput> outputs = transaction.getOutputs();
-        List<TransactionOutputVo> transactionOutputVos = new ArrayList<>();
-        if(outputs != null){
-            for(TransactionOutput transactionOutput:outputs){
-                TransactionOutputVo transactionOutputVo = new TransactionOutputVo();
-                transactionOutputVo.setAddress(transactionOutput.getAddress());
-                transactionOutputVo.setValue(transactionOutput.getValue());
-                transactionOutputVo.setOutputScript(ScriptTool.toString(transactionOutput.getOutputScript()));
-                transactionOutputVo.setTransactionHash(transactionOutput.getTransactionHash());
-                transactionOutputVo.setTransactionOutputIndex(transactionOutput.getTransactionOutputIndex());
-                transactionOutputVos.add(transactionOutputVo);
+            transactionVo.setTransactionInputs(transactionInputVos);
+
+            List<TransactionOutput> outputs = transaction.getOutputs();
+            List<TransactionOutputVo> transactionOutputVos = new ArrayList<>();
+            if(outputs != null){
+                for(TransactionOutput transactionOutput:outputs){
+                    TransactionOutputVo transactionOutputVo = new TransactionOutputVo();
+                    transactionOutputVo.setAddress(transactionOutput.getAddress());
+                    transactionOutputVo.setValue(transactionOutput.getValue());
+                    transactionOutputVo.setOutputScript(ScriptTool.toString(transactionOutput.getOutputScript()));
+                    transactionOutputVo.setTransactionHash(transactionOutput.getTransactionHash());
+                    transactionOutputVo.setTransactionOutputIndex(transactionOutput.getTransactionOutputIndex());
+                    transactionOutputVos.add(transactionOutputVo);
+                }
             }
-        }
-        transactionVo.setTransactionOutputs(transactionOutputVos);
+            transactionVo.setTransactionOutputs(transactionOutputVos);
 
-        List<String> inputScripts = new ArrayList<>();
-        for (TransactionInputVo transactionInputVo : transactionInputVos){
-            inputScripts.add(transactionInputVo.getInputScript());
-        }
-        transactionVo.setInputScripts(inputScripts);
+            List<String> inputScripts = new ArrayList<>();
+            for (TransactionInputVo transactionInputVo : transactionInputVos){
+                inputScripts.add(transactionInputVo.getInputScript());
+            }
+            transactionVo.setInputScripts(inputScripts);
 
-        List<String> outputScripts = new ArrayList<>();
-        for (TransactionOutputVo transactionOutputVo : transactionOutputVos){
-            outputScripts.add(transactionOutputVo.getOutputScript());
+            List<String> outputScripts = new ArrayList<>();
+            for (TransactionOutputVo transactionOutputVo : transactionOutputVos){
+                outputScripts.add(transactionOutputVo.getOutputScript());
+            }
+            transactionVo.setOutputScripts(outputScripts);
+            return transactionVo;
         }
-        transactionVo.setOutputScripts(outputScripts);
-        return transactionVo;
     }
 }
@@ -48,4 +48,11 @@ public class NodeConsoleApplicationApi {
     //删除区块
     public static final String DELETE_BLOCKS = "/Api/NodeConsoleApplication/DeleteBlocks";
 
+
+
+    //查询存储统计信息
+    public static final String QUERY_STORAGE_STATISTICS = "/Api/NodeConsoleApplication/QueryStorageStatistics";
+    //压缩存储
+    public static final String COMPACT_STORAGE = "/Api/NodeConsoleApplication/CompactStorage";
+
 }
@@ -0,0 +1,17 @@
+package com.xingkaichun.helloworldblockchain.application.vo.storage;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class CompactStorageRequest {
+
+
+
+
+    //region get set
+
+
+    //endregion
+
+}
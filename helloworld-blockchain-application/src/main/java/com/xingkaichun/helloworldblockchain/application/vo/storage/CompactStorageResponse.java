@@ -0,0 +1,25 @@
+package com.xingkaichun.helloworldblockchain.application.vo.storage;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class CompactStorageResponse {
+
+    private boolean compactStorageSuccess;
+
+
+
+
+    //region get set
+
+    public boolean isCompactStorageSuccess() {
+        return compactStorageSuccess;
+    }
+
+    public void setCompactStorageSuccess(boolean compactStorageSuccess) {
+        this.compactStorageSuccess = compactStorageSuccess;
+    }
+
+    //endregion
+}
@@ -0,0 +1,28 @@
+package com.xingkaichun.helloworldblockchain.application.vo.storage;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class QueryStorageStatisticsRequest {
+
+    /**
+     * 是否统计每个主键前缀下的主键数量。统计需要遍历全部数据，耗时较长。
+     */
+    private Boolean countKeys;
+
+
+
+
+    //region get set
+
+    public Boolean getCountKeys() {
+        return countKeys;
+    }
+
+    public void setCountKeys(Boolean countKeys) {
+        this.countKeys = countKeys;
+    }
+
+    //endregion
+}
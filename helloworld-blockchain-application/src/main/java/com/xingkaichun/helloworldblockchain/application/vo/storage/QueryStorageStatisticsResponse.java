@@ -0,0 +1,29 @@
+package com.xingkaichun.helloworldblockchain.application.vo.storage;
+
+import com.xingkaichun.helloworldblockchain.core.model.storage.DatabaseStatistics;
+
+import java.util.List;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class QueryStorageStatisticsResponse {
+
+    private List<DatabaseStatistics> databaseStatistics;
+
+
+
+
+    //region get set
+
+    public List<DatabaseStatistics> getDatabaseStatistics() {
+        return databaseStatistics;
+    }
+
+    public void setDatabaseStatistics(List<DatabaseStatistics> databaseStatistics) {
+        this.databaseStatistics = databaseStatistics;
+    }
+
+    //endregion
+}
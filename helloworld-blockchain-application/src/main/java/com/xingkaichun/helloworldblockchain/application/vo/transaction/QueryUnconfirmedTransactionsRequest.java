@@ -9,6 +9,8 @@ import com.xingkaichun.helloworldblockchain.application.vo.framwork.PageConditio
 public class QueryUnconfirmedTransactionsRequest {
 
     private PageCondition pageCondition;
+    //上一页最后一条交易的哈希，为空代表查询第一页。按交易哈希翻页时，只使用分页条件中的每页数量。
+    private String afterTransactionHash;
 
 
 
@@ -23,5 +25,13 @@ public class QueryUnconfirmedTransactionsRequest {
         this.pageCondition = pageCondition;
     }
 
+    public String getAfterTransactionHash() {
+        return afterTransactionHash;
+    }
+
+    public void setAfterTransactionHash(String afterTransactionHash) {
+        this.afterTransactionHash = afterTransactionHash;
+    }
+
     //endregion
 }
@@ -9,6 +9,8 @@ import java.util.List;
 public class QueryUnconfirmedTransactionsResponse {
 
     private List<UnconfirmedTransactionVo> transactions;
+    //查询下一页时传入的交易哈希，为空代表没有下一页
+    private String lastTransactionHash;
 
 
     //region get set
@@ -18,5 +20,11 @@ public class QueryUnconfirmedTransactionsResponse {
     public void setTransactions(List<UnconfirmedTransactionVo> transactions) {
         this.transactions = transactions;
     }
+    public String getLastTransactionHash() {
+        return lastTransactionHash;
+    }
+    public void setLastTransactionHash(String lastTransactionHash) {
+        this.lastTransactionHash = lastTransactionHash;
+    }
     //endregion
 }
@@ -0,0 +1,24 @@
+package com.xingkaichun.helloworldblockchain.core;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+
+/**
+ * 区块扫描器：按区块高度顺序依次返回区块头，区块的交易列表是null。只使用一个顺序遍历的数据库迭代器。
+ *
+ * 扫描器持有一个读视图，关闭之前读取的都是创建那一刻的数据。需要在创建它的线程中关闭。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public abstract class BlockScanner implements AutoCloseable {
+
+    /**
+     * 下一个区块头，扫描结束时返回null。
+     */
+    public abstract Block next();
+
+    /**
+     * 关闭扫描器，释放数据库迭代器和读视图。
+     */
+    @Override
+    public abstract void close();
+}
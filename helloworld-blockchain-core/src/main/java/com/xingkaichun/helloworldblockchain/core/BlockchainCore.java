@@ -27,6 +27,8 @@ import java.util.List;
  * @see com.xingkaichun.helloworldblockchain.core.Miner
  * 钱包：管理拥有的账户（增加账户、删除账户、查询账户、获取账户等）
  * @see com.xingkaichun.helloworldblockchain.core.Wallet
+ * 存储维护：统计数据库的存储信息，空闲时压缩数据库
+ * @see com.xingkaichun.helloworldblockchain.core.StorageMaintainer
  *
  * @author 邢开春 409060350@qq.com
  */
@@ -42,18 +44,21 @@ public abstract class BlockchainCore {
     protected Miner miner ;
     //钱包
     protected Wallet wallet ;
+    //存储维护
+    protected StorageMaintainer storageMaintainer ;
 
 
-    public BlockchainCore(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase, UnconfirmedTransactionDatabase unconfirmedTransactionDatabase, Wallet wallet, Miner miner) {
+    public BlockchainCore(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase, UnconfirmedTransactionDatabase unconfirmedTransactionDatabase, Wallet wallet, Miner miner, StorageMaintainer storageMaintainer) {
         this.coreConfiguration = coreConfiguration;
         this.blockchainDatabase = blockchainDatabase;
         this.unconfirmedTransactionDatabase = unconfirmedTransactionDatabase;
         this.wallet = wallet;
         this.miner = miner;
+        this.storageMaintainer = storageMaintainer;
     }
 
     /**
-     * 激活区块链核心。包含激活矿工等操作。
+     * 激活区块链核心。包含激活矿工、存储维护等操作。
      */
     public abstract void start();
 
@@ -63,6 +68,10 @@ public abstract class BlockchainCore {
      * 将一个区块添加到区块链
      */
     public abstract boolean addBlockDto(BlockDto blockDto);
+    /**
+     * 将多个连续的区块依次添加到区块链，遇到不能添加的区块时停止，返回成功添加的区块数量。
+     */
+    public abstract long addBlockDtos(List<BlockDto> blockDtos);
     /**
      * 将一个区块添加到区块链
      */
@@ -80,17 +89,33 @@ public abstract class BlockchainCore {
      */
     public abstract long queryBlockchainHeight() ;
     /**
-     * 根据区块高度查询区块
+     * 获取已裁剪的区块高度：这个高度及之前的区块只保留了区块头。
+     */
+    public abstract long queryPrunedBlockHeight() ;
+    /**
+     * 创建读视图：读视图关闭之前，当前线程的查询读取的都是创建那一刻的区块链，多次查询得到的数据总是一致的。使用完毕后需要关闭。
+     */
+    public abstract ReadView openReadView() ;
+    /**
+     * 根据区块高度查询区块，区块包含区块里的交易。
      */
     public abstract Block queryBlockByBlockHeight(long blockHeight);
     /**
-     * 根据区块哈希查询区块
+     * 根据区块哈希查询区块，区块包含区块里的交易。
      */
     public abstract Block queryBlockByBlockHash(String blockHash);
     /**
-     * 查询区块链尾巴区块
+     * 查询区块链尾巴区块，区块包含区块里的交易。
      */
     public abstract Block queryTailBlock();
+    /**
+     * 根据区块高度查询区块头，区块的交易列表是null。只需要比较区块哈希、区块高度时使用，不读取区块里的交易。
+     */
+    public abstract Block queryBlockHeaderByBlockHeight(long blockHeight);
+    /**
+     * 查询区块链尾巴区块的区块头，区块的交易列表是null。
+     */
+    public abstract Block queryTailBlockHeader();
 
 
 
@@ -125,9 +150,10 @@ public abstract class BlockchainCore {
      */
     public abstract void postTransaction(TransactionDto transactionDto) ;
     /**
-     * 查询未确认的交易
+     * 查询未确认的交易：按交易哈希顺序查询交易哈希大于afterTransactionHash的最多size条交易，afterTransactionHash为null代表从第一条交易开始。
+     * 逐页查询时，将上一页最后一条交易的哈希传入。
      */
-    public abstract List<TransactionDto> queryUnconfirmedTransactions(long from, long size) ;
+    public abstract List<TransactionDto> queryUnconfirmedTransactions(String afterTransactionHash, long size) ;
     /**
      * 根据交易哈希查询未确认交易
      */
@@ -155,6 +181,10 @@ public abstract class BlockchainCore {
         return wallet;
     }
 
+    public StorageMaintainer getStorageMaintainer() {
+        return storageMaintainer;
+    }
+
     public CoreConfiguration getCoreConfiguration() {
         return coreConfiguration;
     }
@@ -1,8 +1,11 @@
 package com.xingkaichun.helloworldblockchain.core;
 
 import com.xingkaichun.helloworldblockchain.core.impl.*;
+import com.xingkaichun.helloworldblockchain.core.tools.DatabaseMigrationTool;
 import com.xingkaichun.helloworldblockchain.core.tools.ResourcePathTool;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * 创建BlockchainCore的工厂
  *
@@ -25,14 +28,32 @@ public class BlockchainCoreFactory {
     public static BlockchainCore createBlockchainCore(String corePath) {
 
         CoreConfiguration coreConfiguration = new CoreConfigurationDefaultImpl(corePath);
+
+        //升级旧版本数据库
+        DatabaseMigrationTool.migrateBlockchainCore(coreConfiguration);
+
         Incentive incentive = new IncentiveDefaultImpl();
         Consensus consensus = new ProofOfWorkConsensusImpl();
-        VirtualMachine virtualMachine = new StackBasedVirtualMachine();
-        BlockchainDatabase blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,incentive,consensus,virtualMachine);
+        //矿工打包交易时校验过的签名，校验挖出的区块时不再校验
+        int verifiedSignatureCacheSize = coreConfiguration.getVerifiedSignatureCacheSize();
+        VirtualMachine virtualMachine = new StackBasedVirtualMachine(verifiedSignatureCacheSize > 0 ? new VerifiedSignatureCache(verifiedSignatureCacheSize) : null);
+        //并行校验交易脚本的线程池，与BlockchainCore的生命周期相同；线程是守护线程，空闲一段时间后会退出
+        int scriptCheckParallelism = coreConfiguration.getScriptCheckParallelism();
+        ForkJoinPool scriptCheckForkJoinPool = scriptCheckParallelism > 1 ? new ForkJoinPool(scriptCheckParallelism) : null;
+        BlockchainDatabaseDefaultImpl blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,incentive,consensus,virtualMachine,scriptCheckForkJoinPool);
+        //重做程序退出前未写入数据库的未花费交易输出
+        blockchainDatabase.recoverUnspentTransactionOutput();
+        //截断程序退出前未写入数据库的区块文件数据
+        blockchainDatabase.recoverBlockFile();
+        //加载或者重建已使用的哈希、地址的过滤器
+        blockchainDatabase.recoverHashAddressFilter();
+        //补充之前版本的数据库没有的区块时间戳索引
+        blockchainDatabase.recoverBlockTimestampIndex();
 
         UnconfirmedTransactionDatabase unconfirmedTransactionDatabase = new UnconfirmedTransactionDatabaseDefaultImpl(coreConfiguration);
         Wallet wallet = new WalletImpl(coreConfiguration,blockchainDatabase);
         Miner miner = new MinerDefaultImpl(coreConfiguration,wallet,blockchainDatabase,unconfirmedTransactionDatabase);
-        return new BlockchainCoreImpl(coreConfiguration,blockchainDatabase,unconfirmedTransactionDatabase,wallet,miner);
+        StorageMaintainer storageMaintainer = new StorageMaintainerDefaultImpl(coreConfiguration,blockchainDatabase,miner);
+        return new BlockchainCoreImpl(coreConfiguration,blockchainDatabase,unconfirmedTransactionDatabase,wallet,miner,storageMaintainer);
     }
 }
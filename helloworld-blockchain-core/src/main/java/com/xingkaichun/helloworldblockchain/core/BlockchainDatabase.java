@@ -5,6 +5,8 @@ import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
 import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
 
+import java.util.List;
+
 
 /**
  * 区块链数据库：该类用于区块链数据的持久化。
@@ -35,12 +37,18 @@ public abstract class BlockchainDatabase {
      * 将一个区块添加到区块链的尾部。
      */
     public abstract boolean addBlockDto(BlockDto blockDto) ;
+    /**
+     * 将多个连续的区块依次添加到区块链的尾部，遇到不能添加的区块时停止，返回成功添加的区块数量。
+     * 多个区块合并添加，每批次的区块原子写入数据库。
+     */
+    public abstract long addBlockDtos(List<BlockDto> blockDtos) ;
     /**
      * 删除区块链的尾巴区块(最后一个区块)
      */
     public abstract void deleteTailBlock() ;
     /**
      * 删除区块高度大于等于@blockHeight@的区块
+     * 多个区块合并删除，每批次的区块原子写入数据库。
      */
     public abstract void deleteBlocks(long blockHeight) ;
     //endregion
@@ -77,23 +85,62 @@ public abstract class BlockchainDatabase {
      * 查询区块链中总的交易输出数量
      */
     public abstract long queryBlockchainTransactionOutputHeight() ;
+    /**
+     * 查询已裁剪的区块高度：这个高度及之前的区块只保留了区块头，不能查询到它们的交易。区块链没有被裁剪时返回创世区块的高度。
+     */
+    public abstract long queryPrunedBlockHeight() ;
+    //endregion
+
+
+
+    //region 读视图
+    /**
+     * 创建读视图：固定当前的数据库快照和链尾。读视图关闭之前，当前线程调用的查询方法读取的都是这个快照，
+     * 多次查询得到的数据总是一致的，不受同时新增、删除区块的影响。使用完毕后需要在当前线程中关闭。
+     */
+    public abstract ReadView openReadView() ;
+    //endregion
+
+
+
+    //region 范围扫描
+    /**
+     * 按区块高度范围[fromBlockHeight,toBlockHeight]扫描区块头，区块的交易列表是null。
+     * 扫描器在当前线程打开读视图，顺序遍历数据库，扫描期间不受同时新增、删除区块的影响。使用完毕后需要在当前线程中关闭。
+     */
+    public abstract BlockScanner scanBlocksByBlockHeight(long fromBlockHeight, long toBlockHeight) ;
+    /**
+     * 按区块时间戳范围[fromBlockTimestamp,toBlockTimestamp]扫描区块头，区块的交易列表是null。
+     */
+    public abstract BlockScanner scanBlocksByBlockTimestamp(long fromBlockTimestamp, long toBlockTimestamp) ;
+    /**
+     * 扫描区块高度范围[fromBlockHeight,toBlockHeight]内区块里的交易，按交易高度从小到大返回。
+     * 交易输入里被花费的交易输出只有交易输出高度，需要时再按交易输出高度查询。已裁剪的区块、UTXO快照导入的区块没有交易，会被跳过。
+     */
+    public abstract TransactionScanner scanTransactionsByBlockHeight(long fromBlockHeight, long toBlockHeight) ;
     //endregion
 
 
 
     //region 区块查询
     /**
-     * 查询区块链上的最后一个区块
+     * 查询区块链上的最后一个区块的区块头，区块的交易列表是null。
      */
     public abstract Block queryTailBlock() ;
     /**
-     * 在区块链中根据区块高度查找区块
+     * 在区块链中根据区块高度查找区块头，区块的交易列表是null，区块里的交易用queryTransactionsByBlockHeight查询。
+     * 返回的区块头可能被多个调用方共享，调用方不应修改它。
      */
     public abstract Block queryBlockByBlockHeight(long blockHeight) ;
     /**
-     * 在区块链中根据区块哈希查找区块
+     * 在区块链中根据区块哈希查找区块头，区块的交易列表是null。
      */
     public abstract Block queryBlockByBlockHash(String blockHash) ;
+    /**
+     * 查询区块里的交易：在同一个读视图中读取区块头，再按区块头的交易高度范围一次范围扫描读取交易。
+     * 区块不存在、区块里的交易已被裁剪(或者是UTXO快照导入的区块)时返回null。
+     */
+    public abstract List<Transaction> queryTransactionsByBlockHeight(long blockHeight) ;
     //endregion
 
 
@@ -1,5 +1,9 @@
 package com.xingkaichun.helloworldblockchain.core;
 
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreEngineEnum;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreOptions;
+
 /**
  * Core配置: BlockchainCore的配置。
  * 该类对BlockchainCore模块的配置进行统一管理。
@@ -34,4 +38,79 @@ public abstract class CoreConfiguration {
      * ，交易会很延迟才能得到确认。
      */
     public abstract long getMinerMineTimeInterval();
+
+    /**
+     * 获取数据库的KV存储引擎。BlockchainCore的各个数据库都通过这个方法获取存储引擎。
+     * 每次调用都会读取配置数据库中的存储引擎类型，调用方应保存获取到的存储引擎，不要在每次读写数据库时调用。
+     */
+    public abstract KvStore getKvStore(String databaseName);
+    /**
+     * 数据库使用的存储引擎类型，每个数据库可以使用不同的存储引擎。
+     */
+    public abstract KvStoreEngineEnum getKvStoreEngine(String databaseName);
+    /**
+     * 设置数据库使用的存储引擎类型。
+     * 数据库下次打开时(一般是重启后)生效，已有的数据不会迁移到新的存储引擎。
+     */
+    public abstract void setKvStoreEngine(String databaseName, KvStoreEngineEnum kvStoreEngine);
+    /**
+     * 数据库格式的版本号：数据库迁移工具升级数据库后记录，没有记录时返回0。
+     */
+    public abstract int getDatabaseVersion(String databaseName);
+    /**
+     * 记录数据库格式的版本号
+     */
+    public abstract void setDatabaseVersion(String databaseName, int databaseVersion);
+    /**
+     * 数据库使用的存储引擎参数(缓存大小、数据块大小、写缓冲区大小、压缩、布隆过滤器、同步写等)。
+     * 不同数据库的数据量、读写特点不同，可以使用不同的参数。
+     */
+    public abstract KvStoreOptions getKvStoreOptions(String databaseName);
+    /**
+     * 区块链数据库查询缓存大小(字节)：缓存解码后的区块、交易、交易输出，大小按它们编码后的字节数计算。
+     */
+    public abstract long getBlockchainDatabaseQueryCacheSize();
+    /**
+     * 未花费交易输出缓存最多缓存的交易输出数量
+     */
+    public abstract int getUnspentTransactionOutputCacheSize();
+    /**
+     * 未花费交易输出缓存中未写入数据库的交易输出数量达到这个值时，将它们批量写入数据库。
+     */
+    public abstract int getUnspentTransactionOutputCacheFlushThreshold();
+    /**
+     * 区块文件数据段大小(字节)：区块文件写满一个数据段后，开始写入下一个数据段。
+     */
+    public abstract int getBlockFileSegmentSize();
+    /**
+     * 哈希地址过滤器预期容纳的哈希、地址数量：校验哈希、地址是否已被使用时，先查询这个布隆过滤器，过滤器判断可能存在时才读取数据库。0表示不使用过滤器。
+     * 过滤器占用的内存由数量和误判率决定：数量 * ln(1/误判率) / (ln2)^2 / 8 字节。
+     */
+    public abstract long getHashAddressFilterExpectedInsertions();
+    /**
+     * 哈希地址过滤器的误判率：过滤器中的哈希、地址数量不超过它的容量时，不存在的哈希、地址被误判为可能存在的概率。
+     */
+    public abstract double getHashAddressFilterFalsePositiveRate();
+    /**
+     * 裁剪模式保留完整数据的区块数量：只保留最近这个数量的区块的交易、已花费交易输出及它们的索引，更早的区块只保留区块头。
+     * 未花费交易输出始终保留。区块链最多只能删除(回滚)这个数量的区块。0表示不裁剪。
+     */
+    public abstract long getPruneBlockCount();
+    /**
+     * 设置裁剪模式保留完整数据的区块数量。已经裁剪的数据不能恢复。
+     */
+    public abstract void setPruneBlockCount(long pruneBlockCount);
+    /**
+     * 存储维护的空闲时间(毫秒)：矿工处于非活动状态，并且区块链数据库这段时间内没有写入(没有挖矿、没有同步区块)时，
+     * 存储维护在后台压缩数据库。0表示不在后台压缩，只能手动压缩。
+     */
+    public abstract long getStorageMaintainIdleTime();
+    /**
+     * 校验区块时并行校验交易脚本(签名)的线程数量，1表示在当前线程中依次校验。
+     */
+    public abstract int getScriptCheckParallelism();
+    /**
+     * 已校验签名缓存最多缓存的签名数量：矿工打包交易时校验过的签名，在校验挖出的区块时不必再次校验。0表示不使用缓存。
+     */
+    public abstract int getVerifiedSignatureCacheSize();
 }
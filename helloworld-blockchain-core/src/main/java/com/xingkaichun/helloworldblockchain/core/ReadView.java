@@ -0,0 +1,24 @@
+package com.xingkaichun.helloworldblockchain.core;
+
+/**
+ * 读视图：固定创建那一刻的数据库快照和链尾(区块链高度、区块链交易高度、区块链交易输出高度)。
+ *
+ * 读视图关闭之前，创建它的线程调用区块链数据库的查询方法时，读取的都是这个快照：多次查询得到的数据总是一致的，
+ * 不会读到创建之后新增的区块，也不会因为区块被删除而读到null。读视图不持有锁，不会阻塞新增、删除区块，新增、删除区块也不会阻塞读视图。
+ * 同一线程中嵌套创建读视图时，返回的是外层的读视图。读视图只在创建它的线程中生效，需要在这个线程中关闭。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public abstract class ReadView implements AutoCloseable {
+
+    /**
+     * 读视图中区块链的高度
+     */
+    public abstract long getBlockchainHeight();
+
+    /**
+     * 关闭读视图，释放数据库快照。
+     */
+    @Override
+    public abstract void close();
+}
@@ -0,0 +1,66 @@
+package com.xingkaichun.helloworldblockchain.core;
+
+import com.xingkaichun.helloworldblockchain.core.model.storage.DatabaseStatistics;
+
+import java.util.List;
+
+/**
+ * 存储维护：统计各个数据库的存储信息，在空闲时压缩数据库。
+ *
+ * 存储引擎在后台压缩数据时会占用大量磁盘读写，压缩跟不上写入时还会让写入停顿，新增区块的耗时因此出现尖峰。
+ * 在空闲时主动压缩新写入较多数据的主键范围，可以减少挖矿、同步区块时的后台压缩。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public abstract class StorageMaintainer {
+
+    //配置
+    protected CoreConfiguration coreConfiguration;
+    //区块链数据库
+    protected BlockchainDatabase blockchainDatabase;
+    //矿工：矿工处于活动状态时不是空闲的
+    protected Miner miner;
+
+    public StorageMaintainer(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase, Miner miner) {
+        this.coreConfiguration = coreConfiguration;
+        this.blockchainDatabase = blockchainDatabase;
+        this.miner = miner;
+    }
+
+
+    //region 存储维护
+    /**
+     * 启动存储维护：空闲时(矿工处于非活动状态，并且区块链数据库一段时间内没有写入)，
+     * 逐个压缩上次压缩之后新写入数据较多的主键范围，每压缩一个主键范围之前都重新判断是否空闲。
+     * 这个方法不会返回，需要在单独的线程中调用。
+     */
+    public abstract void start() ;
+
+    /**
+     * 压缩全部数据库的全部主键范围，不判断是否空闲。压缩耗时较长，适合在业务低峰期手动调用。
+     * 返回false代表已经有压缩正在进行，本次调用没有压缩。
+     */
+    public abstract boolean compact() ;
+
+    /**
+     * 查询各个数据库的存储统计信息。
+     * countKeys为true时统计每个主键前缀下的主键数量，需要遍历全部数据，耗时较长。
+     */
+    public abstract List<DatabaseStatistics> queryStorageStatistics(boolean countKeys) ;
+    //endregion
+
+
+    //region get set
+    public CoreConfiguration getCoreConfiguration() {
+        return coreConfiguration;
+    }
+
+    public BlockchainDatabase getBlockchainDatabase() {
+        return blockchainDatabase;
+    }
+
+    public Miner getMiner() {
+        return miner;
+    }
+    //endregion
+}
@@ -0,0 +1,24 @@
+package com.xingkaichun.helloworldblockchain.core;
+
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+
+/**
+ * 交易扫描器：按交易高度顺序依次返回交易。只使用一个顺序遍历的数据库迭代器。
+ *
+ * 扫描器持有一个读视图，关闭之前读取的都是创建那一刻的数据。需要在创建它的线程中关闭。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public abstract class TransactionScanner implements AutoCloseable {
+
+    /**
+     * 下一笔交易，扫描结束时返回null。
+     */
+    public abstract Transaction next();
+
+    /**
+     * 关闭扫描器，释放数据库迭代器和读视图。
+     */
+    @Override
+    public abstract void close();
+}
@@ -19,10 +19,16 @@ public abstract class UnconfirmedTransactionDatabase {
     public abstract void insertTransaction(TransactionDto transactionDto) ;
 
     /**
-     * 批量提取交易
+     * 批量提取交易：按位置提取从第from(从1开始)条交易开始的最多size条交易。
      */
     public abstract List<TransactionDto> selectTransactions(long from, long size) ;
 
+    /**
+     * 批量提取交易：按交易哈希顺序提取交易哈希大于transactionHash的最多size条交易，transactionHash为null代表从第一条交易开始。
+     * 逐页遍历时，将上一页最后一条交易的哈希传入即可，每页的代价只与size有关。
+     */
+    public abstract List<TransactionDto> selectTransactionsAfterTransactionHash(String transactionHash, long size) ;
+
     /**
      * 删除交易
      */
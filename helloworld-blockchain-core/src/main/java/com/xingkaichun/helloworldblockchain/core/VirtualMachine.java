@@ -16,6 +16,13 @@ public abstract class VirtualMachine {
      */
     public abstract ScriptExecuteResult executeScript(Transaction transactionEnvironment, Script script) throws RuntimeException ;
 
+    /**
+     * 执行脚本，签名校验使用已经计算好的交易的待签名数据。
+     * 同一笔交易的所有交易输入的待签名数据相同，每笔交易只需计算一次，不必每执行一个OP_CHECKSIG都计算一次。
+     * @param signatureHashAll 交易的待签名数据，见TransactionTool.signatureHashAll。
+     */
+    public abstract ScriptExecuteResult executeScriptWithSignatureHashAll(Transaction transactionEnvironment, String signatureHashAll, Script script) throws RuntimeException ;
+
     /**
      * 检验交易脚本，即校验交易输入能解锁交易输出吗？即用户花费的是自己的钱吗？
      * 校验用户花费的是自己的钱吗，用户只可以花费自己的钱。专业点的说法，校验UTXO所有权，用户只可以花费自己拥有的UTXO。
@@ -24,4 +31,12 @@ public abstract class VirtualMachine {
      */
     public abstract boolean checkTransactionScript(Transaction transaction);
 
+    /**
+     * 校验交易的一个交易输入的脚本：交易输入脚本能解锁它花费的交易输出的脚本吗？
+     * 各个交易输入的校验相互独立，可以在多个线程中并行校验。
+     * @param signatureHashAll 交易的待签名数据，同一笔交易的各个交易输入共用。
+     * @param inputIndex 交易输入在交易中的位置，从0开始。
+     */
+    public abstract boolean checkTransactionInputScript(Transaction transaction, String signatureHashAll, int inputIndex);
+
 }
@@ -0,0 +1,88 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+/**
+ * 区块文件指针：数据在区块文件中的位置(数据段序号、段内偏移、长度)。
+ *
+ * 区块链数据库中[区块高度到区块]、[交易高度到交易]映射的值是编码后的区块文件指针。
+ * 指针编码的第一个字节是固定的标识，与编码后的区块、交易的第一个字节(编码版本号或者'{')都不同，
+ * 因此旧版本数据库中直接存储在数据库里的区块、交易仍然可以读取。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class BlockFilePointer {
+
+    //区块文件指针标识
+    private static final byte BLOCK_FILE_POINTER_FLAG = (byte) 0xFF;
+    //编码后的区块文件指针的字节数量：标识(1个字节) + 数据段序号(4个字节) + 段内偏移(4个字节) + 长度(4个字节)
+    private static final int BLOCK_FILE_POINTER_BYTE_COUNT = 13;
+
+    //数据段序号
+    private final int segment;
+    //段内偏移
+    private final int offset;
+    //数据长度
+    private final int length;
+
+    BlockFilePointer(int segment, int offset, int length) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    int getSegment() {
+        return segment;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * 数据结束位置的段内偏移
+     */
+    int getEndOffset() {
+        return offset + length;
+    }
+
+    /**
+     * 数据结束位置是否在另一个指针的数据结束位置之后
+     */
+    boolean isEndAfter(BlockFilePointer blockFilePointer) {
+        if(segment != blockFilePointer.segment){
+            return segment > blockFilePointer.segment;
+        }
+        return getEndOffset() > blockFilePointer.getEndOffset();
+    }
+
+
+    static byte[] encode(BlockFilePointer blockFilePointer) {
+        byte[] bytes = new byte[BLOCK_FILE_POINTER_BYTE_COUNT];
+        bytes[0] = BLOCK_FILE_POINTER_FLAG;
+        writeInt4(bytes,1,blockFilePointer.segment);
+        writeInt4(bytes,5,blockFilePointer.offset);
+        writeInt4(bytes,9,blockFilePointer.length);
+        return bytes;
+    }
+    static BlockFilePointer decode(byte[] bytes) {
+        return new BlockFilePointer(readInt4(bytes,1),readInt4(bytes,5),readInt4(bytes,9));
+    }
+    /**
+     * 数据库中的值是否是区块文件指针
+     */
+    static boolean isBlockFilePointer(byte[] value) {
+        return value != null && value.length == BLOCK_FILE_POINTER_BYTE_COUNT && value[0] == BLOCK_FILE_POINTER_FLAG;
+    }
+    private static void writeInt4(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position+1] = (byte) (value >>> 16);
+        bytes[position+2] = (byte) (value >>> 8);
+        bytes[position+3] = (byte) value;
+    }
+    private static int readInt4(byte[] bytes, int position) {
+        return ((bytes[position] & 0xFF) << 24) | ((bytes[position+1] & 0xFF) << 16) | ((bytes[position+2] & 0xFF) << 8) | (bytes[position+3] & 0xFF);
+    }
+}
@@ -0,0 +1,264 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.util.FileUtil;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 区块文件：只追加写入的分段文件，存储编码后的区块头、交易，数据库中只存储它们的区块文件指针。
+ *
+ * 数据按追加的顺序写入当前数据段，当前数据段写满(超过数据段大小)后开始写入下一个数据段，一条数据不会跨越两个数据段。
+ * 写满的数据段不再修改，读取时使用内存映射，不需要访问文件系统；当前数据段使用文件读取。
+ * 删除尾部区块时截断区块文件，截断位置之后的数据段被删除；裁剪区块后，不再被引用的数据段从最早的数据段开始删除。
+ *
+ * 只有持有区块链数据库写锁的线程追加、截断区块文件，任何线程都可以读取。
+ * 同步写时，写入引用数据的数据库之前先将追加的数据刷盘，数据库中的区块文件指针不会指向丢失的数据。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class BlockFileStore {
+
+    //数据段文件名的格式，文件名中的数字是数据段序号
+    private static final String SEGMENT_FILE_NAME_FORMAT = "blk%08d.dat";
+
+    //区块文件所在目录
+    private final String directory;
+    //数据段大小，追加数据后超过这个大小时，这条数据写入下一个数据段
+    private final int segmentSize;
+    //是否同步写：为true时追加的数据在写入数据库之前刷盘
+    private final boolean sync;
+    //写满的数据段的内存映射，第一次读取时创建
+    private final Map<Integer,MappedByteBuffer> mappedSegments;
+
+    private boolean opened;
+    //当前数据段序号
+    private volatile int activeSegment;
+    //当前数据段的文件
+    private FileChannel activeFileChannel;
+    //当前数据段已写入的字节数
+    private int activeSegmentSize;
+
+    BlockFileStore(String directory, int segmentSize, boolean sync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        this.mappedSegments = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 追加数据，返回数据的区块文件指针。
+     */
+    synchronized BlockFilePointer append(byte[] bytes) {
+        try {
+            open();
+            if(activeSegmentSize > 0 && (long) activeSegmentSize + bytes.length > segmentSize){
+                openActiveSegment(activeSegment + 1, 0);
+            }
+            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+            long position = activeSegmentSize;
+            while (byteBuffer.hasRemaining()){
+                position += activeFileChannel.write(byteBuffer, position);
+            }
+            BlockFilePointer blockFilePointer = new BlockFilePointer(activeSegment, activeSegmentSize, bytes.length);
+            activeSegmentSize += bytes.length;
+            return blockFilePointer;
+        } catch (IOException e) {
+            LogUtil.error("append block file failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 同步写时，将当前数据段追加的数据刷盘。写满的数据段在开始写入下一个数据段时已经刷盘。
+     */
+    synchronized void force() {
+        if(!sync){
+            return;
+        }
+        try {
+            open();
+            activeFileChannel.force(false);
+        } catch (IOException e) {
+            LogUtil.error("force block file failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取区块文件指针指向的数据
+     */
+    byte[] read(BlockFilePointer blockFilePointer) {
+        byte[] bytes = new byte[blockFilePointer.getLength()];
+        if(blockFilePointer.getSegment() < activeSegment){
+            ByteBuffer byteBuffer = getMappedSegment(blockFilePointer.getSegment()).duplicate();
+            byteBuffer.position(blockFilePointer.getOffset());
+            byteBuffer.get(bytes);
+            return bytes;
+        }
+        return readActiveSegment(blockFilePointer, bytes);
+    }
+
+    /**
+     * 读取数据库中的值：值是区块文件指针时，读取区块文件中的数据；否则是旧版本直接存储在数据库里的数据，值就是数据本身。
+     */
+    byte[] readValue(byte[] value) {
+        if(BlockFilePointer.isBlockFilePointer(value)){
+            return read(BlockFilePointer.decode(value));
+        }
+        return value;
+    }
+
+    /**
+     * 截断区块文件：只保留数据段segment中offset之前的数据，之后的数据全部删除。
+     * 数据段没有offset那么长时(数据库引用的数据没有刷盘就宕机了)，区块文件丢失了数据，不能截断。
+     */
+    synchronized void truncate(int segment, int offset) {
+        try {
+            open();
+            if(segment == activeSegment && offset == activeSegmentSize){
+                return;
+            }
+            long segmentLength = getSegmentFile(segment).length();
+            if(segmentLength < offset){
+                throw new RuntimeException(String.format("block file %s has %s bytes, but the referenced data ends at %s, the block file lost data.",getSegmentFile(segment).getAbsolutePath(),segmentLength,offset));
+            }
+            for(int i=activeSegment; i>segment; i--){
+                deleteSegment(i);
+            }
+            openActiveSegment(segment, offset);
+            activeFileChannel.truncate(offset);
+        } catch (IOException e) {
+            LogUtil.error("truncate block file failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 删除序号小于segment的数据段，当前数据段不会被删除。删除失败(如文件仍被占用)的数据段下次再删除。
+     */
+    synchronized void deleteSegmentsBefore(int segment) {
+        try {
+            open();
+        } catch (IOException e) {
+            LogUtil.error("open block file failed.",e);
+            throw new RuntimeException(e);
+        }
+        for(int i=0; i<Math.min(segment, activeSegment); i++){
+            mappedSegments.remove(i);
+            File segmentFile = getSegmentFile(i);
+            if(segmentFile.exists() && !segmentFile.delete()){
+                LogUtil.debug(String.format("delete block file %s failed, it will be deleted next time.",segmentFile.getAbsolutePath()));
+                return;
+            }
+        }
+    }
+
+    synchronized void close() {
+        try {
+            if(activeFileChannel != null){
+                activeFileChannel.close();
+                activeFileChannel = null;
+            }
+            mappedSegments.clear();
+            opened = false;
+        } catch (IOException e) {
+            LogUtil.error("close block file failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * 第一次使用时打开区块文件：序号最大的数据段是当前数据段。
+     */
+    private void open() throws IOException {
+        if(opened){
+            return;
+        }
+        FileUtil.mkdirs(directory);
+        //裁剪模式下序号较小的数据段可能已被删除，因此不能从0开始依次查找
+        int lastSegment = 0;
+        String[] fileNames = new File(directory).list();
+        if(fileNames != null){
+            for(String fileName:fileNames){
+                Integer segment = parseSegment(fileName);
+                if(segment != null && segment > lastSegment){
+                    lastSegment = segment;
+                }
+            }
+        }
+        openActiveSegment(lastSegment, (int) getSegmentFile(lastSegment).length());
+        opened = true;
+    }
+    private void openActiveSegment(int segment, int segmentSize) throws IOException {
+        if(activeFileChannel != null){
+            //写满的数据段之后不会再刷盘
+            if(sync){
+                activeFileChannel.force(false);
+            }
+            activeFileChannel.close();
+        }
+        mappedSegments.remove(segment);
+        activeFileChannel = new RandomAccessFile(getSegmentFile(segment), "rw").getChannel();
+        activeSegmentSize = segmentSize;
+        activeSegment = segment;
+    }
+    private void deleteSegment(int segment) {
+        mappedSegments.remove(segment);
+        File segmentFile = getSegmentFile(segment);
+        if(segmentFile.exists() && !segmentFile.delete()){
+            throw new RuntimeException(String.format("delete block file %s failed.",segmentFile.getAbsolutePath()));
+        }
+    }
+    private MappedByteBuffer getMappedSegment(int segment) {
+        return mappedSegments.computeIfAbsent(segment, key -> {
+            try (FileChannel fileChannel = new RandomAccessFile(getSegmentFile(segment), "r").getChannel()) {
+                return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            } catch (IOException e) {
+                LogUtil.error("map block file failed.",e);
+                throw new RuntimeException(e);
+            }
+        });
+    }
+    private synchronized byte[] readActiveSegment(BlockFilePointer blockFilePointer, byte[] bytes) {
+        if(blockFilePointer.getSegment() < activeSegment){
+            return read(blockFilePointer);
+        }
+        try {
+            open();
+            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+            long position = blockFilePointer.getOffset();
+            while (byteBuffer.hasRemaining()){
+                int readCount = activeFileChannel.read(byteBuffer, position);
+                if(readCount < 0){
+                    throw new IOException("read block file beyond the end.");
+                }
+                position += readCount;
+            }
+            return bytes;
+        } catch (IOException e) {
+            LogUtil.error("read block file failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * 由文件名解析数据段序号，不是数据段文件时返回null。
+     */
+    private Integer parseSegment(String fileName) {
+        if(!fileName.matches("blk\\d{8}\\.dat")){
+            return null;
+        }
+        return Integer.parseInt(fileName.substring(3, 11));
+    }
+    private File getSegmentFile(int segment) {
+        return new File(directory, String.format(SEGMENT_FILE_NAME_FORMAT, segment));
+    }
+}
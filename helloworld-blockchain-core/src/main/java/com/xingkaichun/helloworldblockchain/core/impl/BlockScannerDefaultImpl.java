@@ -0,0 +1,47 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.BlockScanner;
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.tools.EncodeDecodeTool;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvIterator;
+import com.xingkaichun.helloworldblockchain.util.kvstore.UnsignedBytesComparator;
+
+/**
+ * 区块扫描器：在读视图的快照上从起始主键顺序遍历[区块高度到区块]映射到结束主键(包含)，解码区块头。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class BlockScannerDefaultImpl extends BlockScanner {
+
+    private final ReadViewDefaultImpl readView;
+    //已定位到起始主键的迭代器
+    private final KvIterator kvIterator;
+    private final byte[] toKey;
+    private final BlockFileStore blockFileStore;
+
+    BlockScannerDefaultImpl(ReadViewDefaultImpl readView, KvIterator kvIterator, byte[] toKey, BlockFileStore blockFileStore) {
+        this.readView = readView;
+        this.kvIterator = kvIterator;
+        this.toKey = toKey;
+        this.blockFileStore = blockFileStore;
+    }
+
+    @Override
+    public Block next() {
+        if(!kvIterator.isValid() || UnsignedBytesComparator.INSTANCE.compare(kvIterator.key(),toKey) > 0){
+            return null;
+        }
+        byte[] value = kvIterator.value();
+        kvIterator.next();
+        return EncodeDecodeTool.decodeToBlock(blockFileStore.readValue(value));
+    }
+
+    @Override
+    public void close() {
+        try {
+            kvIterator.close();
+        } finally {
+            readView.close();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
 import com.xingkaichun.helloworldblockchain.core.model.wallet.BuildTransactionRequest;
 import com.xingkaichun.helloworldblockchain.core.model.wallet.BuildTransactionResponse;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockTool;
 import com.xingkaichun.helloworldblockchain.core.tools.Model2DtoTool;
 import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
 import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionDto;
@@ -20,8 +21,8 @@ import java.util.List;
  */
 public class BlockchainCoreImpl extends BlockchainCore {
 
-    public BlockchainCoreImpl(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase, UnconfirmedTransactionDatabase unconfirmedTransactionDatabase, Wallet wallet, Miner miner) {
-        super(coreConfiguration,blockchainDatabase,unconfirmedTransactionDatabase,wallet,miner);
+    public BlockchainCoreImpl(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase, UnconfirmedTransactionDatabase unconfirmedTransactionDatabase, Wallet wallet, Miner miner, StorageMaintainer storageMaintainer) {
+        super(coreConfiguration,blockchainDatabase,unconfirmedTransactionDatabase,wallet,miner,storageMaintainer);
     }
 
     @Override
@@ -36,6 +37,16 @@ public class BlockchainCoreImpl extends BlockchainCore {
                     }
                 }
         ).start();
+        //启动存储维护线程
+        new Thread(
+                ()->{
+                    try {
+                        storageMaintainer.start();
+                    } catch (Exception e) {
+                        SystemUtil.errorExit("存储维护在运行中发生异常，请检查修复异常！",e);
+                    }
+                }
+        ).start();
     }
 
     @Override
@@ -43,6 +54,16 @@ public class BlockchainCoreImpl extends BlockchainCore {
         return blockchainDatabase.queryBlockchainHeight();
     }
 
+    @Override
+    public long queryPrunedBlockHeight() {
+        return blockchainDatabase.queryPrunedBlockHeight();
+    }
+
+    @Override
+    public ReadView openReadView() {
+        return blockchainDatabase.openReadView();
+    }
+
 
     @Override
     public Transaction queryTransactionByTransactionHash(String transactionHash) {
@@ -62,16 +83,43 @@ public class BlockchainCoreImpl extends BlockchainCore {
 
     @Override
     public Block queryBlockByBlockHeight(long blockHeight) {
-        return blockchainDatabase.queryBlockByBlockHeight(blockHeight);
+        //区块链数据库只返回区块头，在同一个读视图中查询区块头和区块里的交易
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            Block blockHeader = blockchainDatabase.queryBlockByBlockHeight(blockHeight);
+            if(blockHeader == null){
+                return null;
+            }
+            Block block = BlockTool.copyBlockHeader(blockHeader);
+            block.setTransactions(blockchainDatabase.queryTransactionsByBlockHeight(blockHeight));
+            return block;
+        }
     }
 
     @Override
     public Block queryBlockByBlockHash(String blockHash) {
-        return blockchainDatabase.queryBlockByBlockHash(blockHash);
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            Block blockHeader = blockchainDatabase.queryBlockByBlockHash(blockHash);
+            if(blockHeader == null){
+                return null;
+            }
+            return queryBlockByBlockHeight(blockHeader.getHeight());
+        }
     }
 
     @Override
     public Block queryTailBlock() {
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            return queryBlockByBlockHeight(readView.getBlockchainHeight());
+        }
+    }
+
+    @Override
+    public Block queryBlockHeaderByBlockHeight(long blockHeight) {
+        return blockchainDatabase.queryBlockByBlockHeight(blockHeight);
+    }
+
+    @Override
+    public Block queryTailBlockHeader() {
         return blockchainDatabase.queryTailBlock();
     }
 
@@ -85,6 +133,11 @@ public class BlockchainCoreImpl extends BlockchainCore {
         return blockchainDatabase.addBlockDto(blockDto);
     }
 
+    @Override
+    public long addBlockDtos(List<BlockDto> blockDtos) {
+        return blockchainDatabase.addBlockDtos(blockDtos);
+    }
+
     @Override
     public boolean addBlock(Block block) {
         BlockDto blockDto = Model2DtoTool.block2BlockDto(block);
@@ -109,8 +162,8 @@ public class BlockchainCoreImpl extends BlockchainCore {
     }
 
     @Override
-    public List<TransactionDto> queryUnconfirmedTransactions(long from, long size) {
-        return unconfirmedTransactionDatabase.selectTransactions(from,size);
+    public List<TransactionDto> queryUnconfirmedTransactions(String afterTransactionHash, long size) {
+        return unconfirmedTransactionDatabase.selectTransactionsAfterTransactionHash(afterTransactionHash,size);
     }
 
     @Override
@@ -1,24 +1,41 @@
 package com.xingkaichun.helloworldblockchain.core.impl;
 
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
 import com.xingkaichun.helloworldblockchain.core.*;
 import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.BlockUndo;
 import com.xingkaichun.helloworldblockchain.core.model.enums.BlockchainActionEnum;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
 import com.xingkaichun.helloworldblockchain.core.tools.*;
 import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
 import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
 import com.xingkaichun.helloworldblockchain.setting.Setting;
 import com.xingkaichun.helloworldblockchain.util.FileUtil;
-import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
 import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import com.xingkaichun.helloworldblockchain.util.LruCache;
 import com.xingkaichun.helloworldblockchain.util.NumberUtil;
+import com.xingkaichun.helloworldblockchain.util.StringUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.*;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 
 /**
@@ -31,17 +48,115 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
     //region 变量与构造函数
     CoreConfiguration coreConfiguration;
-    private static final String BLOCKCHAIN_DATABASE_NAME = "BlockchainDatabase";
+    public static final String BLOCKCHAIN_DATABASE_NAME = "BlockchainDatabase";
+    //区块文件所在目录的名字
+    public static final String BLOCK_FILE_DIRECTORY_NAME = "BlockFile";
+    //哈希地址过滤器文件的名字
+    public static final String HASH_ADDRESS_FILTER_FILE_NAME = "HashAddressFilter";
+    //批量删除区块时，每批次最多删除的区块数量
+    private static final int DELETE_BLOCKS_BATCH_SIZE = 1000;
+    //批量新增区块时，每批次最多新增的区块数量
+    private static final int ADD_BLOCKS_BATCH_SIZE = 100;
+    //导入UTXO快照时，每批次写入的数据条数
+    private static final int IMPORT_UTXO_SNAPSHOT_BATCH_SIZE = 10000;
+    //裁剪区块时，每批次最多裁剪的区块数量
+    private static final int PRUNE_BLOCKS_BATCH_SIZE = 100;
+    //建立区块时间戳索引时，每批次写入的索引数量
+    private static final int BUILD_BLOCK_TIMESTAMP_INDEX_BATCH_SIZE = 10000;
 
     /**
      * 锁:保证对区块链增区块、删区块的操作是同步的。
-     * 查询区块操作不需要加锁，原因是，只有对区块链进行区块的增删才会改变区块链的数据。
+     * 查询区块操作不需要加锁，原因是，只有对区块链进行区块的增删才会改变区块链的数据。需要多次查询的数据保持一致时，在读视图中查询。
      */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
-    public BlockchainDatabaseDefaultImpl(CoreConfiguration coreConfiguration, Incentive incentive, Consensus consensus, VirtualMachine virtualMachine) {
+    /**
+     * 链尾：第一次使用时从数据库加载，之后每次成功写入区块后整体替换，查询区块链高度、尾部区块时不再访问数据库。
+     */
+    private volatile ChainTip chainTip;
+    /**
+     * 链尾锁：写入改变链尾的WriteBatch、替换链尾在这把锁内完成，创建读视图时在这把锁内取得数据库快照和链尾，二者总是一致的。
+     * 只在写入一批次数据期间持有，不会像写锁一样在校验区块期间阻塞读视图的创建。
+     */
+    private final Object chainTipLock = new Object();
+
+    /**
+     * 读视图：当前线程打开的读视图，打开期间当前线程的查询读取读视图的快照和链尾。
+     * 有打开的读视图时，不截断、不删除区块文件，读视图引用的区块文件数据不会被覆盖。
+     */
+    private final ThreadLocal<ReadViewDefaultImpl> currentReadView;
+    private final AtomicInteger openReadViewCount;
+
+    /**
+     * 批量新增区块时，已校验、还没有写入数据库的区块对数据库的修改(删除的主键对应的值为null)，以及新增这些区块后的链尾。
+     * 只有持有写锁的线程(正在批量新增区块的线程)读取它们，其它线程读取到的仍然是数据库中的数据。
+     */
+    private Map<ByteBuffer,byte[]> pendingKvWrites;
+    private ChainTip pendingChainTip;
+
+    /**
+     * 查询缓存：按高度缓存解码后的区块、交易、交易输出，缓存项的权重是编码后的字节数。
+     * 缓存的对象会被多个调用方共享，调用方不应修改它们。
+     */
+    private final LruCache<Long,Block> blockCache;
+    private final LruCache<Long,Transaction> transactionCache;
+    private final LruCache<Long,TransactionOutput> transactionOutputCache;
+
+    /**
+     * 未花费交易输出缓存：[交易输出ID]到[未花费交易输出高度]的映射采用写回策略。
+     * 新增区块对这个映射的修改先记录在缓存中，未写入数据库的修改达到阈值时批量写入数据库，同时更新刷盘高度。
+     * 程序异常退出时，数据库中的刷盘高度之后的区块对这个映射的修改会在启动时重做。
+     */
+    private final UnspentTransactionOutputCache unspentTransactionOutputCache;
+
+    /**
+     * 区块文件：编码后的区块头、交易只追加写入区块文件，数据库中[区块高度到区块]、[交易高度到交易]映射的值是它们的区块文件指针。
+     * 先追加区块文件，再写入数据库，数据库没有引用的区块文件数据(写入数据库失败、程序异常退出)会被截断。
+     */
+    private final BlockFileStore blockFileStore;
+
+    /**
+     * 裁剪模式：新增区块后，待裁剪的区块达到一批次时启动后台线程，分批次裁剪早于最近[裁剪模式保留完整数据的区块数量]个区块的区块。
+     * 同一时间只有一个裁剪线程。
+     */
+    private final AtomicBoolean pruneBlocksRunning;
+
+    /**
+     * 哈希地址过滤器：已使用的哈希、已使用的地址的布隆过滤器。校验新区块、新交易时查询的哈希、地址几乎都不存在，
+     * 过滤器判断不存在时不再读取数据库，判断可能存在时才读取数据库。为null时(没有加载或者没有启用)直接读取数据库。
+     * 先放入过滤器，再写入数据库。删除区块时不从过滤器中删除，被删除的哈希、地址只是变成误判，读取数据库后仍然得到正确的结果。
+     * 过滤器与未花费交易输出缓存同时保存到文件，启动时加载并补充保存之后新增的区块；文件不存在或者与区块链不一致时，遍历数据库重建。
+     */
+    private volatile BloomFilter<byte[]> hashAddressFilter;
+
+    /**
+     * 交易脚本校验：校验区块时，脚本之外的校验依次完成后，全部交易输入的脚本(签名)在ForkJoinPool中并行校验。
+     * ForkJoinPool由创建区块链数据库的调用方创建并持有，为null时在当前线程中依次校验。
+     */
+    private final ForkJoinPool scriptCheckForkJoinPool;
+    private final TransactionScriptChecker transactionScriptChecker;
+
+    /**
+     * 区块链数据库的存储引擎：第一次使用时获取，之后每次读写不再查询配置数据库中的存储引擎类型。
+     */
+    private volatile KvStore blockchainKvStore;
+
+    public BlockchainDatabaseDefaultImpl(CoreConfiguration coreConfiguration, Incentive incentive, Consensus consensus, VirtualMachine virtualMachine, ForkJoinPool scriptCheckForkJoinPool) {
         super(consensus,incentive,virtualMachine);
         this.coreConfiguration = coreConfiguration;
+        //交易占缓存的一半，区块、交易输出各占四分之一
+        long queryCacheSize = coreConfiguration.getBlockchainDatabaseQueryCacheSize();
+        this.blockCache = new LruCache<>(queryCacheSize / 4);
+        this.transactionCache = new LruCache<>(queryCacheSize / 2);
+        this.transactionOutputCache = new LruCache<>(queryCacheSize / 4);
+        this.unspentTransactionOutputCache = new UnspentTransactionOutputCache(BlockchainDatabaseKeyTool.TRANSACTION_OUTPUT_ID_KEY_BYTE_COUNT,coreConfiguration.getUnspentTransactionOutputCacheSize());
+        this.blockFileStore = new BlockFileStore(FileUtil.newPath(coreConfiguration.getCorePath(), BLOCK_FILE_DIRECTORY_NAME),coreConfiguration.getBlockFileSegmentSize(),
+                coreConfiguration.getKvStoreOptions(BLOCKCHAIN_DATABASE_NAME).isSync());
+        this.pruneBlocksRunning = new AtomicBoolean(false);
+        this.currentReadView = new ThreadLocal<>();
+        this.openReadViewCount = new AtomicInteger(0);
+        this.scriptCheckForkJoinPool = scriptCheckForkJoinPool;
+        this.transactionScriptChecker = new TransactionScriptChecker(virtualMachine,scriptCheckForkJoinPool);
     }
     //endregion
 
@@ -58,13 +173,55 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             if(!checkBlock){
                 return false;
             }
-            KvDbUtil.KvWriteBatch kvWriteBatch = createBlockWriteBatch(block, BlockchainActionEnum.ADD_BLOCK);
-            KvDbUtil.write(getBlockchainDatabasePath(), kvWriteBatch);
+            ChainTip currentChainTip = getChainTip();
+            ChainTip nextChainTip = nextChainTip(currentChainTip, block, BlockchainActionEnum.ADD_BLOCK);
+            KvWriteBatch kvWriteBatch = createBlockWriteBatch(currentChainTip, block, BlockchainActionEnum.ADD_BLOCK);
+            synchronized (chainTipLock){
+                writeBlockWriteBatch(kvWriteBatch);
+                chainTip = nextChainTip;
+            }
+            cacheUnspentTransactionOutput(block);
+            if(unspentTransactionOutputCache.getDirtyCount() >= coreConfiguration.getUnspentTransactionOutputCacheFlushThreshold()){
+                flushUnspentTransactionOutputCache();
+            }
+            schedulePruneBlocks();
             return true;
         }finally {
             writeLock.unlock();
         }
     }
+    /**
+     * 分三个阶段批量新增区块：
+     * 第一阶段，多线程并行执行不依赖区块链状态的转换与校验，计算交易哈希、默克尔树根、区块哈希，校验区块结构、区块大小；
+     * 第二阶段，依次补全区块，执行依赖区块链状态的校验，如未花费交易输出、双花、共识、激励；
+     * 第三阶段，每批次校验通过的区块合并为一次原子写入。
+     * 下一批次区块的第一阶段与当前批次区块的第二、三阶段同时进行。
+     */
+    @Override
+    public long addBlockDtos(List<BlockDto> blockDtos) {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            long addedBlockCount = 0;
+            int fromIndex = 0;
+            CompletableFuture<List<Block>> nextPreparedBlocks = prepareBlocks(blockDtos, fromIndex);
+            while (nextPreparedBlocks != null){
+                List<Block> preparedBlocks = nextPreparedBlocks.join();
+                fromIndex += preparedBlocks.size();
+                nextPreparedBlocks = fromIndex < blockDtos.size() ? prepareBlocks(blockDtos, fromIndex) : null;
+                int batchAddedBlockCount = addPreparedBlocks(preparedBlocks);
+                addedBlockCount += batchAddedBlockCount;
+                LogUtil.debug(String.format("add blocks progress: %s/%s, blockchain height %s.",addedBlockCount,blockDtos.size(),queryBlockchainHeight()));
+                if(batchAddedBlockCount < preparedBlocks.size()){
+                    break;
+                }
+            }
+            schedulePruneBlocks();
+            return addedBlockCount;
+        }finally {
+            writeLock.unlock();
+        }
+    }
     @Override
     public void deleteTailBlock() {
         Lock writeLock = readWriteLock.writeLock();
@@ -74,8 +231,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             if(tailBlock == null){
                 return;
             }
-            KvDbUtil.KvWriteBatch kvWriteBatch = createBlockWriteBatch(tailBlock, BlockchainActionEnum.DELETE_BLOCK);
-            KvDbUtil.write(getBlockchainDatabasePath(),kvWriteBatch);
+            deleteBlocks(tailBlock.getHeight());
         }finally {
             writeLock.unlock();
         }
@@ -85,16 +241,52 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
         Lock writeLock = readWriteLock.writeLock();
         writeLock.lock();
         try{
-            while (true){
-                Block tailBlock = queryTailBlock();
-                if(tailBlock == null){
-                    return;
+            long blockchainHeight = queryBlockchainHeight();
+            //UTXO快照高度、已裁剪的区块高度及之前的区块只有区块头，没有撤销记录，不能删除；裁剪模式下最多删除[保留完整数据的区块数量]个区块。
+            long minDeleteBlockHeight = queryPrunedBlockHeight() + 1;
+            long pruneBlockCount = coreConfiguration.getPruneBlockCount();
+            if(pruneBlockCount > 0){
+                minDeleteBlockHeight = Math.max(minDeleteBlockHeight, blockchainHeight - pruneBlockCount + 1);
+            }
+            long deleteBlockCount = blockchainHeight - Math.max(blockHeight, minDeleteBlockHeight) + 1;
+            if(deleteBlockCount <= 0){
+                return;
+            }
+            flushUnspentTransactionOutputCache();
+            //从链尾开始，每批次的区块合并为一次原子写入，每批次写入成功后替换链尾
+            long deletedBlockCount = 0;
+            while (deletedBlockCount < deleteBlockCount){
+                int batchDeleteBlockCount = 0;
+                KvWriteBatch kvWriteBatch = new KvWriteBatch();
+                ChainTip currentChainTip = getChainTip();
+                ChainTip nextChainTip = currentChainTip;
+                while (batchDeleteBlockCount < DELETE_BLOCKS_BATCH_SIZE && deletedBlockCount + batchDeleteBlockCount < deleteBlockCount){
+                    Block tailBlock = nextChainTip.getTailBlock();
+                    BlockUndo blockUndo = queryBlockUndo(tailBlock.getHeight());
+                    Block block;
+                    if(blockUndo != null){
+                        //由撤销记录还原区块，不需要解码区块里的交易
+                        block = restoreBlockByBlockUndo(tailBlock, blockUndo);
+                    }else {
+                        //没有撤销记录的区块(撤销记录出现之前写入的区块、旧版本的撤销记录)，查询包含交易的区块
+                        block = queryBlockWithTransactionsByBlockHeight(tailBlock.getHeight());
+                    }
+                    kvWriteBatch.getKvWrites().addAll(createBlockWriteBatch(nextChainTip, block, BlockchainActionEnum.DELETE_BLOCK).getKvWrites());
+                    nextChainTip = nextChainTip(nextChainTip, block, BlockchainActionEnum.DELETE_BLOCK);
+                    batchDeleteBlockCount++;
                 }
-                if(NumberUtil.isLessThan(tailBlock.getHeight(),blockHeight)){
-                    return;
+                synchronized (chainTipLock){
+                    getBlockchainKvStore().write(kvWriteBatch);
+                    chainTip = nextChainTip;
                 }
-                KvDbUtil.KvWriteBatch kvWriteBatch = createBlockWriteBatch(tailBlock, BlockchainActionEnum.DELETE_BLOCK);
-                KvDbUtil.write(getBlockchainDatabasePath(),kvWriteBatch);
+                invalidateQueryCache(currentChainTip, nextChainTip);
+                removeUnspentTransactionOutputCache(kvWriteBatch);
+                deletedBlockCount += batchDeleteBlockCount;
+                LogUtil.debug(String.format("delete blocks progress: %s/%s, blockchain height %s.",deletedBlockCount,deleteBlockCount,nextChainTip.getBlockchainHeight()));
+            }
+            //打开的读视图可能还在读取被删除的区块，不截断，之后追加的数据写在它们之后
+            if(openReadViewCount.get() == 0){
+                truncateBlockFile();
             }
         }finally {
             writeLock.unlock();
@@ -104,15 +296,111 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
 
 
+    //region 批量新增区块
+    /**
+     * 第一阶段：转换、校验从fromIndex开始的一批次区块，不能通过校验的区块为null。
+     * 与交易脚本校验使用同一个ForkJoinPool，在其中并行处理；没有ForkJoinPool(并行度为1)时在当前线程中依次处理。
+     */
+    private CompletableFuture<List<Block>> prepareBlocks(List<BlockDto> blockDtos, int fromIndex) {
+        List<BlockDto> batchBlockDtos = blockDtos.subList(fromIndex, Math.min(fromIndex + ADD_BLOCKS_BATCH_SIZE, blockDtos.size()));
+        if(scriptCheckForkJoinPool == null){
+            return CompletableFuture.completedFuture(batchBlockDtos.stream().map(this::prepareBlock).collect(Collectors.toList()));
+        }
+        return CompletableFuture.supplyAsync(() -> batchBlockDtos.parallelStream().map(this::prepareBlock).collect(Collectors.toList()),scriptCheckForkJoinPool);
+    }
+    /**
+     * 不依赖区块链状态的转换与校验
+     */
+    private Block prepareBlock(BlockDto blockDto) {
+        try {
+            //校验区块的大小
+            if(!SizeTool.checkBlockSize(blockDto)){
+                LogUtil.debug("区块数据异常，请校验区块的大小。");
+                return null;
+            }
+            Block block = Dto2ModelTool.blockDto2UnfilledBlock(blockDto);
+            //校验区块的结构
+            if(!StructureTool.checkBlockStructure(block)){
+                LogUtil.debug("区块数据异常，请校验区块的结构。");
+                return null;
+            }
+            return block;
+        } catch (Exception e){
+            LogUtil.error("区块数据异常。",e);
+            return null;
+        }
+    }
+    /**
+     * 第二、三阶段：依次补全、校验区块，遇到不能添加的区块时停止，校验通过的区块合并为一次原子写入。返回成功添加的区块数量。
+     * 校验后面的区块时需要读取前面的区块对数据库的修改，这些修改在写入数据库之前记录在pendingKvWrites中。
+     */
+    private int addPreparedBlocks(List<Block> preparedBlocks) {
+        ChainTip nextChainTip = getChainTip();
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
+        List<Block> addedBlocks = new ArrayList<>();
+        pendingKvWrites = new HashMap<>();
+        try{
+            for(Block block:preparedBlocks){
+                if(block == null){
+                    break;
+                }
+                try {
+                    Dto2ModelTool.fillBlock(this,block);
+                } catch (Exception e){
+                    LogUtil.error("区块预检失败。",e);
+                    break;
+                }
+                if(!checkBlockBusiness(block)){
+                    break;
+                }
+                KvWriteBatch blockKvWriteBatch = createBlockWriteBatch(nextChainTip, block, BlockchainActionEnum.ADD_BLOCK);
+                kvWriteBatch.getKvWrites().addAll(blockKvWriteBatch.getKvWrites());
+                putPendingKvWrites(blockKvWriteBatch);
+                //[交易输出ID]到[未花费交易输出高度]的修改由未花费交易输出缓存写回，不写入数据库，只供校验后面的区块时读取。
+                KvWriteBatch unspentTransactionOutputKvWriteBatch = new KvWriteBatch();
+                storeTransactionOutputIdToUnspentTransactionOutputHeight(unspentTransactionOutputKvWriteBatch, block, BlockchainActionEnum.ADD_BLOCK);
+                putPendingKvWrites(unspentTransactionOutputKvWriteBatch);
+                nextChainTip = nextChainTip(nextChainTip, block, BlockchainActionEnum.ADD_BLOCK);
+                pendingChainTip = nextChainTip;
+                addedBlocks.add(block);
+            }
+        }finally {
+            pendingKvWrites = null;
+            pendingChainTip = null;
+        }
+        if(addedBlocks.isEmpty()){
+            return 0;
+        }
+        if(!unspentTransactionOutputCache.isDirty()){
+            //每个区块都将刷盘高度记为它的前一个区块的高度，合并写入时，刷盘高度应是这批次第一个区块的前一个区块的高度。
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey(),ByteUtil.long8ToByte8(addedBlocks.get(0).getHeight()-1));
+        }
+        synchronized (chainTipLock){
+            writeBlockWriteBatch(kvWriteBatch);
+            chainTip = nextChainTip;
+        }
+        for(Block addedBlock:addedBlocks){
+            cacheUnspentTransactionOutput(addedBlock);
+        }
+        if(unspentTransactionOutputCache.getDirtyCount() >= coreConfiguration.getUnspentTransactionOutputCacheFlushThreshold()){
+            flushUnspentTransactionOutputCache();
+        }
+        return addedBlocks.size();
+    }
+    private void putPendingKvWrites(KvWriteBatch kvWriteBatch) {
+        putHashAddressFilter(kvWriteBatch);
+        for(KvWrite kvWrite:kvWriteBatch.getKvWrites()){
+            byte[] value = kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.ADD ? kvWrite.getValue() : null;
+            pendingKvWrites.put(ByteBuffer.wrap(kvWrite.getKey()), value);
+        }
+    }
+    //endregion
+
+
+
     //region 校验区块、交易
     @Override
     public boolean checkBlock(Block block) {
-        //校验系统版本是否支持
-        if(!Setting.SystemVersionSetting.checkSystemVersion(block.getHeight())){
-            LogUtil.debug("系统版本过低，不支持校验区块，请尽快升级系统。");
-            return false;
-        }
-
         //校验区块的结构
         if(!StructureTool.checkBlockStructure(block)){
             LogUtil.debug("区块数据异常，请校验区块的结构。");
@@ -123,7 +411,17 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             LogUtil.debug("区块数据异常，请校验区块的大小。");
             return false;
         }
-
+        return checkBlockBusiness(block);
+    }
+    /**
+     * 校验区块的业务：依赖区块链状态的校验
+     */
+    private boolean checkBlockBusiness(Block block) {
+        //校验系统版本是否支持
+        if(!Setting.SystemVersionSetting.checkSystemVersion(block.getHeight())){
+            LogUtil.debug("系统版本过低，不支持校验区块，请尽快升级系统。");
+            return false;
+        }
 
         //校验业务
         Block previousBlock = queryTailBlock();
@@ -168,19 +466,38 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             return false;
         }
 
-        //从交易角度校验每一笔交易
+        //从交易角度校验每一笔交易：先依次校验脚本之外的部分，再并行校验全部交易的脚本
         for(Transaction transaction : block.getTransactions()){
-            boolean transactionCanAddToNextBlock = checkTransaction(transaction);
+            boolean transactionCanAddToNextBlock = checkTransactionWithoutScript(transaction);
             if(!transactionCanAddToNextBlock){
                 LogUtil.debug("区块数据异常，交易异常。");
                 return false;
             }
         }
+        if(!transactionScriptChecker.checkTransactionScripts(block.getTransactions())){
+            LogUtil.debug("交易校验失败：交易[输入脚本]解锁交易[输出脚本]异常。");
+            LogUtil.debug("区块数据异常，交易异常。");
+            return false;
+        }
         return true;
     }
 
     @Override
     public boolean checkTransaction(Transaction transaction) {
+        if(!checkTransactionWithoutScript(transaction)){
+            return false;
+        }
+        //校验脚本
+        if(!virtualMachine.checkTransactionScript(transaction)) {
+            LogUtil.debug("交易校验失败：交易[输入脚本]解锁交易[输出脚本]异常。");
+            return false;
+        }
+        return true;
+    }
+    /**
+     * 校验交易中脚本之外的部分：结构、大小、地址、哈希、金额、双花。脚本校验最耗时，校验区块时在这些校验全部通过后并行进行。
+     */
+    private boolean checkTransactionWithoutScript(Transaction transaction) {
         //校验交易的结构
         if(!StructureTool.checkTransactionStructure(transaction)){
             LogUtil.debug("交易数据异常，请校验交易的结构。");
@@ -208,135 +525,1227 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             LogUtil.debug("区块数据异常，区块中新产生的哈希异常。");
             return false;
         }
-        //校验新产生的地址
-        if(!checkNewAddress(transaction)){
-            LogUtil.debug("区块数据异常，区块中新产生的哈希异常。");
-            return false;
+        //校验新产生的地址
+        if(!checkNewAddress(transaction)){
+            LogUtil.debug("区块数据异常，区块中新产生的哈希异常。");
+            return false;
+        }
+        //校验交易金额
+        if(!TransactionTool.checkTransactionValue(transaction)){
+            LogUtil.debug("交易金额不合法");
+            return false;
+        }
+        //校验双花
+        if(!checkDoubleSpend(transaction)){
+            LogUtil.debug("交易数据异常，检测到双花攻击。");
+            return false;
+        }
+        return true;
+    }
+    //endregion
+
+
+
+    //region 普通查询
+    @Override
+    public long queryBlockchainHeight() {
+        return getChainTip().getBlockchainHeight();
+    }
+
+    @Override
+    public long queryBlockchainTransactionHeight() {
+        return getChainTip().getBlockchainTransactionHeight();
+    }
+    @Override
+    public long queryBlockchainTransactionOutputHeight() {
+        return getChainTip().getBlockchainTransactionOutputHeight();
+    }
+    @Override
+    public long queryPrunedBlockHeight() {
+        return Math.max(queryUtxoSnapshotHeight(), queryBlockPruneHeight());
+    }
+    //endregion
+
+
+
+    //region 链尾
+    private ChainTip getChainTip() {
+        if(readWriteLock.isWriteLockedByCurrentThread() && pendingChainTip != null){
+            return pendingChainTip;
+        }
+        ReadViewDefaultImpl readView = currentReadView();
+        if(readView != null){
+            return readView.getChainTip();
+        }
+        ChainTip chainTip = this.chainTip;
+        if(chainTip != null){
+            return chainTip;
+        }
+        //加读锁加载，保证加载期间没有区块写入
+        Lock readLock = readWriteLock.readLock();
+        readLock.lock();
+        try{
+            if(this.chainTip == null){
+                this.chainTip = loadChainTip();
+            }
+            return this.chainTip;
+        }finally {
+            readLock.unlock();
+        }
+    }
+    /**
+     * 从数据库加载链尾
+     */
+    private ChainTip loadChainTip() {
+        long blockchainHeight = Setting.GenesisBlockSetting.HEIGHT;
+        byte[] bytesBlockchainHeight = queryBytes(BlockchainDatabaseKeyTool.buildBlockchainHeightKey());
+        if(bytesBlockchainHeight != null){
+            blockchainHeight = ByteUtil.byte8ToLong8(bytesBlockchainHeight);
+        }
+        long blockchainTransactionHeight = 0;
+        byte[] bytesBlockchainTransactionHeight = queryBytes(BlockchainDatabaseKeyTool.buildBlockchainTransactionHeightKey());
+        if(bytesBlockchainTransactionHeight != null){
+            blockchainTransactionHeight = ByteUtil.byte8ToLong8(bytesBlockchainTransactionHeight);
+        }
+        long blockchainTransactionOutputHeight = 0;
+        byte[] bytesBlockchainTransactionOutputHeight = queryBytes(BlockchainDatabaseKeyTool.buildBlockchainTransactionOutputHeightKey());
+        if(bytesBlockchainTransactionOutputHeight != null){
+            blockchainTransactionOutputHeight = ByteUtil.byte8ToLong8(bytesBlockchainTransactionOutputHeight);
+        }
+        Block tailBlock = null;
+        String tailBlockHash = Setting.GenesisBlockSetting.HASH;
+        if(NumberUtil.isGreatThan(blockchainHeight, Setting.GenesisBlockSetting.HEIGHT)){
+            tailBlock = queryBlockByBlockHeight(blockchainHeight);
+            tailBlockHash = tailBlock.getHash();
+        }
+        return new ChainTip(blockchainHeight,tailBlockHash,tailBlock,blockchainTransactionHeight,blockchainTransactionOutputHeight);
+    }
+    /**
+     * 计算新增或删除区块后的链尾
+     */
+    private ChainTip nextChainTip(ChainTip chainTip, Block block, BlockchainActionEnum blockchainActionEnum) {
+        if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
+            return new ChainTip(block.getHeight(),block.getHash(),BlockTool.copyBlockHeader(block),
+                    chainTip.getBlockchainTransactionHeight() + BlockTool.getTransactionCount(block),
+                    chainTip.getBlockchainTransactionOutputHeight() + BlockTool.getTransactionOutputCount(block));
+        }
+        long blockchainHeight = block.getHeight() - 1;
+        Block tailBlock = null;
+        if(NumberUtil.isGreatThan(blockchainHeight, Setting.GenesisBlockSetting.HEIGHT)){
+            tailBlock = queryBlockByBlockHeight(blockchainHeight);
+        }
+        return new ChainTip(blockchainHeight,block.getPreviousHash(),tailBlock,
+                chainTip.getBlockchainTransactionHeight() - BlockTool.getTransactionCount(block),
+                chainTip.getBlockchainTransactionOutputHeight() - BlockTool.getTransactionOutputCount(block));
+    }
+    //endregion
+
+
+
+    //region 读视图
+    @Override
+    public ReadView openReadView() {
+        ReadViewDefaultImpl readView = currentReadView.get();
+        if(readView != null){
+            readView.retain();
+            return readView;
+        }
+        openReadViewCount.incrementAndGet();
+        try {
+            while (readView == null){
+                //链尾为null时先在锁外加载，加载链尾需要读锁，不能在链尾锁内等待
+                getChainTip();
+                synchronized (chainTipLock){
+                    ChainTip chainTip = this.chainTip;
+                    if(chainTip != null){
+                        readView = new ReadViewDefaultImpl(this,getBlockchainKvStore().snapshot(),chainTip,queryCacheInvalidateCount(),Thread.currentThread());
+                    }
+                }
+            }
+        } catch (RuntimeException e){
+            openReadViewCount.decrementAndGet();
+            throw e;
+        }
+        currentReadView.set(readView);
+        return readView;
+    }
+    /**
+     * 关闭读视图：创建读视图的线程关闭最外层的读视图时调用。
+     */
+    void closeReadView(ReadViewDefaultImpl readView) {
+        currentReadView.remove();
+        readView.getKvSnapshot().close();
+        openReadViewCount.decrementAndGet();
+    }
+    /**
+     * 当前线程打开的读视图。持有写锁的线程(正在新增、删除区块)读取的总是最新的数据，不使用读视图。
+     */
+    private ReadViewDefaultImpl currentReadView() {
+        if(readWriteLock.isWriteLockedByCurrentThread()){
+            return null;
+        }
+        return currentReadView.get();
+    }
+    /**
+     * 查询缓存的失效次数之和
+     */
+    private long queryCacheInvalidateCount() {
+        return blockCache.getInvalidateCount() + transactionCache.getInvalidateCount() + transactionOutputCache.getInvalidateCount();
+    }
+    /**
+     * 能否读写查询缓存：没有打开读视图，或者读视图创建之后查询缓存没有失效过。
+     */
+    private boolean isQueryCacheReadable(ReadViewDefaultImpl readView) {
+        return readView == null || readView.getQueryCacheInvalidateCount() == queryCacheInvalidateCount();
+    }
+    //endregion
+
+
+
+    //region 范围扫描
+    @Override
+    public BlockScanner scanBlocksByBlockHeight(long fromBlockHeight, long toBlockHeight) {
+        ReadViewDefaultImpl readView = (ReadViewDefaultImpl) openReadView();
+        KvIterator kvIterator = openKvIterator(readView,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(fromBlockHeight));
+        return new BlockScannerDefaultImpl(readView,kvIterator,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(toBlockHeight),blockFileStore);
+    }
+    /**
+     * 先在[区块时间戳到区块高度]映射中找出时间戳范围对应的区块高度范围，再按区块高度范围扫描。
+     */
+    @Override
+    public BlockScanner scanBlocksByBlockTimestamp(long fromBlockTimestamp, long toBlockTimestamp) {
+        ReadViewDefaultImpl readView = (ReadViewDefaultImpl) openReadView();
+        long fromBlockHeight = Setting.GenesisBlockSetting.HEIGHT + 1;
+        long toBlockHeight = Setting.GenesisBlockSetting.HEIGHT;
+        //主键按无符号字节排序，时间戳不能是负数
+        fromBlockTimestamp = Math.max(fromBlockTimestamp, 0);
+        try (KvIterator kvIterator = readView.getKvSnapshot().iterator()) {
+            kvIterator.seek(BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(fromBlockTimestamp));
+            if(fromBlockTimestamp <= toBlockTimestamp && kvIterator.isValid() && BlockchainDatabaseKeyTool.isBlockTimestampToBlockHeightKey(kvIterator.key())){
+                fromBlockHeight = ByteUtil.byte8ToLong8(kvIterator.value());
+                //只使用正向定位(有的存储引擎反向定位需要从头遍历)：时间戳大于结束时间戳的第一个区块之前的区块都在范围内
+                toBlockHeight = readView.getBlockchainHeight();
+                if(toBlockTimestamp < Long.MAX_VALUE){
+                    kvIterator.seek(BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(toBlockTimestamp + 1));
+                    if(kvIterator.isValid() && BlockchainDatabaseKeyTool.isBlockTimestampToBlockHeightKey(kvIterator.key())){
+                        toBlockHeight = ByteUtil.byte8ToLong8(kvIterator.value()) - 1;
+                    }
+                }
+            }
+        } catch (RuntimeException e){
+            readView.close();
+            throw e;
+        }
+        KvIterator kvIterator = openKvIterator(readView,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(fromBlockHeight));
+        return new BlockScannerDefaultImpl(readView,kvIterator,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(toBlockHeight),blockFileStore);
+    }
+    /**
+     * 区块里的交易是连续的交易高度，由首尾两个区块的区块头得到交易高度范围，再按交易高度范围扫描。
+     */
+    @Override
+    public TransactionScanner scanTransactionsByBlockHeight(long fromBlockHeight, long toBlockHeight) {
+        ReadViewDefaultImpl readView = (ReadViewDefaultImpl) openReadView();
+        long fromTransactionHeight = 1;
+        long toTransactionHeight = 0;
+        try {
+            long blockchainHeight = readView.getBlockchainHeight();
+            fromBlockHeight = Math.max(fromBlockHeight, Setting.GenesisBlockSetting.HEIGHT + 1);
+            toBlockHeight = Math.min(toBlockHeight, blockchainHeight);
+            if(fromBlockHeight <= toBlockHeight){
+                Block fromBlock = queryBlockByBlockHeight(fromBlockHeight);
+                Block toBlock = queryBlockByBlockHeight(toBlockHeight);
+                fromTransactionHeight = fromBlock.getPreviousTransactionHeight() + 1;
+                toTransactionHeight = toBlock.getPreviousTransactionHeight() + toBlock.getTransactionCount();
+            }
+        } catch (RuntimeException e){
+            readView.close();
+            throw e;
+        }
+        KvIterator kvIterator = openKvIterator(readView,BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(fromTransactionHeight));
+        return new TransactionScannerDefaultImpl(readView,kvIterator,BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(toTransactionHeight),blockFileStore);
+    }
+    /**
+     * 启动时调用：建立区块时间戳索引。
+     * 之前版本的数据库没有[区块时间戳到区块高度]的映射，顺序遍历区块头补充它们。尾部区块的映射存在时，索引已经是完整的。
+     * 补充分批次进行，中断后再次启动时重新补充。
+     */
+    public void recoverBlockTimestampIndex() {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            Block tailBlock = queryTailBlock();
+            if(tailBlock == null || queryBytes(BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(tailBlock.getTimestamp())) != null){
+                return;
+            }
+            LogUtil.debug("build block timestamp index start.");
+            byte[] prefix = BlockchainDatabaseKeyTool.buildBlockHeightToBlockKeyPrefix();
+            try (KvIterator kvIterator = getBlockchainKvStore().iterator()) {
+                KvWriteBatch kvWriteBatch = new KvWriteBatch();
+                for(kvIterator.seek(prefix); kvIterator.isValid() && kvIterator.key()[0] == prefix[0]; kvIterator.next()){
+                    Block block = decodeBlockHeader(kvIterator.value());
+                    kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(block.getTimestamp()), ByteUtil.long8ToByte8(block.getHeight()));
+                    if(kvWriteBatch.getKvWrites().size() >= BUILD_BLOCK_TIMESTAMP_INDEX_BATCH_SIZE){
+                        getBlockchainKvStore().write(kvWriteBatch);
+                        kvWriteBatch = new KvWriteBatch();
+                    }
+                }
+                getBlockchainKvStore().write(kvWriteBatch);
+            }
+            LogUtil.debug("build block timestamp index finish.");
+        }finally {
+            writeLock.unlock();
+        }
+    }
+    /**
+     * 在读视图的快照上创建扫描器使用的迭代器并定位到起始主键，创建失败时关闭读视图。
+     */
+    private KvIterator openKvIterator(ReadViewDefaultImpl readView, byte[] fromKey) {
+        KvIterator kvIterator = null;
+        try {
+            kvIterator = readView.getKvSnapshot().iterator();
+            kvIterator.seek(fromKey);
+            return kvIterator;
+        } catch (RuntimeException e){
+            if(kvIterator != null){
+                kvIterator.close();
+            }
+            readView.close();
+            throw e;
+        }
+    }
+    private Block decodeBlockHeader(byte[] bytes) {
+        return EncodeDecodeTool.decodeToBlock(readBlockFileBytes(bytes));
+    }
+    //endregion
+
+
+
+    //region 区块查询
+    @Override
+    public Block queryTailBlock() {
+        return getChainTip().getTailBlock();
+    }
+    @Override
+    public Block queryBlockByBlockHeight(long blockHeight) {
+        ReadViewDefaultImpl readView = currentReadView();
+        if(readView != null && blockHeight > readView.getChainTip().getBlockchainHeight()){
+            return null;
+        }
+        long invalidateCount = blockCache.getInvalidateCount();
+        boolean queryCacheReadable = isQueryCacheReadable(readView);
+        Block block = queryCacheReadable ? blockCache.get(blockHeight) : null;
+        if(block != null){
+            return block;
+        }
+        byte[] blockHeightToBlockKey = BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(blockHeight);
+        byte[] bytesBlock = queryBlockFileBytes(blockHeightToBlockKey);
+        if(bytesBlock==null){
+            return null;
+        }
+        //只返回区块头：旧版本数据库里的区块包含交易，也不返回它们，区块里的交易用queryTransactionsByBlockHeight查询
+        block = EncodeDecodeTool.decodeToBlock(bytesBlock);
+        block.setTransactions(null);
+        if(queryCacheReadable && !isPending(blockHeightToBlockKey)){
+            blockCache.put(blockHeight,block,bytesBlock.length,invalidateCount);
+        }
+        return block;
+    }
+    @Override
+    public Block queryBlockByBlockHash(String blockHash) {
+        byte[] bytesBlockHeight = queryBytes(BlockchainDatabaseKeyTool.buildBlockHashToBlockHeightKey(blockHash));
+        if(bytesBlockHeight == null){
+            return null;
+        }
+        return queryBlockByBlockHeight(ByteUtil.byte8ToLong8(bytesBlockHeight));
+    }
+    @Override
+    public List<Transaction> queryTransactionsByBlockHeight(long blockHeight) {
+        //区块头和交易在同一个读视图中读取，区块被删除、替换时不会读到其它区块的交易
+        try (ReadView readView = openReadView()) {
+            Block block = queryBlockByBlockHeight(blockHeight);
+            if(block == null){
+                return null;
+            }
+            List<Transaction> transactions = new ArrayList<>((int) block.getTransactionCount());
+            try (TransactionScanner transactionScanner = scanTransactionsByBlockHeight(blockHeight, blockHeight)) {
+                Transaction transaction;
+                while ((transaction = transactionScanner.next()) != null){
+                    fillSpentTransactionOutput(transaction);
+                    transactions.add(transaction);
+                }
+            }
+            if(transactions.size() != block.getTransactionCount()){
+                return null;
+            }
+            return transactions;
+        }
+    }
+    /**
+     * 查询包含交易的区块：复制区块头，再查询区块里的交易，不放入查询缓存。区块不存在、区块里的交易已被裁剪时抛出异常。
+     */
+    private Block queryBlockWithTransactionsByBlockHeight(long blockHeight) {
+        Block blockHeader = queryBlockByBlockHeight(blockHeight);
+        List<Transaction> transactions = queryTransactionsByBlockHeight(blockHeight);
+        if(blockHeader == null || transactions == null){
+            throw new RuntimeException(String.format("区块数据异常，没有查询到高度为%s的区块里的交易。",blockHeight));
+        }
+        Block block = BlockTool.copyBlockHeader(blockHeader);
+        block.setTransactions(transactions);
+        return block;
+    }
+    //endregion
+
+
+
+    //region 交易查询
+    @Override
+    public Transaction queryTransactionByTransactionHash(String transactionHash) {
+        byte[] transactionHeight = queryBytes(BlockchainDatabaseKeyTool.buildTransactionHashToTransactionHeightKey(transactionHash));
+        if(transactionHeight == null){
+            return null;
+        }
+        return queryTransactionByTransactionHeight(ByteUtil.byte8ToLong8(transactionHeight));
+    }
+
+    @Override
+    public Transaction querySourceTransactionByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
+        byte[] sourceTransactionHeight = queryBytes(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSourceTransactionHeightKey(transactionHash,transactionOutputIndex));
+        if(sourceTransactionHeight == null){
+            return null;
+        }
+        return queryTransactionByTransactionHeight(ByteUtil.byte8ToLong8(sourceTransactionHeight));
+    }
+
+    @Override
+    public Transaction queryDestinationTransactionByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
+        byte[] destinationTransactionHeight = queryBytes(BlockchainDatabaseKeyTool.buildTransactionOutputIdToDestinationTransactionHeightKey(transactionHash,transactionOutputIndex));
+        if(destinationTransactionHeight == null){
+            return null;
+        }
+        return queryTransactionByTransactionHeight(ByteUtil.byte8ToLong8(destinationTransactionHeight));
+    }
+
+    @Override
+    public TransactionOutput queryTransactionOutputByTransactionOutputHeight(long transactionOutputHeight) {
+        ReadViewDefaultImpl readView = currentReadView();
+        if(readView != null && transactionOutputHeight > readView.getChainTip().getBlockchainTransactionOutputHeight()){
+            return null;
+        }
+        long invalidateCount = transactionOutputCache.getInvalidateCount();
+        boolean queryCacheReadable = isQueryCacheReadable(readView);
+        TransactionOutput transactionOutput = queryCacheReadable ? transactionOutputCache.get(transactionOutputHeight) : null;
+        if(transactionOutput != null){
+            return transactionOutput;
+        }
+        byte[] transactionOutputHeightToTransactionOutputKey = BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(transactionOutputHeight);
+        byte[] bytesTransactionOutput = queryBytes(transactionOutputHeightToTransactionOutputKey);
+        if(bytesTransactionOutput == null){
+            return null;
+        }
+        transactionOutput = EncodeDecodeTool.decodeToTransactionOutput(bytesTransactionOutput);
+        if(queryCacheReadable && !isPending(transactionOutputHeightToTransactionOutputKey)){
+            transactionOutputCache.put(transactionOutputHeight,transactionOutput,bytesTransactionOutput.length,invalidateCount);
+        }
+        return transactionOutput;
+    }
+
+    @Override
+    public Transaction queryTransactionByTransactionHeight(long transactionHeight) {
+        ReadViewDefaultImpl readView = currentReadView();
+        if(readView != null && transactionHeight > readView.getChainTip().getBlockchainTransactionHeight()){
+            return null;
+        }
+        long invalidateCount = transactionCache.getInvalidateCount();
+        boolean queryCacheReadable = isQueryCacheReadable(readView);
+        Transaction transaction = queryCacheReadable ? transactionCache.get(transactionHeight) : null;
+        if(transaction != null){
+            return transaction;
+        }
+        byte[] transactionHeightToTransactionKey = BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transactionHeight);
+        byte[] byteTransaction = queryBlockFileBytes(transactionHeightToTransactionKey);
+        if(byteTransaction == null){
+            return null;
+        }
+        transaction = EncodeDecodeTool.decodeToTransaction(byteTransaction);
+        fillSpentTransactionOutput(transaction);
+        if(queryCacheReadable && !isPending(transactionHeightToTransactionKey)){
+            transactionCache.put(transactionHeight,transaction,byteTransaction.length,invalidateCount);
+        }
+        return transaction;
+    }
+    //endregion
+
+
+
+    //region 查询缓存
+    /**
+     * 区块查询缓存，可以通过它查看缓存的命中次数、未命中次数、淘汰次数等信息。
+     */
+    public LruCache<Long,Block> getBlockCache() {
+        return blockCache;
+    }
+    /**
+     * 交易查询缓存
+     */
+    public LruCache<Long,Transaction> getTransactionCache() {
+        return transactionCache;
+    }
+    /**
+     * 交易输出查询缓存
+     */
+    public LruCache<Long,TransactionOutput> getTransactionOutputCache() {
+        return transactionOutputCache;
+    }
+    /**
+     * 区块被删除后，使区块、区块里的交易、交易输出的缓存失效。
+     * currentChainTip是删除区块前的链尾，previousChainTip是删除区块后的链尾，两者之间的区块、交易、交易输出都被删除了。
+     */
+    private void invalidateQueryCache(ChainTip currentChainTip, ChainTip previousChainTip) {
+        for(long blockHeight=previousChainTip.getBlockchainHeight()+1; blockHeight<=currentChainTip.getBlockchainHeight(); blockHeight++){
+            blockCache.invalidate(blockHeight);
+        }
+        for(long transactionHeight=previousChainTip.getBlockchainTransactionHeight()+1; transactionHeight<=currentChainTip.getBlockchainTransactionHeight(); transactionHeight++){
+            transactionCache.invalidate(transactionHeight);
+        }
+        for(long transactionOutputHeight=previousChainTip.getBlockchainTransactionOutputHeight()+1; transactionOutputHeight<=currentChainTip.getBlockchainTransactionOutputHeight(); transactionOutputHeight++){
+            transactionOutputCache.invalidate(transactionOutputHeight);
+        }
+    }
+    //endregion
+
+
+
+    //region 区块文件
+    /**
+     * 启动时调用：截断区块文件中数据库没有引用的数据(程序在追加区块文件之后、写入数据库之前退出)。
+     * 数据库引用的数据超出了区块文件的末尾(没有同步写时，数据库写入之后、区块文件刷盘之前宕机)时，区块文件丢失了数据，抛出异常。
+     */
+    public void recoverBlockFile() {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            truncateBlockFile();
+        }finally {
+            writeLock.unlock();
+        }
+    }
+    /**
+     * 将数据追加写入区块文件，返回编码后的区块文件指针。
+     */
+    private byte[] appendBlockFile(byte[] bytes) {
+        return BlockFilePointer.encode(blockFileStore.append(bytes));
+    }
+    /**
+     * 读取[区块高度到区块]、[交易高度到交易]映射的值：值是区块文件指针时，读取区块文件中的数据；否则是旧版本直接存储在数据库里的数据。
+     */
+    private byte[] queryBlockFileBytes(byte[] key) {
+        return readBlockFileBytes(queryBytes(key));
+    }
+    /**
+     * 值是区块文件指针时，读取区块文件中的数据；否则值就是数据本身。
+     */
+    private byte[] readBlockFileBytes(byte[] bytes) {
+        return blockFileStore.readValue(bytes);
+    }
+    /**
+     * 写入新增区块的WriteBatch，写入失败时截断已追加到区块文件的数据。
+     * 同步写时先将追加到区块文件的数据刷盘，再写入引用它们的数据库。
+     */
+    private void writeBlockWriteBatch(KvWriteBatch kvWriteBatch) {
+        putHashAddressFilter(kvWriteBatch);
+        try {
+            blockFileStore.force();
+            getBlockchainKvStore().write(kvWriteBatch);
+        } catch (RuntimeException e){
+            truncateBlockFile();
+            throw e;
+        }
+    }
+    /**
+     * 将区块文件截断到尾部区块的数据结束的位置，尾部区块的数据在尾部区块的最后一笔交易(或区块头)处结束。
+     * 尾部区块不在区块文件中(旧版本直接存储在数据库里的区块)时，区块文件中没有被引用的数据。
+     */
+    private void truncateBlockFile() {
+        ChainTip chainTip = getChainTip();
+        BlockFilePointer endBlockFilePointer = null;
+        byte[] bytesTailBlock = queryBytes(BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(chainTip.getBlockchainHeight()));
+        if(BlockFilePointer.isBlockFilePointer(bytesTailBlock)){
+            endBlockFilePointer = BlockFilePointer.decode(bytesTailBlock);
+        }
+        byte[] bytesTailTransaction = queryBytes(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(chainTip.getBlockchainTransactionHeight()));
+        if(BlockFilePointer.isBlockFilePointer(bytesTailTransaction)){
+            BlockFilePointer tailTransactionBlockFilePointer = BlockFilePointer.decode(bytesTailTransaction);
+            if(endBlockFilePointer == null || tailTransactionBlockFilePointer.isEndAfter(endBlockFilePointer)){
+                endBlockFilePointer = tailTransactionBlockFilePointer;
+            }
+        }
+        if(endBlockFilePointer == null){
+            blockFileStore.truncate(0,0);
+        }else {
+            blockFileStore.truncate(endBlockFilePointer.getSegment(),endBlockFilePointer.getEndOffset());
+        }
+    }
+    //endregion
+
+
+
+    //region UTXO快照
+    /**
+     * 导出UTXO快照：已使用的哈希、已使用的地址、全部区块头、区块哈希到区块高度的映射、未花费交易输出，以及链尾的高度、哈希、交易高度、交易输出高度。
+     * 校验新区块需要这些数据：哈希、地址不能重复使用，挖矿难度由之前的区块头计算，交易输入必须是未花费交易输出。
+     * 加写锁将未花费交易输出缓存刷入数据库并创建数据库快照，之后在数据库快照上导出，导出期间不阻塞新增区块。
+     * 返回快照的承诺哈希。
+     */
+    public String exportUtxoSnapshot(String snapshotPath) {
+        KvSnapshot kvSnapshot;
+        ChainTip snapshotChainTip;
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            flushUnspentTransactionOutputCache();
+            kvSnapshot = getBlockchainKvStore().snapshot();
+            snapshotChainTip = getChainTip();
+        }finally {
+            writeLock.unlock();
+        }
+        try (KvSnapshot closeableKvSnapshot = kvSnapshot;
+             UtxoSnapshotWriter utxoSnapshotWriter = UtxoSnapshotWriter.open(snapshotPath, snapshotChainTip);
+             KvIterator iterator = closeableKvSnapshot.iterator()) {
+            //按主键前缀从小到大导出，因此快照中的数据是按主键排序的
+            byte[][] prefixes = new byte[][]{
+                    BlockchainDatabaseKeyTool.buildHashKeyPrefix(),
+                    BlockchainDatabaseKeyTool.buildBlockHeightToBlockKeyPrefix(),
+                    BlockchainDatabaseKeyTool.buildBlockHashToBlockHeightKeyPrefix(),
+                    BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKeyPrefix(),
+                    BlockchainDatabaseKeyTool.buildAddressKeyPrefix()};
+            for(byte[] prefix:prefixes){
+                for(iterator.seek(prefix); iterator.isValid() && iterator.key()[0] == prefix[0]; iterator.next()){
+                    utxoSnapshotWriter.write(iterator.key(), exportUtxoSnapshotValue(closeableKvSnapshot, iterator.key(), iterator.value()));
+                }
+            }
+            String commitment = utxoSnapshotWriter.finish();
+            LogUtil.info(String.format("export utxo snapshot finish. blockchain height %s, commitment %s.",snapshotChainTip.getBlockchainHeight(),commitment));
+            return commitment;
+        }
+    }
+    /**
+     * 导入UTXO快照：只能导入到空的区块链数据库，导入后区块链从快照的高度继续同步区块。
+     * 先完整读取一遍快照，校验数据块摘要、承诺哈希(commitment不为null时还需要与它相同)、主键顺序、区块头的连接关系，校验通过后再写入数据库。
+     * 链尾、刷盘高度、UTXO快照高度最后写入，导入中断时区块链高度仍然是0，可以重新导入。
+     * 返回快照的承诺哈希。
+     */
+    public String importUtxoSnapshot(String snapshotPath, String commitment) {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            if(queryBlockchainHeight() != Setting.GenesisBlockSetting.HEIGHT){
+                throw new RuntimeException("只能向空的区块链数据库导入UTXO快照。");
+            }
+            ChainTip snapshotChainTip;
+            String snapshotCommitment;
+            try (UtxoSnapshotReader utxoSnapshotReader = UtxoSnapshotReader.open(snapshotPath)) {
+                checkUtxoSnapshot(utxoSnapshotReader);
+                snapshotChainTip = utxoSnapshotReader.getChainTip();
+                snapshotCommitment = utxoSnapshotReader.getCommitment();
+            }
+            if(commitment != null && !StringUtil.isEquals(commitment,snapshotCommitment)){
+                throw new RuntimeException(String.format("UTXO快照的承诺哈希是%s，与期望的承诺哈希%s不一致。",snapshotCommitment,commitment));
+            }
+            //删除上次导入中断时追加到区块文件的区块头
+            truncateBlockFile();
+            try (UtxoSnapshotReader utxoSnapshotReader = UtxoSnapshotReader.open(snapshotPath)) {
+                KvWriteBatch kvWriteBatch = new KvWriteBatch();
+                KvEntry kvEntry;
+                while ((kvEntry = utxoSnapshotReader.next()) != null){
+                    importUtxoSnapshotEntry(kvWriteBatch, kvEntry);
+                    if(kvWriteBatch.getKvWrites().size() >= IMPORT_UTXO_SNAPSHOT_BATCH_SIZE){
+                        putHashAddressFilter(kvWriteBatch);
+                        blockFileStore.force();
+                        getBlockchainKvStore().write(kvWriteBatch);
+                        kvWriteBatch = new KvWriteBatch();
+                    }
+                }
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockchainHeightKey(),ByteUtil.long8ToByte8(snapshotChainTip.getBlockchainHeight()));
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockchainTransactionHeightKey(),ByteUtil.long8ToByte8(snapshotChainTip.getBlockchainTransactionHeight()));
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockchainTransactionOutputHeightKey(),ByteUtil.long8ToByte8(snapshotChainTip.getBlockchainTransactionOutputHeight()));
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey(),ByteUtil.long8ToByte8(snapshotChainTip.getBlockchainHeight()));
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUtxoSnapshotHeightKey(),ByteUtil.long8ToByte8(snapshotChainTip.getBlockchainHeight()));
+                putHashAddressFilter(kvWriteBatch);
+                blockFileStore.force();
+                getBlockchainKvStore().write(kvWriteBatch);
+            }
+            synchronized (chainTipLock){
+                chainTip = null;
+            }
+            LogUtil.info(String.format("import utxo snapshot finish. blockchain height %s, commitment %s.",snapshotChainTip.getBlockchainHeight(),snapshotCommitment));
+            return snapshotCommitment;
+        }finally {
+            writeLock.unlock();
+        }
+    }
+    /**
+     * 导出的值：区块头从区块文件读取，未花费交易输出导出交易输出本身，已使用的哈希、地址不需要值。
+     */
+    private byte[] exportUtxoSnapshotValue(KvSnapshot kvSnapshot, byte[] key, byte[] value) {
+        if(BlockchainDatabaseKeyTool.isBlockHeightToBlockKey(key)){
+            byte[] bytesBlock = readBlockFileBytes(value);
+            //区块文件不在数据库快照中，导出期间删除区块后，区块文件中这个位置可能已经是另一个区块了。
+            byte[] bytesBlockHeight = kvSnapshot.get(BlockchainDatabaseKeyTool.buildBlockHashToBlockHeightKey(EncodeDecodeTool.decodeToBlock(bytesBlock).getHash()));
+            if(bytesBlockHeight == null || !ByteUtil.equals(key,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(ByteUtil.byte8ToLong8(bytesBlockHeight)))){
+                throw new RuntimeException("导出期间区块链删除了区块，请重新导出UTXO快照。");
+            }
+            return bytesBlock;
+        }
+        if(BlockchainDatabaseKeyTool.isTransactionOutputIdToUnspentTransactionOutputHeightKey(key)){
+            return kvSnapshot.get(BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(ByteUtil.byte8ToLong8(value)));
+        }
+        if(BlockchainDatabaseKeyTool.isKeyAsValueKey(key)){
+            return new byte[0];
+        }
+        return value;
+    }
+    /**
+     * 读取整个快照，校验主键顺序、主键与值是否匹配、区块头的连接关系，以及尾部区块与快照头是否一致。
+     */
+    private void checkUtxoSnapshot(UtxoSnapshotReader utxoSnapshotReader) {
+        byte[] previousKey = null;
+        long previousBlockHeight = Setting.GenesisBlockSetting.HEIGHT;
+        String previousBlockHash = Setting.GenesisBlockSetting.HASH;
+        KvEntry kvEntry;
+        while ((kvEntry = utxoSnapshotReader.next()) != null){
+            byte[] key = kvEntry.getKey();
+            if(previousKey != null && UnsignedBytesComparator.INSTANCE.compare(previousKey,key) >= 0){
+                throw new RuntimeException("UTXO快照中的数据没有按主键排序。");
+            }
+            previousKey = key;
+            if(BlockchainDatabaseKeyTool.isBlockHeightToBlockKey(key)){
+                Block block = EncodeDecodeTool.decodeToBlock(kvEntry.getValue());
+                if(block.getHeight() != previousBlockHeight + 1 || !StringUtil.isEquals(block.getPreviousHash(),previousBlockHash)
+                        || !ByteUtil.equals(key,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(block.getHeight()))){
+                    throw new RuntimeException(String.format("UTXO快照中高度为%s的区块头与前一个区块头不连续。",block.getHeight()));
+                }
+                previousBlockHeight = block.getHeight();
+                previousBlockHash = block.getHash();
+            }else if(BlockchainDatabaseKeyTool.isTransactionOutputIdToUnspentTransactionOutputHeightKey(key)){
+                TransactionOutput transactionOutput = EncodeDecodeTool.decodeToTransactionOutput(kvEntry.getValue());
+                if(!ByteUtil.equals(key,BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex()))){
+                    throw new RuntimeException("UTXO快照中的未花费交易输出与主键不一致。");
+                }
+            }else if(!BlockchainDatabaseKeyTool.isHashKey(key) && !BlockchainDatabaseKeyTool.isBlockHashToBlockHeightKey(key) && !BlockchainDatabaseKeyTool.isAddressKey(key)){
+                throw new RuntimeException("UTXO快照中有不能导入的数据。");
+            }
+        }
+        ChainTip snapshotChainTip = utxoSnapshotReader.getChainTip();
+        if(previousBlockHeight != snapshotChainTip.getBlockchainHeight() || !StringUtil.isEquals(previousBlockHash,snapshotChainTip.getTailBlockHash())){
+            throw new RuntimeException("UTXO快照中的尾部区块与快照头不一致。");
+        }
+    }
+    /**
+     * 将快照中的一条数据转换为数据库的修改：区块头追加写入区块文件，未花费交易输出还原[交易输出高度到交易输出]、[交易输出ID到交易输出高度]、
+     * [交易输出ID到未花费交易输出高度]、[地址到交易输出高度]、[地址到未花费交易输出高度]映射。
+     */
+    private void importUtxoSnapshotEntry(KvWriteBatch kvWriteBatch, KvEntry kvEntry) {
+        byte[] key = kvEntry.getKey();
+        if(BlockchainDatabaseKeyTool.isKeyAsValueKey(key)){
+            kvWriteBatch.put(key, key);
+        }else if(BlockchainDatabaseKeyTool.isBlockHeightToBlockKey(key)){
+            kvWriteBatch.put(key, appendBlockFile(kvEntry.getValue()));
+            Block block = EncodeDecodeTool.decodeToBlock(kvEntry.getValue());
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(block.getTimestamp()), ByteUtil.long8ToByte8(block.getHeight()));
+        }else if(BlockchainDatabaseKeyTool.isTransactionOutputIdToUnspentTransactionOutputHeightKey(key)){
+            TransactionOutput transactionOutput = EncodeDecodeTool.decodeToTransactionOutput(kvEntry.getValue());
+            byte[] bytesTransactionOutputHeight = ByteUtil.long8ToByte8(transactionOutput.getTransactionOutputHeight());
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(transactionOutput.getTransactionOutputHeight()), kvEntry.getValue());
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputIdToTransactionOutputHeightKey(transactionOutput.getTransactionHash(),transactionOutput.getTransactionOutputIndex()), bytesTransactionOutputHeight);
+            kvWriteBatch.put(key, bytesTransactionOutputHeight);
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildAddressToTransactionOutputHeightKey(transactionOutput.getAddress()), bytesTransactionOutputHeight);
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildAddressToUnspentTransactionOutputHeightKey(transactionOutput.getAddress()), bytesTransactionOutputHeight);
+        }else {
+            kvWriteBatch.put(key, kvEntry.getValue());
+        }
+    }
+    /**
+     * 区块链导入的UTXO快照的高度，区块链不是从UTXO快照导入的返回创世区块的高度。
+     */
+    private long queryUtxoSnapshotHeight() {
+        byte[] bytesUtxoSnapshotHeight = queryBytes(BlockchainDatabaseKeyTool.buildUtxoSnapshotHeightKey());
+        if(bytesUtxoSnapshotHeight == null){
+            return Setting.GenesisBlockSetting.HEIGHT;
+        }
+        return ByteUtil.byte8ToLong8(bytesUtxoSnapshotHeight);
+    }
+    //endregion
+
+
+
+    //region 裁剪区块
+    /**
+     * 裁剪模式下，待裁剪的区块达到一批次时，启动后台线程裁剪区块。
+     */
+    private void schedulePruneBlocks() {
+        long pruneBlockCount = coreConfiguration.getPruneBlockCount();
+        if(pruneBlockCount <= 0){
+            return;
+        }
+        if(queryBlockchainHeight() - pruneBlockCount - queryBlockPruneHeight() < PRUNE_BLOCKS_BATCH_SIZE){
+            return;
+        }
+        if(!pruneBlocksRunning.compareAndSet(false,true)){
+            return;
+        }
+        new Thread(()->{
+            try {
+                pruneBlocks();
+            } catch (Exception e) {
+                LogUtil.error("prune blocks failed.",e);
+            } finally {
+                pruneBlocksRunning.set(false);
+            }
+        }).start();
+    }
+    /**
+     * 裁剪区块：分批次裁剪早于最近[裁剪模式保留完整数据的区块数量]个区块的区块，每批次加写锁裁剪、写入一次数据库，批次之间不阻塞新增区块。
+     * 被裁剪的区块只保留区块头(区块头移回数据库)，删除区块里的交易、交易花费的交易输出及它们的索引、区块撤销记录；未花费交易输出不会被删除。
+     * 数据库不再引用的区块文件数据段随后被删除，因此磁盘占用不随区块链的长度增长。
+     */
+    public void pruneBlocks() {
+        while (pruneBlocksBatch()){
+            LogUtil.debug(String.format("prune blocks progress: pruned block height %s.",queryBlockPruneHeight()));
+        }
+    }
+    /**
+     * 裁剪一批次区块，返回是否还有待裁剪的区块。
+     * 刷盘高度之后的区块在启动时需要重做，不能被裁剪，因此裁剪前先将未花费交易输出缓存刷盘。
+     */
+    private boolean pruneBlocksBatch() {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            long pruneBlockCount = coreConfiguration.getPruneBlockCount();
+            if(pruneBlockCount <= 0){
+                return false;
+            }
+            long pruneToBlockHeight = queryBlockchainHeight() - pruneBlockCount;
+            byte[] bytesFlushHeight = queryBytes(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey());
+            if(bytesFlushHeight != null && ByteUtil.byte8ToLong8(bytesFlushHeight) < pruneToBlockHeight){
+                //刷盘后刷盘高度是区块链高度，再新增[保留完整数据的区块数量]个区块后才需要再次刷盘
+                flushUnspentTransactionOutputCache();
+            }
+            long fromBlockHeight = queryBlockPruneHeight() + 1;
+            long toBlockHeight = Math.min(pruneToBlockHeight, fromBlockHeight + PRUNE_BLOCKS_BATCH_SIZE - 1);
+            if(toBlockHeight < fromBlockHeight){
+                return false;
+            }
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            List<Long> prunedTransactionOutputHeights = new ArrayList<>();
+            for(long blockHeight=fromBlockHeight; blockHeight<=toBlockHeight; blockHeight++){
+                pruneBlock(kvWriteBatch, blockHeight, prunedTransactionOutputHeights);
+            }
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildPrunedBlockHeightKey(),ByteUtil.long8ToByte8(toBlockHeight));
+            getBlockchainKvStore().write(kvWriteBatch);
+            invalidatePrunedQueryCache(fromBlockHeight, toBlockHeight, prunedTransactionOutputHeights);
+            //裁剪的区块的数据都在第一个未裁剪区块的区块头之前
+            byte[] bytesNextBlock = queryBytes(BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(toBlockHeight + 1));
+            //打开的读视图可能还在读取被裁剪的区块，不删除数据段，之后的批次会一并删除
+            if(BlockFilePointer.isBlockFilePointer(bytesNextBlock) && openReadViewCount.get() == 0){
+                blockFileStore.deleteSegmentsBefore(BlockFilePointer.decode(bytesNextBlock).getSegment());
+            }
+            return toBlockHeight < pruneToBlockHeight;
+        }finally {
+            writeLock.unlock();
+        }
+    }
+    /**
+     * 裁剪一个区块：区块头从区块文件移回数据库；删除区块撤销记录、区块里的交易、[交易哈希到交易高度]、[交易输出ID到来源交易高度]的映射；
+     * 交易花费的交易输出已不再需要，删除它们以及它们的[交易输出ID到交易输出高度]、[交易输出ID到已花费交易输出高度]、[交易输出ID到去向交易高度]、
+     * [地址到交易输出高度]、[地址到已花费交易输出高度]的映射。
+     * 交易输出在花费它的区块被裁剪时才被删除，因此未裁剪区块里的交易仍然可以查询到它们花费的交易输出。
+     */
+    private void pruneBlock(KvWriteBatch kvWriteBatch, long blockHeight, List<Long> prunedTransactionOutputHeights) {
+        byte[] blockHeightToBlockKey = BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(blockHeight);
+        byte[] bytesBlock = queryBlockFileBytes(blockHeightToBlockKey);
+        kvWriteBatch.put(blockHeightToBlockKey, bytesBlock);
+        kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildBlockHeightToBlockUndoKey(blockHeight));
+        Block block = EncodeDecodeTool.decodeToBlock(bytesBlock);
+        for(long transactionHeight=block.getPreviousTransactionHeight()+1; transactionHeight<=block.getPreviousTransactionHeight()+block.getTransactionCount(); transactionHeight++){
+            Transaction transaction = queryTransactionByTransactionHeight(transactionHeight);
+            if(transaction == null){
+                //UTXO快照导入的区块没有交易
+                continue;
+            }
+            kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transactionHeight));
+            kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionHashToTransactionHeightKey(transaction.getTransactionHash()));
+            List<TransactionInput> inputs = transaction.getInputs();
+            if(inputs != null){
+                for(TransactionInput transactionInput:inputs){
+                    TransactionOutput spentTransactionOutput = transactionInput.getUnspentTransactionOutput();
+                    String transactionHash = spentTransactionOutput.getTransactionHash();
+                    long transactionOutputIndex = spentTransactionOutput.getTransactionOutputIndex();
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(spentTransactionOutput.getTransactionOutputHeight()));
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionOutputIdToTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionOutputIdToDestinationTransactionHeightKey(transactionHash,transactionOutputIndex));
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildAddressToTransactionOutputHeightKey(spentTransactionOutput.getAddress()));
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildAddressToSpentTransactionOutputHeightKey(spentTransactionOutput.getAddress()));
+                    prunedTransactionOutputHeights.add(spentTransactionOutput.getTransactionOutputHeight());
+                }
+            }
+            List<TransactionOutput> outputs = transaction.getOutputs();
+            if(outputs != null){
+                for(TransactionOutput output:outputs){
+                    kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSourceTransactionHeightKey(output.getTransactionHash(),output.getTransactionOutputIndex()));
+                }
+            }
         }
-        //校验交易金额
-        if(!TransactionTool.checkTransactionValue(transaction)){
-            LogUtil.debug("交易金额不合法");
-            return false;
+    }
+    /**
+     * 区块被裁剪后，使被裁剪的区块、交易、交易输出的缓存失效。
+     */
+    private void invalidatePrunedQueryCache(long fromBlockHeight, long toBlockHeight, List<Long> prunedTransactionOutputHeights) {
+        for(long blockHeight=fromBlockHeight; blockHeight<=toBlockHeight; blockHeight++){
+            Block block = queryBlockByBlockHeight(blockHeight);
+            for(long transactionHeight=block.getPreviousTransactionHeight()+1; transactionHeight<=block.getPreviousTransactionHeight()+block.getTransactionCount(); transactionHeight++){
+                transactionCache.invalidate(transactionHeight);
+            }
+            blockCache.invalidate(blockHeight);
         }
-        //校验双花
-        if(!checkDoubleSpend(transaction)){
-            LogUtil.debug("交易数据异常，检测到双花攻击。");
-            return false;
+        for(Long transactionOutputHeight:prunedTransactionOutputHeights){
+            transactionOutputCache.invalidate(transactionOutputHeight);
         }
-        //校验脚本
-        if(!virtualMachine.checkTransactionScript(transaction)) {
-            LogUtil.debug("交易校验失败：交易[输入脚本]解锁交易[输出脚本]异常。");
-            return false;
+    }
+    /**
+     * 已裁剪的区块高度，没有裁剪过区块时返回创世区块的高度。
+     */
+    private long queryBlockPruneHeight() {
+        byte[] bytesPrunedBlockHeight = queryBytes(BlockchainDatabaseKeyTool.buildPrunedBlockHeightKey());
+        if(bytesPrunedBlockHeight == null){
+            return Setting.GenesisBlockSetting.HEIGHT;
         }
-        return true;
+        return ByteUtil.byte8ToLong8(bytesPrunedBlockHeight);
     }
     //endregion
 
 
 
-    //region 普通查询
-    @Override
-    public long queryBlockchainHeight() {
-        byte[] bytesBlockchainHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildBlockchainHeightKey());
-        if(bytesBlockchainHeight == null){
-            return Setting.GenesisBlockSetting.HEIGHT;
+    //region 重建索引
+    /**
+     * 离线重建索引：删除全部可以推导出来的映射，由数据库中的区块头、区块里的交易并行重新生成，详见BlockchainDatabaseReindexer。
+     * 索引损坏或丢失时使用，比重新从网络同步区块快得多。只能在区块链没有运行(不同步区块、不挖矿)时调用。
+     * parallelism：并行的线程数量。
+     */
+    public void reindex(int parallelism) {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            if(queryBlockPruneHeight() != Setting.GenesisBlockSetting.HEIGHT || queryUtxoSnapshotHeight() != Setting.GenesisBlockSetting.HEIGHT){
+                throw new RuntimeException("裁剪模式或者从UTXO快照导入的区块链数据库没有完整的交易，不能重建索引。");
+            }
+            flushUnspentTransactionOutputCache();
+            long start = System.currentTimeMillis();
+            new BlockchainDatabaseReindexer(getBlockchainKvStore(), blockFileStore, parallelism).reindex();
+            synchronized (chainTipLock){
+                chainTip = null;
+            }
+            unspentTransactionOutputCache.clear();
+            blockCache.invalidateAll();
+            transactionCache.invalidateAll();
+            transactionOutputCache.invalidateAll();
+            //过滤器文件与重建前的数据库对应，删除后由数据库重建
+            new File(coreConfiguration.getCorePath(), HASH_ADDRESS_FILTER_FILE_NAME).delete();
+            recoverHashAddressFilter();
+            LogUtil.info(String.format("reindex finish. blockchain height %s, cost %s ms.",queryBlockchainHeight(),System.currentTimeMillis()-start));
+        }finally {
+            writeLock.unlock();
         }
-        return ByteUtil.byte8ToLong8(bytesBlockchainHeight);
     }
+    //endregion
 
-    @Override
-    public long queryBlockchainTransactionHeight() {
-        byte[] byteTotalTransactionCount = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildBlockchainTransactionHeightKey());
-        if(byteTotalTransactionCount == null){
-            return 0;
+
+
+    //region 哈希地址过滤器
+    /**
+     * 启动时调用：加载哈希地址过滤器文件，补充文件保存之后新增的区块中的哈希、地址。
+     * 没有过滤器文件、文件与区块链不一致(保存之后删除过区块)、过滤器预期数量或误判率的配置改变时，遍历数据库中已使用的哈希、地址重建过滤器。
+     */
+    public void recoverHashAddressFilter() {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            hashAddressFilter = null;
+            long hashAddressFilterExpectedInsertions = coreConfiguration.getHashAddressFilterExpectedInsertions();
+            if(hashAddressFilterExpectedInsertions <= 0){
+                return;
+            }
+            BloomFilter<byte[]> expectedBloomFilter = BloomFilter.create(Funnels.byteArrayFunnel(),hashAddressFilterExpectedInsertions,coreConfiguration.getHashAddressFilterFalsePositiveRate());
+            BloomFilter<byte[]> bloomFilter = loadHashAddressFilter(expectedBloomFilter);
+            if(bloomFilter == null){
+                LogUtil.debug("rebuild hash address filter.");
+                bloomFilter = expectedBloomFilter;
+                try (KvIterator iterator = getBlockchainKvStore().iterator()) {
+                    for(byte[] prefix:new byte[][]{BlockchainDatabaseKeyTool.buildHashKeyPrefix(),BlockchainDatabaseKeyTool.buildAddressKeyPrefix()}){
+                        for(iterator.seek(prefix); iterator.isValid() && iterator.key()[0] == prefix[0]; iterator.next()){
+                            bloomFilter.put(iterator.key());
+                        }
+                    }
+                }
+            }
+            hashAddressFilter = bloomFilter;
+            saveHashAddressFilter();
+        }finally {
+            writeLock.unlock();
         }
-        return ByteUtil.byte8ToLong8(byteTotalTransactionCount);
     }
-    @Override
-    public long queryBlockchainTransactionOutputHeight() {
-        byte[] byteTotalTransactionCount = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildBlockchainTransactionOutputHeightKey());
-        if(byteTotalTransactionCount == null){
-            return 0;
+    /**
+     * 加载哈希地址过滤器文件，并放入文件保存之后新增的区块中的哈希、地址。不能使用文件中的过滤器时返回null。
+     * 文件格式：保存时的区块链高度、尾部区块哈希，其后是过滤器。
+     */
+    private BloomFilter<byte[]> loadHashAddressFilter(BloomFilter<byte[]> expectedBloomFilter) {
+        File hashAddressFilterFile = new File(coreConfiguration.getCorePath(), HASH_ADDRESS_FILTER_FILE_NAME);
+        if(!hashAddressFilterFile.exists()){
+            return null;
+        }
+        BloomFilter<byte[]> bloomFilter;
+        long filterBlockchainHeight;
+        try (DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(hashAddressFilterFile)))) {
+            filterBlockchainHeight = dataInputStream.readLong();
+            byte[] filterTailBlockHash = new byte[32];
+            dataInputStream.readFully(filterTailBlockHash);
+            if(filterBlockchainHeight > queryBlockchainHeight() || !StringUtil.isEquals(HexUtil.bytesToHexString(filterTailBlockHash),queryBlockHash(filterBlockchainHeight))){
+                return null;
+            }
+            bloomFilter = BloomFilter.readFrom(dataInputStream,Funnels.byteArrayFunnel());
+        } catch (IOException e) {
+            LogUtil.error("load hash address filter failed.",e);
+            return null;
+        }
+        //位数、哈希函数数量与配置创建的过滤器相同
+        if(!expectedBloomFilter.isCompatible(bloomFilter)){
+            return null;
         }
-        return ByteUtil.byte8ToLong8(byteTotalTransactionCount);
+        //裁剪、UTXO快照导入的区块没有交易
+        if(filterBlockchainHeight < queryBlockchainHeight() && filterBlockchainHeight < queryPrunedBlockHeight()){
+            return null;
+        }
+        for(long blockHeight=filterBlockchainHeight+1; blockHeight<=queryBlockchainHeight(); blockHeight++){
+            Block block = queryBlockWithTransactionsByBlockHeight(blockHeight);
+            bloomFilter.put(BlockchainDatabaseKeyTool.buildHashKey(block.getHash()));
+            for(Transaction transaction:block.getTransactions()){
+                bloomFilter.put(BlockchainDatabaseKeyTool.buildHashKey(transaction.getTransactionHash()));
+                List<TransactionOutput> outputs = transaction.getOutputs();
+                if(outputs != null){
+                    for(TransactionOutput output:outputs){
+                        bloomFilter.put(BlockchainDatabaseKeyTool.buildAddressKey(output.getAddress()));
+                    }
+                }
+            }
+        }
+        return bloomFilter;
     }
-    //endregion
-
-
-
-    //region 区块查询
-    @Override
-    public Block queryTailBlock() {
+    /**
+     * 保存哈希地址过滤器：先写入临时文件，再替换过滤器文件。
+     */
+    private void saveHashAddressFilter() {
+        BloomFilter<byte[]> bloomFilter = hashAddressFilter;
+        if(bloomFilter == null){
+            return;
+        }
+        File hashAddressFilterFile = new File(coreConfiguration.getCorePath(), HASH_ADDRESS_FILTER_FILE_NAME);
+        File temporaryFile = new File(coreConfiguration.getCorePath(), HASH_ADDRESS_FILTER_FILE_NAME + ".tmp");
         long blockchainHeight = queryBlockchainHeight();
-        if(NumberUtil.isLessEqualThan(blockchainHeight, Setting.GenesisBlockSetting.HEIGHT)){
-            return null;
+        try (DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            dataOutputStream.writeLong(blockchainHeight);
+            dataOutputStream.write(HexUtil.hexStringToBytes(queryBlockHash(blockchainHeight)));
+            bloomFilter.writeTo(dataOutputStream);
+        } catch (IOException e) {
+            LogUtil.error("save hash address filter failed.",e);
+            throw new RuntimeException(e);
+        }
+        try {
+            Files.move(temporaryFile.toPath(), hashAddressFilterFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LogUtil.error("save hash address filter failed.",e);
+            throw new RuntimeException(e);
         }
-        return queryBlockByBlockHeight(blockchainHeight);
     }
-    @Override
-    public Block queryBlockByBlockHeight(long blockHeight) {
-        byte[] bytesBlock = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(blockHeight));
-        if(bytesBlock==null){
-            return null;
+    /**
+     * 新增区块、导入UTXO快照时，在写入数据库之前将新增的已使用的哈希、地址放入过滤器。
+     */
+    private void putHashAddressFilter(KvWriteBatch kvWriteBatch) {
+        BloomFilter<byte[]> bloomFilter = hashAddressFilter;
+        if(bloomFilter == null){
+            return;
+        }
+        for(KvWrite kvWrite:kvWriteBatch.getKvWrites()){
+            if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.ADD && BlockchainDatabaseKeyTool.isKeyAsValueKey(kvWrite.getKey())){
+                bloomFilter.put(kvWrite.getKey());
+            }
         }
-        return EncodeDecodeTool.decodeToBlock(bytesBlock);
     }
-    @Override
-    public Block queryBlockByBlockHash(String blockHash) {
-        byte[] bytesBlockHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildBlockHashToBlockHeightKey(blockHash));
-        if(bytesBlockHeight == null){
-            return null;
+    /**
+     * 哈希、地址是否可能已被使用：过滤器判断不存在时一定没有被使用。
+     */
+    private boolean mightBeUsed(byte[] key) {
+        BloomFilter<byte[]> bloomFilter = hashAddressFilter;
+        return bloomFilter == null || bloomFilter.mightContain(key);
+    }
+    /**
+     * 区块链中指定高度的区块的哈希，高度是创世区块的高度时返回创世区块的哈希。
+     */
+    private String queryBlockHash(long blockHeight) {
+        if(blockHeight == Setting.GenesisBlockSetting.HEIGHT){
+            return Setting.GenesisBlockSetting.HASH;
         }
-        return queryBlockByBlockHeight(ByteUtil.byte8ToLong8(bytesBlockHeight));
+        Block block = queryBlockByBlockHeight(blockHeight);
+        return block == null ? null : block.getHash();
     }
     //endregion
 
 
 
-    //region 交易查询
-    @Override
-    public Transaction queryTransactionByTransactionHash(String transactionHash) {
-        byte[] transactionHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionHashToTransactionHeightKey(transactionHash));
-        if(transactionHeight == null){
-            return null;
+    //region 未花费交易输出缓存
+    /**
+     * 未花费交易输出缓存中未写入数据库的交易输出数量
+     */
+    public int getUnspentTransactionOutputCacheDirtyCount() {
+        return unspentTransactionOutputCache.getDirtyCount();
+    }
+    /**
+     * 启动时调用：重做刷盘高度之后的区块对[交易输出ID]到[未花费交易输出高度]映射的修改。
+     */
+    public void recoverUnspentTransactionOutput() {
+        Lock writeLock = readWriteLock.writeLock();
+        writeLock.lock();
+        try{
+            byte[] bytesFlushHeight = queryBytes(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey());
+            if(bytesFlushHeight == null){
+                return;
+            }
+            long flushHeight = ByteUtil.byte8ToLong8(bytesFlushHeight);
+            long blockchainHeight = queryBlockchainHeight();
+            if(!NumberUtil.isLessThan(flushHeight,blockchainHeight)){
+                return;
+            }
+            LogUtil.debug(String.format("recover unspent transaction output from block height %s to block height %s.",flushHeight+1,blockchainHeight));
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(long blockHeight=flushHeight+1; blockHeight<=blockchainHeight; blockHeight++){
+                Block block = queryBlockWithTransactionsByBlockHeight(blockHeight);
+                storeTransactionOutputIdToUnspentTransactionOutputHeight(kvWriteBatch,block,BlockchainActionEnum.ADD_BLOCK);
+            }
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey(),ByteUtil.long8ToByte8(blockchainHeight));
+            getBlockchainKvStore().write(kvWriteBatch);
+        }finally {
+            writeLock.unlock();
         }
-        return queryTransactionByTransactionHeight(ByteUtil.byte8ToLong8(transactionHeight));
     }
-
-    @Override
-    public Transaction querySourceTransactionByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
-        byte[] sourceTransactionHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionOutputIdToSourceTransactionHeightKey(transactionHash,transactionOutputIndex));
-        if(sourceTransactionHeight == null){
-            return null;
+    /**
+     * 将新增区块对未花费交易输出的修改记录在缓存中
+     */
+    private void cacheUnspentTransactionOutput(Block block) {
+        List<Transaction> transactions = block.getTransactions();
+        if(transactions != null){
+            for(Transaction transaction:transactions){
+                List<TransactionInput> inputs = transaction.getInputs();
+                if(inputs != null){
+                    for(TransactionInput transactionInput:inputs){
+                        TransactionOutput unspentTransactionOutput = transactionInput.getUnspentTransactionOutput();
+                        unspentTransactionOutputCache.putDirtySpent(BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(unspentTransactionOutput.getTransactionHash(),unspentTransactionOutput.getTransactionOutputIndex()));
+                    }
+                }
+                List<TransactionOutput> outputs = transaction.getOutputs();
+                if(outputs != null){
+                    for(TransactionOutput output:outputs){
+                        unspentTransactionOutputCache.putDirtyUnspent(BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(output.getTransactionHash(),output.getTransactionOutputIndex()),output.getTransactionOutputHeight());
+                    }
+                }
+            }
         }
-        return queryTransactionByTransactionHeight(ByteUtil.byte8ToLong8(sourceTransactionHeight));
     }
-
-    @Override
-    public Transaction queryDestinationTransactionByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
-        byte[] destinationTransactionHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionOutputIdToDestinationTransactionHeightKey(transactionHash,transactionOutputIndex));
-        if(destinationTransactionHeight == null){
-            return null;
+    /**
+     * 区块被删除后，移除删除区块时修改过的[交易输出ID]到[未花费交易输出高度]映射对应的缓存项。
+     */
+    private void removeUnspentTransactionOutputCache(KvWriteBatch kvWriteBatch) {
+        for(KvWrite kvWrite:kvWriteBatch.getKvWrites()){
+            if(BlockchainDatabaseKeyTool.isTransactionOutputIdToUnspentTransactionOutputHeightKey(kvWrite.getKey())){
+                unspentTransactionOutputCache.remove(kvWrite.getKey());
+            }
         }
-        return queryTransactionByTransactionHeight(ByteUtil.byte8ToLong8(destinationTransactionHeight));
     }
-
-    @Override
-    public TransactionOutput queryTransactionOutputByTransactionOutputHeight(long transactionOutputHeight) {
-        byte[] bytesTransactionOutput = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(transactionOutputHeight));
-        if(bytesTransactionOutput == null){
-            return null;
+    /**
+     * 将缓存中未写入数据库的修改批量写入数据库，并将刷盘高度更新为区块链高度。
+     */
+    private void flushUnspentTransactionOutputCache() {
+        if(!unspentTransactionOutputCache.isDirty()){
+            return;
         }
-        return EncodeDecodeTool.decodeToTransactionOutput(bytesTransactionOutput);
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
+        unspentTransactionOutputCache.writeDirty(kvWriteBatch);
+        kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey(),ByteUtil.long8ToByte8(queryBlockchainHeight()));
+        getBlockchainKvStore().write(kvWriteBatch);
+        unspentTransactionOutputCache.markClean();
+        saveHashAddressFilter();
     }
-
-    @Override
-    public Transaction queryTransactionByTransactionHeight(long transactionHeight) {
-        byte[] byteTransaction = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transactionHeight));
-        if(byteTransaction == null){
+    /**
+     * 交易输入只存储了被花费的交易输出的交易输出高度，按交易输出高度查询补全被花费的交易输出。
+     */
+    private void fillSpentTransactionOutput(Transaction transaction) {
+        List<TransactionInput> inputs = transaction.getInputs();
+        if(inputs != null){
+            for(TransactionInput transactionInput:inputs){
+                TransactionOutput unspentTransactionOutput = transactionInput.getUnspentTransactionOutput();
+                if(unspentTransactionOutput != null && unspentTransactionOutput.getTransactionHash() == null){
+                    transactionInput.setUnspentTransactionOutput(queryTransactionOutputByTransactionOutputHeight(unspentTransactionOutput.getTransactionOutputHeight()));
+                }
+            }
+        }
+    }
+    /**
+     * 查询区块撤销记录
+     */
+    private BlockUndo queryBlockUndo(long blockHeight) {
+        byte[] bytesBlockUndo = queryBytes(BlockchainDatabaseKeyTool.buildBlockHeightToBlockUndoKey(blockHeight));
+        if(bytesBlockUndo == null){
             return null;
         }
-        return EncodeDecodeTool.decodeToTransaction(byteTransaction);
+        return EncodeDecodeTool.decodeToBlockUndo(bytesBlockUndo);
+    }
+    /**
+     * 由撤销记录还原删除区块需要的区块：交易只有交易哈希、交易高度、交易输出，交易输出按交易输出高度从数据库中查询。
+     * 花费的交易输出属于哪笔交易不影响删除区块，全部作为最后一笔交易的交易输入。
+     */
+    private Block restoreBlockByBlockUndo(Block blockHeader, BlockUndo blockUndo) {
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction transaction = null;
+        for(long transactionOutputHeight=blockUndo.getTransactionOutputHeight(); transactionOutputHeight<blockUndo.getTransactionOutputHeight()+blockUndo.getTransactionOutputCount(); transactionOutputHeight++){
+            TransactionOutput transactionOutput = queryTransactionOutputByTransactionOutputHeight(transactionOutputHeight);
+            if(transactionOutput == null){
+                throw new RuntimeException(String.format("区块数据异常，没有查询到高度为%s的区块里交易输出高度为%s的交易输出。",blockHeader.getHeight(),transactionOutputHeight));
+            }
+            if(transaction == null || transaction.getTransactionHeight() != transactionOutput.getTransactionHeight()){
+                transaction = new Transaction();
+                transaction.setTransactionHash(transactionOutput.getTransactionHash());
+                transaction.setTransactionHeight(transactionOutput.getTransactionHeight());
+                transaction.setOutputs(new ArrayList<>());
+                transactions.add(transaction);
+            }
+            transaction.getOutputs().add(transactionOutput);
+        }
+        //每笔交易至少有一个交易输出，交易输出还原出的交易就是区块里的全部交易
+        if(transactions.size() != blockUndo.getTransactionCount() || transactions.get(0).getTransactionHeight() != blockUndo.getTransactionHeight()){
+            throw new RuntimeException(String.format("区块数据异常，高度为%s的区块的撤销记录与交易输出不一致。",blockHeader.getHeight()));
+        }
+        List<TransactionInput> inputs = new ArrayList<>();
+        List<TransactionOutput> spentTransactionOutputs = blockUndo.getSpentTransactionOutputs();
+        if(spentTransactionOutputs != null){
+            for(TransactionOutput spentTransactionOutput:spentTransactionOutputs){
+                TransactionInput transactionInput = new TransactionInput();
+                transactionInput.setUnspentTransactionOutput(spentTransactionOutput);
+                inputs.add(transactionInput);
+            }
+        }
+        transaction.setInputs(inputs);
+        Block block = BlockTool.copyBlockHeader(blockHeader);
+        block.setTransactions(transactions);
+        return block;
     }
     //endregion
 
@@ -345,7 +1754,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     //region 交易输出查询
     @Override
     public TransactionOutput queryTransactionOutputByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
-        byte[] bytesTransactionOutputHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionOutputIdToTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
+        byte[] bytesTransactionOutputHeight = queryBytes(BlockchainDatabaseKeyTool.buildTransactionOutputIdToTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
         if(bytesTransactionOutputHeight == null){
             return null;
         }
@@ -354,16 +1763,41 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
     @Override
     public TransactionOutput queryUnspentTransactionOutputByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
-        byte[] bytesTransactionOutputHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
-        if(bytesTransactionOutputHeight == null){
+        byte[] key = BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(transactionHash,transactionOutputIndex);
+        if(isPending(key)){
+            //批量新增区块时，还没有写入数据库的修改比缓存新
+            byte[] bytesTransactionOutputHeight = queryBytes(key);
+            if(bytesTransactionOutputHeight == null){
+                return null;
+            }
+            return queryTransactionOutputByTransactionOutputHeight(ByteUtil.byte8ToLong8(bytesTransactionOutputHeight));
+        }
+        if(currentReadView() != null){
+            //写回缓存和数据库中的这个映射都不是读视图的数据：读视图中，交易输出存在并且没有被花费就是未花费交易输出
+            if(queryBytes(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(transactionHash,transactionOutputIndex)) != null){
+                return null;
+            }
+            return queryTransactionOutputByTransactionOutputId(transactionHash,transactionOutputIndex);
+        }
+        long transactionOutputHeight = unspentTransactionOutputCache.get(key);
+        if(transactionOutputHeight == UnspentTransactionOutputCache.SPENT){
             return null;
         }
-        return queryTransactionOutputByTransactionOutputHeight(ByteUtil.byte8ToLong8(bytesTransactionOutputHeight));
+        if(transactionOutputHeight == UnspentTransactionOutputCache.ABSENT){
+            long generation = unspentTransactionOutputCache.getGeneration();
+            byte[] bytesTransactionOutputHeight = queryBytes(key);
+            if(bytesTransactionOutputHeight == null){
+                return null;
+            }
+            transactionOutputHeight = ByteUtil.byte8ToLong8(bytesTransactionOutputHeight);
+            unspentTransactionOutputCache.putClean(key,transactionOutputHeight,generation);
+        }
+        return queryTransactionOutputByTransactionOutputHeight(transactionOutputHeight);
     }
 
     @Override
     public TransactionOutput querySpentTransactionOutputByTransactionOutputId(String transactionHash,long transactionOutputIndex) {
-        byte[] bytesTransactionOutputHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
+        byte[] bytesTransactionOutputHeight = queryBytes(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(transactionHash,transactionOutputIndex));
         if(bytesTransactionOutputHeight == null){
             return null;
         }
@@ -372,7 +1806,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
     @Override
     public TransactionOutput queryTransactionOutputByAddress(String address) {
-        byte[] bytesTransactionOutputHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildAddressToTransactionOutputHeightKey(address));
+        byte[] bytesTransactionOutputHeight = queryBytes(BlockchainDatabaseKeyTool.buildAddressToTransactionOutputHeightKey(address));
         if(bytesTransactionOutputHeight == null){
             return null;
         }
@@ -381,7 +1815,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
     @Override
     public TransactionOutput queryUnspentTransactionOutputByAddress(String address) {
-        byte[] bytesTransactionOutputHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildAddressToUnspentTransactionOutputHeightKey(address));
+        byte[] bytesTransactionOutputHeight = queryBytes(BlockchainDatabaseKeyTool.buildAddressToUnspentTransactionOutputHeightKey(address));
         if(bytesTransactionOutputHeight == null){
             return null;
         }
@@ -390,7 +1824,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
     @Override
     public TransactionOutput querySpentTransactionOutputByAddress(String address) {
-        byte[] bytesTransactionOutputHeight = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildAddressToSpentTransactionOutputHeightKey(address));
+        byte[] bytesTransactionOutputHeight = queryBytes(BlockchainDatabaseKeyTool.buildAddressToSpentTransactionOutputHeightKey(address));
         if(bytesTransactionOutputHeight == null){
             return null;
         }
@@ -402,27 +1836,28 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
 
     //region 拼装WriteBatch
     /**
-     * 根据区块信息组装WriteBatch对象
+     * 根据区块信息组装WriteBatch对象，chainTip是写入这个区块之前的链尾。
      */
-    private KvDbUtil.KvWriteBatch createBlockWriteBatch(Block block, BlockchainActionEnum blockchainActionEnum) {
-        KvDbUtil.KvWriteBatch kvWriteBatch = new KvDbUtil.KvWriteBatch();
+    private KvWriteBatch createBlockWriteBatch(ChainTip chainTip, Block block, BlockchainActionEnum blockchainActionEnum) {
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
 
         storeHash(kvWriteBatch,block,blockchainActionEnum);
         storeAddress(kvWriteBatch,block,blockchainActionEnum);
 
         storeBlockchainHeight(kvWriteBatch,block,blockchainActionEnum);
-        storeBlockchainTransactionHeight(kvWriteBatch,block,blockchainActionEnum);
-        storeBlockchainTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
+        storeBlockchainTransactionHeight(kvWriteBatch,chainTip,block,blockchainActionEnum);
+        storeBlockchainTransactionOutputHeight(kvWriteBatch,chainTip,block,blockchainActionEnum);
 
         storeBlockHeightToBlock(kvWriteBatch,block,blockchainActionEnum);
         storeBlockHashToBlockHeight(kvWriteBatch,block,blockchainActionEnum);
+        storeBlockTimestampToBlockHeight(kvWriteBatch,block,blockchainActionEnum);
 
         storeTransactionHeightToTransaction(kvWriteBatch,block,blockchainActionEnum);
         storeTransactionHashToTransactionHeight(kvWriteBatch,block,blockchainActionEnum);
 
         storeTransactionOutputHeightToTransactionOutput(kvWriteBatch,block,blockchainActionEnum);
         storeTransactionOutputIdToTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
-        storeTransactionOutputIdToUnspentTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
+        storeUnspentTransactionOutputFlushHeight(kvWriteBatch,block,blockchainActionEnum);
         storeTransactionOutputIdToSpentTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
         storeTransactionOutputIdToSourceTransactionHeight(kvWriteBatch,block,blockchainActionEnum);
         storeTransactionOutputIdToDestinationTransactionHeight(kvWriteBatch,block,blockchainActionEnum);
@@ -430,14 +1865,49 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
         storeAddressToTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
         storeAddressToUnspentTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
         storeAddressToSpentTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
+
+        storeBlockHeightToBlockUndo(kvWriteBatch,chainTip,block,blockchainActionEnum);
         return kvWriteBatch;
     }
+    /**
+     * 存储区块高度到区块撤销记录的映射
+     * 撤销记录只有区块的交易高度范围、交易输出高度范围、花费的交易输出，删除区块时由它们推导出要删除、恢复的主键。
+     */
+    private void storeBlockHeightToBlockUndo(KvWriteBatch kvWriteBatch, ChainTip chainTip, Block block, BlockchainActionEnum blockchainActionEnum) {
+        byte[] blockHeightToBlockUndoKey = BlockchainDatabaseKeyTool.buildBlockHeightToBlockUndoKey(block.getHeight());
+        if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
+            BlockUndo blockUndo = new BlockUndo();
+            blockUndo.setTransactionHeight(chainTip.getBlockchainTransactionHeight() + 1);
+            blockUndo.setTransactionCount(BlockTool.getTransactionCount(block));
+            blockUndo.setTransactionOutputHeight(chainTip.getBlockchainTransactionOutputHeight() + 1);
+            blockUndo.setTransactionOutputCount(BlockTool.getTransactionOutputCount(block));
+            List<TransactionOutput> spentTransactionOutputs = new ArrayList<>();
+            for(Transaction transaction:block.getTransactions()){
+                List<TransactionInput> inputs = transaction.getInputs();
+                if(inputs != null){
+                    for(TransactionInput transactionInput:inputs){
+                        TransactionOutput unspentTransactionOutput = transactionInput.getUnspentTransactionOutput();
+                        TransactionOutput spentTransactionOutput = new TransactionOutput();
+                        spentTransactionOutput.setTransactionHash(unspentTransactionOutput.getTransactionHash());
+                        spentTransactionOutput.setTransactionOutputIndex(unspentTransactionOutput.getTransactionOutputIndex());
+                        spentTransactionOutput.setAddress(unspentTransactionOutput.getAddress());
+                        spentTransactionOutput.setTransactionOutputHeight(unspentTransactionOutput.getTransactionOutputHeight());
+                        spentTransactionOutputs.add(spentTransactionOutput);
+                    }
+                }
+            }
+            blockUndo.setSpentTransactionOutputs(spentTransactionOutputs);
+            kvWriteBatch.put(blockHeightToBlockUndoKey, EncodeDecodeTool.encodeBlockUndo(blockUndo));
+        }else{
+            kvWriteBatch.delete(blockHeightToBlockUndoKey);
+        }
+    }
 
 
     /**
      * [交易输出ID]到[来源交易高度]的映射
      */
-    private void storeTransactionOutputIdToSourceTransactionHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionOutputIdToSourceTransactionHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -458,7 +1928,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * [已花费交易输出ID]到[去向交易高度]的映射
      */
-    private void storeTransactionOutputIdToDestinationTransactionHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionOutputIdToDestinationTransactionHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -480,7 +1950,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * [交易输出ID]到[交易输出]的映射
      */
-    private void storeTransactionOutputIdToTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionOutputIdToTransactionOutputHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -501,7 +1971,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * [交易输出高度]到[交易输出]的映射
      */
-    private void storeTransactionOutputHeightToTransactionOutput(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionOutputHeightToTransactionOutput(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -519,10 +1989,24 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             }
         }
     }
+    /**
+     * 新增区块时，[交易输出ID]到[未花费交易输出高度]的映射由未花费交易输出缓存写回，这里只在缓存没有未写入数据库的修改时更新刷盘高度；
+     * 删除区块时(删除前缓存已刷盘)，直接修改这个映射。
+     */
+    private void storeUnspentTransactionOutputFlushHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+        if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
+            if(unspentTransactionOutputCache.isDirty()){
+                return;
+            }
+        } else {
+            storeTransactionOutputIdToUnspentTransactionOutputHeight(kvWriteBatch,block,blockchainActionEnum);
+        }
+        kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey(),ByteUtil.long8ToByte8(block.getHeight()-1));
+    }
     /**
      * 存储未花费交易输出ID到未花费交易输出的映射
      */
-    private void storeTransactionOutputIdToUnspentTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionOutputIdToUnspentTransactionOutputHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -555,7 +2039,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储已花费交易输出ID到已花费交易输出的映射
      */
-    private void storeTransactionOutputIdToSpentTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionOutputIdToSpentTransactionOutputHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -574,12 +2058,9 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
                 List<TransactionOutput> outputs = transaction.getOutputs();
                 if(outputs != null){
                     for(TransactionOutput output:outputs){
+                        //区块产生的交易输出在新增区块之前不存在，删除区块时也不存在，不会是已花费交易输出
                         byte[] transactionOutputIdToSpentTransactionOutputHeightKey = BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(output.getTransactionHash(),output.getTransactionOutputIndex());
-                        if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
-                            kvWriteBatch.delete(transactionOutputIdToSpentTransactionOutputHeightKey);
-                        } else {
-                            kvWriteBatch.put(transactionOutputIdToSpentTransactionOutputHeightKey, ByteUtil.long8ToByte8(output.getTransactionOutputHeight()));
-                        }
+                        kvWriteBatch.delete(transactionOutputIdToSpentTransactionOutputHeightKey);
                     }
                 }
             }
@@ -588,14 +2069,14 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储交易高度到交易的映射
      */
-    private void storeTransactionHeightToTransaction(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionHeightToTransaction(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
                 //更新区块链中的交易序列号数据
                 byte[] transactionHeightToTransactionKey = BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transaction.getTransactionHeight());
                 if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
-                    kvWriteBatch.put(transactionHeightToTransactionKey, EncodeDecodeTool.encodeTransaction(transaction));
+                    kvWriteBatch.put(transactionHeightToTransactionKey, appendBlockFile(EncodeDecodeTool.encodeTransactionWithSpentTransactionOutputHeight(transaction)));
                 } else {
                     kvWriteBatch.delete(transactionHeightToTransactionKey);
                 }
@@ -605,7 +2086,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储交易哈希到交易高度的映射
      */
-    private void storeTransactionHashToTransactionHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeTransactionHashToTransactionHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -621,7 +2102,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储区块链的高度
      */
-    private void storeBlockchainHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeBlockchainHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         byte[] blockchainHeightKey = BlockchainDatabaseKeyTool.buildBlockchainHeightKey();
         if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
             kvWriteBatch.put(blockchainHeightKey, ByteUtil.long8ToByte8(block.getHeight()));
@@ -632,7 +2113,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储区块哈希到区块高度的映射
      */
-    private void storeBlockHashToBlockHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeBlockHashToBlockHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         byte[] blockHashBlockHeightKey = BlockchainDatabaseKeyTool.buildBlockHashToBlockHeightKey(block.getHash());
         if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
             kvWriteBatch.put(blockHashBlockHeightKey, ByteUtil.long8ToByte8(block.getHeight()));
@@ -640,11 +2121,22 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
             kvWriteBatch.delete(blockHashBlockHeightKey);
         }
     }
+    /**
+     * 存储区块时间戳到区块高度的映射
+     */
+    private void storeBlockTimestampToBlockHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+        byte[] blockTimestampToBlockHeightKey = BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(block.getTimestamp());
+        if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
+            kvWriteBatch.put(blockTimestampToBlockHeightKey, ByteUtil.long8ToByte8(block.getHeight()));
+        }else{
+            kvWriteBatch.delete(blockTimestampToBlockHeightKey);
+        }
+    }
     /**
      * 存储区块链中总的交易高度
      */
-    private void storeBlockchainTransactionHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
-        long transactionCount = queryBlockchainTransactionHeight();
+    private void storeBlockchainTransactionHeight(KvWriteBatch kvWriteBatch, ChainTip chainTip, Block block, BlockchainActionEnum blockchainActionEnum) {
+        long transactionCount = chainTip.getBlockchainTransactionHeight();
         byte[] bytesBlockchainTransactionCountKey = BlockchainDatabaseKeyTool.buildBlockchainTransactionHeightKey();
         if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
             kvWriteBatch.put(bytesBlockchainTransactionCountKey, ByteUtil.long8ToByte8(transactionCount + BlockTool.getTransactionCount(block)));
@@ -655,8 +2147,8 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储区块链中总的交易数量
      */
-    private void storeBlockchainTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
-        long transactionOutputCount = queryBlockchainTransactionOutputHeight();
+    private void storeBlockchainTransactionOutputHeight(KvWriteBatch kvWriteBatch, ChainTip chainTip, Block block, BlockchainActionEnum blockchainActionEnum) {
+        long transactionOutputCount = chainTip.getBlockchainTransactionOutputHeight();
         byte[] bytesBlockchainTransactionOutputHeightKey = BlockchainDatabaseKeyTool.buildBlockchainTransactionOutputHeightKey();
         if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
             kvWriteBatch.put(bytesBlockchainTransactionOutputHeightKey, ByteUtil.long8ToByte8(transactionOutputCount + BlockTool.getTransactionOutputCount(block)));
@@ -666,11 +2158,13 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     }
     /**
      * 存储区块链高度到区块的映射
+     * 只存储区块头，区块里的交易已经按交易高度存储，不再重复存储。
+     * 区块头、交易追加写入区块文件，数据库中只存储区块文件指针。区块头先于区块里的交易追加，因此区块的数据从区块头开始、到最后一笔交易结束。
      */
-    private void storeBlockHeightToBlock(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeBlockHeightToBlock(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         byte[] blockHeightKey = BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(block.getHeight());
         if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
-            kvWriteBatch.put(blockHeightKey, EncodeDecodeTool.encodeBlock(block));
+            kvWriteBatch.put(blockHeightKey, appendBlockFile(EncodeDecodeTool.encodeBlockHeader(block)));
         }else{
             kvWriteBatch.delete(blockHeightKey);
         }
@@ -679,7 +2173,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储已使用的哈希
      */
-    private void storeHash(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeHash(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         byte[] blockHashKey = BlockchainDatabaseKeyTool.buildHashKey(block.getHash());
         if(BlockchainActionEnum.ADD_BLOCK == blockchainActionEnum){
             kvWriteBatch.put(blockHashKey, blockHashKey);
@@ -702,7 +2196,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储已使用的地址
      */
-    private void storeAddress(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeAddress(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions != null){
             for(Transaction transaction:transactions){
@@ -723,7 +2217,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储地址到未花费交易输出列表
      */
-    private void storeAddressToUnspentTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeAddressToUnspentTransactionOutputHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions == null){
             return;
@@ -757,7 +2251,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储地址到交易输出
      */
-    private void storeAddressToTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeAddressToTransactionOutputHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions == null){
             return;
@@ -779,7 +2273,7 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
     /**
      * 存储地址到交易输出高度
      */
-    private void storeAddressToSpentTransactionOutputHeight(KvDbUtil.KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
+    private void storeAddressToSpentTransactionOutputHeight(KvWriteBatch kvWriteBatch, Block block, BlockchainActionEnum blockchainActionEnum) {
         List<Transaction> transactions = block.getTransactions();
         if(transactions == null){
             return;
@@ -820,8 +2314,32 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
         return true;
     }
 
-    private String getBlockchainDatabasePath(){
-        return FileUtil.newPath(coreConfiguration.getCorePath(), BLOCKCHAIN_DATABASE_NAME);
+    private KvStore getBlockchainKvStore(){
+        KvStore blockchainKvStore = this.blockchainKvStore;
+        if(blockchainKvStore == null){
+            blockchainKvStore = coreConfiguration.getKvStore(BLOCKCHAIN_DATABASE_NAME);
+            this.blockchainKvStore = blockchainKvStore;
+        }
+        return blockchainKvStore;
+    }
+    /**
+     * 读取数据库。正在批量新增区块的线程先读取还没有写入数据库的修改，打开了读视图的线程读取读视图的快照。
+     */
+    private byte[] queryBytes(byte[] key) {
+        if(isPending(key)){
+            return pendingKvWrites.get(ByteBuffer.wrap(key));
+        }
+        ReadViewDefaultImpl readView = currentReadView();
+        if(readView != null){
+            return readView.getKvSnapshot().get(key);
+        }
+        return getBlockchainKvStore().get(key);
+    }
+    /**
+     * 是否是当前线程批量新增区块时还没有写入数据库的修改
+     */
+    private boolean isPending(byte[] key) {
+        return readWriteLock.isWriteLockedByCurrentThread() && pendingKvWrites != null && pendingKvWrites.containsKey(ByteBuffer.wrap(key));
     }
 
     //region 新产生的哈希相关
@@ -829,7 +2347,11 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
      * 哈希是否已经被区块链系统使用了？
      */
     private boolean isHashUsed(String hash){
-        byte[] bytesHash = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildHashKey(hash));
+        byte[] hashKey = BlockchainDatabaseKeyTool.buildHashKey(hash);
+        if(!mightBeUsed(hashKey)){
+            return false;
+        }
+        byte[] bytesHash = queryBytes(hashKey);
         return bytesHash != null;
     }
     /**
@@ -936,7 +2458,11 @@ public class BlockchainDatabaseDefaultImpl extends BlockchainDatabase {
         return true;
     }
     private boolean isAddressUsed(String address) {
-        byte[] bytesAddress = KvDbUtil.get(getBlockchainDatabasePath(), BlockchainDatabaseKeyTool.buildAddressKey(address));
+        byte[] addressKey = BlockchainDatabaseKeyTool.buildAddressKey(address);
+        if(!mightBeUsed(addressKey)){
+            return false;
+        }
+        byte[] bytesAddress = queryBytes(addressKey);
         return bytesAddress != null;
     }
     //endregion
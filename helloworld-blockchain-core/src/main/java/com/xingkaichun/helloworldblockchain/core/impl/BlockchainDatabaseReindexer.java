@@ -0,0 +1,338 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockchainDatabaseKeyTool;
+import com.xingkaichun.helloworldblockchain.core.tools.EncodeDecodeTool;
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.setting.Setting;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import com.xingkaichun.helloworldblockchain.util.StringUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 重建索引：区块头([区块高度到区块]映射)、区块里的交易([交易高度到交易]映射)是原始数据，其它映射都可以由它们推导出来。
+ *
+ * 1.删除旧的索引。
+ * 2.顺序遍历区块头，校验区块头的连接关系，生成区块哈希、区块时间戳的索引，并按交易高度将交易划分为多个范围。
+ * 3.在ForkJoinPool中并行处理各个范围：生成交易、交易输出的索引，同时在位图中标记被花费的交易输出高度。
+ * 4.并行处理各个范围：交易输入花费的交易输出可能由其它范围的交易产生，它们在第3步已经全部写入数据库，按交易输出高度读取，
+ *   生成已花费交易输出的索引；位图中没有被标记的交易输出生成未花费交易输出的索引。
+ * 5.写入区块链高度、交易高度、交易输出高度，以及未花费交易输出刷盘高度。
+ * 每批次的数据按主键排序后写入数据库。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class BlockchainDatabaseReindexer {
+
+    //每批次写入的数据条数
+    private static final int REINDEX_BATCH_SIZE = 100000;
+    //每批次批量读取被花费的交易输出的交易数量
+    private static final int READ_SPENT_TRANSACTION_OUTPUT_TRANSACTION_COUNT = 1000;
+    //每个线程平均处理的范围数量，范围更小可以使各线程的负载更均衡
+    private static final int PARTITION_COUNT_PER_THREAD = 4;
+    //一个范围最少的交易数量
+    private static final long MIN_PARTITION_TRANSACTION_COUNT = 1000;
+
+    private final KvStore kvStore;
+    private final BlockFileStore blockFileStore;
+    private final int parallelism;
+
+    BlockchainDatabaseReindexer(KvStore kvStore, BlockFileStore blockFileStore, int parallelism) {
+        this.kvStore = kvStore;
+        this.blockFileStore = blockFileStore;
+        this.parallelism = parallelism;
+    }
+
+    void reindex() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Void>> deleteTasks = new ArrayList<>();
+            for(byte[] prefix:BlockchainDatabaseKeyTool.buildIndexKeyPrefixes()){
+                deleteTasks.add(() -> deleteIndex(prefix));
+            }
+            invokeAll(forkJoinPool, deleteTasks);
+            LogUtil.debug("reindex: delete indexes finish.");
+
+            Block tailBlock = reindexBlockHeaders();
+            long blockchainHeight = tailBlock == null ? Setting.GenesisBlockSetting.HEIGHT : tailBlock.getHeight();
+            long blockchainTransactionHeight = tailBlock == null ? 0 : tailBlock.getPreviousTransactionHeight() + tailBlock.getTransactionCount();
+            long blockchainTransactionOutputHeight = queryTransactionOutputHeight(blockchainTransactionHeight);
+            LogUtil.debug(String.format("reindex: block headers finish. blockchain height %s, transaction height %s, transaction output height %s.",
+                    blockchainHeight,blockchainTransactionHeight,blockchainTransactionOutputHeight));
+
+            //被花费的交易输出高度的位图
+            AtomicLongArray spentTransactionOutputHeights = new AtomicLongArray((int) (blockchainTransactionOutputHeight / 64 + 1));
+            List<long[]> partitions = partition(blockchainTransactionHeight);
+            List<Callable<Void>> transactionTasks = new ArrayList<>();
+            List<Callable<Void>> spentTransactionOutputTasks = new ArrayList<>();
+            for(long[] partition:partitions){
+                transactionTasks.add(() -> reindexTransactions(partition[0], partition[1], spentTransactionOutputHeights));
+                spentTransactionOutputTasks.add(() -> reindexSpentTransactionOutputs(partition[0], partition[1], spentTransactionOutputHeights));
+            }
+            invokeAll(forkJoinPool, transactionTasks);
+            LogUtil.debug(String.format("reindex: transactions finish. partition count %s.",partitions.size()));
+            invokeAll(forkJoinPool, spentTransactionOutputTasks);
+            LogUtil.debug("reindex: spent transaction outputs finish.");
+
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockchainHeightKey(), ByteUtil.long8ToByte8(blockchainHeight));
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockchainTransactionHeightKey(), ByteUtil.long8ToByte8(blockchainTransactionHeight));
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockchainTransactionOutputHeightKey(), ByteUtil.long8ToByte8(blockchainTransactionOutputHeight));
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey(), ByteUtil.long8ToByte8(blockchainHeight));
+            kvStore.write(kvWriteBatch);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    /**
+     * 删除一类索引
+     */
+    private Void deleteIndex(byte[] prefix) {
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(kvIterator.seek(prefix); kvIterator.isValid() && kvIterator.key()[0] == prefix[0]; kvIterator.next()){
+                kvWriteBatch.delete(kvIterator.key());
+                kvWriteBatch = writeIfFull(kvWriteBatch);
+            }
+            write(kvWriteBatch);
+        }
+        return null;
+    }
+    /**
+     * 顺序遍历区块头，生成[已使用的哈希](区块哈希)、[区块哈希到区块高度]、[区块时间戳到区块高度]映射。返回尾部区块，没有区块时返回null。
+     */
+    private Block reindexBlockHeaders() {
+        Block previousBlock = null;
+        byte[] prefix = BlockchainDatabaseKeyTool.buildBlockHeightToBlockKeyPrefix();
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(kvIterator.seek(prefix); kvIterator.isValid() && kvIterator.key()[0] == prefix[0]; kvIterator.next()){
+                Block block = EncodeDecodeTool.decodeToBlock(readBlockFileBytes(kvIterator.value()));
+                checkBlockHeader(previousBlock, block, kvIterator.key());
+                byte[] blockHashKey = BlockchainDatabaseKeyTool.buildHashKey(block.getHash());
+                kvWriteBatch.put(blockHashKey, blockHashKey);
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockHashToBlockHeightKey(block.getHash()), ByteUtil.long8ToByte8(block.getHeight()));
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockTimestampToBlockHeightKey(block.getTimestamp()), ByteUtil.long8ToByte8(block.getHeight()));
+                kvWriteBatch = writeIfFull(kvWriteBatch);
+                previousBlock = block;
+            }
+            write(kvWriteBatch);
+        }
+        return previousBlock;
+    }
+    /**
+     * 区块头必须从创世区块之后连续：高度、前一个区块的哈希、区块里交易的交易高度都与前一个区块衔接。
+     */
+    private void checkBlockHeader(Block previousBlock, Block block, byte[] key) {
+        long previousBlockHeight = previousBlock == null ? Setting.GenesisBlockSetting.HEIGHT : previousBlock.getHeight();
+        String previousBlockHash = previousBlock == null ? Setting.GenesisBlockSetting.HASH : previousBlock.getHash();
+        long previousTransactionHeight = previousBlock == null ? 0 : previousBlock.getPreviousTransactionHeight() + previousBlock.getTransactionCount();
+        if(block.getHeight() != previousBlockHeight + 1 || !StringUtil.isEquals(block.getPreviousHash(),previousBlockHash)
+                || block.getPreviousTransactionHeight() != previousTransactionHeight
+                || !ByteUtil.equals(key,BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(block.getHeight()))){
+            throw new RuntimeException(String.format("高度为%s的区块头与前一个区块头不连续，不能重建索引。",previousBlockHeight + 1));
+        }
+    }
+    /**
+     * 区块链的交易输出高度：最后一个有交易输出的交易的最后一个交易输出的高度。
+     */
+    private long queryTransactionOutputHeight(long blockchainTransactionHeight) {
+        for(long transactionHeight=blockchainTransactionHeight; transactionHeight>0; transactionHeight--){
+            List<TransactionOutput> outputs = queryTransaction(transactionHeight).getOutputs();
+            if(outputs != null && !outputs.isEmpty()){
+                return outputs.get(outputs.size()-1).getTransactionOutputHeight();
+            }
+        }
+        return 0;
+    }
+    /**
+     * 将交易高度[1,blockchainTransactionHeight]划分为多个连续的范围
+     */
+    private List<long[]> partition(long blockchainTransactionHeight) {
+        long partitionTransactionCount = Math.max(MIN_PARTITION_TRANSACTION_COUNT, blockchainTransactionHeight / ((long) parallelism * PARTITION_COUNT_PER_THREAD) + 1);
+        List<long[]> partitions = new ArrayList<>();
+        for(long fromTransactionHeight=1; fromTransactionHeight<=blockchainTransactionHeight; fromTransactionHeight+=partitionTransactionCount){
+            partitions.add(new long[]{fromTransactionHeight, Math.min(blockchainTransactionHeight, fromTransactionHeight + partitionTransactionCount - 1)});
+        }
+        return partitions;
+    }
+    /**
+     * 生成交易高度范围内的交易的[已使用的哈希](交易哈希)、[交易哈希到交易高度]映射，
+     * 交易输出的[已使用的地址]、[交易输出高度到交易输出]、[交易输出ID到交易输出高度]、[交易输出ID到来源交易高度]、[地址到交易输出高度]映射，
+     * 并标记交易输入花费的交易输出。
+     */
+    private Void reindexTransactions(long fromTransactionHeight, long toTransactionHeight, AtomicLongArray spentTransactionOutputHeights) {
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            kvIterator.seek(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(fromTransactionHeight));
+            for(long transactionHeight=fromTransactionHeight; transactionHeight<=toTransactionHeight; transactionHeight++){
+                Transaction transaction = nextTransaction(kvIterator, transactionHeight);
+                byte[] transactionHashKey = BlockchainDatabaseKeyTool.buildHashKey(transaction.getTransactionHash());
+                kvWriteBatch.put(transactionHashKey, transactionHashKey);
+                kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionHashToTransactionHeightKey(transaction.getTransactionHash()), ByteUtil.long8ToByte8(transactionHeight));
+                List<TransactionOutput> outputs = transaction.getOutputs();
+                if(outputs != null){
+                    for(TransactionOutput output:outputs){
+                        byte[] bytesTransactionOutputHeight = ByteUtil.long8ToByte8(output.getTransactionOutputHeight());
+                        byte[] addressKey = BlockchainDatabaseKeyTool.buildAddressKey(output.getAddress());
+                        kvWriteBatch.put(addressKey, addressKey);
+                        kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(output.getTransactionOutputHeight()), EncodeDecodeTool.encodeTransactionOutput(output));
+                        kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputIdToTransactionOutputHeightKey(output.getTransactionHash(),output.getTransactionOutputIndex()), bytesTransactionOutputHeight);
+                        kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSourceTransactionHeightKey(output.getTransactionHash(),output.getTransactionOutputIndex()), ByteUtil.long8ToByte8(transactionHeight));
+                        kvWriteBatch.put(BlockchainDatabaseKeyTool.buildAddressToTransactionOutputHeightKey(output.getAddress()), bytesTransactionOutputHeight);
+                    }
+                }
+                List<TransactionInput> inputs = transaction.getInputs();
+                if(inputs != null){
+                    for(TransactionInput transactionInput:inputs){
+                        markSpent(spentTransactionOutputHeights, transactionInput.getUnspentTransactionOutput().getTransactionOutputHeight());
+                    }
+                }
+                kvWriteBatch = writeIfFull(kvWriteBatch);
+            }
+            write(kvWriteBatch);
+        }
+        return null;
+    }
+    /**
+     * 生成交易高度范围内的交易花费的交易输出的[交易输出ID到已花费交易输出高度]、[交易输出ID到去向交易高度]、[地址到已花费交易输出高度]映射，
+     * 以及没有被花费的交易输出的[交易输出ID到未花费交易输出高度]、[地址到未花费交易输出高度]映射。
+     */
+    private Void reindexSpentTransactionOutputs(long fromTransactionHeight, long toTransactionHeight, AtomicLongArray spentTransactionOutputHeights) {
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            kvIterator.seek(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(fromTransactionHeight));
+            List<Transaction> transactions = new ArrayList<>();
+            for(long transactionHeight=fromTransactionHeight; transactionHeight<=toTransactionHeight; transactionHeight++){
+                Transaction transaction = nextTransaction(kvIterator, transactionHeight);
+                //交易里记录的交易高度可能是旧版本写入的，使用主键中的交易高度
+                transaction.setTransactionHeight(transactionHeight);
+                transactions.add(transaction);
+                if(transactions.size() >= READ_SPENT_TRANSACTION_OUTPUT_TRANSACTION_COUNT || transactionHeight == toTransactionHeight){
+                    reindexSpentTransactionOutputs(kvWriteBatch, transactions, spentTransactionOutputHeights);
+                    transactions.clear();
+                    kvWriteBatch = writeIfFull(kvWriteBatch);
+                }
+            }
+            write(kvWriteBatch);
+        }
+        return null;
+    }
+    private void reindexSpentTransactionOutputs(KvWriteBatch kvWriteBatch, List<Transaction> transactions, AtomicLongArray spentTransactionOutputHeights) {
+        List<byte[]> spentTransactionOutputKeys = new ArrayList<>();
+        for(Transaction transaction:transactions){
+            List<TransactionInput> inputs = transaction.getInputs();
+            if(inputs != null){
+                for(TransactionInput transactionInput:inputs){
+                    spentTransactionOutputKeys.add(BlockchainDatabaseKeyTool.buildTransactionOutputHeightToTransactionOutputKey(transactionInput.getUnspentTransactionOutput().getTransactionOutputHeight()));
+                }
+            }
+        }
+        List<byte[]> bytesSpentTransactionOutputs = kvStore.multiGet(spentTransactionOutputKeys);
+        int index = 0;
+        for(Transaction transaction:transactions){
+            List<TransactionInput> inputs = transaction.getInputs();
+            if(inputs != null){
+                for(int i=0; i<inputs.size(); i++,index++){
+                    byte[] bytesSpentTransactionOutput = bytesSpentTransactionOutputs.get(index);
+                    if(bytesSpentTransactionOutput == null){
+                        throw new RuntimeException(String.format("交易高度为%s的交易花费的交易输出不存在，不能重建索引。",transaction.getTransactionHeight()));
+                    }
+                    TransactionOutput spentTransactionOutput = EncodeDecodeTool.decodeToTransactionOutput(bytesSpentTransactionOutput);
+                    byte[] bytesTransactionOutputHeight = ByteUtil.long8ToByte8(spentTransactionOutput.getTransactionOutputHeight());
+                    kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(spentTransactionOutput.getTransactionHash(),spentTransactionOutput.getTransactionOutputIndex()), bytesTransactionOutputHeight);
+                    kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputIdToDestinationTransactionHeightKey(spentTransactionOutput.getTransactionHash(),spentTransactionOutput.getTransactionOutputIndex()), ByteUtil.long8ToByte8(transaction.getTransactionHeight()));
+                    kvWriteBatch.put(BlockchainDatabaseKeyTool.buildAddressToSpentTransactionOutputHeightKey(spentTransactionOutput.getAddress()), bytesTransactionOutputHeight);
+                }
+            }
+            List<TransactionOutput> outputs = transaction.getOutputs();
+            if(outputs != null){
+                for(TransactionOutput output:outputs){
+                    if(isSpent(spentTransactionOutputHeights, output.getTransactionOutputHeight())){
+                        continue;
+                    }
+                    byte[] bytesTransactionOutputHeight = ByteUtil.long8ToByte8(output.getTransactionOutputHeight());
+                    kvWriteBatch.put(BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(output.getTransactionHash(),output.getTransactionOutputIndex()), bytesTransactionOutputHeight);
+                    kvWriteBatch.put(BlockchainDatabaseKeyTool.buildAddressToUnspentTransactionOutputHeightKey(output.getAddress()), bytesTransactionOutputHeight);
+                }
+            }
+        }
+    }
+    /**
+     * 迭代器当前指向的交易，它的交易高度必须是transactionHeight。读取后迭代器移动到下一条数据。
+     */
+    private Transaction nextTransaction(KvIterator kvIterator, long transactionHeight) {
+        if(!kvIterator.isValid() || !ByteUtil.equals(kvIterator.key(),BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transactionHeight))){
+            throw new RuntimeException(String.format("交易高度为%s的交易不存在，不能重建索引。",transactionHeight));
+        }
+        Transaction transaction = EncodeDecodeTool.decodeToTransaction(readBlockFileBytes(kvIterator.value()));
+        kvIterator.next();
+        return transaction;
+    }
+    private Transaction queryTransaction(long transactionHeight) {
+        byte[] bytesTransaction = kvStore.get(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transactionHeight));
+        if(bytesTransaction == null){
+            throw new RuntimeException(String.format("交易高度为%s的交易不存在，不能重建索引。",transactionHeight));
+        }
+        return EncodeDecodeTool.decodeToTransaction(readBlockFileBytes(bytesTransaction));
+    }
+    /**
+     * 值是区块文件指针时，读取区块文件中的数据；否则值就是数据本身。
+     */
+    private byte[] readBlockFileBytes(byte[] bytes) {
+        if(BlockFilePointer.isBlockFilePointer(bytes)){
+            return blockFileStore.read(BlockFilePointer.decode(bytes));
+        }
+        return bytes;
+    }
+    private static void markSpent(AtomicLongArray spentTransactionOutputHeights, long transactionOutputHeight) {
+        int index = (int) (transactionOutputHeight >>> 6);
+        long mask = 1L << transactionOutputHeight;
+        long word = spentTransactionOutputHeights.get(index);
+        while ((word & mask) == 0 && !spentTransactionOutputHeights.compareAndSet(index, word, word | mask)){
+            word = spentTransactionOutputHeights.get(index);
+        }
+    }
+    private static boolean isSpent(AtomicLongArray spentTransactionOutputHeights, long transactionOutputHeight) {
+        return (spentTransactionOutputHeights.get((int) (transactionOutputHeight >>> 6)) & (1L << transactionOutputHeight)) != 0;
+    }
+    /**
+     * 数据条数达到批次大小时写入数据库，返回新的批量写入对象。
+     */
+    private KvWriteBatch writeIfFull(KvWriteBatch kvWriteBatch) {
+        if(kvWriteBatch.getKvWrites().size() < REINDEX_BATCH_SIZE){
+            return kvWriteBatch;
+        }
+        write(kvWriteBatch);
+        return new KvWriteBatch();
+    }
+    /**
+     * 按主键排序后写入：一批次内的主键都不相同，排序不改变写入的结果，有序写入对存储引擎更友好。
+     */
+    private void write(KvWriteBatch kvWriteBatch) {
+        kvWriteBatch.getKvWrites().sort((kvWrite1, kvWrite2) -> UnsignedBytesComparator.INSTANCE.compare(kvWrite1.getKey(), kvWrite2.getKey()));
+        kvStore.write(kvWriteBatch);
+    }
+    /**
+     * 在ForkJoinPool中执行所有任务，任何一个任务失败时抛出异常。
+     */
+    private static void invokeAll(ForkJoinPool forkJoinPool, List<Callable<Void>> tasks) {
+        for(Future<Void> future:forkJoinPool.invokeAll(tasks)){
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                LogUtil.error("reindex failed.",e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+
+/**
+ * 链尾：区块链高度、尾部区块、区块链交易高度、区块链交易输出高度。
+ *
+ * 链尾是不可变对象，区块链数据库每次成功写入区块后整体替换链尾，查询时直接读取，不需要访问数据库。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class ChainTip {
+
+    //区块链高度
+    private final long blockchainHeight;
+    //尾部区块的哈希
+    private final String tailBlockHash;
+    //尾部区块，区块链没有区块时为null。
+    private final Block tailBlock;
+    //区块链交易高度
+    private final long blockchainTransactionHeight;
+    //区块链交易输出高度
+    private final long blockchainTransactionOutputHeight;
+
+    ChainTip(long blockchainHeight, String tailBlockHash, Block tailBlock, long blockchainTransactionHeight, long blockchainTransactionOutputHeight) {
+        this.blockchainHeight = blockchainHeight;
+        this.tailBlockHash = tailBlockHash;
+        this.tailBlock = tailBlock;
+        this.blockchainTransactionHeight = blockchainTransactionHeight;
+        this.blockchainTransactionOutputHeight = blockchainTransactionOutputHeight;
+    }
+
+    long getBlockchainHeight() {
+        return blockchainHeight;
+    }
+
+    String getTailBlockHash() {
+        return tailBlockHash;
+    }
+
+    Block getTailBlock() {
+        return tailBlock;
+    }
+
+    long getBlockchainTransactionHeight() {
+        return blockchainTransactionHeight;
+    }
+
+    long getBlockchainTransactionOutputHeight() {
+        return blockchainTransactionOutputHeight;
+    }
+}
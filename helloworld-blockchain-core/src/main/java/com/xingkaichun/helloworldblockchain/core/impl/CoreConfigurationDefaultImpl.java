@@ -4,6 +4,9 @@ import com.xingkaichun.helloworldblockchain.core.CoreConfiguration;
 import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
 import com.xingkaichun.helloworldblockchain.util.FileUtil;
 import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreEngineEnum;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreOptions;
 
 /**
  * 默认实现
@@ -16,15 +19,56 @@ public class CoreConfigurationDefaultImpl extends CoreConfiguration {
     private final String corePath;
     //配置数据库名字
     private static final String CONFIGURATION_DATABASE_NAME = "ConfigurationDatabase";
+    //配置数据库记录着其它数据库的存储引擎，因此它自身的存储引擎是固定的。
+    private static final KvStoreEngineEnum CONFIGURATION_DATABASE_KV_STORE_ENGINE = KvStoreEngineEnum.LEVELDB;
 
     //'矿工是否是激活状态'存入到数据库时的主键
     private static final String MINE_OPTION_KEY = "IS_MINER_ACTIVE";
     //'矿工是否是激活状态'的默认值
     private static final boolean MINE_OPTION_DEFAULT_VALUE = false;
 
+    //'裁剪模式保留完整数据的区块数量'存入到数据库时的主键
+    private static final String PRUNE_BLOCK_COUNT_OPTION_KEY = "PRUNE_BLOCK_COUNT";
+    //'裁剪模式保留完整数据的区块数量'的默认值：不裁剪
+    private static final long PRUNE_BLOCK_COUNT_OPTION_DEFAULT_VALUE = 0;
+    //裁剪模式保留完整数据的区块数量的最小值，它需要远大于网络同步时允许的分叉长度
+    private static final long MIN_PRUNE_BLOCK_COUNT = 1000;
+
+    //'数据库使用的存储引擎'存入到数据库时的主键前缀，主键前缀后拼接数据库名字
+    private static final String KV_STORE_ENGINE_OPTION_KEY_PREFIX = "KV_STORE_ENGINE_";
+    //'数据库使用的存储引擎'的默认值
+    private static final KvStoreEngineEnum KV_STORE_ENGINE_OPTION_DEFAULT_VALUE = KvStoreEngineEnum.LEVELDB;
+
+    //'数据库格式的版本号'存入到数据库时的主键前缀，主键前缀后拼接数据库名字
+    private static final String DATABASE_VERSION_OPTION_KEY_PREFIX = "DATABASE_VERSION_";
+    //'数据库格式的版本号'的默认值
+    private static final int DATABASE_VERSION_OPTION_DEFAULT_VALUE = 0;
+
     //这个时间间隔更新一次正在被挖矿的区块的交易。如果时间太长，可能导致新提交的交易延迟被确认。
     public static final long MINE_TIMESTAMP_PER_ROUND = 1000 * 10;
 
+    //区块链数据库查询缓存大小
+    private static final long BLOCKCHAIN_DATABASE_QUERY_CACHE_SIZE = 64 * 1024 * 1024;
+    //未花费交易输出缓存最多缓存的交易输出数量
+    private static final int UNSPENT_TRANSACTION_OUTPUT_CACHE_SIZE = 1000000;
+    //未花费交易输出缓存刷入数据库的阈值
+    private static final int UNSPENT_TRANSACTION_OUTPUT_CACHE_FLUSH_THRESHOLD = 200000;
+    //区块文件数据段大小
+    private static final int BLOCK_FILE_SEGMENT_SIZE = 128 * 1024 * 1024;
+    //哈希地址过滤器预期容纳的哈希、地址数量，1%的误判率下占用约16MB内存
+    private static final long HASH_ADDRESS_FILTER_EXPECTED_INSERTIONS = 14000000;
+    //哈希地址过滤器的误判率
+    private static final double HASH_ADDRESS_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    //存储维护的空闲时间
+    private static final long STORAGE_MAINTAIN_IDLE_TIME = 1000 * 60 * 10;
+    //校验区块时并行校验交易脚本的线程数量
+    private static final int SCRIPT_CHECK_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    //已校验签名缓存最多缓存的签名数量，每个签名占用32字节
+    private static final int VERIFIED_SIGNATURE_CACHE_SIZE = 100000;
+
+    //配置数据库的存储引擎，第一次使用时获取
+    private volatile KvStore configurationKvStore;
+
     public CoreConfigurationDefaultImpl(String corePath) {
         FileUtil.mkdirs(corePath);
         this.corePath = corePath;
@@ -61,15 +105,140 @@ public class CoreConfigurationDefaultImpl extends CoreConfiguration {
         return MINE_TIMESTAMP_PER_ROUND;
     }
 
+    @Override
+    public long getBlockchainDatabaseQueryCacheSize() {
+        return BLOCKCHAIN_DATABASE_QUERY_CACHE_SIZE;
+    }
+
+    @Override
+    public int getUnspentTransactionOutputCacheSize() {
+        return UNSPENT_TRANSACTION_OUTPUT_CACHE_SIZE;
+    }
+
+    @Override
+    public int getUnspentTransactionOutputCacheFlushThreshold() {
+        return UNSPENT_TRANSACTION_OUTPUT_CACHE_FLUSH_THRESHOLD;
+    }
 
+    @Override
+    public int getBlockFileSegmentSize() {
+        return BLOCK_FILE_SEGMENT_SIZE;
+    }
 
-    private String getConfigurationDatabasePath(){
-        return FileUtil.newPath(corePath, CONFIGURATION_DATABASE_NAME);
+    @Override
+    public long getHashAddressFilterExpectedInsertions() {
+        return HASH_ADDRESS_FILTER_EXPECTED_INSERTIONS;
+    }
+
+    @Override
+    public double getHashAddressFilterFalsePositiveRate() {
+        return HASH_ADDRESS_FILTER_FALSE_POSITIVE_RATE;
+    }
+
+    @Override
+    public long getStorageMaintainIdleTime() {
+        return STORAGE_MAINTAIN_IDLE_TIME;
+    }
+
+    @Override
+    public int getScriptCheckParallelism() {
+        return SCRIPT_CHECK_PARALLELISM;
+    }
+
+    @Override
+    public int getVerifiedSignatureCacheSize() {
+        return VERIFIED_SIGNATURE_CACHE_SIZE;
+    }
+
+    @Override
+    public long getPruneBlockCount() {
+        byte[] pruneBlockCountOption = getConfigurationValue(ByteUtil.stringToUtf8Bytes(PRUNE_BLOCK_COUNT_OPTION_KEY));
+        if(pruneBlockCountOption == null){
+            return PRUNE_BLOCK_COUNT_OPTION_DEFAULT_VALUE;
+        }
+        return Long.parseLong(ByteUtil.utf8BytesToString(pruneBlockCountOption));
+    }
+
+    @Override
+    public void setPruneBlockCount(long pruneBlockCount) {
+        if(pruneBlockCount != 0 && pruneBlockCount < MIN_PRUNE_BLOCK_COUNT){
+            throw new RuntimeException(String.format("裁剪模式保留完整数据的区块数量不能小于%s。",MIN_PRUNE_BLOCK_COUNT));
+        }
+        addOrUpdateConfiguration(ByteUtil.stringToUtf8Bytes(PRUNE_BLOCK_COUNT_OPTION_KEY),ByteUtil.stringToUtf8Bytes(String.valueOf(pruneBlockCount)));
+    }
+
+    @Override
+    public KvStore getKvStore(String databaseName) {
+        return KvDbUtil.getKvStore(FileUtil.newPath(corePath, databaseName), getKvStoreEngine(databaseName), getKvStoreOptions(databaseName));
+    }
+
+    @Override
+    public KvStoreEngineEnum getKvStoreEngine(String databaseName) {
+        byte[] kvStoreEngineOption = getConfigurationValue(ByteUtil.stringToUtf8Bytes(KV_STORE_ENGINE_OPTION_KEY_PREFIX + databaseName));
+        if(kvStoreEngineOption == null){
+            return KV_STORE_ENGINE_OPTION_DEFAULT_VALUE;
+        }
+        return KvStoreEngineEnum.valueOf(ByteUtil.utf8BytesToString(kvStoreEngineOption));
+    }
+
+    @Override
+    public int getDatabaseVersion(String databaseName) {
+        byte[] databaseVersionOption = getConfigurationValue(ByteUtil.stringToUtf8Bytes(DATABASE_VERSION_OPTION_KEY_PREFIX + databaseName));
+        if(databaseVersionOption == null){
+            return DATABASE_VERSION_OPTION_DEFAULT_VALUE;
+        }
+        return Integer.parseInt(ByteUtil.utf8BytesToString(databaseVersionOption));
+    }
+
+    @Override
+    public void setDatabaseVersion(String databaseName, int databaseVersion) {
+        addOrUpdateConfiguration(ByteUtil.stringToUtf8Bytes(DATABASE_VERSION_OPTION_KEY_PREFIX + databaseName),ByteUtil.stringToUtf8Bytes(String.valueOf(databaseVersion)));
+    }
+
+    @Override
+    public KvStoreOptions getKvStoreOptions(String databaseName) {
+        KvStoreOptions kvStoreOptions = new KvStoreOptions();
+        if(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME.equals(databaseName)){
+            //数据量最大，大量按哈希、地址查询是否存在的点查询，使用较大的缓存、写缓冲区和布隆过滤器。
+            kvStoreOptions.setCacheSize(64 * 1024 * 1024);
+            kvStoreOptions.setBlockSize(16 * 1024);
+            kvStoreOptions.setWriteBufferSize(16 * 1024 * 1024);
+            kvStoreOptions.setBloomFilterBitsPerKey(10);
+        }else if(UnconfirmedTransactionDatabaseDefaultImpl.UNCONFIRMED_TRANSACTION_DATABASE_NAME.equals(databaseName)){
+            //数据量小、变化快，按交易哈希查询。
+            kvStoreOptions.setCacheSize(8 * 1024 * 1024);
+            kvStoreOptions.setCompression(false);
+            kvStoreOptions.setBloomFilterBitsPerKey(10);
+        }else if(WalletImpl.WALLET_DATABASE_NAME.equals(databaseName) || CONFIGURATION_DATABASE_NAME.equals(databaseName)){
+            //数据量很小，但是数据(私钥、配置)不能丢失，使用同步写。
+            kvStoreOptions.setCacheSize(1024 * 1024);
+            kvStoreOptions.setWriteBufferSize(1024 * 1024);
+            kvStoreOptions.setMaxOpenFiles(100);
+            kvStoreOptions.setCompression(false);
+            kvStoreOptions.setSync(true);
+        }
+        return kvStoreOptions;
+    }
+
+    @Override
+    public void setKvStoreEngine(String databaseName, KvStoreEngineEnum kvStoreEngine) {
+        addOrUpdateConfiguration(ByteUtil.stringToUtf8Bytes(KV_STORE_ENGINE_OPTION_KEY_PREFIX + databaseName),ByteUtil.stringToUtf8Bytes(kvStoreEngine.name()));
+    }
+
+
+
+    private KvStore getConfigurationKvStore(){
+        KvStore configurationKvStore = this.configurationKvStore;
+        if(configurationKvStore == null){
+            configurationKvStore = KvDbUtil.getKvStore(FileUtil.newPath(corePath, CONFIGURATION_DATABASE_NAME), CONFIGURATION_DATABASE_KV_STORE_ENGINE, getKvStoreOptions(CONFIGURATION_DATABASE_NAME));
+            this.configurationKvStore = configurationKvStore;
+        }
+        return configurationKvStore;
     }
     private byte[] getConfigurationValue(byte[] configurationKey) {
-        return KvDbUtil.get(getConfigurationDatabasePath(), configurationKey);
+        return getConfigurationKvStore().get(configurationKey);
     }
     private void addOrUpdateConfiguration(byte[] configurationKey, byte[] configurationValue) {
-        KvDbUtil.put(getConfigurationDatabasePath(), configurationKey, configurationValue);
+        getConfigurationKvStore().put(configurationKey, configurationValue);
     }
 }
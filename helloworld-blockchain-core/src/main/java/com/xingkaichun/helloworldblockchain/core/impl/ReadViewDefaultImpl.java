@@ -0,0 +1,66 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.ReadView;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvSnapshot;
+
+/**
+ * 读视图：数据库快照、链尾，以及创建时查询缓存的失效次数。
+ * 查询缓存总是最新的数据，创建之后查询缓存没有失效过时，缓存中不超过链尾的区块、交易、交易输出与快照一致，读视图可以使用查询缓存。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class ReadViewDefaultImpl extends ReadView {
+
+    private final BlockchainDatabaseDefaultImpl blockchainDatabase;
+    private final KvSnapshot kvSnapshot;
+    private final ChainTip chainTip;
+    private final long queryCacheInvalidateCount;
+    //创建读视图的线程
+    private final Thread thread;
+    //同一线程中嵌套创建的次数，只在创建读视图的线程中读写
+    private int referenceCount;
+
+    ReadViewDefaultImpl(BlockchainDatabaseDefaultImpl blockchainDatabase, KvSnapshot kvSnapshot, ChainTip chainTip, long queryCacheInvalidateCount, Thread thread) {
+        this.blockchainDatabase = blockchainDatabase;
+        this.kvSnapshot = kvSnapshot;
+        this.chainTip = chainTip;
+        this.queryCacheInvalidateCount = queryCacheInvalidateCount;
+        this.thread = thread;
+        this.referenceCount = 1;
+    }
+
+    @Override
+    public long getBlockchainHeight() {
+        return chainTip.getBlockchainHeight();
+    }
+
+    /**
+     * 在其它线程中关闭时抛出异常，读视图保持打开。
+     */
+    @Override
+    public void close() {
+        if(Thread.currentThread() != thread){
+            throw new RuntimeException("read view must be closed in the thread that opened it.");
+        }
+        referenceCount--;
+        if(referenceCount == 0){
+            blockchainDatabase.closeReadView(this);
+        }
+    }
+
+    void retain() {
+        referenceCount++;
+    }
+
+    KvSnapshot getKvSnapshot() {
+        return kvSnapshot;
+    }
+
+    ChainTip getChainTip() {
+        return chainTip;
+    }
+
+    long getQueryCacheInvalidateCount() {
+        return queryCacheInvalidateCount;
+    }
+}
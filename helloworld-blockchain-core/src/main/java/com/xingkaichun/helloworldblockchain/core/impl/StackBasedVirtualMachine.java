@@ -12,17 +12,165 @@ import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
 import com.xingkaichun.helloworldblockchain.util.LogUtil;
 import com.xingkaichun.helloworldblockchain.util.StringUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 基于栈的虚拟机
  *
+ * 能编译的脚本(见ScriptTool.compileScript)执行编译后的脚本：按操作码switch分派，栈中存放字节数组。
+ * P2PKH脚本不经过解释执行，直接比较公钥哈希、校验签名。
+ * 不能编译的脚本逐个解码十六进制字符串解释执行，结果与编译后的脚本相同。
+ *
  * @author 邢开春 409060350@qq.com
  */
 public class StackBasedVirtualMachine extends VirtualMachine {
 
+    //已校验签名缓存，null代表不使用缓存
+    private final VerifiedSignatureCache verifiedSignatureCache;
+
+    public StackBasedVirtualMachine(VerifiedSignatureCache verifiedSignatureCache) {
+        this.verifiedSignatureCache = verifiedSignatureCache;
+    }
+
+
     @Override
     public ScriptExecuteResult executeScript(Transaction transactionEnvironment, Script script) throws RuntimeException {
+        return executeScriptWithSignatureHashAll(transactionEnvironment,TransactionTool.signatureHashAll(transactionEnvironment),script);
+    }
+
+    @Override
+    public ScriptExecuteResult executeScriptWithSignatureHashAll(Transaction transactionEnvironment, String signatureHashAll, Script script) throws RuntimeException {
+        CompiledScript compiledScript = ScriptTool.compileScript(script);
+        if(compiledScript == null){
+            return executeStringScript(signatureHashAll,script);
+        }
+        List<byte[]> stack = executeCompiledScript(signatureHashAll,compiledScript);
+        ScriptExecuteResult scriptExecuteResult = new ScriptExecuteResult();
+        for(byte[] element:stack){
+            scriptExecuteResult.push(HexUtil.bytesToHexString(element));
+        }
+        return scriptExecuteResult;
+    }
+
+    @Override
+    public boolean checkTransactionScript(Transaction transaction) {
+        List<TransactionInput> inputs = transaction.getInputs();
+        if(inputs != null){
+            //交易的待签名数据不包含交易输入脚本，所有交易输入共用
+            String signatureHashAll = TransactionTool.signatureHashAll(transaction);
+            for(int i=0;i<inputs.size();i++){
+                if(!checkTransactionInputScript(transaction,signatureHashAll,i)){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean checkTransactionInputScript(Transaction transaction, String signatureHashAll, int inputIndex) {
+        try{
+            TransactionInput transactionInput = transaction.getInputs().get(inputIndex);
+            //锁(交易输出脚本)
+            OutputScript outputScript = transactionInput.getUnspentTransactionOutput().getOutputScript();
+            //钥匙(交易输入脚本)
+            InputScript inputScript = transactionInput.getInputScript();
+            //每次校验时编译脚本，编译结果不保存在脚本中
+            CompiledScript compiledInputScript = inputScript == null ? null : ScriptTool.compileScript(inputScript);
+            CompiledScript compiledOutputScript = outputScript == null ? null : ScriptTool.compileScript(outputScript);
+            if(compiledInputScript != null && compiledOutputScript != null){
+                if(ScriptTool.isPayToPublicKeyHashScript(compiledInputScript,compiledOutputScript)){
+                    return checkPayToPublicKeyHashScript(signatureHashAll,compiledInputScript,compiledOutputScript);
+                }
+                List<byte[]> stack = executeCompiledScript(signatureHashAll,ScriptTool.createCompiledScript(compiledInputScript,compiledOutputScript));
+                return stack.size()==1 && ByteUtil.equals(BooleanEnum.TRUE.getCode(),stack.get(0));
+            }
+            //完整脚本
+            Script script = ScriptTool.createScript(inputScript,outputScript);
+            //执行脚本
+            ScriptExecuteResult scriptExecuteResult = executeStringScript(signatureHashAll,script);
+            //脚本执行结果是个栈，如果栈有且只有一个元素，且这个元素是0x01，则解锁成功。
+            return scriptExecuteResult.size()==1 && ByteUtil.equals(BooleanEnum.TRUE.getCode(),HexUtil.hexStringToBytes(scriptExecuteResult.pop()));
+        }catch (Exception e){
+            LogUtil.error("交易校验失败：交易[输入脚本]解锁交易[输出脚本]异常。",e);
+            return false;
+        }
+    }
+
+
+    /**
+     * P2PKH脚本：[签名 公钥]解锁[公钥哈希]，与解释执行的结果相同。
+     */
+    private boolean checkPayToPublicKeyHashScript(String signatureHashAll, CompiledScript inputScript, CompiledScript outputScript) {
+        byte[] signature = inputScript.getDatas()[1];
+        byte[] publicKey = inputScript.getDatas()[3];
+        byte[] publicKeyHash = outputScript.getDatas()[3];
+        if(!ByteUtil.equals(AccountUtil.publicKeyHashFromRawPublicKey(publicKey),publicKeyHash)){
+            return false;
+        }
+        return verifySignature(publicKey,HexUtil.hexStringToBytes(signatureHashAll),signature);
+    }
+
+    /**
+     * 执行编译后的脚本，返回执行结束时的栈(栈底在前)。
+     */
+    private List<byte[]> executeCompiledScript(String signatureHashAll, CompiledScript script) throws RuntimeException {
+        byte[] operationCodes = script.getOperationCodes();
+        byte[][] datas = script.getDatas();
+        List<byte[]> stack = new ArrayList<>(operationCodes.length + 1);
+        for(int i=0;i<operationCodes.length;i++){
+            switch (operationCodes[i]){
+                case CompiledScript.OP_DUP:
+                    if(stack.size()<1){
+                        throw new RuntimeException("指令运行异常");
+                    }
+                    stack.add(stack.get(stack.size()-1));
+                    break;
+                case CompiledScript.OP_HASH160:
+                    if(stack.size()<1){
+                        throw new RuntimeException("指令运行异常");
+                    }
+                    byte[] publicKey = stack.remove(stack.size()-1);
+                    stack.add(AccountUtil.publicKeyHashFromRawPublicKey(publicKey));
+                    break;
+                case CompiledScript.OP_EQUALVERIFY:
+                    if(stack.size()<2){
+                        throw new RuntimeException("指令运行异常");
+                    }
+                    if(!ByteUtil.equals(stack.remove(stack.size()-1),stack.remove(stack.size()-1))){
+                        throw new RuntimeException("脚本执行失败");
+                    }
+                    break;
+                case CompiledScript.OP_CHECKSIG:
+                    if(stack.size()<2){
+                        throw new RuntimeException("指令运行异常");
+                    }
+                    byte[] checkSignaturePublicKey = stack.remove(stack.size()-1);
+                    byte[] signature = stack.remove(stack.size()-1);
+                    if(!verifySignature(checkSignaturePublicKey,HexUtil.hexStringToBytes(signatureHashAll),signature)){
+                        throw new RuntimeException("脚本执行失败");
+                    }
+                    stack.add(BooleanEnum.TRUE.getCode());
+                    break;
+                case CompiledScript.OP_PUSHDATA:
+                    if(operationCodes.length<i+2){
+                        throw new RuntimeException("指令运行异常");
+                    }
+                    ++i;
+                    stack.add(datas[i]);
+                    break;
+                default:
+                    throw new RuntimeException("不能识别的操作码");
+            }
+        }
+        return stack;
+    }
+
+    /**
+     * 逐个解码十六进制字符串，解释执行脚本。
+     */
+    ScriptExecuteResult executeStringScript(String signatureHashAll, List<String> script) throws RuntimeException {
         ScriptExecuteResult stack = new ScriptExecuteResult();
 
         for(int i=0;i<script.size();i++){
@@ -53,8 +201,7 @@ public class StackBasedVirtualMachine extends VirtualMachine {
                 }
                 String publicKey = stack.pop();
                 String signature = stack.pop();
-                String message = TransactionTool.signatureHashAll(transactionEnvironment);
-                boolean verifySignatureSuccess = AccountUtil.verifySignature(publicKey,message,signature);
+                boolean verifySignatureSuccess = verifyHexSignature(publicKey,signatureHashAll,signature);
                 if(!verifySignatureSuccess){
                     throw new RuntimeException("脚本执行失败");
                 }
@@ -72,30 +219,37 @@ public class StackBasedVirtualMachine extends VirtualMachine {
         return stack;
     }
 
-    public boolean checkTransactionScript(Transaction transaction) {
-        try{
-            List<TransactionInput> inputs = transaction.getInputs();
-            if(inputs != null && inputs.size()!=0){
-                for(TransactionInput transactionInput:inputs){
-                    //锁(交易输出脚本)
-                    OutputScript outputScript = transactionInput.getUnspentTransactionOutput().getOutputScript();
-                    //钥匙(交易输入脚本)
-                    InputScript inputScript = transactionInput.getInputScript();
-                    //完整脚本
-                    Script script = ScriptTool.createScript(inputScript,outputScript);
-                    //执行脚本
-                    ScriptExecuteResult scriptExecuteResult = executeScript(transaction,script);
-                    //脚本执行结果是个栈，如果栈有且只有一个元素，且这个元素是0x01，则解锁成功。
-                    boolean executeSuccess = scriptExecuteResult.size()==1 && ByteUtil.equals(BooleanEnum.TRUE.getCode(),HexUtil.hexStringToBytes(scriptExecuteResult.pop()));
-                    if(!executeSuccess){
-                        return false;
-                    }
-                }
-            }
-        }catch (Exception e){
-            LogUtil.error("交易校验失败：交易[输入脚本]解锁交易[输出脚本]异常。",e);
+    /**
+     * 校验十六进制字符串形式的签名，同样经过已校验签名缓存。不是十六进制字符串时校验失败。
+     */
+    private boolean verifyHexSignature(String publicKey, String message, String signature) {
+        byte[] bytesPublicKey;
+        byte[] bytesMessage;
+        byte[] bytesSignature;
+        try {
+            bytesPublicKey = HexUtil.hexStringToBytes(publicKey);
+            bytesMessage = HexUtil.hexStringToBytes(message);
+            bytesSignature = HexUtil.hexStringToBytes(signature);
+        } catch (Exception e){
             return false;
         }
-        return true;
+        return verifySignature(bytesPublicKey,bytesMessage,bytesSignature);
+    }
+
+    /**
+     * 校验签名，先查询已校验签名缓存，缓存中没有时再校验，校验通过的签名放入缓存。
+     */
+    private boolean verifySignature(byte[] publicKey, byte[] message, byte[] signature) {
+        if(verifiedSignatureCache == null){
+            return AccountUtil.verifyRawSignature(publicKey,message,signature);
+        }
+        if(verifiedSignatureCache.contains(publicKey,message,signature)){
+            return true;
+        }
+        boolean verifySignatureSuccess = AccountUtil.verifyRawSignature(publicKey,message,signature);
+        if(verifySignatureSuccess){
+            verifiedSignatureCache.add(publicKey,message,signature);
+        }
+        return verifySignatureSuccess;
     }
 }
@@ -0,0 +1,192 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.BlockchainDatabase;
+import com.xingkaichun.helloworldblockchain.core.CoreConfiguration;
+import com.xingkaichun.helloworldblockchain.core.Miner;
+import com.xingkaichun.helloworldblockchain.core.StorageMaintainer;
+import com.xingkaichun.helloworldblockchain.core.model.storage.DatabaseStatistics;
+import com.xingkaichun.helloworldblockchain.core.model.storage.KeyPrefixStatistics;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockchainDatabaseKeyTool;
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import com.xingkaichun.helloworldblockchain.util.SleepUtil;
+import com.xingkaichun.helloworldblockchain.util.TimeUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvIterator;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 默认实现
+ *
+ * 压缩以主键前缀为单位：区块链数据库的每个主键前缀是一个主键范围，其它数据库的数据量很小，整个数据库是一个主键范围。
+ * 一个主键范围的估算大小比上次压缩后增长了COMPACT_MIN_GROWTH_SIZE，才需要在空闲时压缩。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class StorageMaintainerDefaultImpl extends StorageMaintainer {
+
+    //每隔这个时间(毫秒)判断一次是否空闲
+    private static final long CHECK_TIME_INTERVAL = 1000 * 10;
+    //主键范围的估算大小比上次压缩后增长了这个值(字节)，才需要在空闲时压缩
+    private static final long COMPACT_MIN_GROWTH_SIZE = 32 * 1024 * 1024;
+    //维护的数据库
+    private static final String[] DATABASE_NAMES = new String[]{BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME,
+            UnconfirmedTransactionDatabaseDefaultImpl.UNCONFIRMED_TRANSACTION_DATABASE_NAME, WalletImpl.WALLET_DATABASE_NAME};
+
+    //同一时间只进行一个压缩
+    private final ReentrantLock compactLock = new ReentrantLock();
+    //主键范围上次压缩后的估算大小，主键是数据库名字与主键前缀。只在持有compactLock时读写。
+    private final Map<String,Long> compactedSizes = new HashMap<>();
+
+    public StorageMaintainerDefaultImpl(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase, Miner miner) {
+        super(coreConfiguration, blockchainDatabase, miner);
+    }
+
+
+    @Override
+    public void start() {
+        long idleTime = coreConfiguration.getStorageMaintainIdleTime();
+        if(idleTime <= 0){
+            return;
+        }
+        KvStore blockchainKvStore = coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME);
+        long lastWriteCount = -1;
+        long lastWriteTimestamp = TimeUtil.currentMillisecondTimestamp();
+        while (true){
+            SleepUtil.sleep(CHECK_TIME_INTERVAL);
+            try {
+                //区块链数据库的写入次数变化了，说明正在挖矿、同步区块或者删除区块
+                long writeCount = blockchainKvStore.getStatistics().getWriteCount();
+                if(writeCount != lastWriteCount){
+                    lastWriteCount = writeCount;
+                    lastWriteTimestamp = TimeUtil.currentMillisecondTimestamp();
+                    continue;
+                }
+                if(miner.isActive() || TimeUtil.currentMillisecondTimestamp() - lastWriteTimestamp < idleTime){
+                    continue;
+                }
+                if(compactLock.tryLock()){
+                    try {
+                        compactGrownKeyRange(blockchainKvStore, writeCount);
+                    } finally {
+                        compactLock.unlock();
+                    }
+                }
+            } catch (Exception e) {
+                //压缩失败不影响区块链的使用，下次空闲时重试
+                LogUtil.error("存储维护在运行中发生异常。",e);
+            }
+        }
+    }
+
+    @Override
+    public boolean compact() {
+        if(!compactLock.tryLock()){
+            return false;
+        }
+        try {
+            for(String databaseName:DATABASE_NAMES){
+                KvStore kvStore = coreConfiguration.getKvStore(databaseName);
+                for(byte[] keyPrefix:keyPrefixes(databaseName)){
+                    compactKeyRange(databaseName, kvStore, keyPrefix);
+                }
+            }
+            return true;
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    @Override
+    public List<DatabaseStatistics> queryStorageStatistics(boolean countKeys) {
+        List<DatabaseStatistics> databaseStatisticsList = new ArrayList<>();
+        for(String databaseName:DATABASE_NAMES){
+            KvStore kvStore = coreConfiguration.getKvStore(databaseName);
+            List<KeyPrefixStatistics> keyPrefixStatisticsList = new ArrayList<>();
+            for(byte[] keyPrefix:keyPrefixes(databaseName)){
+                KeyPrefixStatistics keyPrefixStatistics = new KeyPrefixStatistics();
+                keyPrefixStatistics.setKeyPrefix(ByteUtil.utf8BytesToString(keyPrefix));
+                keyPrefixStatistics.setApproximateSize(kvStore.getApproximateSize(fromKey(keyPrefix), toKey(keyPrefix)));
+                keyPrefixStatistics.setKeyCount(countKeys ? countKeys(kvStore, keyPrefix) : -1);
+                keyPrefixStatisticsList.add(keyPrefixStatistics);
+            }
+            DatabaseStatistics databaseStatistics = new DatabaseStatistics();
+            databaseStatistics.setDatabaseName(databaseName);
+            databaseStatistics.setKvStoreStatistics(kvStore.getStatistics());
+            databaseStatistics.setKeyPrefixStatistics(keyPrefixStatisticsList);
+            databaseStatisticsList.add(databaseStatistics);
+        }
+        return databaseStatisticsList;
+    }
+
+
+    /**
+     * 逐个压缩上次压缩后增长较多的主键范围，区块链数据库有新的写入或者矿工被激活时停止，剩余的主键范围下次空闲时再压缩。
+     */
+    private void compactGrownKeyRange(KvStore blockchainKvStore, long idleWriteCount) {
+        for(String databaseName:DATABASE_NAMES){
+            KvStore kvStore = coreConfiguration.getKvStore(databaseName);
+            for(byte[] keyPrefix:keyPrefixes(databaseName)){
+                if(miner.isActive() || blockchainKvStore.getStatistics().getWriteCount() != idleWriteCount){
+                    return;
+                }
+                String compactedSizeKey = databaseName + ByteUtil.utf8BytesToString(keyPrefix);
+                long size = kvStore.getApproximateSize(fromKey(keyPrefix), toKey(keyPrefix));
+                Long compactedSize = compactedSizes.get(compactedSizeKey);
+                if(compactedSize != null && size < compactedSize){
+                    //删除了数据，从删除后的大小开始计算增长
+                    compactedSizes.put(compactedSizeKey, size);
+                }else if(size - (compactedSize == null ? 0 : compactedSize) >= COMPACT_MIN_GROWTH_SIZE){
+                    compactKeyRange(databaseName, kvStore, keyPrefix);
+                }
+            }
+        }
+    }
+
+    private void compactKeyRange(String databaseName, KvStore kvStore, byte[] keyPrefix) {
+        byte[] fromKey = fromKey(keyPrefix);
+        byte[] toKey = toKey(keyPrefix);
+        long size = kvStore.getApproximateSize(fromKey, toKey);
+        long startTimestamp = TimeUtil.currentMillisecondTimestamp();
+        kvStore.compactRange(fromKey, toKey);
+        long compactedSize = kvStore.getApproximateSize(fromKey, toKey);
+        compactedSizes.put(databaseName + ByteUtil.utf8BytesToString(keyPrefix), compactedSize);
+        LogUtil.info(String.format("compact database %s key prefix '%s': %s ms, approximate size %s -> %s bytes.",
+                databaseName, ByteUtil.utf8BytesToString(keyPrefix), TimeUtil.currentMillisecondTimestamp() - startTimestamp, size, compactedSize));
+    }
+
+    private static long countKeys(KvStore kvStore, byte[] keyPrefix) {
+        long keyCount = 0;
+        byte[] toKey = toKey(keyPrefix);
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            for(kvIterator.seek(keyPrefix); kvIterator.isValid(); kvIterator.next()){
+                if(toKey != null && kvIterator.key()[0] != keyPrefix[0]){
+                    break;
+                }
+                keyCount++;
+            }
+        }
+        return keyCount;
+    }
+
+    /**
+     * 区块链数据库的每个主键前缀是一个主键范围，其它数据库只有一个代表全部数据的空前缀。
+     */
+    private static byte[][] keyPrefixes(String databaseName) {
+        if(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME.equals(databaseName)){
+            return BlockchainDatabaseKeyTool.buildKeyPrefixes();
+        }
+        return new byte[][]{new byte[0]};
+    }
+    private static byte[] fromKey(byte[] keyPrefix) {
+        return keyPrefix.length == 0 ? null : keyPrefix;
+    }
+    /**
+     * 主键前缀的下一个前缀，主键范围不包含它。区块链数据库的主键前缀是一个不为0xFF的字节。
+     */
+    private static byte[] toKey(byte[] keyPrefix) {
+        return keyPrefix.length == 0 ? null : new byte[]{(byte) (keyPrefix[0] + 1)};
+    }
+}
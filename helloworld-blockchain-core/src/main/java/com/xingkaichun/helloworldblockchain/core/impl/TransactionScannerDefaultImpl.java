@@ -0,0 +1,47 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.TransactionScanner;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.tools.EncodeDecodeTool;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvIterator;
+import com.xingkaichun.helloworldblockchain.util.kvstore.UnsignedBytesComparator;
+
+/**
+ * 交易扫描器：在读视图的快照上从起始主键顺序遍历[交易高度到交易]映射到结束主键(包含)，解码交易。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class TransactionScannerDefaultImpl extends TransactionScanner {
+
+    private final ReadViewDefaultImpl readView;
+    //已定位到起始主键的迭代器
+    private final KvIterator kvIterator;
+    private final byte[] toKey;
+    private final BlockFileStore blockFileStore;
+
+    TransactionScannerDefaultImpl(ReadViewDefaultImpl readView, KvIterator kvIterator, byte[] toKey, BlockFileStore blockFileStore) {
+        this.readView = readView;
+        this.kvIterator = kvIterator;
+        this.toKey = toKey;
+        this.blockFileStore = blockFileStore;
+    }
+
+    @Override
+    public Transaction next() {
+        if(!kvIterator.isValid() || UnsignedBytesComparator.INSTANCE.compare(kvIterator.key(),toKey) > 0){
+            return null;
+        }
+        byte[] value = kvIterator.value();
+        kvIterator.next();
+        return EncodeDecodeTool.decodeToTransaction(blockFileStore.readValue(value));
+    }
+
+    @Override
+    public void close() {
+        try {
+            kvIterator.close();
+        } finally {
+            readView.close();
+        }
+    }
+}
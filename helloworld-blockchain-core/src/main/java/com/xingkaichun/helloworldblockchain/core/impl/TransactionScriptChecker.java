@@ -0,0 +1,98 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.VirtualMachine;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 并行校验交易脚本：校验脚本时每个交易输入都要验证一次签名，而各个交易输入的校验相互独立，
+ * 把一个区块中所有交易输入的校验拆分为任务，由ForkJoinPool的多个线程窃取执行。
+ * 任意一个交易输入校验失败后，其它线程尚未开始的校验都不再进行。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class TransactionScriptChecker {
+
+    //一个任务最多校验的交易输入数量，超过时拆分为两个任务；交易输入数量不超过它时在当前线程中依次校验
+    private static final int TASK_INPUT_COUNT = 8;
+
+    private final VirtualMachine virtualMachine;
+    //null代表在当前线程中依次校验
+    private final ForkJoinPool forkJoinPool;
+
+    TransactionScriptChecker(VirtualMachine virtualMachine, ForkJoinPool forkJoinPool) {
+        this.virtualMachine = virtualMachine;
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * 校验全部交易的全部交易输入的脚本，结果与依次调用VirtualMachine.checkTransactionScript相同。
+     */
+    boolean checkTransactionScripts(List<Transaction> transactions) {
+        List<Transaction> inputTransactions = new ArrayList<>();
+        List<String> inputSignatureHashAlls = new ArrayList<>();
+        List<Integer> inputIndexes = new ArrayList<>();
+        for(Transaction transaction:transactions){
+            if(transaction.getInputs() == null){
+                continue;
+            }
+            //每笔交易只计算一次待签名数据，交易的所有交易输入共用
+            String signatureHashAll = TransactionTool.signatureHashAll(transaction);
+            for(int i=0;i<transaction.getInputs().size();i++){
+                inputTransactions.add(transaction);
+                inputSignatureHashAlls.add(signatureHashAll);
+                inputIndexes.add(i);
+            }
+        }
+        CheckTask checkTask = new CheckTask(inputTransactions, inputSignatureHashAlls, inputIndexes, 0, inputTransactions.size(), new AtomicBoolean(false));
+        if(forkJoinPool == null || inputTransactions.size() <= TASK_INPUT_COUNT){
+            return checkTask.compute();
+        }
+        return forkJoinPool.invoke(checkTask);
+    }
+
+
+    private class CheckTask extends RecursiveTask<Boolean> {
+        private final List<Transaction> inputTransactions;
+        private final List<String> inputSignatureHashAlls;
+        private final List<Integer> inputIndexes;
+        private final int from;
+        private final int to;
+        //任意一个交易输入校验失败后置为true，所有任务看到后停止校验
+        private final AtomicBoolean failed;
+        private CheckTask(List<Transaction> inputTransactions, List<String> inputSignatureHashAlls, List<Integer> inputIndexes, int from, int to, AtomicBoolean failed) {
+            this.inputTransactions = inputTransactions;
+            this.inputSignatureHashAlls = inputSignatureHashAlls;
+            this.inputIndexes = inputIndexes;
+            this.from = from;
+            this.to = to;
+            this.failed = failed;
+        }
+        @Override
+        protected Boolean compute() {
+            if(forkJoinPool != null && to - from > TASK_INPUT_COUNT){
+                int middle = (from + to) >>> 1;
+                CheckTask left = new CheckTask(inputTransactions, inputSignatureHashAlls, inputIndexes, from, middle, failed);
+                left.fork();
+                boolean rightSuccess = new CheckTask(inputTransactions, inputSignatureHashAlls, inputIndexes, middle, to, failed).compute();
+                return left.join() && rightSuccess;
+            }
+            for(int i=from;i<to;i++){
+                if(failed.get()){
+                    return false;
+                }
+                if(!virtualMachine.checkTransactionInputScript(inputTransactions.get(i), inputSignatureHashAlls.get(i), inputIndexes.get(i))){
+                    failed.set(true);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
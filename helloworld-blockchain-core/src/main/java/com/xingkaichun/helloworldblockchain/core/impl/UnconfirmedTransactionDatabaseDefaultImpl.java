@@ -4,10 +4,10 @@ import com.xingkaichun.helloworldblockchain.core.CoreConfiguration;
 import com.xingkaichun.helloworldblockchain.core.UnconfirmedTransactionDatabase;
 import com.xingkaichun.helloworldblockchain.core.tools.EncodeDecodeTool;
 import com.xingkaichun.helloworldblockchain.core.tools.TransactionDtoTool;
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
 import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
 import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionDto;
-import com.xingkaichun.helloworldblockchain.util.FileUtil;
-import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.*;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,7 +20,9 @@ import java.util.List;
 public class UnconfirmedTransactionDatabaseDefaultImpl extends UnconfirmedTransactionDatabase {
 
     private CoreConfiguration coreConfiguration;
-    private static final String UNCONFIRMED_TRANSACTION_DATABASE_NAME = "UnconfirmedTransactionDatabase";
+    public static final String UNCONFIRMED_TRANSACTION_DATABASE_NAME = "UnconfirmedTransactionDatabase";
+    //未确认交易数据库的存储引擎，第一次使用时获取
+    private volatile KvStore unconfirmedTransactionKvStore;
 
     public UnconfirmedTransactionDatabaseDefaultImpl(CoreConfiguration coreConfiguration) {
         this.coreConfiguration = coreConfiguration;
@@ -29,38 +31,67 @@ public class UnconfirmedTransactionDatabaseDefaultImpl extends UnconfirmedTransa
     @Override
     public void insertTransaction(TransactionDto transactionDto) {
         String transactionHash = TransactionDtoTool.calculateTransactionHash(transactionDto);
-        KvDbUtil.put(getUnconfirmedTransactionDatabasePath(), getKey(transactionHash), EncodeDecodeTool.encodeTransactionDto(transactionDto));
+        getUnconfirmedTransactionKvStore().put(getKey(transactionHash), EncodeDecodeTool.encodeTransactionDto(transactionDto));
     }
 
     @Override
     public List<TransactionDto> selectTransactions(long from, long size) {
-        List<TransactionDto> transactionDtoList = new ArrayList<>();
-        List<byte[]> bytesTransactionDtos = KvDbUtil.gets(getUnconfirmedTransactionDatabasePath(),from,size);
-        if(bytesTransactionDtos != null){
-            for(byte[] bytesTransactionDto:bytesTransactionDtos){
-                TransactionDto transactionDto = EncodeDecodeTool.decodeToTransactionDto(bytesTransactionDto);
-                transactionDtoList.add(transactionDto);
+        //按位置提取只能从第一条交易开始跳过前面的交易，跳过时只读取主键，不解码交易。
+        byte[] fromKey = null;
+        try (KvIterator iterator = getUnconfirmedTransactionKvStore().iterator()) {
+            iterator.seekToFirst();
+            for(long i=1; i<from && iterator.isValid(); i++){
+                iterator.next();
+            }
+            if(!iterator.isValid()){
+                return new ArrayList<>();
             }
+            fromKey = iterator.key();
         }
-        return transactionDtoList;
+        return selectTransactionsFromKey(fromKey,size);
+    }
+
+    @Override
+    public List<TransactionDto> selectTransactionsAfterTransactionHash(String transactionHash, long size) {
+        byte[] fromKey = null;
+        if(transactionHash != null){
+            //交易哈希的下一个主键
+            fromKey = ByteUtil.concat(getKey(transactionHash), new byte[]{0x00});
+        }
+        return selectTransactionsFromKey(fromKey,size);
     }
 
     @Override
     public void deleteByTransactionHash(String transactionHash) {
-        KvDbUtil.delete(getUnconfirmedTransactionDatabasePath(), getKey(transactionHash));
+        getUnconfirmedTransactionKvStore().delete(getKey(transactionHash));
     }
 
     @Override
     public TransactionDto selectTransactionByTransactionHash(String transactionHash) {
-        byte[] byteTransactionDto = KvDbUtil.get(getUnconfirmedTransactionDatabasePath(), getKey(transactionHash));
+        byte[] byteTransactionDto = getUnconfirmedTransactionKvStore().get(getKey(transactionHash));
         if(byteTransactionDto == null){
             return null;
         }
         return EncodeDecodeTool.decodeToTransactionDto(byteTransactionDto);
     }
 
-    private String getUnconfirmedTransactionDatabasePath() {
-        return FileUtil.newPath(coreConfiguration.getCorePath(), UNCONFIRMED_TRANSACTION_DATABASE_NAME);
+    private List<TransactionDto> selectTransactionsFromKey(byte[] fromKey, long size) {
+        List<TransactionDto> transactionDtoList = new ArrayList<>();
+        KvPage kvPage = KvCursor.forward(getUnconfirmedTransactionKvStore(),null,fromKey,size);
+        for(KvEntry kvEntry:kvPage.getKvEntries()){
+            TransactionDto transactionDto = EncodeDecodeTool.decodeToTransactionDto(kvEntry.getValue());
+            transactionDtoList.add(transactionDto);
+        }
+        return transactionDtoList;
+    }
+
+    private KvStore getUnconfirmedTransactionKvStore() {
+        KvStore unconfirmedTransactionKvStore = this.unconfirmedTransactionKvStore;
+        if(unconfirmedTransactionKvStore == null){
+            unconfirmedTransactionKvStore = coreConfiguration.getKvStore(UNCONFIRMED_TRANSACTION_DATABASE_NAME);
+            this.unconfirmedTransactionKvStore = unconfirmedTransactionKvStore;
+        }
+        return unconfirmedTransactionKvStore;
     }
 
     private byte[] getKey(String transactionHash){
@@ -0,0 +1,286 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvWriteBatch;
+
+/**
+ * 未花费交易输出缓存：缓存[交易输出ID]到[未花费交易输出高度]的映射。
+ *
+ * 主键是定长的二进制交易输出ID主键，缓存使用开放寻址(线性探测)的哈希表，主键、高度、状态分别存放在基本类型数组中。
+ * 缓存项有三种状态：
+ * 干净：与数据库一致的未花费交易输出；
+ * 脏的未花费：新增的未花费交易输出，还没有写入数据库；
+ * 脏的已花费：已被花费的交易输出，还没有从数据库删除。
+ * 脏的缓存项在刷入数据库之前不会被淘汰，因此数据库与缓存合起来总是最新的未花费交易输出集合。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class UnspentTransactionOutputCache {
+
+    //查询结果：缓存中没有这个交易输出
+    static final long ABSENT = -1;
+    //查询结果：交易输出已被花费
+    static final long SPENT = -2;
+
+    private static final byte STATE_EMPTY = 0;
+    private static final byte STATE_CLEAN = 1;
+    private static final byte STATE_DIRTY_UNSPENT = 2;
+    private static final byte STATE_DIRTY_SPENT = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //主键长度
+    private final int keyLength;
+    //最多缓存的缓存项数，超过后淘汰干净的缓存项。
+    private final int maxSize;
+
+    private int capacity;
+    private byte[] keys;
+    private long[] heights;
+    private byte[] states;
+    private int size;
+    private int dirtyCount;
+    //缓存项被刷入数据库或被移除的次数，用于判断从数据库读取的数据在放入缓存时是否已经过期。
+    private long generation;
+
+    UnspentTransactionOutputCache(int keyLength, int maxSize) {
+        this.keyLength = keyLength;
+        this.maxSize = maxSize;
+        this.capacity = INITIAL_CAPACITY;
+        this.keys = new byte[INITIAL_CAPACITY * keyLength];
+        this.heights = new long[INITIAL_CAPACITY];
+        this.states = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 查询交易输出的高度。交易输出已被花费返回SPENT，缓存中没有返回ABSENT。
+     */
+    synchronized long get(byte[] key) {
+        int index = indexOf(key);
+        if(states[index] == STATE_EMPTY){
+            return ABSENT;
+        }
+        if(states[index] == STATE_DIRTY_SPENT){
+            return SPENT;
+        }
+        return heights[index];
+    }
+
+    /**
+     * 放入从数据库读取的未花费交易输出。generation是读取数据库之前的值，期间有缓存项被刷入数据库或被移除时不放入。
+     */
+    synchronized void putClean(byte[] key, long height, long generation) {
+        if(generation != this.generation){
+            return;
+        }
+        int index = indexOf(key);
+        if(states[index] != STATE_EMPTY){
+            return;
+        }
+        if(size >= maxSize){
+            evictClean();
+            index = indexOf(key);
+        }
+        insert(index, key, height, STATE_CLEAN);
+    }
+
+    /**
+     * 新增未花费交易输出(未写入数据库)
+     */
+    synchronized void putDirtyUnspent(byte[] key, long height) {
+        putDirty(key, height, STATE_DIRTY_UNSPENT);
+    }
+
+    /**
+     * 花费交易输出(未从数据库删除)
+     */
+    synchronized void putDirtySpent(byte[] key) {
+        putDirty(key, 0, STATE_DIRTY_SPENT);
+    }
+
+    /**
+     * 移除缓存项
+     */
+    synchronized void remove(byte[] key) {
+        generation++;
+        int index = indexOf(key);
+        if(states[index] == STATE_EMPTY){
+            return;
+        }
+        if(states[index] != STATE_CLEAN){
+            dirtyCount--;
+        }
+        states[index] = STATE_EMPTY;
+        size--;
+        //线性探测删除后，将后面同一探测序列上的缓存项前移
+        int next = (index + 1) & (capacity - 1);
+        while (states[next] != STATE_EMPTY){
+            byte[] nextKey = new byte[keyLength];
+            System.arraycopy(keys, next * keyLength, nextKey, 0, keyLength);
+            long nextHeight = heights[next];
+            byte nextState = states[next];
+            states[next] = STATE_EMPTY;
+            size--;
+            insert(indexOf(nextKey), nextKey, nextHeight, nextState);
+            next = (next + 1) & (capacity - 1);
+        }
+    }
+
+    /**
+     * 将脏的缓存项写入批量写入对象
+     */
+    synchronized void writeDirty(KvWriteBatch kvWriteBatch) {
+        for(int i=0; i<capacity; i++){
+            if(states[i] == STATE_DIRTY_UNSPENT){
+                kvWriteBatch.put(keyAt(i), ByteUtil.long8ToByte8(heights[i]));
+            }else if(states[i] == STATE_DIRTY_SPENT){
+                kvWriteBatch.delete(keyAt(i));
+            }
+        }
+    }
+
+    /**
+     * 脏的缓存项已刷入数据库：脏的未花费交易输出变为干净的，脏的已花费交易输出被移除。
+     */
+    synchronized void markClean() {
+        generation++;
+        rebuild(capacity, false, true);
+    }
+
+    /**
+     * 清空缓存：数据库中的映射被整体重建后调用，调用前脏的缓存项必须已刷入数据库。
+     */
+    synchronized void clear() {
+        generation++;
+        rebuild(capacity, true, true);
+    }
+
+    synchronized boolean isDirty() {
+        return dirtyCount > 0;
+    }
+    synchronized int getDirtyCount() {
+        return dirtyCount;
+    }
+    synchronized int getSize() {
+        return size;
+    }
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+
+    private void putDirty(byte[] key, long height, byte state) {
+        int index = indexOf(key);
+        if(states[index] == STATE_EMPTY){
+            if(size >= maxSize){
+                evictClean();
+                index = indexOf(key);
+            }
+            //先计数，插入时扩容会重新统计脏的缓存项
+            dirtyCount++;
+            insert(index, key, height, state);
+            return;
+        }
+        if(states[index] == STATE_CLEAN){
+            dirtyCount++;
+        }
+        heights[index] = height;
+        states[index] = state;
+    }
+
+    private void insert(int index, byte[] key, long height, byte state) {
+        System.arraycopy(key, 0, keys, index * keyLength, keyLength);
+        heights[index] = height;
+        states[index] = state;
+        size++;
+        //装载因子超过0.5时扩容
+        if(size * 2 > capacity){
+            rebuild(capacity * 2, false, false);
+        }
+    }
+
+    /**
+     * 淘汰所有干净的缓存项
+     */
+    private void evictClean() {
+        generation++;
+        rebuild(capacity, true, false);
+    }
+
+    /**
+     * 重建哈希表。dropClean：丢弃干净的缓存项；flushed：脏的缓存项已刷入数据库。
+     */
+    private void rebuild(int newCapacity, boolean dropClean, boolean flushed) {
+        int oldCapacity = capacity;
+        byte[] oldKeys = keys;
+        long[] oldHeights = heights;
+        byte[] oldStates = states;
+        capacity = newCapacity;
+        keys = new byte[newCapacity * keyLength];
+        heights = new long[newCapacity];
+        states = new byte[newCapacity];
+        size = 0;
+        dirtyCount = 0;
+        byte[] key = new byte[keyLength];
+        for(int i=0; i<oldCapacity; i++){
+            byte state = oldStates[i];
+            if(state == STATE_EMPTY){
+                continue;
+            }
+            if(flushed){
+                if(state == STATE_DIRTY_SPENT){
+                    continue;
+                }
+                state = STATE_CLEAN;
+            }
+            if(dropClean && state == STATE_CLEAN){
+                continue;
+            }
+            System.arraycopy(oldKeys, i * keyLength, key, 0, keyLength);
+            int index = indexOf(key);
+            System.arraycopy(key, 0, keys, index * keyLength, keyLength);
+            heights[index] = oldHeights[i];
+            states[index] = state;
+            size++;
+            if(state != STATE_CLEAN){
+                dirtyCount++;
+            }
+        }
+    }
+
+    private int indexOf(byte[] key) {
+        int index = hash(key) & (capacity - 1);
+        while (states[index] != STATE_EMPTY && !keyEquals(index, key)){
+            index = (index + 1) & (capacity - 1);
+        }
+        return index;
+    }
+
+    private boolean keyEquals(int index, byte[] key) {
+        int offset = index * keyLength;
+        for(int i=0; i<keyLength; i++){
+            if(keys[offset + i] != key[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] keyAt(int index) {
+        byte[] key = new byte[keyLength];
+        System.arraycopy(keys, index * keyLength, key, 0, keyLength);
+        return key;
+    }
+
+    /**
+     * 交易哈希是均匀分布的，取主键中交易哈希的前8个字节与交易输出序列号混合即可。
+     */
+    private int hash(byte[] key) {
+        long h = 0;
+        for(int i=1; i<9 && i<key.length; i++){
+            h = (h << 8) | (key[i] & 0xFF);
+        }
+        h ^= key[key.length - 1] * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,142 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.Sha256Util;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvEntry;
+
+import java.io.*;
+
+/**
+ * UTXO快照读取器：按写入的顺序读取快照中的数据，读取时校验数据块的摘要，读取到快照尾时校验承诺哈希。
+ * 快照格式见UtxoSnapshotWriter。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class UtxoSnapshotReader implements AutoCloseable {
+
+    //哈希的字节数量
+    private static final int HASH_BYTE_COUNT = 32;
+    //数据块的数据长度上限，超过这个值的快照是损坏的
+    private static final int MAX_CHUNK_BYTE_COUNT = 64 * 1024 * 1024;
+
+    private final DataInputStream dataInputStream;
+    //计算承诺哈希的输入：快照头、所有数据块的摘要
+    private final ByteArrayOutputStream commitmentInput;
+
+    //快照对应的链尾(不包含尾部区块)
+    private ChainTip chainTip;
+    //当前数据块
+    private DataInputStream chunk;
+    private int chunkRemainingEntryCount;
+    //承诺哈希，读取到快照尾之后才有值
+    private String commitment;
+
+    private UtxoSnapshotReader(DataInputStream dataInputStream) {
+        this.dataInputStream = dataInputStream;
+        this.commitmentInput = new ByteArrayOutputStream();
+    }
+
+    /**
+     * 打开快照文件，读取快照头。
+     */
+    static UtxoSnapshotReader open(String snapshotPath) {
+        try {
+            UtxoSnapshotReader utxoSnapshotReader = new UtxoSnapshotReader(new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotPath))));
+            DataInputStream dataInputStream = utxoSnapshotReader.dataInputStream;
+            if(dataInputStream.readInt() != UtxoSnapshotWriter.UTXO_SNAPSHOT_MAGIC){
+                throw new RuntimeException("not a utxo snapshot file.");
+            }
+            byte version = dataInputStream.readByte();
+            if(version != UtxoSnapshotWriter.UTXO_SNAPSHOT_VERSION){
+                throw new RuntimeException("unsupported utxo snapshot version: " + version);
+            }
+            long blockchainHeight = dataInputStream.readLong();
+            String tailBlockHash = HexUtil.bytesToHexString(readBytes(dataInputStream,HASH_BYTE_COUNT));
+            long blockchainTransactionHeight = dataInputStream.readLong();
+            long blockchainTransactionOutputHeight = dataInputStream.readLong();
+            utxoSnapshotReader.chainTip = new ChainTip(blockchainHeight,tailBlockHash,null,blockchainTransactionHeight,blockchainTransactionOutputHeight);
+            utxoSnapshotReader.commitmentInput.write(UtxoSnapshotWriter.encodeHeader(utxoSnapshotReader.chainTip));
+            return utxoSnapshotReader;
+        } catch (IOException e) {
+            LogUtil.error("open utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    ChainTip getChainTip() {
+        return chainTip;
+    }
+
+    /**
+     * 读取下一条数据，读取到快照尾时返回null。
+     */
+    KvEntry next() {
+        try {
+            if(commitment != null){
+                return null;
+            }
+            if(chunkRemainingEntryCount == 0){
+                int chunkEntryCount = dataInputStream.readInt();
+                if(chunkEntryCount == 0){
+                    readCommitment();
+                    return null;
+                }
+                int chunkByteCount = dataInputStream.readInt();
+                if(chunkEntryCount < 0 || chunkByteCount > MAX_CHUNK_BYTE_COUNT){
+                    throw new RuntimeException("utxo snapshot chunk is corrupted.");
+                }
+                byte[] bytesChunk = readBytes(dataInputStream,chunkByteCount);
+                byte[] chunkDigest = readBytes(dataInputStream,HASH_BYTE_COUNT);
+                if(!ByteUtil.equals(chunkDigest,Sha256Util.digest(bytesChunk))){
+                    throw new RuntimeException("utxo snapshot chunk is corrupted.");
+                }
+                commitmentInput.write(chunkDigest);
+                chunk = new DataInputStream(new ByteArrayInputStream(bytesChunk));
+                chunkRemainingEntryCount = chunkEntryCount;
+            }
+            byte[] key = readBytes(chunk,chunk.readInt());
+            byte[] value = readBytes(chunk,chunk.readInt());
+            chunkRemainingEntryCount--;
+            return new KvEntry(key,value);
+        } catch (IOException e) {
+            LogUtil.error("read utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 承诺哈希，读取到快照尾之后才有值。
+     */
+    String getCommitment() {
+        return commitment;
+    }
+
+    @Override
+    public void close() {
+        try {
+            dataInputStream.close();
+        } catch (IOException e) {
+            LogUtil.error("close utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private void readCommitment() throws IOException {
+        byte[] bytesCommitment = readBytes(dataInputStream,HASH_BYTE_COUNT);
+        if(!ByteUtil.equals(bytesCommitment,Sha256Util.digest(commitmentInput.toByteArray()))){
+            throw new RuntimeException("utxo snapshot commitment mismatch.");
+        }
+        commitment = HexUtil.bytesToHexString(bytesCommitment);
+    }
+    private static byte[] readBytes(DataInputStream dataInputStream, int length) throws IOException {
+        if(length < 0){
+            throw new IOException("malformed utxo snapshot.");
+        }
+        byte[] bytes = new byte[length];
+        dataInputStream.readFully(bytes);
+        return bytes;
+    }
+}
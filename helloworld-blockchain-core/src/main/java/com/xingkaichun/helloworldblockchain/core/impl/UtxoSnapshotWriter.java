@@ -0,0 +1,133 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.Sha256Util;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+
+import java.io.*;
+
+/**
+ * UTXO快照写入器
+ *
+ * 快照格式：
+ * 快照头：魔数、格式版本号、区块链高度、尾部区块哈希、区块链交易高度、区块链交易输出高度；
+ * 数据块：数据条数(4个字节)、数据长度(4个字节)、数据、数据的SHA-256摘要(32个字节)，每条数据是带长度前缀的主键和值；
+ * 快照尾：数据条数为0的数据块标识快照结束，其后是承诺哈希(32个字节)。
+ * 承诺哈希是[快照头、所有数据块的摘要]的SHA-256摘要，数据块的摘要用于在读取时发现损坏的数据块。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class UtxoSnapshotWriter implements AutoCloseable {
+
+    //快照魔数
+    static final int UTXO_SNAPSHOT_MAGIC = 0x48575553;
+    //快照格式版本号
+    static final byte UTXO_SNAPSHOT_VERSION = 0x01;
+    //数据块的数据长度超过这个值时，写入一个数据块
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final DataOutputStream dataOutputStream;
+    //计算承诺哈希的输入：快照头、所有数据块的摘要
+    private final ByteArrayOutputStream commitmentInput;
+    //当前数据块
+    private final ByteArrayOutputStream chunk;
+    private int chunkEntryCount;
+
+    private UtxoSnapshotWriter(DataOutputStream dataOutputStream) {
+        this.dataOutputStream = dataOutputStream;
+        this.commitmentInput = new ByteArrayOutputStream();
+        this.chunk = new ByteArrayOutputStream();
+    }
+
+    /**
+     * 创建快照文件，写入快照头。chainTip是快照对应的链尾。
+     */
+    static UtxoSnapshotWriter open(String snapshotPath, ChainTip chainTip) {
+        try {
+            UtxoSnapshotWriter utxoSnapshotWriter = new UtxoSnapshotWriter(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotPath))));
+            byte[] header = encodeHeader(chainTip);
+            utxoSnapshotWriter.dataOutputStream.write(header);
+            utxoSnapshotWriter.commitmentInput.write(header);
+            return utxoSnapshotWriter;
+        } catch (IOException e) {
+            LogUtil.error("create utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 写入一条数据，数据需要按主键从小到大的顺序写入。
+     */
+    void write(byte[] key, byte[] value) {
+        try {
+            DataOutputStream chunkDataOutputStream = new DataOutputStream(chunk);
+            chunkDataOutputStream.writeInt(key.length);
+            chunkDataOutputStream.write(key);
+            chunkDataOutputStream.writeInt(value.length);
+            chunkDataOutputStream.write(value);
+            chunkEntryCount++;
+            if(chunk.size() >= CHUNK_SIZE){
+                writeChunk();
+            }
+        } catch (IOException e) {
+            LogUtil.error("write utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 写入剩余的数据和快照尾，返回承诺哈希。
+     */
+    String finish() {
+        try {
+            if(chunkEntryCount > 0){
+                writeChunk();
+            }
+            byte[] commitment = Sha256Util.digest(commitmentInput.toByteArray());
+            dataOutputStream.writeInt(0);
+            dataOutputStream.write(commitment);
+            dataOutputStream.flush();
+            return HexUtil.bytesToHexString(commitment);
+        } catch (IOException e) {
+            LogUtil.error("write utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            dataOutputStream.close();
+        } catch (IOException e) {
+            LogUtil.error("close utxo snapshot failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private void writeChunk() throws IOException {
+        byte[] bytesChunk = chunk.toByteArray();
+        byte[] chunkDigest = Sha256Util.digest(bytesChunk);
+        dataOutputStream.writeInt(chunkEntryCount);
+        dataOutputStream.writeInt(bytesChunk.length);
+        dataOutputStream.write(bytesChunk);
+        dataOutputStream.write(chunkDigest);
+        commitmentInput.write(chunkDigest);
+        chunk.reset();
+        chunkEntryCount = 0;
+    }
+    /**
+     * 编码快照头
+     */
+    static byte[] encodeHeader(ChainTip chainTip) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerDataOutputStream = new DataOutputStream(header);
+        headerDataOutputStream.writeInt(UTXO_SNAPSHOT_MAGIC);
+        headerDataOutputStream.writeByte(UTXO_SNAPSHOT_VERSION);
+        headerDataOutputStream.writeLong(chainTip.getBlockchainHeight());
+        headerDataOutputStream.write(HexUtil.hexStringToBytes(chainTip.getTailBlockHash()));
+        headerDataOutputStream.writeLong(chainTip.getBlockchainTransactionHeight());
+        headerDataOutputStream.writeLong(chainTip.getBlockchainTransactionOutputHeight());
+        return header.toByteArray();
+    }
+}
@@ -0,0 +1,108 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.Sha256Util;
+
+/**
+ * 已校验签名缓存：缓存通过了签名校验的(待签名数据,公钥,签名)。
+ *
+ * 矿工打包交易时校验过交易的签名，挖出的区块在加入区块链之前还要再校验一次，命中缓存时不必再做一次耗时的签名校验。
+ * 缓存项是(待签名数据,公钥,签名)加上随机盐的SHA256摘要，每个缓存项固定占用32字节。
+ * 盐在每次启动时随机生成，外部无法构造与已有缓存项摘要相同的签名。
+ * 缓存是组相联的哈希表：摘要决定缓存项所在的组，组满时轮流替换组内的缓存项，缓存大小因此是有界的。
+ * 不同的组由不同的锁保护，多个线程可以同时读写。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class VerifiedSignatureCache {
+
+    //摘要长度
+    private static final int KEY_LENGTH = 32;
+    //每组的缓存项数量
+    private static final int WAYS = 4;
+    //锁的数量
+    private static final int LOCK_COUNT = 64;
+
+    private final byte[] salt;
+    //组的数量
+    private final int setCount;
+    //全部缓存项的摘要，第i组第j个缓存项从(i*WAYS+j)*KEY_LENGTH开始
+    private final byte[] keys;
+    //缓存项是否有值
+    private final boolean[] occupied;
+    //每组下一次替换的缓存项
+    private final byte[] nextWays;
+    private final Object[] locks;
+
+    /**
+     * @param maxSize 最多缓存的签名数量，实际数量是不小于它的WAYS的倍数。
+     */
+    public VerifiedSignatureCache(int maxSize) {
+        this.salt = RandomUtil.random32Bytes();
+        this.setCount = Math.max(1, (maxSize + WAYS - 1) / WAYS);
+        this.keys = new byte[setCount * WAYS * KEY_LENGTH];
+        this.occupied = new boolean[setCount * WAYS];
+        this.nextWays = new byte[setCount];
+        this.locks = new Object[LOCK_COUNT];
+        for(int i=0; i<LOCK_COUNT; i++){
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 这个签名通过过签名校验吗？
+     */
+    public boolean contains(byte[] publicKey, byte[] message, byte[] signature) {
+        byte[] key = key(publicKey, message, signature);
+        int set = set(key);
+        synchronized (locks[set % LOCK_COUNT]){
+            return indexOf(set, key) >= 0;
+        }
+    }
+
+    /**
+     * 放入通过了签名校验的签名
+     */
+    public void add(byte[] publicKey, byte[] message, byte[] signature) {
+        byte[] key = key(publicKey, message, signature);
+        int set = set(key);
+        synchronized (locks[set % LOCK_COUNT]){
+            if(indexOf(set, key) >= 0){
+                return;
+            }
+            int index = set * WAYS + nextWays[set];
+            nextWays[set] = (byte) ((nextWays[set] + 1) % WAYS);
+            System.arraycopy(key, 0, keys, index * KEY_LENGTH, KEY_LENGTH);
+            occupied[index] = true;
+        }
+    }
+
+
+    private byte[] key(byte[] publicKey, byte[] message, byte[] signature) {
+        byte[] bytesTriple = ByteUtil.concat3(ByteUtil.concatLength(publicKey), ByteUtil.concatLength(message), ByteUtil.concatLength(signature));
+        return Sha256Util.digest(ByteUtil.concat(salt, bytesTriple));
+    }
+    private int set(byte[] key) {
+        long hash = ByteUtil.byte8ToLong8(ByteUtil.copy(key, 0, ByteUtil.BYTE8_BYTE_COUNT));
+        return (int) ((hash & Long.MAX_VALUE) % setCount);
+    }
+    private int indexOf(int set, byte[] key) {
+        for(int way=0; way<WAYS; way++){
+            int index = set * WAYS + way;
+            if(occupied[index] && equals(index, key)){
+                return index;
+            }
+        }
+        return -1;
+    }
+    private boolean equals(int index, byte[] key) {
+        int offset = index * KEY_LENGTH;
+        for(int i=0; i<KEY_LENGTH; i++){
+            if(keys[offset + i] != key[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,8 +19,10 @@ import com.xingkaichun.helloworldblockchain.crypto.model.Account;
 import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionDto;
 import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionInputDto;
 import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionOutputDto;
-import com.xingkaichun.helloworldblockchain.util.FileUtil;
-import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvCursor;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvEntry;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvPage;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,7 +37,11 @@ import java.util.Map;
 public class WalletImpl extends Wallet {
 
     private CoreConfiguration coreConfiguration;
-    private static final String WALLET_DATABASE_NAME = "WalletDatabase";
+    public static final String WALLET_DATABASE_NAME = "WalletDatabase";
+    //分页查询账户时的页大小
+    private static final long QUERY_PAGE_SIZE = 1000;
+    //钱包数据库的存储引擎，第一次使用时获取
+    private volatile KvStore walletKvStore;
 
     public WalletImpl(CoreConfiguration coreConfiguration, BlockchainDatabase blockchainDatabase) {
         this.coreConfiguration = coreConfiguration;
@@ -46,13 +52,18 @@ public class WalletImpl extends Wallet {
     @Override
     public List<Account> getAllAccounts() {
         List<Account> accountList = new ArrayList<>();
-        //获取所有
-        List<byte[]> bytesAccountList = KvDbUtil.gets(getWalletDatabasePath(),1,100000000);
-        if(bytesAccountList != null){
-            for(byte[] bytesAccount:bytesAccountList){
-                Account account = EncodeDecodeTool.decodeToAccount(bytesAccount);
+        //按页获取所有
+        byte[] fromKey = null;
+        while (true){
+            KvPage kvPage = KvCursor.forward(getWalletKvStore(),null,fromKey,QUERY_PAGE_SIZE);
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                Account account = EncodeDecodeTool.decodeToAccount(kvEntry.getValue());
                 accountList.add(account);
             }
+            if(!kvPage.hasMore()){
+                break;
+            }
+            fromKey = kvPage.getContinuationToken();
         }
         return accountList;
     }
@@ -71,12 +82,12 @@ public class WalletImpl extends Wallet {
 
     @Override
     public void saveAccount(Account account) {
-        KvDbUtil.put(getWalletDatabasePath(),getKeyByAccount(account), EncodeDecodeTool.encodeAccount(account));
+        getWalletKvStore().put(getKeyByAccount(account), EncodeDecodeTool.encodeAccount(account));
     }
 
     @Override
     public void deleteAccountByAddress(String address) {
-        KvDbUtil.delete(getWalletDatabasePath(),getKeyByAddress(address));
+        getWalletKvStore().delete(getKeyByAddress(address));
     }
 
     @Override
@@ -120,8 +131,13 @@ public class WalletImpl extends Wallet {
 
 
 
-    private String getWalletDatabasePath() {
-        return FileUtil.newPath(coreConfiguration.getCorePath(), WALLET_DATABASE_NAME);
+    private KvStore getWalletKvStore() {
+        KvStore walletKvStore = this.walletKvStore;
+        if(walletKvStore == null){
+            walletKvStore = coreConfiguration.getKvStore(WALLET_DATABASE_NAME);
+            this.walletKvStore = walletKvStore;
+        }
+        return walletKvStore;
     }
     private byte[] getKeyByAddress(String address){
         return ByteUtil.stringToUtf8Bytes(address);
@@ -252,12 +268,13 @@ public class WalletImpl extends Wallet {
             payerChangeTransactionOutput.setOutputScript(outputScript);
         }
 
-        //签名
+        //签名：待签名数据不包含交易输入脚本，填入前面交易输入的脚本不会改变它，所有交易输入共用一次计算的结果
+        String signatureHashAll = TransactionDtoTool.signatureHashAll(transactionDto);
         for(int i=0;i<transactionInputDtoList.size();i++){
             String privateKey = inputPrivateKeyList.get(i);
             String publicKey = AccountUtil.accountFromPrivateKey(privateKey).getPublicKey();
             TransactionInputDto transactionInputDto = transactionInputDtoList.get(i);
-            String signature = TransactionDtoTool.signature(privateKey,transactionDto);
+            String signature = AccountUtil.signature(privateKey,signatureHashAll);
             InputScript inputScript = ScriptTool.createPayToPublicKeyHashInputScript(signature, publicKey);
             transactionInputDto.setInputScript(Model2DtoTool.inputScript2InputScriptDto(inputScript));
         }
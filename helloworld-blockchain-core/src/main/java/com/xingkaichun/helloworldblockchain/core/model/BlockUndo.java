@@ -0,0 +1,85 @@
+package com.xingkaichun.helloworldblockchain.core.model;
+
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 区块撤销记录
+ *
+ * 新增区块时，同时写入这个区块的撤销记录：区块的交易高度范围、交易输出高度范围、区块花费的交易输出。
+ * 删除区块时由撤销记录和数据库里的交易输出还原出删除区块需要的修改，不需要解码区块里的交易。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class BlockUndo implements Serializable {
+
+    /**
+     * 区块里第一笔交易的交易高度
+     */
+    private long transactionHeight;
+    /**
+     * 区块里交易的数量，删除区块后区块链交易高度减少这个数量。
+     */
+    private long transactionCount;
+    /**
+     * 区块里第一个交易输出的交易输出高度
+     */
+    private long transactionOutputHeight;
+    /**
+     * 区块里交易输出的数量，删除区块后区块链交易输出高度减少这个数量。
+     */
+    private long transactionOutputCount;
+    /**
+     * 区块花费的交易输出，只有交易哈希、交易输出序列号、地址、交易输出高度，删除区块后它们重新成为未花费交易输出。
+     */
+    private List<TransactionOutput> spentTransactionOutputs;
+
+
+
+
+    //region get set
+
+    public long getTransactionHeight() {
+        return transactionHeight;
+    }
+
+    public void setTransactionHeight(long transactionHeight) {
+        this.transactionHeight = transactionHeight;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public long getTransactionOutputHeight() {
+        return transactionOutputHeight;
+    }
+
+    public void setTransactionOutputHeight(long transactionOutputHeight) {
+        this.transactionOutputHeight = transactionOutputHeight;
+    }
+
+    public long getTransactionOutputCount() {
+        return transactionOutputCount;
+    }
+
+    public void setTransactionOutputCount(long transactionOutputCount) {
+        this.transactionOutputCount = transactionOutputCount;
+    }
+
+    public List<TransactionOutput> getSpentTransactionOutputs() {
+        return spentTransactionOutputs;
+    }
+
+    public void setSpentTransactionOutputs(List<TransactionOutput> spentTransactionOutputs) {
+        this.spentTransactionOutputs = spentTransactionOutputs;
+    }
+
+    //endregion
+}
@@ -0,0 +1,51 @@
+package com.xingkaichun.helloworldblockchain.core.model.script;
+
+/**
+ * 编译后的脚本
+ *
+ * 脚本的每个元素都是十六进制字符串，元素是操作码还是数据，要在执行到它时才知道(OP_PUSHDATA的下一个元素是数据)。
+ * 编译把每个元素预先解码两次：作为操作码时的操作码，作为数据时的字节数组，虚拟机执行时不再解码十六进制字符串。
+ * 只有每个元素都是小写十六进制字符串的脚本才能编译，这样字节数组的比较与十六进制字符串的比较结果相同。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class CompiledScript {
+
+    //操作码，与OperationCodeEnum中的操作码相同
+    public static final byte OP_PUSHDATA = 0x00;
+    public static final byte OP_DUP = 0x01;
+    public static final byte OP_HASH160 = 0x02;
+    public static final byte OP_EQUALVERIFY = 0x03;
+    public static final byte OP_CHECKSIG = 0x04;
+    //不能识别的操作码
+    public static final byte OP_INVALID = (byte) 0xFF;
+
+    //每个元素作为操作码时的操作码
+    private byte[] operationCodes;
+    //每个元素作为数据时的数据
+    private byte[][] datas;
+
+
+    public CompiledScript(byte[] operationCodes, byte[][] datas) {
+        this.operationCodes = operationCodes;
+        this.datas = datas;
+    }
+
+    /**
+     * 元素数量
+     */
+    public int size() {
+        return operationCodes.length;
+    }
+
+
+    //region get set
+    public byte[] getOperationCodes() {
+        return operationCodes;
+    }
+
+    public byte[][] getDatas() {
+        return datas;
+    }
+    //endregion
+}
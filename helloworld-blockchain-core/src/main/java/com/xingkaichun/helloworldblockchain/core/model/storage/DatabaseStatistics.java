@@ -0,0 +1,48 @@
+package com.xingkaichun.helloworldblockchain.core.model.storage;
+
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreStatistics;
+
+import java.util.List;
+
+/**
+ * 数据库存储统计信息
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class DatabaseStatistics {
+
+    //数据库名字
+    private String databaseName;
+
+    //存储引擎统计信息：每一层的数据文件数量与大小、待压缩字节数、写停顿耗时等
+    private KvStoreStatistics kvStoreStatistics;
+
+    //每个主键前缀的统计信息。只有区块链数据库按主键前缀统计，其它数据库只有一个代表全部数据的空前缀。
+    private List<KeyPrefixStatistics> keyPrefixStatistics;
+
+
+
+    public String getDatabaseName() {
+        return databaseName;
+    }
+
+    public void setDatabaseName(String databaseName) {
+        this.databaseName = databaseName;
+    }
+
+    public KvStoreStatistics getKvStoreStatistics() {
+        return kvStoreStatistics;
+    }
+
+    public void setKvStoreStatistics(KvStoreStatistics kvStoreStatistics) {
+        this.kvStoreStatistics = kvStoreStatistics;
+    }
+
+    public List<KeyPrefixStatistics> getKeyPrefixStatistics() {
+        return keyPrefixStatistics;
+    }
+
+    public void setKeyPrefixStatistics(List<KeyPrefixStatistics> keyPrefixStatistics) {
+        this.keyPrefixStatistics = keyPrefixStatistics;
+    }
+}
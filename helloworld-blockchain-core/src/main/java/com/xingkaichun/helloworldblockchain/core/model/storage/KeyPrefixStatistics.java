@@ -0,0 +1,44 @@
+package com.xingkaichun.helloworldblockchain.core.model.storage;
+
+/**
+ * 主键前缀统计信息
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KeyPrefixStatistics {
+
+    //主键前缀，区块链数据库的主键前缀是一个字符，空字符串代表全部数据。
+    private String keyPrefix;
+
+    //主键前缀下的数据估算占用的磁盘空间(字节)
+    private long approximateSize;
+
+    //主键前缀下的主键数量，-1代表没有统计。
+    private long keyCount;
+
+
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    public long getApproximateSize() {
+        return approximateSize;
+    }
+
+    public void setApproximateSize(long approximateSize) {
+        this.approximateSize = approximateSize;
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    public void setKeyCount(long keyCount) {
+        this.keyCount = keyCount;
+    }
+}
@@ -0,0 +1,63 @@
+package com.xingkaichun.helloworldblockchain.core.tools;
+
+import com.xingkaichun.helloworldblockchain.core.BlockchainCore;
+import com.xingkaichun.helloworldblockchain.core.BlockchainCoreFactory;
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 区块导入工具类：离线将一个BlockchainCore中的区块批量导入另一个BlockchainCore。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class BlockImportTool {
+
+    //每批次导入的区块数量
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+
+    /**
+     * 离线导入：传入源BlockchainCore数据存放位置、目标BlockchainCore数据存放位置。
+     */
+    public static void main(String[] args) {
+        if(args.length != 2){
+            LogUtil.info("usage: BlockImportTool <sourceCorePath> <targetCorePath>");
+            return;
+        }
+        importBlocks(BlockchainCoreFactory.createBlockchainCore(args[0]),BlockchainCoreFactory.createBlockchainCore(args[1]));
+    }
+
+    /**
+     * 将源区块链中高于目标区块链高度的区块依次导入目标区块链，遇到不能导入的区块时停止，返回导入的区块数量。
+     */
+    public static long importBlocks(BlockchainCore sourceBlockchainCore, BlockchainCore targetBlockchainCore) {
+        long startTimestamp = System.currentTimeMillis();
+        long importBlockCount = 0;
+        while (true){
+            long blockchainHeight = targetBlockchainCore.queryBlockchainHeight();
+            List<BlockDto> blockDtos = new ArrayList<>();
+            while (blockDtos.size() < IMPORT_BATCH_SIZE){
+                Block block = sourceBlockchainCore.queryBlockByBlockHeight(blockchainHeight + blockDtos.size() + 1);
+                if(block == null){
+                    break;
+                }
+                blockDtos.add(Model2DtoTool.block2BlockDto(block));
+            }
+            if(blockDtos.isEmpty()){
+                break;
+            }
+            long addedBlockCount = targetBlockchainCore.addBlockDtos(blockDtos);
+            importBlockCount += addedBlockCount;
+            if(addedBlockCount < blockDtos.size()){
+                break;
+            }
+        }
+        long costTime = Math.max(System.currentTimeMillis() - startTimestamp, 1);
+        LogUtil.info(String.format("import blocks finish. import count %s, cost %s ms, %s blocks per second.",importBlockCount,costTime,importBlockCount * 1000 / costTime));
+        return importBlockCount;
+    }
+}
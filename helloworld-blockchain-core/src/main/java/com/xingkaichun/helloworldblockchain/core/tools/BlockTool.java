@@ -22,6 +22,23 @@ import java.util.List;
  */
 public class BlockTool {
 
+    /**
+     * 复制区块头：复制区块中除交易之外的字段，交易列表是null。
+     */
+    public static Block copyBlockHeader(Block block) {
+        Block blockHeader = new Block();
+        blockHeader.setTimestamp(block.getTimestamp());
+        blockHeader.setHeight(block.getHeight());
+        blockHeader.setPreviousHash(block.getPreviousHash());
+        blockHeader.setMerkleTreeRoot(block.getMerkleTreeRoot());
+        blockHeader.setNonce(block.getNonce());
+        blockHeader.setHash(block.getHash());
+        blockHeader.setDifficulty(block.getDifficulty());
+        blockHeader.setTransactionCount(block.getTransactionCount());
+        blockHeader.setPreviousTransactionHeight(block.getPreviousTransactionHeight());
+        return blockHeader;
+    }
+
     /**
      * 计算区块的Hash值
      */
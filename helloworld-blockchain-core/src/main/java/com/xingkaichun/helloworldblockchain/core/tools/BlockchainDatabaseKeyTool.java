@@ -1,151 +1,372 @@
 package com.xingkaichun.helloworldblockchain.core.tools;
 
 import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
 import com.xingkaichun.helloworldblockchain.util.StringUtil;
 
 /**
  * 区块链数据库主键工具类
  *
+ * 主键格式：一个字节的前缀标识，其后是定长的二进制数据。
+ * 哈希存储原始的32个字节，高度、序列号存储大端模式的8个字节(这样按主键排序即是按高度排序，便于范围查询)，地址存储UTF-8字节。
+ *
  * @author 邢开春 409060350@qq.com
  */
 public class BlockchainDatabaseKeyTool {
+
+    //数据库格式版本号：主键采用二进制定长格式、值采用二进制编码
+    public static final byte BLOCKCHAIN_DATABASE_VERSION = 0x02;
+
     //区块链标识：它对应的值是区块链的高度
-    private static final String BLOCKCHAIN_HEIGHT_KEY = "A";
+    private static final byte BLOCKCHAIN_HEIGHT_KEY = 'A';
     //区块链标识：它对应的值是区块链的交易高度
-    private static final String BLOCKCHAIN_TRANSACTION_HEIGHT_KEY = "B";
+    private static final byte BLOCKCHAIN_TRANSACTION_HEIGHT_KEY = 'B';
     //区块链标识：它对应的值是区块链的交易输出高度
-    private static final String BLOCKCHAIN_TRANSACTION_OUTPUT_HEIGHT_KEY = "C";
+    private static final byte BLOCKCHAIN_TRANSACTION_OUTPUT_HEIGHT_KEY = 'C';
 
     //哈希标识：哈希(区块哈希、交易哈希)的前缀
-    private static final String HASH_PREFIX_FLAG = "D";
+    private static final byte HASH_PREFIX_FLAG = 'D';
 
 
     //区块标识：存储区块链高度到区块的映射
-    private static final String BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG = "E";
+    private static final byte BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG = 'E';
     //区块标识：存储区块Hash到区块高度的映射
-    private static final String BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG = "F";
+    private static final byte BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG = 'F';
 
 
     //交易标识：存储交易高度到交易的映射
-    private static final String TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG = "G";
+    private static final byte TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG = 'G';
     //交易标识：存储交易哈希到交易高度的映射
-    private static final String TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG = "H";
+    private static final byte TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG = 'H';
 
 
     //交易输出标识：存储交易输出高度到交易输出的映射
-    private static final String TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG = "I";
+    private static final byte TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG = 'I';
     //交易输出标识：存储交易输出ID到交易输出高度的映射
-    private static final String TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = "J";
+    private static final byte TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = 'J';
     //交易输出标识：存储交易输出ID到未花费交易输出高度的映射
-    private static final String TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = "K";
+    private static final byte TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = 'K';
     //交易输出标识：存储交易输出ID到已花费交易输出高度的映射
-    private static final String TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = "L";
+    private static final byte TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = 'L';
     //交易输出标识：存储交易输出ID到来源交易高度的映射
-    private static final String TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG = "M";
+    private static final byte TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG = 'M';
     //交易输出标识：存储交易输出ID到花费去向交易高度的映射
-    private static final String TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG = "N";
+    private static final byte TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG = 'N';
 
 
     //地址标识：存储地址
-    private static final String ADDRESS_PREFIX_FLAG = "O";
+    private static final byte ADDRESS_PREFIX_FLAG = 'O';
     //地址标识：存储地址到交易输出高度的映射
-    private static final String ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = "P";
+    private static final byte ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = 'P';
     //地址标识：存储地址到未花费交易输出高度的映射
-    private static final String ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = "Q";
+    private static final byte ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = 'Q';
     //地址标识：存储地址到已花费交易输出高度的映射
-    private static final String ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = "R";
+    private static final byte ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG = 'R';
+
+
+    //数据库标识：它对应的值是数据库格式版本号
+    private static final byte DATABASE_VERSION_KEY = 'S';
+    //未花费交易输出刷盘标识：它对应的值是区块高度，这个高度及之前的区块对[交易输出ID到未花费交易输出高度]映射的修改都已写入数据库
+    private static final byte UNSPENT_TRANSACTION_OUTPUT_FLUSH_HEIGHT_KEY = 'T';
+    //区块撤销记录标识：存储区块高度到区块撤销记录的映射
+    private static final byte BLOCK_HEIGHT_TO_BLOCK_UNDO_PREFIX_FLAG = 'U';
+    //UTXO快照标识：它对应的值是区块链导入的UTXO快照的高度，这个高度及之前的区块只有区块头
+    private static final byte UTXO_SNAPSHOT_HEIGHT_KEY = 'V';
+    //裁剪标识：它对应的值是已裁剪的区块高度，这个高度及之前的区块只保留区块头
+    private static final byte PRUNED_BLOCK_HEIGHT_KEY = 'W';
+    //区块标识：存储区块时间戳到区块高度的映射。区块时间戳严格递增，因此按主键排序即是按区块高度排序，便于按时间范围查询区块
+    private static final byte BLOCK_TIMESTAMP_TO_BLOCK_HEIGHT_PREFIX_FLAG = 'X';
 
 
-    //截止标识
-    private static final String END_FLAG = "#" ;
     //竖线分隔符
     private static final String VERTICAL_LINE_FLAG = "|" ;
+    //哈希的字节数量
+    private static final int HASH_BYTE_COUNT = 32;
+    //交易输出ID主键(前缀标识+交易哈希+交易输出序列号)的字节数量
+    public static final int TRANSACTION_OUTPUT_ID_KEY_BYTE_COUNT = 1 + HASH_BYTE_COUNT + ByteUtil.BYTE8_BYTE_COUNT;
 
 
 
 
     //拼装数据库Key的值
+    public static byte[] buildDatabaseVersionKey() {
+        return new byte[]{DATABASE_VERSION_KEY};
+    }
+    public static byte[] buildUnspentTransactionOutputFlushHeightKey() {
+        return new byte[]{UNSPENT_TRANSACTION_OUTPUT_FLUSH_HEIGHT_KEY};
+    }
+    public static byte[] buildUtxoSnapshotHeightKey() {
+        return new byte[]{UTXO_SNAPSHOT_HEIGHT_KEY};
+    }
+    public static byte[] buildPrunedBlockHeightKey() {
+        return new byte[]{PRUNED_BLOCK_HEIGHT_KEY};
+    }
     public static byte[] buildBlockchainHeightKey() {
-        String stringKey = BLOCKCHAIN_HEIGHT_KEY + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return new byte[]{BLOCKCHAIN_HEIGHT_KEY};
+    }
+    public static byte[] buildBlockchainTransactionHeightKey() {
+        return new byte[]{BLOCKCHAIN_TRANSACTION_HEIGHT_KEY};
+    }
+    public static byte[] buildBlockchainTransactionOutputHeightKey() {
+        return new byte[]{BLOCKCHAIN_TRANSACTION_OUTPUT_HEIGHT_KEY};
     }
     public static byte[] buildHashKey(String hash) {
-        String stringKey = HASH_PREFIX_FLAG + hash + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixHashKey(HASH_PREFIX_FLAG,hash);
     }
     public static byte[] buildAddressKey(String address) {
-        String stringKey = ADDRESS_PREFIX_FLAG + address + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixAddressKey(ADDRESS_PREFIX_FLAG,address);
     }
     public static byte[] buildBlockHeightToBlockKey(long blockHeight) {
-        String stringKey = BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG + ByteUtil.long8ToHexString8(blockHeight) + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixHeightKey(BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG,blockHeight);
+    }
+    public static byte[] buildBlockHeightToBlockUndoKey(long blockHeight) {
+        return buildPrefixHeightKey(BLOCK_HEIGHT_TO_BLOCK_UNDO_PREFIX_FLAG,blockHeight);
+    }
+    public static byte[] buildBlockTimestampToBlockHeightKey(long blockTimestamp) {
+        return buildPrefixHeightKey(BLOCK_TIMESTAMP_TO_BLOCK_HEIGHT_PREFIX_FLAG,blockTimestamp);
     }
     public static byte[] buildBlockHashToBlockHeightKey(String blockHash) {
-        String stringKey = BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG + blockHash + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixHashKey(BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG,blockHash);
+    }
+    public static byte[] buildTransactionHeightToTransactionKey(long transactionHeight) {
+        return buildPrefixHeightKey(TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG,transactionHeight);
     }
     public static byte[] buildTransactionHashToTransactionHeightKey(String transactionHash) {
-        String stringKey = TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG + transactionHash + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixHashKey(TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG,transactionHash);
     }
     public static byte[] buildTransactionOutputHeightToTransactionOutputKey(long transactionOutputHeight) {
-        String stringKey = TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG + ByteUtil.long8ToHexString8(transactionOutputHeight) + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixHeightKey(TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG,transactionOutputHeight);
     }
     public static byte[] buildTransactionOutputIdToTransactionOutputHeightKey(String transactionHash,long transactionOutputIndex) {
-        String transactionOutputId = buildTransactionOutputId(transactionHash, transactionOutputIndex);
-        String stringKey = TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG + transactionOutputId + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixTransactionOutputIdKey(TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,transactionHash,transactionOutputIndex);
     }
     public static byte[] buildTransactionOutputIdToUnspentTransactionOutputHeightKey(String transactionHash,long transactionOutputIndex) {
-        String transactionOutputId = buildTransactionOutputId(transactionHash, transactionOutputIndex);
-        String stringKey = TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG + transactionOutputId + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixTransactionOutputIdKey(TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,transactionHash,transactionOutputIndex);
+    }
+    public static byte[] buildTransactionOutputIdToSpentTransactionOutputHeightKey(String transactionHash,long transactionOutputIndex) {
+        return buildPrefixTransactionOutputIdKey(TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,transactionHash,transactionOutputIndex);
     }
     public static byte[] buildTransactionOutputIdToSourceTransactionHeightKey(String transactionHash,long transactionOutputIndex) {
-        String transactionOutputId = buildTransactionOutputId(transactionHash, transactionOutputIndex);
-        String stringKey = TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG + transactionOutputId + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixTransactionOutputIdKey(TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG,transactionHash,transactionOutputIndex);
     }
     public static byte[] buildTransactionOutputIdToDestinationTransactionHeightKey(String transactionHash,long transactionOutputIndex) {
-        String transactionOutputId = buildTransactionOutputId(transactionHash, transactionOutputIndex);
-        String stringKey = TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG + transactionOutputId + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixTransactionOutputIdKey(TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG,transactionHash,transactionOutputIndex);
     }
     public static byte[] buildAddressToTransactionOutputHeightKey(String address) {
-        String stringKey = ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG + address + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixAddressKey(ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,address);
     }
     public static byte[] buildAddressToUnspentTransactionOutputHeightKey(String address) {
-        String stringKey = ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG + address + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixAddressKey(ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,address);
     }
     public static byte[] buildAddressToSpentTransactionOutputHeightKey(String address) {
-        String stringKey = ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG + address + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+        return buildPrefixAddressKey(ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,address);
     }
-    public static byte[] buildBlockchainTransactionHeightKey() {
-        String stringKey = BLOCKCHAIN_TRANSACTION_HEIGHT_KEY + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+
+    //拼装主键前缀，用于遍历一类主键
+    public static byte[] buildHashKeyPrefix() {
+        return new byte[]{HASH_PREFIX_FLAG};
     }
-    public static byte[] buildBlockchainTransactionOutputHeightKey() {
-        String stringKey = BLOCKCHAIN_TRANSACTION_OUTPUT_HEIGHT_KEY + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+    public static byte[] buildBlockHeightToBlockKeyPrefix() {
+        return new byte[]{BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG};
     }
-    public static byte[] buildTransactionHeightToTransactionKey(long transactionHeight) {
-        String stringKey = TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG + transactionHeight + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+    public static byte[] buildBlockTimestampToBlockHeightKeyPrefix() {
+        return new byte[]{BLOCK_TIMESTAMP_TO_BLOCK_HEIGHT_PREFIX_FLAG};
+    }
+    public static byte[] buildBlockHashToBlockHeightKeyPrefix() {
+        return new byte[]{BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG};
+    }
+    public static byte[] buildTransactionOutputIdToUnspentTransactionOutputHeightKeyPrefix() {
+        return new byte[]{TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG};
+    }
+    public static byte[] buildAddressKeyPrefix() {
+        return new byte[]{ADDRESS_PREFIX_FLAG};
+    }
+    /**
+     * 可以由区块头、区块里的交易推导出来的映射(索引)的主键前缀，重建索引时删除并重新生成这些映射。
+     */
+    public static byte[][] buildIndexKeyPrefixes() {
+        byte[] prefixFlags = new byte[]{HASH_PREFIX_FLAG, BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG, BLOCK_TIMESTAMP_TO_BLOCK_HEIGHT_PREFIX_FLAG,
+                TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG, TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG,
+                TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,
+                TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG,
+                TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG, ADDRESS_PREFIX_FLAG, ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,
+                ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG};
+        byte[][] prefixes = new byte[prefixFlags.length][];
+        for(int i=0; i<prefixFlags.length; i++){
+            prefixes[i] = new byte[]{prefixFlags[i]};
+        }
+        return prefixes;
     }
 
-    public static byte[] buildTransactionOutputIdToSpentTransactionOutputHeightKey(String transactionHash,long transactionOutputIndex) {
-        String transactionOutputId = buildTransactionOutputId(transactionHash, transactionOutputIndex);
-        String stringKey = TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG + transactionOutputId + END_FLAG;
-        return ByteUtil.stringToUtf8Bytes(stringKey);
+    /**
+     * 全部主键前缀(包括只有一个主键的标识)，按主键顺序排列。存储维护按主键前缀统计、压缩数据。
+     */
+    public static byte[][] buildKeyPrefixes() {
+        byte[] prefixFlags = new byte[]{BLOCKCHAIN_HEIGHT_KEY, BLOCKCHAIN_TRANSACTION_HEIGHT_KEY, BLOCKCHAIN_TRANSACTION_OUTPUT_HEIGHT_KEY, HASH_PREFIX_FLAG,
+                BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG, BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG, TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG,
+                TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG, TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG,
+                TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,
+                TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG,
+                TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG, ADDRESS_PREFIX_FLAG, ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG,
+                ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG, DATABASE_VERSION_KEY,
+                UNSPENT_TRANSACTION_OUTPUT_FLUSH_HEIGHT_KEY, BLOCK_HEIGHT_TO_BLOCK_UNDO_PREFIX_FLAG, UTXO_SNAPSHOT_HEIGHT_KEY, PRUNED_BLOCK_HEIGHT_KEY,
+                BLOCK_TIMESTAMP_TO_BLOCK_HEIGHT_PREFIX_FLAG};
+        byte[][] prefixes = new byte[prefixFlags.length][];
+        for(int i=0; i<prefixFlags.length; i++){
+            prefixes[i] = new byte[]{prefixFlags[i]};
+        }
+        return prefixes;
     }
 
     public static String buildTransactionOutputId(String transactionHash,long transactionOutputIndex) {
         String transactionOutputId = StringUtil.concat3(transactionHash, VERTICAL_LINE_FLAG, ByteUtil.long8ToHexString8(transactionOutputIndex));
         return transactionOutputId;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * 前缀(1个字节) + 哈希(32个字节)
+     */
+    private static byte[] buildPrefixHashKey(byte prefix, String hash) {
+        byte[] bytesHash = HexUtil.hexStringToBytes(hash);
+        byte[] key = new byte[1 + bytesHash.length];
+        key[0] = prefix;
+        System.arraycopy(bytesHash,0,key,1,bytesHash.length);
+        return key;
+    }
+    /**
+     * 前缀(1个字节) + 大端模式的高度(8个字节)
+     */
+    private static byte[] buildPrefixHeightKey(byte prefix, long height) {
+        byte[] key = new byte[1 + ByteUtil.BYTE8_BYTE_COUNT];
+        key[0] = prefix;
+        writeLong8(key,1,height);
+        return key;
+    }
+    /**
+     * 前缀(1个字节) + 交易哈希(32个字节) + 大端模式的交易输出序列号(8个字节)
+     */
+    private static byte[] buildPrefixTransactionOutputIdKey(byte prefix, String transactionHash, long transactionOutputIndex) {
+        byte[] bytesTransactionHash = HexUtil.hexStringToBytes(transactionHash);
+        byte[] key = new byte[1 + bytesTransactionHash.length + ByteUtil.BYTE8_BYTE_COUNT];
+        key[0] = prefix;
+        System.arraycopy(bytesTransactionHash,0,key,1,bytesTransactionHash.length);
+        writeLong8(key,1 + bytesTransactionHash.length,transactionOutputIndex);
+        return key;
+    }
+    /**
+     * 前缀(1个字节) + 地址(UTF-8字节)
+     */
+    private static byte[] buildPrefixAddressKey(byte prefix, String address) {
+        byte[] bytesAddress = ByteUtil.stringToUtf8Bytes(address);
+        byte[] key = new byte[1 + bytesAddress.length];
+        key[0] = prefix;
+        System.arraycopy(bytesAddress,0,key,1,bytesAddress.length);
+        return key;
+    }
+    private static void writeLong8(byte[] bytes, int position, long value) {
+        for(int i=ByteUtil.BYTE8_BYTE_COUNT-1; i>=0; i--){
+            bytes[position+i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+
+    //region 旧版本主键
+    /**
+     * 将旧版本的主键(前缀字符+十六进制哈希/十六进制高度/十进制交易高度/地址+"#"，UTF-8编码)转换为新版本的主键。
+     * 如果传入的主键不是旧版本的主键，返回null。
+     */
+    public static byte[] convertLegacyKey(byte[] legacyKey) {
+        if(legacyKey == null || legacyKey.length < 2 || legacyKey[legacyKey.length-1] != '#'){
+            return null;
+        }
+        byte prefix = legacyKey[0];
+        String body = ByteUtil.utf8BytesToString(ByteUtil.copy(legacyKey,1,legacyKey.length-2));
+        switch (prefix){
+            case BLOCKCHAIN_HEIGHT_KEY:
+            case BLOCKCHAIN_TRANSACTION_HEIGHT_KEY:
+            case BLOCKCHAIN_TRANSACTION_OUTPUT_HEIGHT_KEY:
+            case DATABASE_VERSION_KEY:
+                return body.isEmpty() ? new byte[]{prefix} : null;
+            case HASH_PREFIX_FLAG:
+            case BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG:
+            case TRANSACTION_HASH_TO_TRANSACTION_HEIGHT_PREFIX_FLAG:
+                return isLegacyHash(body) ? buildPrefixHashKey(prefix,body) : null;
+            case BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG:
+            case TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG:
+                return isLegacyLong8HexString(body) ? buildPrefixHeightKey(prefix,Long.parseUnsignedLong(body,16)) : null;
+            case TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG:
+                return isLegacyDecimalString(body) ? buildPrefixHeightKey(prefix,Long.parseLong(body)) : null;
+            case TRANSACTION_OUTPUT_ID_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG:
+            case TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG:
+            case TRANSACTION_OUTPUT_ID_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG:
+            case TRANSACTION_OUTPUT_ID_TO_SOURCE_TRANSACTION_HEIGHT_PREFIX_FLAG:
+            case TRANSACTION_OUTPUT_ID_TO_DESTINATION_TRANSACTION_HEIGHT_PREFIX_FLAG:
+                int index = body.indexOf(VERTICAL_LINE_FLAG);
+                if(index < 0 || !isLegacyHash(body.substring(0,index)) || !isLegacyLong8HexString(body.substring(index+1))){
+                    return null;
+                }
+                return buildPrefixTransactionOutputIdKey(prefix,body.substring(0,index),Long.parseUnsignedLong(body.substring(index+1),16));
+            case ADDRESS_PREFIX_FLAG:
+            case ADDRESS_TO_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG:
+            case ADDRESS_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG:
+            case ADDRESS_TO_SPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG:
+                return body.isEmpty() ? null : buildPrefixAddressKey(prefix,body);
+            default:
+                return null;
+        }
+    }
+    /**
+     * 新版本主键的前缀，用于判断主键对应的值的类型。
+     */
+    public static boolean isBlockHeightToBlockKey(byte[] key) {
+        return key[0] == BLOCK_HEIGHT_TO_BLOCK_PREFIX_FLAG;
+    }
+    public static boolean isBlockHashToBlockHeightKey(byte[] key) {
+        return key[0] == BLOCK_HASH_TO_BLOCK_HEIGHT_PREFIX_FLAG;
+    }
+    public static boolean isBlockTimestampToBlockHeightKey(byte[] key) {
+        return key[0] == BLOCK_TIMESTAMP_TO_BLOCK_HEIGHT_PREFIX_FLAG;
+    }
+    public static boolean isHashKey(byte[] key) {
+        return key[0] == HASH_PREFIX_FLAG;
+    }
+    public static boolean isAddressKey(byte[] key) {
+        return key[0] == ADDRESS_PREFIX_FLAG;
+    }
+    public static boolean isTransactionHeightToTransactionKey(byte[] key) {
+        return key[0] == TRANSACTION_HEIGHT_TO_TRANSACTION_PREFIX_FLAG;
+    }
+    public static boolean isTransactionOutputHeightToTransactionOutputKey(byte[] key) {
+        return key[0] == TRANSACTION_OUTPUT_HEIGHT_TO_TRANSACTION_OUTPUT_PREFIX_FLAG;
+    }
+    public static boolean isTransactionOutputIdToUnspentTransactionOutputHeightKey(byte[] key) {
+        return key[0] == TRANSACTION_OUTPUT_ID_TO_UNSPENT_TRANSACTION_OUTPUT_HEIGHT_PREFIX_FLAG;
+    }
+    /**
+     * 旧版本中，已使用的哈希、已使用的地址，值与主键相同。
+     */
+    public static boolean isKeyAsValueKey(byte[] key) {
+        return key[0] == HASH_PREFIX_FLAG || key[0] == ADDRESS_PREFIX_FLAG;
+    }
+    private static boolean isLegacyHash(String hash) {
+        return hash.length() == HASH_BYTE_COUNT*2 && HexUtil.checkHexString(hash);
+    }
+    private static boolean isLegacyLong8HexString(String hexString) {
+        return hexString.length() == ByteUtil.BYTE8_BYTE_COUNT*2 && HexUtil.checkHexString(hexString);
+    }
+    private static boolean isLegacyDecimalString(String decimalString) {
+        if(decimalString.isEmpty() || decimalString.length() > 18){
+            return false;
+        }
+        for(int i=0;i<decimalString.length();i++){
+            char ch = decimalString.charAt(i);
+            if(ch<'0' || ch>'9'){
+                return false;
+            }
+        }
+        return true;
+    }
+    //endregion
+}
@@ -0,0 +1,167 @@
+package com.xingkaichun.helloworldblockchain.core.tools;
+
+import com.xingkaichun.helloworldblockchain.core.CoreConfiguration;
+import com.xingkaichun.helloworldblockchain.core.impl.BlockchainDatabaseDefaultImpl;
+import com.xingkaichun.helloworldblockchain.core.impl.CoreConfigurationDefaultImpl;
+import com.xingkaichun.helloworldblockchain.core.impl.UnconfirmedTransactionDatabaseDefaultImpl;
+import com.xingkaichun.helloworldblockchain.core.impl.WalletImpl;
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionDto;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvCursor;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvEntry;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvPage;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvWriteBatch;
+
+/**
+ * 数据库迁移工具类：将旧版本的数据库升级为新版本的数据库。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class DatabaseMigrationTool {
+
+    //每批次迁移的数据条数
+    private static final int MIGRATE_BATCH_SIZE = 1000;
+    //未确认交易数据库格式的版本号：交易是二进制编码
+    private static final int UNCONFIRMED_TRANSACTION_DATABASE_VERSION = 1;
+    //钱包数据库格式的版本号：账户是二进制编码
+    private static final int WALLET_DATABASE_VERSION = 1;
+
+
+    /**
+     * 离线升级：传入BlockchainCore数据存放位置，升级其下所有的数据库。
+     */
+    public static void main(String[] args) {
+        if(args.length != 1){
+            LogUtil.info("usage: DatabaseMigrationTool <corePath>");
+            return;
+        }
+        migrateBlockchainCore(new CoreConfigurationDefaultImpl(args[0]));
+    }
+
+    /**
+     * 升级BlockchainCore的所有数据库
+     */
+    public static void migrateBlockchainCore(CoreConfiguration coreConfiguration) {
+        migrateBlockchainDatabase(coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME));
+        migrateUnconfirmedTransactionDatabase(coreConfiguration);
+        migrateWalletDatabase(coreConfiguration);
+    }
+
+    /**
+     * 将旧版本的区块链数据库升级为当前版本：
+     * 主键由字符串格式转换为二进制定长格式，JSON编码的区块、交易、交易输出重新编码为二进制编码，区块只保留区块头。
+     * 升级完成后会在数据库中记录数据库格式版本号，因此升级只会执行一次。
+     * 升级分批次进行，每批次的数据原子写入，升级中断后再次执行可以继续升级。
+     */
+    public static void migrateBlockchainDatabase(KvStore blockchainKvStore) {
+        byte[] bytesDatabaseVersion = blockchainKvStore.get(BlockchainDatabaseKeyTool.buildDatabaseVersionKey());
+        if(bytesDatabaseVersion != null && bytesDatabaseVersion[0] >= BlockchainDatabaseKeyTool.BLOCKCHAIN_DATABASE_VERSION){
+            return;
+        }
+        LogUtil.debug("migrate blockchain database start.");
+        long migrateCount = 0;
+        byte[] fromKey = null;
+        while (true){
+            KvPage kvPage = KvCursor.forward(blockchainKvStore,null,fromKey,MIGRATE_BATCH_SIZE);
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                byte[] key = BlockchainDatabaseKeyTool.convertLegacyKey(kvEntry.getKey());
+                if(key == null){
+                    continue;
+                }
+                kvWriteBatch.delete(kvEntry.getKey());
+                kvWriteBatch.put(key, migrateBlockchainDatabaseValue(key,kvEntry.getValue()));
+                migrateCount++;
+            }
+            blockchainKvStore.write(kvWriteBatch);
+            if(!kvPage.hasMore()){
+                break;
+            }
+            fromKey = kvPage.getContinuationToken();
+        }
+        blockchainKvStore.put(BlockchainDatabaseKeyTool.buildDatabaseVersionKey(), new byte[]{BlockchainDatabaseKeyTool.BLOCKCHAIN_DATABASE_VERSION});
+        LogUtil.debug(String.format("migrate blockchain database finish. migrate count %s.",migrateCount));
+    }
+    private static byte[] migrateBlockchainDatabaseValue(byte[] key, byte[] value) {
+        if(BlockchainDatabaseKeyTool.isKeyAsValueKey(key)){
+            return key;
+        }
+        if(BlockchainDatabaseKeyTool.isBlockHeightToBlockKey(key)){
+            return EncodeDecodeTool.encodeBlockHeader(EncodeDecodeTool.decodeToBlock(value));
+        }
+        if(BlockchainDatabaseKeyTool.isTransactionHeightToTransactionKey(key) && EncodeDecodeTool.isJsonEncode(value)){
+            return EncodeDecodeTool.encodeTransaction(EncodeDecodeTool.decodeToTransaction(value));
+        }
+        if(BlockchainDatabaseKeyTool.isTransactionOutputHeightToTransactionOutputKey(key) && EncodeDecodeTool.isJsonEncode(value)){
+            return EncodeDecodeTool.encodeTransactionOutput(EncodeDecodeTool.decodeToTransactionOutput(value));
+        }
+        return value;
+    }
+
+    /**
+     * 将未确认交易数据库中JSON编码的交易重新编码为二进制编码。
+     * 查询未确认交易时会遍历数据库中的全部数据，数据库格式版本号因此记录在配置数据库中，升级只会执行一次。
+     */
+    public static void migrateUnconfirmedTransactionDatabase(CoreConfiguration coreConfiguration) {
+        String databaseName = UnconfirmedTransactionDatabaseDefaultImpl.UNCONFIRMED_TRANSACTION_DATABASE_NAME;
+        if(coreConfiguration.getDatabaseVersion(databaseName) >= UNCONFIRMED_TRANSACTION_DATABASE_VERSION){
+            return;
+        }
+        LogUtil.debug("migrate unconfirmed transaction database start.");
+        KvStore unconfirmedTransactionKvStore = coreConfiguration.getKvStore(databaseName);
+        byte[] fromKey = null;
+        while (true){
+            KvPage kvPage = KvCursor.forward(unconfirmedTransactionKvStore,null,fromKey,MIGRATE_BATCH_SIZE);
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                if(EncodeDecodeTool.isJsonEncode(kvEntry.getValue())){
+                    TransactionDto transactionDto = EncodeDecodeTool.decodeToTransactionDto(kvEntry.getValue());
+                    byte[] key = HexUtil.hexStringToBytes(TransactionDtoTool.calculateTransactionHash(transactionDto));
+                    kvWriteBatch.put(key, EncodeDecodeTool.encodeTransactionDto(transactionDto));
+                }
+            }
+            unconfirmedTransactionKvStore.write(kvWriteBatch);
+            if(!kvPage.hasMore()){
+                break;
+            }
+            fromKey = kvPage.getContinuationToken();
+        }
+        coreConfiguration.setDatabaseVersion(databaseName, UNCONFIRMED_TRANSACTION_DATABASE_VERSION);
+        LogUtil.debug("migrate unconfirmed transaction database finish.");
+    }
+
+    /**
+     * 将钱包数据库中JSON编码的账户重新编码为二进制编码。
+     * 查询账户时会遍历数据库中的全部数据，数据库格式版本号因此记录在配置数据库中，升级只会执行一次。
+     */
+    public static void migrateWalletDatabase(CoreConfiguration coreConfiguration) {
+        String databaseName = WalletImpl.WALLET_DATABASE_NAME;
+        if(coreConfiguration.getDatabaseVersion(databaseName) >= WALLET_DATABASE_VERSION){
+            return;
+        }
+        LogUtil.debug("migrate wallet database start.");
+        KvStore walletKvStore = coreConfiguration.getKvStore(databaseName);
+        byte[] fromKey = null;
+        while (true){
+            KvPage kvPage = KvCursor.forward(walletKvStore,null,fromKey,MIGRATE_BATCH_SIZE);
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                if(EncodeDecodeTool.isJsonEncode(kvEntry.getValue())){
+                    Account account = EncodeDecodeTool.decodeToAccount(kvEntry.getValue());
+                    kvWriteBatch.put(ByteUtil.stringToUtf8Bytes(account.getAddress()), EncodeDecodeTool.encodeAccount(account));
+                }
+            }
+            walletKvStore.write(kvWriteBatch);
+            if(!kvPage.hasMore()){
+                break;
+            }
+            fromKey = kvPage.getContinuationToken();
+        }
+        coreConfiguration.setDatabaseVersion(databaseName, WALLET_DATABASE_VERSION);
+        LogUtil.debug("migrate wallet database finish.");
+    }
+}
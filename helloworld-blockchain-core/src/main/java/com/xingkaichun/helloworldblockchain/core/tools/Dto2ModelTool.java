@@ -22,25 +22,43 @@ import java.util.List;
 public class Dto2ModelTool {
 
     public static Block blockDto2Block(BlockchainDatabase blockchainDatabase, BlockDto blockDto) {
-        String previousBlockHash = blockDto.getPreviousHash();
-        Block previousBlock = blockchainDatabase.queryBlockByBlockHash(previousBlockHash);
+        Block block = blockDto2UnfilledBlock(blockDto);
+        fillBlock(blockchainDatabase,block);
+        return block;
+    }
 
+    /**
+     * 不访问区块链数据库的那部分转换：计算交易哈希、默克尔树根、区块哈希，交易输入只包含被花费的交易输出的ID。
+     * 不依赖区块链的状态，可以在多个线程中并行执行。
+     */
+    public static Block blockDto2UnfilledBlock(BlockDto blockDto) {
         Block block = new Block();
         block.setTimestamp(blockDto.getTimestamp());
-        block.setPreviousHash(previousBlockHash);
+        block.setPreviousHash(blockDto.getPreviousHash());
         block.setNonce(blockDto.getNonce());
 
-        long blockHeight = BlockTool.getNextBlockHeight(previousBlock);
-        block.setHeight(blockHeight);
-
-        List<Transaction> transactionList = transactionDtos2Transactions(blockchainDatabase,blockDto.getTransactions());
+        List<Transaction> transactionList = transactionDtos2UnfilledTransactions(blockDto.getTransactions());
         block.setTransactions(transactionList);
 
-        String merkleTreeRoot = BlockTool.calculateBlockMerkleTreeRoot(block);
+        String merkleTreeRoot = BlockDtoTool.calculateBlockMerkleTreeRoot(blockDto);
         block.setMerkleTreeRoot(merkleTreeRoot);
 
-        String blockHash = BlockTool.calculateBlockHash(block);
+        String blockHash = BlockDtoTool.calculateBlockHash(blockDto);
         block.setHash(blockHash);
+        return block;
+    }
+
+    /**
+     * 访问区块链数据库补全区块：区块高度、交易输入花费的未花费交易输出、挖矿难度、交易高度等属性。
+     */
+    public static void fillBlock(BlockchainDatabase blockchainDatabase, Block block) {
+        Block previousBlock = blockchainDatabase.queryBlockByBlockHash(block.getPreviousHash());
+        long blockHeight = BlockTool.getNextBlockHeight(previousBlock);
+        block.setHeight(blockHeight);
+
+        for(Transaction transaction:block.getTransactions()){
+            fillTransactionInput(blockchainDatabase,transaction);
+        }
 
         String difficult = blockchainDatabase.getConsensus().calculateDifficult(blockchainDatabase,block);
         block.setDifficulty(difficult);
@@ -54,14 +72,13 @@ public class Dto2ModelTool {
         if(!blockchainDatabase.getConsensus().checkConsensus(blockchainDatabase,block)){
             throw new RuntimeException("区块预检失败。");
         }
-        return block;
     }
 
-    private static List<Transaction> transactionDtos2Transactions(BlockchainDatabase blockchainDatabase, List<TransactionDto> transactionDtoList) {
+    private static List<Transaction> transactionDtos2UnfilledTransactions(List<TransactionDto> transactionDtoList) {
         List<Transaction> transactions = new ArrayList<>();
         if(transactionDtoList != null){
             for(TransactionDto transactionDto:transactionDtoList){
-                Transaction transaction = transactionDto2Transaction(blockchainDatabase,transactionDto);
+                Transaction transaction = transactionDto2UnfilledTransaction(transactionDto);
                 transactions.add(transaction);
             }
         }
@@ -69,16 +86,24 @@ public class Dto2ModelTool {
     }
 
     public static Transaction transactionDto2Transaction(BlockchainDatabase blockchainDatabase, TransactionDto transactionDto) {
+        Transaction transaction = transactionDto2UnfilledTransaction(transactionDto);
+        fillTransactionInput(blockchainDatabase,transaction);
+        return transaction;
+    }
+
+    /**
+     * 交易输入只包含被花费的交易输出的ID(交易哈希、交易输出序列号)
+     */
+    private static Transaction transactionDto2UnfilledTransaction(TransactionDto transactionDto) {
         List<TransactionInput> inputs = new ArrayList<>();
         List<TransactionInputDto> transactionInputDtos = transactionDto.getInputs();
         if(transactionInputDtos != null){
             for (TransactionInputDto transactionInputDto:transactionInputDtos){
-                TransactionOutput unspentTransactionOutput = blockchainDatabase.queryUnspentTransactionOutputByTransactionOutputId(transactionInputDto.getTransactionHash(),transactionInputDto.getTransactionOutputIndex());
-                if(unspentTransactionOutput == null){
-                    throw new RuntimeException("非法交易。交易输入并不是一笔未花费交易输出。");
-                }
+                TransactionOutput unspentTransactionOutputId = new TransactionOutput();
+                unspentTransactionOutputId.setTransactionHash(transactionInputDto.getTransactionHash());
+                unspentTransactionOutputId.setTransactionOutputIndex(transactionInputDto.getTransactionOutputIndex());
                 TransactionInput transactionInput = new TransactionInput();
-                transactionInput.setUnspentTransactionOutput(unspentTransactionOutput);
+                transactionInput.setUnspentTransactionOutput(unspentTransactionOutputId);
                 transactionInput.setInputScript(inputScriptDto2InputScript(transactionInputDto.getInputScript()));
                 inputs.add(transactionInput);
             }
@@ -102,6 +127,20 @@ public class Dto2ModelTool {
         return transaction;
     }
 
+    /**
+     * 将交易输入中被花费的交易输出的ID替换为查询到的未花费交易输出
+     */
+    private static void fillTransactionInput(BlockchainDatabase blockchainDatabase, Transaction transaction) {
+        for(TransactionInput transactionInput:transaction.getInputs()){
+            TransactionOutput unspentTransactionOutputId = transactionInput.getUnspentTransactionOutput();
+            TransactionOutput unspentTransactionOutput = blockchainDatabase.queryUnspentTransactionOutputByTransactionOutputId(unspentTransactionOutputId.getTransactionHash(),unspentTransactionOutputId.getTransactionOutputIndex());
+            if(unspentTransactionOutput == null){
+                throw new RuntimeException("非法交易。交易输入并不是一笔未花费交易输出。");
+            }
+            transactionInput.setUnspentTransactionOutput(unspentTransactionOutput);
+        }
+    }
+
     private static TransactionOutput transactionOutputDto2TransactionOutput(TransactionOutputDto transactionOutputDto) {
         TransactionOutput transactionOutput = new TransactionOutput();
         String publicKeyHash = ScriptTool.getPublicKeyHashByPayToPublicKeyHashOutputScript(transactionOutputDto.getOutputScript());
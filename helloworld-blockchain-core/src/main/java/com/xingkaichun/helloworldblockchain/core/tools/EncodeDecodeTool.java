@@ -1,24 +1,64 @@
 package com.xingkaichun.helloworldblockchain.core.tools;
 
 import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.BlockUndo;
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.script.OutputScript;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
 import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
 import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
 import com.xingkaichun.helloworldblockchain.crypto.model.Account;
-import com.xingkaichun.helloworldblockchain.netcore.dto.TransactionDto;
+import com.xingkaichun.helloworldblockchain.netcore.dto.*;
 import com.xingkaichun.helloworldblockchain.util.JsonUtil;
 import com.xingkaichun.helloworldblockchain.util.LogUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * EncodeDecode工具类
  *
+ * 编码格式：第一个字节是编码版本号，其后是按属性顺序排列的二进制数据。
+ * 数字采用变长编码(varint)，十六进制字符串(哈希、脚本等)还原为原始字节存储，其它字符串采用UTF-8存储，字符串、列表都带有长度前缀。
+ * 旧版本数据采用JSON编码(第一个字节是'{')，解码时仍然兼容旧版本数据。
+ *
  * @author 邢开春 409060350@qq.com
  */
 public class EncodeDecodeTool {
 
+    //二进制编码版本号
+    public static final byte BINARY_ENCODE_VERSION = 0x01;
+    //交易的二进制编码版本号：交易输入只编码被花费的交易输出的交易输出高度，不再编码整个交易输出。
+    public static final byte SPENT_TRANSACTION_OUTPUT_HEIGHT_ENCODE_VERSION = 0x02;
+    //区块撤销记录的二进制编码版本号：只编码交易高度范围、交易输出高度范围、花费的交易输出，不再编码删除区块需要的全部修改。
+    public static final byte LOGICAL_BLOCK_UNDO_ENCODE_VERSION = 0x02;
+    //JSON编码数据的第一个字节
+    private static final byte JSON_ENCODE_FIRST_BYTE = '{';
+
+
     public static byte[] encodeTransaction(Transaction transaction) {
         try {
-            return ByteUtil.stringToUtf8Bytes(JsonUtil.toJson(transaction));
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(BINARY_ENCODE_VERSION);
+            writeTransaction(bytesWriter,transaction,false);
+            return bytesWriter.toBytes();
+        } catch (Exception e) {
+            LogUtil.error("serialize Transaction failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * 交易输入只编码被花费的交易输出的交易输出高度，被花费的交易输出在区块链数据库里已经按交易输出高度存储，不再重复存储。
+     * 解码后交易输入的被花费的交易输出只有交易输出高度，需要由调用方按交易输出高度查询补全。
+     */
+    public static byte[] encodeTransactionWithSpentTransactionOutputHeight(Transaction transaction) {
+        try {
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(SPENT_TRANSACTION_OUTPUT_HEIGHT_ENCODE_VERSION);
+            writeTransaction(bytesWriter,transaction,true);
+            return bytesWriter.toBytes();
         } catch (Exception e) {
             LogUtil.error("serialize Transaction failed.",e);
             throw new RuntimeException(e);
@@ -26,7 +66,16 @@ public class EncodeDecodeTool {
     }
     public static Transaction decodeToTransaction(byte[] bytesTransaction) {
         try {
-            return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesTransaction),Transaction.class);
+            if(isJsonEncode(bytesTransaction)){
+                return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesTransaction),Transaction.class);
+            }
+            if(bytesTransaction[0] == SPENT_TRANSACTION_OUTPUT_HEIGHT_ENCODE_VERSION){
+                BytesReader bytesReader = new BytesReader(bytesTransaction);
+                bytesReader.readByte();
+                return readTransaction(bytesReader,true);
+            }
+            BytesReader bytesReader = newBytesReader(bytesTransaction);
+            return readTransaction(bytesReader,false);
         } catch (Exception e) {
             LogUtil.error("deserialize Transaction failed.",e);
             throw new RuntimeException(e);
@@ -36,7 +85,10 @@ public class EncodeDecodeTool {
 
     public static byte[] encodeTransactionOutput(TransactionOutput transactionOutput) {
         try {
-            return ByteUtil.stringToUtf8Bytes(JsonUtil.toJson(transactionOutput));
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(BINARY_ENCODE_VERSION);
+            writeTransactionOutput(bytesWriter,transactionOutput);
+            return bytesWriter.toBytes();
         } catch (Exception e) {
             LogUtil.error("serialize TransactionOutput failed.",e);
             throw new RuntimeException(e);
@@ -44,7 +96,11 @@ public class EncodeDecodeTool {
     }
     public static TransactionOutput decodeToTransactionOutput(byte[] bytesTransactionOutput) {
         try {
-            return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesTransactionOutput),TransactionOutput.class);
+            if(isJsonEncode(bytesTransactionOutput)){
+                return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesTransactionOutput),TransactionOutput.class);
+            }
+            BytesReader bytesReader = newBytesReader(bytesTransactionOutput);
+            return readTransactionOutput(bytesReader);
         } catch (Exception e) {
             LogUtil.error("deserialize TransactionOutput failed.",e);
             throw new RuntimeException(e);
@@ -54,15 +110,37 @@ public class EncodeDecodeTool {
 
     public static byte[] encodeBlock(Block block) {
         try {
-            return ByteUtil.stringToUtf8Bytes(JsonUtil.toJson(block));
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(BINARY_ENCODE_VERSION);
+            writeBlock(bytesWriter,block,true);
+            return bytesWriter.toBytes();
         } catch (Exception e) {
             LogUtil.error("serialize Block failed.",e);
             throw new RuntimeException(e);
         }
     }
+    /**
+     * 只编码区块头(不包含区块里的交易)，解码后区块的交易列表是null。
+     * 区块里的交易可以根据区块的previousTransactionHeight、transactionCount按交易高度查询出来。
+     */
+    public static byte[] encodeBlockHeader(Block block) {
+        try {
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(BINARY_ENCODE_VERSION);
+            writeBlock(bytesWriter,block,false);
+            return bytesWriter.toBytes();
+        } catch (Exception e) {
+            LogUtil.error("serialize Block header failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
     public static Block decodeToBlock(byte[] bytesBlock) {
         try {
-            return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesBlock),Block.class);
+            if(isJsonEncode(bytesBlock)){
+                return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesBlock),Block.class);
+            }
+            BytesReader bytesReader = newBytesReader(bytesBlock);
+            return readBlock(bytesReader);
         } catch (Exception e) {
             LogUtil.error("deserialize Block failed.",e);
             throw new RuntimeException(e);
@@ -70,9 +148,75 @@ public class EncodeDecodeTool {
     }
 
 
+    public static byte[] encodeBlockUndo(BlockUndo blockUndo) {
+        try {
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(LOGICAL_BLOCK_UNDO_ENCODE_VERSION);
+            bytesWriter.writeVarLong(blockUndo.getTransactionHeight());
+            bytesWriter.writeVarLong(blockUndo.getTransactionCount());
+            bytesWriter.writeVarLong(blockUndo.getTransactionOutputHeight());
+            bytesWriter.writeVarLong(blockUndo.getTransactionOutputCount());
+            List<TransactionOutput> spentTransactionOutputs = blockUndo.getSpentTransactionOutputs();
+            bytesWriter.writeListSize(spentTransactionOutputs);
+            if(spentTransactionOutputs != null){
+                for(TransactionOutput spentTransactionOutput:spentTransactionOutputs){
+                    bytesWriter.writeString(spentTransactionOutput.getTransactionHash());
+                    bytesWriter.writeVarLong(spentTransactionOutput.getTransactionOutputIndex());
+                    bytesWriter.writeString(spentTransactionOutput.getAddress());
+                    bytesWriter.writeVarLong(spentTransactionOutput.getTransactionOutputHeight());
+                }
+            }
+            return bytesWriter.toBytes();
+        } catch (Exception e) {
+            LogUtil.error("serialize BlockUndo failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * 旧版本的撤销记录(编码了删除区块需要的全部修改)不再使用，解码为null，由调用方按没有撤销记录处理。
+     */
+    public static BlockUndo decodeToBlockUndo(byte[] bytesBlockUndo) {
+        try {
+            if(bytesBlockUndo[0] == BINARY_ENCODE_VERSION){
+                return null;
+            }
+            BytesReader bytesReader = new BytesReader(bytesBlockUndo);
+            byte version = bytesReader.readByte();
+            if(version != LOGICAL_BLOCK_UNDO_ENCODE_VERSION){
+                throw new RuntimeException("unsupported encode version: " + version);
+            }
+            BlockUndo blockUndo = new BlockUndo();
+            blockUndo.setTransactionHeight(bytesReader.readVarLong());
+            blockUndo.setTransactionCount(bytesReader.readVarLong());
+            blockUndo.setTransactionOutputHeight(bytesReader.readVarLong());
+            blockUndo.setTransactionOutputCount(bytesReader.readVarLong());
+            int spentTransactionOutputSize = bytesReader.readListSize();
+            if(spentTransactionOutputSize >= 0){
+                List<TransactionOutput> spentTransactionOutputs = new ArrayList<>(spentTransactionOutputSize);
+                for(int i=0;i<spentTransactionOutputSize;i++){
+                    TransactionOutput spentTransactionOutput = new TransactionOutput();
+                    spentTransactionOutput.setTransactionHash(bytesReader.readString());
+                    spentTransactionOutput.setTransactionOutputIndex(bytesReader.readVarLong());
+                    spentTransactionOutput.setAddress(bytesReader.readString());
+                    spentTransactionOutput.setTransactionOutputHeight(bytesReader.readVarLong());
+                    spentTransactionOutputs.add(spentTransactionOutput);
+                }
+                blockUndo.setSpentTransactionOutputs(spentTransactionOutputs);
+            }
+            return blockUndo;
+        } catch (Exception e) {
+            LogUtil.error("deserialize BlockUndo failed.",e);
+            throw new RuntimeException(e);
+        }
+    }
+
+
     public static byte[] encodeTransactionDto(TransactionDto transactionDto) {
         try {
-            return ByteUtil.stringToUtf8Bytes(JsonUtil.toJson(transactionDto));
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(BINARY_ENCODE_VERSION);
+            writeTransactionDto(bytesWriter,transactionDto);
+            return bytesWriter.toBytes();
         } catch (Exception e) {
             LogUtil.error("serialize TransactionDto failed.",e);
             throw new RuntimeException(e);
@@ -80,7 +224,11 @@ public class EncodeDecodeTool {
     }
     public static TransactionDto decodeToTransactionDto(byte[] bytesTransactionDto) {
         try {
-            return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesTransactionDto), TransactionDto.class);
+            if(isJsonEncode(bytesTransactionDto)){
+                return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesTransactionDto), TransactionDto.class);
+            }
+            BytesReader bytesReader = newBytesReader(bytesTransactionDto);
+            return readTransactionDto(bytesReader);
         } catch (Exception e) {
             LogUtil.error("deserialize TransactionDto failed.",e);
             throw new RuntimeException(e);
@@ -90,18 +238,453 @@ public class EncodeDecodeTool {
 
     public static byte[] encodeAccount(Account account) {
         try {
-            return ByteUtil.stringToUtf8Bytes(JsonUtil.toJson(account));
+            BytesWriter bytesWriter = new BytesWriter();
+            bytesWriter.writeByte(BINARY_ENCODE_VERSION);
+            bytesWriter.writeString(account.getPrivateKey());
+            bytesWriter.writeString(account.getPublicKey());
+            bytesWriter.writeString(account.getPublicKeyHash());
+            bytesWriter.writeString(account.getAddress());
+            return bytesWriter.toBytes();
         } catch (Exception e) {
-            LogUtil.error("serialize Transaction failed.",e);
+            LogUtil.error("serialize Account failed.",e);
             throw new RuntimeException(e);
         }
     }
     public static Account decodeToAccount(byte[] bytesAccount) {
         try {
-            return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesAccount),Account.class);
+            if(isJsonEncode(bytesAccount)){
+                return JsonUtil.fromJson(ByteUtil.utf8BytesToString(bytesAccount),Account.class);
+            }
+            BytesReader bytesReader = newBytesReader(bytesAccount);
+            String privateKey = bytesReader.readString();
+            String publicKey = bytesReader.readString();
+            String publicKeyHash = bytesReader.readString();
+            String address = bytesReader.readString();
+            return new Account(privateKey,publicKey,publicKeyHash,address);
         } catch (Exception e) {
             LogUtil.error("deserialize Account failed.",e);
             throw new RuntimeException(e);
         }
     }
+
+
+    /**
+     * 是否是旧版本的JSON编码数据
+     */
+    public static boolean isJsonEncode(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == JSON_ENCODE_FIRST_BYTE;
+    }
+    private static BytesReader newBytesReader(byte[] bytes) {
+        BytesReader bytesReader = new BytesReader(bytes);
+        byte version = bytesReader.readByte();
+        if(version != BINARY_ENCODE_VERSION){
+            throw new RuntimeException("unsupported encode version: " + version);
+        }
+        return bytesReader;
+    }
+
+
+    //region 模型与字节的转换
+    private static void writeBlock(BytesWriter bytesWriter, Block block, boolean includeTransactions) {
+        bytesWriter.writeVarLong(block.getTimestamp());
+        bytesWriter.writeVarLong(block.getHeight());
+        bytesWriter.writeString(block.getPreviousHash());
+        bytesWriter.writeString(block.getMerkleTreeRoot());
+        bytesWriter.writeString(block.getNonce());
+        bytesWriter.writeString(block.getHash());
+        bytesWriter.writeString(block.getDifficulty());
+        bytesWriter.writeVarLong(block.getTransactionCount());
+        bytesWriter.writeVarLong(block.getPreviousTransactionHeight());
+        List<Transaction> transactions = includeTransactions?block.getTransactions():null;
+        bytesWriter.writeListSize(transactions);
+        if(transactions != null){
+            for(Transaction transaction:transactions){
+                writeTransaction(bytesWriter,transaction,false);
+            }
+        }
+    }
+    private static Block readBlock(BytesReader bytesReader) {
+        Block block = new Block();
+        block.setTimestamp(bytesReader.readVarLong());
+        block.setHeight(bytesReader.readVarLong());
+        block.setPreviousHash(bytesReader.readString());
+        block.setMerkleTreeRoot(bytesReader.readString());
+        block.setNonce(bytesReader.readString());
+        block.setHash(bytesReader.readString());
+        block.setDifficulty(bytesReader.readString());
+        block.setTransactionCount(bytesReader.readVarLong());
+        block.setPreviousTransactionHeight(bytesReader.readVarLong());
+        int transactionSize = bytesReader.readListSize();
+        if(transactionSize >= 0){
+            List<Transaction> transactions = new ArrayList<>(transactionSize);
+            for(int i=0;i<transactionSize;i++){
+                transactions.add(readTransaction(bytesReader,false));
+            }
+            block.setTransactions(transactions);
+        }
+        return block;
+    }
+
+    /**
+     * spentTransactionOutputHeightOnly：交易输入是否只编码被花费的交易输出的交易输出高度
+     */
+    private static void writeTransaction(BytesWriter bytesWriter, Transaction transaction, boolean spentTransactionOutputHeightOnly) {
+        bytesWriter.writeString(transaction.getTransactionHash());
+        TransactionType transactionType = transaction.getTransactionType();
+        bytesWriter.writeByte(transactionType==null?0:(byte)(transactionType.ordinal()+1));
+        bytesWriter.writeVarLong(transaction.getTransactionIndex());
+        bytesWriter.writeVarLong(transaction.getTransactionHeight());
+        bytesWriter.writeVarLong(transaction.getBlockHeight());
+        List<TransactionInput> inputs = transaction.getInputs();
+        bytesWriter.writeListSize(inputs);
+        if(inputs != null){
+            for(TransactionInput transactionInput:inputs){
+                TransactionOutput unspentTransactionOutput = transactionInput.getUnspentTransactionOutput();
+                bytesWriter.writeBoolean(unspentTransactionOutput != null);
+                if(unspentTransactionOutput != null){
+                    if(spentTransactionOutputHeightOnly){
+                        bytesWriter.writeVarLong(unspentTransactionOutput.getTransactionOutputHeight());
+                    }else {
+                        writeTransactionOutput(bytesWriter,unspentTransactionOutput);
+                    }
+                }
+                bytesWriter.writeScript(transactionInput.getInputScript());
+            }
+        }
+        List<TransactionOutput> outputs = transaction.getOutputs();
+        bytesWriter.writeListSize(outputs);
+        if(outputs != null){
+            for(TransactionOutput transactionOutput:outputs){
+                writeTransactionOutput(bytesWriter,transactionOutput);
+            }
+        }
+    }
+    private static Transaction readTransaction(BytesReader bytesReader, boolean spentTransactionOutputHeightOnly) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionHash(bytesReader.readString());
+        byte transactionType = bytesReader.readByte();
+        if(transactionType != 0){
+            transaction.setTransactionType(TransactionType.values()[transactionType-1]);
+        }
+        transaction.setTransactionIndex(bytesReader.readVarLong());
+        transaction.setTransactionHeight(bytesReader.readVarLong());
+        transaction.setBlockHeight(bytesReader.readVarLong());
+        int inputSize = bytesReader.readListSize();
+        if(inputSize >= 0){
+            List<TransactionInput> inputs = new ArrayList<>(inputSize);
+            for(int i=0;i<inputSize;i++){
+                TransactionInput transactionInput = new TransactionInput();
+                if(bytesReader.readBoolean()){
+                    if(spentTransactionOutputHeightOnly){
+                        TransactionOutput unspentTransactionOutput = new TransactionOutput();
+                        unspentTransactionOutput.setTransactionOutputHeight(bytesReader.readVarLong());
+                        transactionInput.setUnspentTransactionOutput(unspentTransactionOutput);
+                    }else {
+                        transactionInput.setUnspentTransactionOutput(readTransactionOutput(bytesReader));
+                    }
+                }
+                InputScript inputScript = new InputScript();
+                if(bytesReader.readScript(inputScript)){
+                    transactionInput.setInputScript(inputScript);
+                }
+                inputs.add(transactionInput);
+            }
+            transaction.setInputs(inputs);
+        }
+        int outputSize = bytesReader.readListSize();
+        if(outputSize >= 0){
+            List<TransactionOutput> outputs = new ArrayList<>(outputSize);
+            for(int i=0;i<outputSize;i++){
+                outputs.add(readTransactionOutput(bytesReader));
+            }
+            transaction.setOutputs(outputs);
+        }
+        return transaction;
+    }
+
+    private static void writeTransactionOutput(BytesWriter bytesWriter, TransactionOutput transactionOutput) {
+        bytesWriter.writeVarLong(transactionOutput.getValue());
+        bytesWriter.writeScript(transactionOutput.getOutputScript());
+        bytesWriter.writeString(transactionOutput.getTransactionHash());
+        bytesWriter.writeVarLong(transactionOutput.getTransactionOutputIndex());
+        bytesWriter.writeString(transactionOutput.getAddress());
+        bytesWriter.writeVarLong(transactionOutput.getBlockHeight());
+        bytesWriter.writeString(transactionOutput.getBlockHash());
+        bytesWriter.writeVarLong(transactionOutput.getTransactionHeight());
+        bytesWriter.writeVarLong(transactionOutput.getTransactionIndex());
+        bytesWriter.writeVarLong(transactionOutput.getTransactionOutputHeight());
+    }
+    private static TransactionOutput readTransactionOutput(BytesReader bytesReader) {
+        TransactionOutput transactionOutput = new TransactionOutput();
+        transactionOutput.setValue(bytesReader.readVarLong());
+        OutputScript outputScript = new OutputScript();
+        if(bytesReader.readScript(outputScript)){
+            transactionOutput.setOutputScript(outputScript);
+        }
+        transactionOutput.setTransactionHash(bytesReader.readString());
+        transactionOutput.setTransactionOutputIndex(bytesReader.readVarLong());
+        transactionOutput.setAddress(bytesReader.readString());
+        transactionOutput.setBlockHeight(bytesReader.readVarLong());
+        transactionOutput.setBlockHash(bytesReader.readString());
+        transactionOutput.setTransactionHeight(bytesReader.readVarLong());
+        transactionOutput.setTransactionIndex(bytesReader.readVarLong());
+        transactionOutput.setTransactionOutputHeight(bytesReader.readVarLong());
+        return transactionOutput;
+    }
+
+    private static void writeTransactionDto(BytesWriter bytesWriter, TransactionDto transactionDto) {
+        List<TransactionInputDto> inputs = transactionDto.getInputs();
+        bytesWriter.writeListSize(inputs);
+        if(inputs != null){
+            for(TransactionInputDto transactionInputDto:inputs){
+                bytesWriter.writeString(transactionInputDto.getTransactionHash());
+                bytesWriter.writeVarLong(transactionInputDto.getTransactionOutputIndex());
+                bytesWriter.writeScript(transactionInputDto.getInputScript());
+            }
+        }
+        List<TransactionOutputDto> outputs = transactionDto.getOutputs();
+        bytesWriter.writeListSize(outputs);
+        if(outputs != null){
+            for(TransactionOutputDto transactionOutputDto:outputs){
+                bytesWriter.writeScript(transactionOutputDto.getOutputScript());
+                bytesWriter.writeVarLong(transactionOutputDto.getValue());
+            }
+        }
+    }
+    private static TransactionDto readTransactionDto(BytesReader bytesReader) {
+        TransactionDto transactionDto = new TransactionDto();
+        int inputSize = bytesReader.readListSize();
+        if(inputSize >= 0){
+            List<TransactionInputDto> inputs = new ArrayList<>(inputSize);
+            for(int i=0;i<inputSize;i++){
+                TransactionInputDto transactionInputDto = new TransactionInputDto();
+                transactionInputDto.setTransactionHash(bytesReader.readString());
+                transactionInputDto.setTransactionOutputIndex(bytesReader.readVarLong());
+                InputScriptDto inputScriptDto = new InputScriptDto();
+                if(bytesReader.readScript(inputScriptDto)){
+                    transactionInputDto.setInputScript(inputScriptDto);
+                }
+                inputs.add(transactionInputDto);
+            }
+            transactionDto.setInputs(inputs);
+        }
+        int outputSize = bytesReader.readListSize();
+        if(outputSize >= 0){
+            List<TransactionOutputDto> outputs = new ArrayList<>(outputSize);
+            for(int i=0;i<outputSize;i++){
+                TransactionOutputDto transactionOutputDto = new TransactionOutputDto();
+                OutputScriptDto outputScriptDto = new OutputScriptDto();
+                if(bytesReader.readScript(outputScriptDto)){
+                    transactionOutputDto.setOutputScript(outputScriptDto);
+                }
+                transactionOutputDto.setValue(bytesReader.readVarLong());
+                outputs.add(transactionOutputDto);
+            }
+            transactionDto.setOutputs(outputs);
+        }
+        return transactionDto;
+    }
+    //endregion
+
+
+    //region 字节写入与读取
+    /**
+     * 字节写入器。
+     * 列表、字符串的长度前缀为0代表null，否则长度前缀等于实际长度加1。
+     */
+    private static class BytesWriter {
+        private byte[] buffer = new byte[256];
+        private int position = 0;
+
+        private void ensureCapacity(int length) {
+            if(position + length > buffer.length){
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + length)];
+                System.arraycopy(buffer,0,newBuffer,0,position);
+                buffer = newBuffer;
+            }
+        }
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+        private void writeBoolean(boolean value) {
+            writeByte(value?(byte)1:(byte)0);
+        }
+        /**
+         * 无符号变长编码，每个字节低7位存储数据，最高位代表后面是否还有字节。
+         */
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0){
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+        private void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes,0,buffer,position,bytes.length);
+            position += bytes.length;
+        }
+        private void writeListSize(List<?> list) {
+            writeVarLong(list==null?0:list.size()+1);
+        }
+        /**
+         * 字符串长度前缀的最低位是十六进制标识：
+         * 小写十六进制字符串(例如哈希)每两个字符还原为一个字节存储，其它字符串采用UTF-8存储。
+         */
+        private void writeString(String value) {
+            if(value == null){
+                writeVarLong(0);
+                return;
+            }
+            if(isLowerCaseHexString(value)){
+                int length = value.length();
+                writeVarLong((((long)length<<1)|1)+1);
+                ensureCapacity((length+1)/2);
+                int i = 0;
+                if(length%2 != 0){
+                    buffer[position++] = (byte) hexCharToInt(value.charAt(0));
+                    i = 1;
+                }
+                for(;i<length;i+=2){
+                    buffer[position++] = (byte) ((hexCharToInt(value.charAt(i))<<4) | hexCharToInt(value.charAt(i+1)));
+                }
+            }else {
+                byte[] bytes = ByteUtil.stringToUtf8Bytes(value);
+                writeVarLong(((long)bytes.length<<1)+1);
+                writeBytes(bytes);
+            }
+        }
+        /**
+         * 字节数组的长度前缀为0代表null，否则长度前缀等于实际长度加1。
+         */
+        private void writeByteArray(byte[] bytes) {
+            if(bytes == null){
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(bytes.length+1);
+            writeBytes(bytes);
+        }
+        private void writeScript(List<String> script) {
+            writeListSize(script);
+            if(script != null){
+                for(String operation:script){
+                    writeString(operation);
+                }
+            }
+        }
+        private byte[] toBytes() {
+            byte[] bytes = new byte[position];
+            System.arraycopy(buffer,0,bytes,0,position);
+            return bytes;
+        }
+    }
+
+    /**
+     * 字节读取器，与字节写入器相对应。
+     */
+    private static class BytesReader {
+        private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+        private byte[] bytes;
+        private int position;
+
+        private BytesReader(byte[] bytes) {
+            this.bytes = bytes;
+            this.position = 0;
+        }
+
+        private byte readByte() {
+            return bytes[position++];
+        }
+        private boolean readBoolean() {
+            return readByte() != 0;
+        }
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            while (true){
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0){
+                    return value;
+                }
+                shift += 7;
+                if(shift >= 64){
+                    throw new RuntimeException("malformed varint.");
+                }
+            }
+        }
+        /**
+         * 读取列表长度，-1代表null。
+         */
+        private int readListSize() {
+            return (int) readVarLong() - 1;
+        }
+        private String readString() {
+            long header = readVarLong();
+            if(header == 0){
+                return null;
+            }
+            header = header - 1;
+            int length = (int) (header>>>1);
+            if((header & 1) == 1){
+                char[] chars = new char[length];
+                int i = 0;
+                if(length%2 != 0){
+                    chars[i++] = HEX_CHARS[bytes[position++] & 0x0F];
+                }
+                for(;i<length;i+=2){
+                    int b = bytes[position++] & 0xFF;
+                    chars[i] = HEX_CHARS[b>>>4];
+                    chars[i+1] = HEX_CHARS[b & 0x0F];
+                }
+                return new String(chars);
+            }else {
+                byte[] stringBytes = ByteUtil.copy(bytes,position,length);
+                position += length;
+                return ByteUtil.utf8BytesToString(stringBytes);
+            }
+        }
+        private byte[] readByteArray() {
+            int length = (int) readVarLong() - 1;
+            if(length < 0){
+                return null;
+            }
+            byte[] byteArray = ByteUtil.copy(bytes,position,length);
+            position += length;
+            return byteArray;
+        }
+        /**
+         * 读取脚本到传入的脚本对象中，返回false代表脚本是null。
+         */
+        private boolean readScript(List<String> script) {
+            int size = readListSize();
+            if(size < 0){
+                return false;
+            }
+            for(int i=0;i<size;i++){
+                script.add(readString());
+            }
+            return true;
+        }
+    }
+
+    private static boolean isLowerCaseHexString(String value) {
+        if(value.isEmpty()){
+            return false;
+        }
+        for(int i=0;i<value.length();i++){
+            char ch = value.charAt(i);
+            if(!((ch>='0' && ch<='9') || (ch>='a' && ch<='f'))){
+                return false;
+            }
+        }
+        return true;
+    }
+    private static int hexCharToInt(char ch) {
+        return ch <= '9' ? ch - '0' : ch - 'a' + 10;
+    }
+    //endregion
 }
@@ -0,0 +1,41 @@
+package com.xingkaichun.helloworldblockchain.core.tools;
+
+import com.xingkaichun.helloworldblockchain.core.CoreConfiguration;
+import com.xingkaichun.helloworldblockchain.core.impl.*;
+import com.xingkaichun.helloworldblockchain.util.FileUtil;
+import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+
+/**
+ * 重建索引工具类：区块链数据库的索引损坏或丢失时，由数据库中的区块头、区块里的交易离线重建全部索引，不需要重新从网络同步区块。
+ * 重建期间不能启动使用同一数据存放位置的BlockchainCore。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class ReindexTool {
+
+    /**
+     * 离线重建：传入BlockchainCore数据存放位置。
+     */
+    public static void main(String[] args) {
+        if(args.length != 1){
+            LogUtil.info("usage: ReindexTool <corePath>");
+            return;
+        }
+        reindexBlockchainCore(new CoreConfigurationDefaultImpl(args[0]));
+        //关闭数据库后退出进程，否则存储引擎的后台线程会阻止进程退出
+        KvDbUtil.closeKvStore(FileUtil.newPath(args[0], BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME));
+        System.exit(0);
+    }
+
+    /**
+     * 重建BlockchainCore的区块链数据库的索引，并行的线程数量是处理器数量。
+     * 不调用recoverBlockFile：它依赖的区块链高度也是重建的对象，重建后下次启动时再截断区块文件。
+     */
+    public static void reindexBlockchainCore(CoreConfiguration coreConfiguration) {
+        //升级旧版本数据库
+        DatabaseMigrationTool.migrateBlockchainDatabase(coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME));
+        BlockchainDatabaseDefaultImpl blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,new IncentiveDefaultImpl(),new ProofOfWorkConsensusImpl(),new StackBasedVirtualMachine(null),null);
+        blockchainDatabase.reindex(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -1,5 +1,6 @@
 package com.xingkaichun.helloworldblockchain.core.tools;
 
+import com.xingkaichun.helloworldblockchain.core.model.script.CompiledScript;
 import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
 import com.xingkaichun.helloworldblockchain.core.model.script.OperationCodeEnum;
 import com.xingkaichun.helloworldblockchain.core.model.script.OutputScript;
@@ -221,4 +222,62 @@ public class ScriptTool {
     public static String getPublicKeyHashByPayToPublicKeyHashOutputScript(List<String> outputScript) {
         return outputScript.get(3);
     }
+
+
+    //region 编译
+    /**
+     * 编译脚本：把每个元素解码为操作码与数据。有元素不是小写十六进制字符串时不能编译，返回null。
+     */
+    public static CompiledScript compileScript(List<String> script) {
+        byte[] operationCodes = new byte[script.size()];
+        byte[][] datas = new byte[script.size()][];
+        for(int i=0;i<script.size();i++){
+            String element = script.get(i);
+            if(element == null || !HexUtil.checkHexString(element)){
+                return null;
+            }
+            byte[] bytesElement = HexUtil.hexStringToBytes(element);
+            operationCodes[i] = CompiledScript.OP_INVALID;
+            for(OperationCodeEnum operationCodeEnum:OperationCodeEnum.values()){
+                if(ByteUtil.equals(operationCodeEnum.getCode(),bytesElement)){
+                    operationCodes[i] = operationCodeEnum.getCode()[0];
+                }
+            }
+            datas[i] = bytesElement;
+        }
+        return new CompiledScript(operationCodes,datas);
+    }
+
+    /**
+     * 构建编译后的完整脚本
+     */
+    public static CompiledScript createCompiledScript(CompiledScript inputScript, CompiledScript outputScript) {
+        int size = inputScript.size() + outputScript.size();
+        byte[] operationCodes = new byte[size];
+        System.arraycopy(inputScript.getOperationCodes(),0,operationCodes,0,inputScript.size());
+        System.arraycopy(outputScript.getOperationCodes(),0,operationCodes,inputScript.size(),outputScript.size());
+        byte[][] datas = new byte[size][];
+        System.arraycopy(inputScript.getDatas(),0,datas,0,inputScript.size());
+        System.arraycopy(outputScript.getDatas(),0,datas,inputScript.size(),outputScript.size());
+        return new CompiledScript(operationCodes,datas);
+    }
+
+    /**
+     * 是否是P2PKH输入脚本与P2PKH输出脚本：[OP_PUSHDATA 签名 OP_PUSHDATA 公钥]、[OP_DUP OP_HASH160 OP_PUSHDATA 公钥哈希 OP_EQUALVERIFY OP_CHECKSIG]。
+     * 只比较操作码，不校验数据的长度。
+     */
+    public static boolean isPayToPublicKeyHashScript(CompiledScript inputScript, CompiledScript outputScript) {
+        byte[] inputOperationCodes = inputScript.getOperationCodes();
+        byte[] outputOperationCodes = outputScript.getOperationCodes();
+        return inputOperationCodes.length == 4
+                && inputOperationCodes[0] == CompiledScript.OP_PUSHDATA
+                && inputOperationCodes[2] == CompiledScript.OP_PUSHDATA
+                && outputOperationCodes.length == 6
+                && outputOperationCodes[0] == CompiledScript.OP_DUP
+                && outputOperationCodes[1] == CompiledScript.OP_HASH160
+                && outputOperationCodes[2] == CompiledScript.OP_PUSHDATA
+                && outputOperationCodes[4] == CompiledScript.OP_EQUALVERIFY
+                && outputOperationCodes[5] == CompiledScript.OP_CHECKSIG;
+    }
+    //endregion
 }
@@ -0,0 +1,50 @@
+package com.xingkaichun.helloworldblockchain.core.tools;
+
+import com.xingkaichun.helloworldblockchain.core.BlockchainCore;
+import com.xingkaichun.helloworldblockchain.core.BlockchainCoreFactory;
+import com.xingkaichun.helloworldblockchain.core.impl.BlockchainDatabaseDefaultImpl;
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+
+/**
+ * UTXO快照工具类：导出区块链的UTXO快照，或者将UTXO快照导入到空的区块链，新节点导入后只需要同步快照之后的区块。
+ * 节点的主区块链、从区块链(SlaveBlockchainCore)需要导入同一个快照。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class UtxoSnapshotTool {
+
+    /**
+     * 导出：传入export、BlockchainCore数据存放位置、快照文件位置。
+     * 导入：传入import、BlockchainCore数据存放位置、快照文件位置、可选的期望的承诺哈希。
+     */
+    public static void main(String[] args) {
+        if(args.length == 3 && "export".equals(args[0])){
+            String commitment = exportUtxoSnapshot(BlockchainCoreFactory.createBlockchainCore(args[1]),args[2]);
+            LogUtil.info(String.format("utxo snapshot commitment %s.",commitment));
+        }else if((args.length == 3 || args.length == 4) && "import".equals(args[0])){
+            String commitment = importUtxoSnapshot(BlockchainCoreFactory.createBlockchainCore(args[1]),args[2],args.length == 4 ? args[3] : null);
+            LogUtil.info(String.format("utxo snapshot commitment %s.",commitment));
+        }else {
+            LogUtil.info("usage: UtxoSnapshotTool export <corePath> <snapshotPath>");
+            LogUtil.info("       UtxoSnapshotTool import <corePath> <snapshotPath> [commitment]");
+        }
+    }
+
+    /**
+     * 导出UTXO快照，返回快照的承诺哈希。
+     */
+    public static String exportUtxoSnapshot(BlockchainCore blockchainCore, String snapshotPath) {
+        return getBlockchainDatabase(blockchainCore).exportUtxoSnapshot(snapshotPath);
+    }
+
+    /**
+     * 导入UTXO快照，commitment是期望的承诺哈希(为null时不校验)，返回快照的承诺哈希。
+     */
+    public static String importUtxoSnapshot(BlockchainCore blockchainCore, String snapshotPath, String commitment) {
+        return getBlockchainDatabase(blockchainCore).importUtxoSnapshot(snapshotPath,commitment);
+    }
+
+    private static BlockchainDatabaseDefaultImpl getBlockchainDatabase(BlockchainCore blockchainCore) {
+        return (BlockchainDatabaseDefaultImpl) blockchainCore.getBlockchainDatabase();
+    }
+}
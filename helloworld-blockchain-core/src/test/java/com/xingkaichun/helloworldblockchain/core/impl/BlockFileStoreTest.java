@@ -0,0 +1,145 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+
+public class BlockFileStoreTest {
+
+    @Test
+    public void appendReadTest() throws IOException
+    {
+        String directory = Files.createTempDirectory("BlockFileStoreTest").toString();
+        BlockFileStore blockFileStore = new BlockFileStore(directory,100,false);
+        BlockFilePointer[] blockFilePointers = new BlockFilePointer[10];
+        for(int i=0;i<10;i++){
+            blockFilePointers[i] = blockFileStore.append(bytes(i,30));
+        }
+        //一条数据不会跨越两个数据段
+        Assert.assertEquals(0,blockFilePointers[2].getSegment());
+        Assert.assertEquals(1,blockFilePointers[3].getSegment());
+        Assert.assertEquals(0,blockFilePointers[3].getOffset());
+        //写满的数据段通过内存映射读取，当前数据段通过文件读取
+        for(int i=0;i<10;i++){
+            Assert.assertArrayEquals(bytes(i,30),blockFileStore.read(blockFilePointers[i]));
+        }
+
+        //重新打开后继续追加
+        blockFileStore.close();
+        blockFileStore = new BlockFileStore(directory,100,false);
+        BlockFilePointer blockFilePointer = blockFileStore.append(bytes(10,30));
+        Assert.assertEquals(3,blockFilePointer.getSegment());
+        Assert.assertEquals(30,blockFilePointer.getOffset());
+        Assert.assertArrayEquals(bytes(1,30),blockFileStore.read(blockFilePointers[1]));
+
+        //区块文件指针编码
+        BlockFilePointer decodeBlockFilePointer = BlockFilePointer.decode(BlockFilePointer.encode(blockFilePointer));
+        Assert.assertTrue(BlockFilePointer.isBlockFilePointer(BlockFilePointer.encode(blockFilePointer)));
+        Assert.assertEquals(3,decodeBlockFilePointer.getSegment());
+        Assert.assertEquals(30,decodeBlockFilePointer.getOffset());
+        Assert.assertEquals(30,decodeBlockFilePointer.getLength());
+    }
+
+    @Test
+    public void truncateTest() throws IOException
+    {
+        String directory = Files.createTempDirectory("BlockFileStoreTest").toString();
+        BlockFileStore blockFileStore = new BlockFileStore(directory,100,false);
+        BlockFilePointer[] blockFilePointers = new BlockFilePointer[10];
+        for(int i=0;i<10;i++){
+            blockFilePointers[i] = blockFileStore.append(bytes(i,30));
+        }
+        //截断到写满的数据段中间，之后的数据段被删除，截断位置之后继续追加
+        blockFileStore.truncate(blockFilePointers[4].getSegment(),blockFilePointers[4].getEndOffset());
+        BlockFilePointer blockFilePointer = blockFileStore.append(bytes(20,30));
+        Assert.assertEquals(blockFilePointers[5].getSegment(),blockFilePointer.getSegment());
+        Assert.assertEquals(blockFilePointers[5].getOffset(),blockFilePointer.getOffset());
+        Assert.assertArrayEquals(bytes(20,30),blockFileStore.read(blockFilePointer));
+        Assert.assertArrayEquals(bytes(4,30),blockFileStore.read(blockFilePointers[4]));
+
+        blockFileStore.close();
+        blockFileStore = new BlockFileStore(directory,100,false);
+        Assert.assertEquals(blockFilePointers[6].getOffset(),blockFileStore.append(bytes(21,30)).getOffset());
+
+        //截断全部数据
+        blockFileStore.truncate(0,0);
+        blockFilePointer = blockFileStore.append(bytes(22,30));
+        Assert.assertEquals(0,blockFilePointer.getSegment());
+        Assert.assertEquals(0,blockFilePointer.getOffset());
+    }
+
+    @Test
+    public void deleteSegmentsBeforeTest() throws IOException
+    {
+        String directory = Files.createTempDirectory("BlockFileStoreTest").toString();
+        BlockFileStore blockFileStore = new BlockFileStore(directory,100,false);
+        BlockFilePointer[] blockFilePointers = new BlockFilePointer[10];
+        for(int i=0;i<10;i++){
+            blockFilePointers[i] = blockFileStore.append(bytes(i,30));
+        }
+        //删除裁剪后不再被引用的数据段，当前数据段不会被删除
+        blockFileStore.deleteSegmentsBefore(2);
+        Assert.assertArrayEquals(bytes(6,30),blockFileStore.read(blockFilePointers[6]));
+        blockFileStore.deleteSegmentsBefore(100);
+        Assert.assertArrayEquals(bytes(9,30),blockFileStore.read(blockFilePointers[9]));
+
+        //重新打开后，序号最大的数据段仍然是当前数据段
+        blockFileStore.close();
+        blockFileStore = new BlockFileStore(directory,100,false);
+        BlockFilePointer blockFilePointer = blockFileStore.append(bytes(10,30));
+        Assert.assertEquals(3,blockFilePointer.getSegment());
+        Assert.assertEquals(30,blockFilePointer.getOffset());
+        Assert.assertArrayEquals(bytes(10,30),blockFileStore.read(blockFilePointer));
+    }
+
+    @Test
+    public void lostDataTest() throws IOException
+    {
+        String directory = Files.createTempDirectory("BlockFileStoreTest").toString();
+        BlockFileStore blockFileStore = new BlockFileStore(directory,100,true);
+        BlockFilePointer[] blockFilePointers = new BlockFilePointer[5];
+        for(int i=0;i<5;i++){
+            blockFilePointers[i] = blockFileStore.append(bytes(i,30));
+            blockFileStore.force();
+        }
+        blockFileStore.close();
+
+        //模拟宕机：数据库已经引用，但没有刷盘的数据丢失了
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(new File(directory,"blk00000001.dat"), "rw")) {
+            randomAccessFile.setLength(blockFilePointers[4].getOffset());
+        }
+        blockFileStore = new BlockFileStore(directory,100,true);
+        try {
+            blockFileStore.truncate(blockFilePointers[4].getSegment(),blockFilePointers[4].getEndOffset());
+            Assert.fail();
+        } catch (RuntimeException e){
+            Assert.assertTrue(e.getMessage().contains("lost data"));
+        }
+        //数据段不存在
+        try {
+            blockFileStore.truncate(5,30);
+            Assert.fail();
+        } catch (RuntimeException e){
+            Assert.assertTrue(e.getMessage().contains("lost data"));
+        }
+        //截断到仍然完整的数据
+        blockFileStore.truncate(blockFilePointers[3].getSegment(),blockFilePointers[3].getEndOffset());
+        BlockFilePointer blockFilePointer = blockFileStore.append(bytes(20,30));
+        Assert.assertEquals(blockFilePointers[4].getSegment(),blockFilePointer.getSegment());
+        Assert.assertEquals(blockFilePointers[4].getOffset(),blockFilePointer.getOffset());
+        Assert.assertArrayEquals(bytes(20,30),blockFileStore.read(blockFilePointer));
+    }
+
+    private byte[] bytes(int seed, int length) {
+        byte[] bytes = new byte[length];
+        for(int i=0;i<length;i++){
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return bytes;
+    }
+}
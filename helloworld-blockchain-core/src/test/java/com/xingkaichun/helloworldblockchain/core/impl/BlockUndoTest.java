@@ -0,0 +1,77 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockchainDatabaseKeyTool;
+import com.xingkaichun.helloworldblockchain.core.tools.EncodeDecodeTool;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvWriteBatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+
+public class BlockUndoTest {
+
+    /**
+     * 由撤销记录删除区块不需要读取区块里的交易：删除区块之前从数据库中删除它们，删除区块之后的数据库仍然与删除前相同高度时完全相同。
+     */
+    @Test
+    public void deleteBlocksByBlockUndoTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        KvStore kvStore = coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(40,10);
+        Assert.assertEquals(20,blockchainDatabase.addBlockDtos(blockDtos.subList(0,20)));
+        Map<String,String> expectedKvs = BlockchainDatabaseTestTool.dumpKvStore(kvStore);
+        Assert.assertEquals(20,blockchainDatabase.addBlockDtos(blockDtos.subList(20,40)));
+
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
+        for(long blockHeight=21; blockHeight<=40; blockHeight++){
+            Assert.assertNotNull(kvStore.get(BlockchainDatabaseKeyTool.buildBlockHeightToBlockUndoKey(blockHeight)));
+            Block block = blockchainDatabase.queryBlockByBlockHeight(blockHeight);
+            for(long transactionHeight=block.getPreviousTransactionHeight()+1; transactionHeight<=block.getPreviousTransactionHeight()+block.getTransactionCount(); transactionHeight++){
+                kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(transactionHeight));
+            }
+        }
+        kvStore.write(kvWriteBatch);
+        blockchainDatabase.getTransactionCache().invalidateAll();
+
+        blockchainDatabase.deleteBlocks(21);
+        Assert.assertEquals(20,blockchainDatabase.queryBlockchainHeight());
+        Assert.assertEquals(expectedKvs,BlockchainDatabaseTestTool.dumpKvStore(kvStore));
+    }
+
+    /**
+     * 由撤销记录删除区块与由区块推导删除需要的修改(没有撤销记录、旧版本撤销记录的区块)，删除后的数据库完全相同。
+     */
+    @Test
+    public void deleteBlocksWithoutBlockUndoTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        KvStore kvStore = coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(40,10);
+        Assert.assertEquals(20,blockchainDatabase.addBlockDtos(blockDtos.subList(0,20)));
+        Map<String,String> expectedKvs = BlockchainDatabaseTestTool.dumpKvStore(kvStore);
+        Assert.assertEquals(20,blockchainDatabase.addBlockDtos(blockDtos.subList(20,40)));
+
+        //高度31到40的区块没有撤销记录，高度26到30的区块是旧版本的撤销记录，高度21到25的区块有撤销记录
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
+        for(long blockHeight=31; blockHeight<=40; blockHeight++){
+            kvWriteBatch.delete(BlockchainDatabaseKeyTool.buildBlockHeightToBlockUndoKey(blockHeight));
+        }
+        for(long blockHeight=26; blockHeight<=30; blockHeight++){
+            kvWriteBatch.put(BlockchainDatabaseKeyTool.buildBlockHeightToBlockUndoKey(blockHeight),new byte[]{EncodeDecodeTool.BINARY_ENCODE_VERSION,0x00,0x00});
+        }
+        kvStore.write(kvWriteBatch);
+
+        blockchainDatabase.deleteBlocks(21);
+        Assert.assertEquals(20,blockchainDatabase.queryBlockchainHeight());
+        Assert.assertEquals(expectedKvs,BlockchainDatabaseTestTool.dumpKvStore(kvStore));
+    }
+}
@@ -0,0 +1,168 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockTool;
+import com.xingkaichun.helloworldblockchain.core.tools.Model2DtoTool;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.setting.Setting;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvIterator;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * 区块链数据库测试工具：在临时目录中创建区块链数据库、生成可以新增的区块、导出数据库中的全部数据。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class BlockchainDatabaseTestTool {
+
+    //花费挖矿奖励的交易的交易输出数量
+    private static final int OUTPUT_COUNT = 3;
+
+    /**
+     * 在临时目录中创建配置：每个区块都将未花费交易输出缓存刷盘，数据库中总是完整的数据。
+     * pruneBlockCount大于0时是裁剪模式。
+     */
+    static CoreConfigurationDefaultImpl createCoreConfiguration(long pruneBlockCount, int blockFileSegmentSize) throws IOException {
+        String corePath = Files.createTempDirectory("BlockchainDatabaseTest").toString();
+        return new CoreConfigurationDefaultImpl(corePath){
+            @Override
+            public int getUnspentTransactionOutputCacheFlushThreshold() {
+                return 1;
+            }
+            @Override
+            public long getPruneBlockCount() {
+                return pruneBlockCount;
+            }
+            @Override
+            public int getBlockFileSegmentSize() {
+                return blockFileSegmentSize;
+            }
+        };
+    }
+
+    /**
+     * 创建区块链数据库，并执行启动时的恢复。
+     */
+    static BlockchainDatabaseDefaultImpl createBlockchainDatabase(CoreConfigurationDefaultImpl coreConfiguration) {
+        BlockchainDatabaseDefaultImpl blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,new IncentiveDefaultImpl(),new ProofOfWorkConsensusImpl(),new StackBasedVirtualMachine(null),null);
+        blockchainDatabase.recoverUnspentTransactionOutput();
+        blockchainDatabase.recoverBlockFile();
+        blockchainDatabase.recoverHashAddressFilter();
+        blockchainDatabase.recoverBlockTimestampIndex();
+        return blockchainDatabase;
+    }
+
+    /**
+     * 导出数据库中的全部数据，主键、值都是十六进制字符串。
+     */
+    static Map<String,String> dumpKvStore(KvStore kvStore) {
+        Map<String,String> kvs = new TreeMap<>();
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            for(kvIterator.seekToFirst(); kvIterator.isValid(); kvIterator.next()){
+                kvs.put(HexUtil.bytesToHexString(kvIterator.key()), HexUtil.bytesToHexString(kvIterator.value()));
+            }
+        }
+        return kvs;
+    }
+
+    /**
+     * 从创世区块之后开始生成blockCount个区块：每个区块有一个挖矿奖励交易；高度大于spendDistance的区块还有一笔交易，
+     * 花费spendDistance个区块之前的挖矿奖励，产生OUTPUT_COUNT个新地址的交易输出。
+     */
+    static List<BlockDto> generateBlockDtos(int blockCount, int spendDistance) {
+        List<BlockDto> blockDtos = new ArrayList<>();
+        List<Account> coinbaseAccounts = new ArrayList<>();
+        List<TransactionOutput> coinbaseOutputs = new ArrayList<>();
+        String previousHash = Setting.GenesisBlockSetting.HASH;
+        long timestamp = System.currentTimeMillis() - (blockCount + 10L) * Setting.IncentiveSetting.BLOCK_TIME;
+        BigInteger difficulty = new BigInteger(Setting.GenesisBlockSetting.DIFFICULTY, 16);
+        for(int height=1; height<=blockCount; height++){
+            Account minerAccount = AccountUtil.randomAccount();
+            Transaction coinbaseTransaction = transaction(TransactionType.GENESIS_TRANSACTION, null, Collections.singletonList(output(minerAccount.getAddress(), incentiveValue(height))));
+            coinbaseAccounts.add(minerAccount);
+            coinbaseOutputs.add(spendableOutput(coinbaseTransaction));
+            List<Transaction> transactions = new ArrayList<>(Collections.singletonList(coinbaseTransaction));
+            if(height > spendDistance){
+                transactions.add(spendTransaction(coinbaseAccounts.get(height-1-spendDistance), coinbaseOutputs.get(height-1-spendDistance)));
+            }
+            Block block = new Block();
+            block.setTimestamp(timestamp + height * Setting.IncentiveSetting.BLOCK_TIME);
+            block.setPreviousHash(previousHash);
+            block.setHeight(height);
+            block.setTransactions(transactions);
+            block.setMerkleTreeRoot(BlockTool.calculateBlockMerkleTreeRoot(block));
+            do {
+                block.setNonce(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+                block.setHash(BlockTool.calculateBlockHash(block));
+            } while (difficulty.compareTo(new BigInteger(block.getHash(), 16)) <= 0);
+            blockDtos.add(Model2DtoTool.block2BlockDto(block));
+            previousHash = block.getHash();
+        }
+        return blockDtos;
+    }
+
+
+    private static Transaction spendTransaction(Account account, TransactionOutput unspentTransactionOutput) {
+        TransactionInput input = new TransactionInput();
+        input.setUnspentTransactionOutput(unspentTransactionOutput);
+        input.setInputScript(new InputScript());
+        List<TransactionOutput> outputs = new ArrayList<>();
+        long value = unspentTransactionOutput.getValue() / OUTPUT_COUNT;
+        for(int i=0; i<OUTPUT_COUNT; i++){
+            long outputValue = i == 0 ? unspentTransactionOutput.getValue() - value * (OUTPUT_COUNT - 1) : value;
+            outputs.add(output(AccountUtil.randomAccount().getAddress(), outputValue));
+        }
+        Transaction transaction = transaction(TransactionType.STANDARD_TRANSACTION, input, outputs);
+        String signature = TransactionTool.signature(account.getPrivateKey(), transaction);
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        return transaction;
+    }
+    private static Transaction transaction(TransactionType transactionType, TransactionInput input, List<TransactionOutput> outputs) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(transactionType);
+        if(input != null){
+            transaction.setInputs(new ArrayList<>(Collections.singletonList(input)));
+        }
+        transaction.setOutputs(new ArrayList<>(outputs));
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        return transaction;
+    }
+    private static TransactionOutput output(String address, long value) {
+        TransactionOutput output = new TransactionOutput();
+        output.setAddress(address);
+        output.setValue(value);
+        output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+        return output;
+    }
+    private static TransactionOutput spendableOutput(Transaction transaction) {
+        TransactionOutput output = transaction.getOutputs().get(0);
+        TransactionOutput spendableOutput = output(output.getAddress(), output.getValue());
+        spendableOutput.setTransactionHash(transaction.getTransactionHash());
+        spendableOutput.setTransactionOutputIndex(1);
+        return spendableOutput;
+    }
+    private static long incentiveValue(long blockHeight) {
+        long incentiveValue = Setting.IncentiveSetting.BLOCK_INIT_INCENTIVE;
+        for(long i=(blockHeight-1)/Setting.IncentiveSetting.INCENTIVE_HALVING_INTERVAL; i>0; i--){
+            incentiveValue /= 2;
+        }
+        return incentiveValue;
+    }
+}
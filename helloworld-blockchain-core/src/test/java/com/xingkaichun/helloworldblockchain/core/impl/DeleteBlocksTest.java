@@ -0,0 +1,44 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+
+public class DeleteBlocksTest {
+
+    /**
+     * 新增60个区块后删除到高度30，数据库与只新增30个区块时完全相同；再次新增删除的区块，数据库与删除之前完全相同。
+     * 后30个区块里的交易花费了前后两段区块的挖矿奖励。
+     */
+    @Test
+    public void deleteBlocksTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        KvStore kvStore = coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(60,10);
+        Assert.assertEquals(30,blockchainDatabase.addBlockDtos(blockDtos.subList(0,30)));
+        Map<String,String> expectedKvs = BlockchainDatabaseTestTool.dumpKvStore(kvStore);
+        long expectedTransactionHeight = blockchainDatabase.queryBlockchainTransactionHeight();
+        long expectedTransactionOutputHeight = blockchainDatabase.queryBlockchainTransactionOutputHeight();
+        Assert.assertEquals(30,blockchainDatabase.addBlockDtos(blockDtos.subList(30,60)));
+        Map<String,String> expectedFullKvs = BlockchainDatabaseTestTool.dumpKvStore(kvStore);
+
+        blockchainDatabase.deleteBlocks(31);
+        Assert.assertEquals(30,blockchainDatabase.queryBlockchainHeight());
+        Assert.assertEquals(expectedTransactionHeight,blockchainDatabase.queryBlockchainTransactionHeight());
+        Assert.assertEquals(expectedTransactionOutputHeight,blockchainDatabase.queryBlockchainTransactionOutputHeight());
+        Assert.assertNull(blockchainDatabase.queryBlockByBlockHeight(31));
+        Assert.assertEquals(expectedKvs,BlockchainDatabaseTestTool.dumpKvStore(kvStore));
+
+        //删除的区块的数据已从区块文件截断，再次新增时写入相同的位置
+        Assert.assertEquals(30,blockchainDatabase.addBlockDtos(blockDtos.subList(30,60)));
+        Assert.assertEquals(expectedFullKvs,BlockchainDatabaseTestTool.dumpKvStore(kvStore));
+    }
+}
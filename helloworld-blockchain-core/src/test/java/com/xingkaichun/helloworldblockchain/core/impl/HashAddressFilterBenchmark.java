@@ -0,0 +1,173 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockTool;
+import com.xingkaichun.helloworldblockchain.core.tools.Model2DtoTool;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import com.xingkaichun.helloworldblockchain.setting.Setting;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 哈希地址过滤器基准测试：校验包含数千个交易输出的区块时，过滤器对校验耗时的影响，以及遍历数据库重建过滤器的耗时。
+ * 不是单元测试，需要手动运行main方法。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class HashAddressFilterBenchmark {
+
+    //每个区块的交易数量
+    private static final int TRANSACTION_COUNT = 100;
+    //每笔交易的交易输出数量
+    private static final int OUTPUT_COUNT = 40;
+    //校验区块之前写入的区块数量，每个区块新增约4000个已使用的地址
+    private static final int FILLER_BLOCK_COUNT = 50;
+    private static final int CHECK_COUNT = 20;
+
+    public static void main(String[] args) throws IOException {
+        List<Block> blocks = generateBlocks();
+        benchmark("without hash address filter", 0, blocks);
+        benchmark("with hash address filter", 14000000, blocks);
+        System.exit(0);
+    }
+
+    private static void benchmark(String name, long hashAddressFilterExpectedInsertions, List<Block> blocks) throws IOException {
+        String corePath = Files.createTempDirectory("HashAddressFilterBenchmark").toString();
+        CoreConfigurationDefaultImpl coreConfiguration = new CoreConfigurationDefaultImpl(corePath){
+            @Override
+            public long getHashAddressFilterExpectedInsertions() {
+                return hashAddressFilterExpectedInsertions;
+            }
+        };
+        BlockchainDatabaseDefaultImpl blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,new IncentiveDefaultImpl(),new ProofOfWorkConsensusImpl(),new StackBasedVirtualMachine(null),null);
+        blockchainDatabase.recoverUnspentTransactionOutput();
+        blockchainDatabase.recoverBlockFile();
+        blockchainDatabase.recoverHashAddressFilter();
+        for(int i=0; i<blocks.size()-1; i++){
+            if(!blockchainDatabase.addBlockDto(Model2DtoTool.block2BlockDto(blocks.get(i)))){
+                throw new RuntimeException("add block failed.");
+            }
+        }
+        Block block = blocks.get(blocks.size()-1);
+        //预热
+        for(int i=0; i<CHECK_COUNT; i++){
+            blockchainDatabase.checkBlock(block);
+        }
+        long start = System.nanoTime();
+        for(int i=0; i<CHECK_COUNT; i++){
+            if(!blockchainDatabase.checkBlock(block)){
+                throw new RuntimeException("check block failed.");
+            }
+        }
+        long costNanos = System.nanoTime() - start;
+        System.out.println(String.format("%s: %s ms per block check, %s outputs per block.", name, costNanos / CHECK_COUNT / 1000000, TRANSACTION_COUNT * OUTPUT_COUNT));
+
+        if(hashAddressFilterExpectedInsertions > 0){
+            new File(corePath, BlockchainDatabaseDefaultImpl.HASH_ADDRESS_FILTER_FILE_NAME).delete();
+            start = System.nanoTime();
+            blockchainDatabase.recoverHashAddressFilter();
+            costNanos = System.nanoTime() - start;
+            System.out.println(String.format("%s: %s ms to rebuild the filter from the database.", name, costNanos / 1000000));
+        }
+    }
+
+    /**
+     * 生成区块：前TRANSACTION_COUNT个区块只有挖矿奖励交易；之后的每个区块包含TRANSACTION_COUNT笔交易，
+     * 每笔交易花费上一个区块中对应交易的找零，产生OUTPUT_COUNT-1个新地址的交易输出和一个找零。最后一个区块用于校验，不写入数据库。
+     */
+    private static List<Block> generateBlocks() {
+        List<Block> blocks = new ArrayList<>();
+        List<Account> changeAccounts = new ArrayList<>();
+        List<TransactionOutput> changeOutputs = new ArrayList<>();
+        String previousHash = Setting.GenesisBlockSetting.HASH;
+        long timestamp = System.currentTimeMillis() - (TRANSACTION_COUNT + FILLER_BLOCK_COUNT + 10L) * Setting.IncentiveSetting.BLOCK_TIME;
+        for(int height=1; height<=TRANSACTION_COUNT+FILLER_BLOCK_COUNT+1; height++){
+            List<Transaction> transactions = new ArrayList<>();
+            Account minerAccount = AccountUtil.randomAccount();
+            Transaction coinbaseTransaction = transaction(TransactionType.GENESIS_TRANSACTION, Collections.singletonList(output(minerAccount.getAddress(), Setting.IncentiveSetting.BLOCK_INIT_INCENTIVE)));
+            transactions.add(coinbaseTransaction);
+            if(height <= TRANSACTION_COUNT){
+                changeAccounts.add(minerAccount);
+                changeOutputs.add(spendableOutput(coinbaseTransaction, 0));
+            } else {
+                for(int i=0; i<TRANSACTION_COUNT; i++){
+                    transactions.add(fanOutTransaction(changeAccounts, changeOutputs, i));
+                }
+            }
+            Block block = new Block();
+            block.setTimestamp(timestamp + height * Setting.IncentiveSetting.BLOCK_TIME);
+            block.setPreviousHash(previousHash);
+            block.setHeight(height);
+            block.setTransactions(transactions);
+            block.setMerkleTreeRoot(BlockTool.calculateBlockMerkleTreeRoot(block));
+            BigInteger difficulty = new BigInteger(Setting.GenesisBlockSetting.DIFFICULTY, 16);
+            do {
+                block.setNonce(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+                block.setHash(BlockTool.calculateBlockHash(block));
+            } while (difficulty.compareTo(new BigInteger(block.getHash(), 16)) <= 0);
+            blocks.add(block);
+            previousHash = block.getHash();
+        }
+        return blocks;
+    }
+    private static Transaction fanOutTransaction(List<Account> changeAccounts, List<TransactionOutput> changeOutputs, int index) {
+        Account account = changeAccounts.get(index);
+        TransactionOutput unspentTransactionOutput = changeOutputs.get(index);
+        TransactionInput input = new TransactionInput();
+        input.setUnspentTransactionOutput(unspentTransactionOutput);
+        input.setInputScript(new InputScript());
+        List<TransactionOutput> outputs = new ArrayList<>();
+        for(int i=0; i<OUTPUT_COUNT-1; i++){
+            outputs.add(output(AccountUtil.randomAccount().getAddress(), 1));
+        }
+        Account changeAccount = AccountUtil.randomAccount();
+        outputs.add(output(changeAccount.getAddress(), unspentTransactionOutput.getValue() - (OUTPUT_COUNT - 1)));
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(TransactionType.STANDARD_TRANSACTION);
+        transaction.setInputs(new ArrayList<>(Collections.singletonList(input)));
+        transaction.setOutputs(outputs);
+        String signature = TransactionTool.signature(account.getPrivateKey(), transaction);
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        changeAccounts.set(index, changeAccount);
+        changeOutputs.set(index, spendableOutput(transaction, OUTPUT_COUNT - 1));
+        return transaction;
+    }
+    private static Transaction transaction(TransactionType transactionType, List<TransactionOutput> outputs) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(transactionType);
+        transaction.setOutputs(new ArrayList<>(outputs));
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        return transaction;
+    }
+    private static TransactionOutput output(String address, long value) {
+        TransactionOutput output = new TransactionOutput();
+        output.setAddress(address);
+        output.setValue(value);
+        output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+        return output;
+    }
+    private static TransactionOutput spendableOutput(Transaction transaction, int outputIndex) {
+        TransactionOutput output = transaction.getOutputs().get(outputIndex);
+        TransactionOutput spendableOutput = output(output.getAddress(), output.getValue());
+        spendableOutput.setTransactionHash(transaction.getTransactionHash());
+        spendableOutput.setTransactionOutputIndex(outputIndex + 1);
+        return spendableOutput;
+    }
+}
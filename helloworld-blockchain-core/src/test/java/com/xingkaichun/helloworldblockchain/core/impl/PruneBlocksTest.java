@@ -0,0 +1,80 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+
+public class PruneBlocksTest {
+
+    /**
+     * 裁剪模式下最多删除[保留完整数据的区块数量]个区块，已裁剪的区块不能删除。
+     */
+    @Test
+    public void deleteBlocksTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(10,1024);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(50,5);
+        Assert.assertEquals(40,blockchainDatabase.addBlockDtos(blockDtos.subList(0,40)));
+        //没有裁剪时也只删除最近的10个区块
+        blockchainDatabase.deleteBlocks(1);
+        Assert.assertEquals(30,blockchainDatabase.queryBlockchainHeight());
+
+        Assert.assertEquals(20,blockchainDatabase.addBlockDtos(blockDtos.subList(30,50)));
+        blockchainDatabase.pruneBlocks();
+        Assert.assertEquals(40,blockchainDatabase.queryPrunedBlockHeight());
+        blockchainDatabase.deleteBlocks(1);
+        Assert.assertEquals(40,blockchainDatabase.queryBlockchainHeight());
+        //链尾是已裁剪的区块
+        blockchainDatabase.deleteBlocks(1);
+        blockchainDatabase.deleteTailBlock();
+        Assert.assertEquals(40,blockchainDatabase.queryBlockchainHeight());
+        Assert.assertNotNull(blockchainDatabase.queryTailBlock());
+    }
+
+    /**
+     * 已裁剪的区块只能查询到区块头，区块里的交易已被删除，产生的未花费交易输出仍然可以查询；未裁剪的区块可以查询到完整的数据。
+     */
+    @Test
+    public void queryTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(10,1024);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(50,5);
+        Assert.assertEquals(40,blockchainDatabase.addBlockDtos(blockDtos.subList(0,40)));
+        List<Transaction> prunedTransactions = blockchainDatabase.queryTransactionsByBlockHeight(30);
+        blockchainDatabase.pruneBlocks();
+        Assert.assertEquals(30,blockchainDatabase.queryPrunedBlockHeight());
+
+        Block prunedBlock = blockchainDatabase.queryBlockByBlockHeight(30);
+        Assert.assertEquals(30,prunedBlock.getHeight());
+        Assert.assertEquals(prunedBlock.getHash(),blockchainDatabase.queryBlockByBlockHash(prunedBlock.getHash()).getHash());
+        Assert.assertNull(blockchainDatabase.queryTransactionsByBlockHeight(30));
+        //花费挖矿奖励的交易产生的交易输出没有被花费
+        Transaction prunedTransaction = prunedTransactions.get(1);
+        Assert.assertNull(blockchainDatabase.queryTransactionByTransactionHash(prunedTransaction.getTransactionHash()));
+        for(TransactionOutput output:prunedTransaction.getOutputs()){
+            TransactionOutput unspentTransactionOutput = blockchainDatabase.queryUnspentTransactionOutputByTransactionOutputId(output.getTransactionHash(),output.getTransactionOutputIndex());
+            Assert.assertEquals(output.getValue(),unspentTransactionOutput.getValue());
+            Assert.assertEquals(output.getAddress(),unspentTransactionOutput.getAddress());
+        }
+
+        Block block = blockchainDatabase.queryBlockByBlockHeight(31);
+        List<Transaction> transactions = blockchainDatabase.queryTransactionsByBlockHeight(31);
+        Assert.assertEquals(block.getTransactionCount(),transactions.size());
+        for(Transaction transaction:transactions){
+            Assert.assertNotNull(blockchainDatabase.queryTransactionByTransactionHash(transaction.getTransactionHash()));
+        }
+
+        //裁剪后继续新增区块
+        Assert.assertEquals(10,blockchainDatabase.addBlockDtos(blockDtos.subList(40,50)));
+        Assert.assertEquals(50,blockchainDatabase.queryBlockchainHeight());
+    }
+}
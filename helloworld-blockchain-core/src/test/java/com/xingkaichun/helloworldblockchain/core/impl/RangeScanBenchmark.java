@@ -0,0 +1,149 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.BlockScanner;
+import com.xingkaichun.helloworldblockchain.core.TransactionScanner;
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockTool;
+import com.xingkaichun.helloworldblockchain.core.tools.Model2DtoTool;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.setting.Setting;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 范围扫描基准测试：查询一段时间内的区块、一段区块高度内的交易，比较逐个按高度查询与范围扫描的耗时。
+ * 不是单元测试，需要手动运行main方法。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class RangeScanBenchmark {
+
+    //区块数量，不超过第一次调整挖矿难度的区块高度，生成的区块都使用创世区块的难度
+    private static final int BLOCK_COUNT = 8000;
+    private static final int ROUND_COUNT = 3;
+
+    public static void main(String[] args) throws IOException {
+        String corePath = Files.createTempDirectory("RangeScanBenchmark").toString();
+        CoreConfigurationDefaultImpl coreConfiguration = new CoreConfigurationDefaultImpl(corePath);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,new IncentiveDefaultImpl(),new ProofOfWorkConsensusImpl(),new StackBasedVirtualMachine(null),null);
+        blockchainDatabase.recoverUnspentTransactionOutput();
+        blockchainDatabase.recoverBlockFile();
+        blockchainDatabase.recoverHashAddressFilter();
+        blockchainDatabase.recoverBlockTimestampIndex();
+        List<BlockDto> blockDtos = generateBlockDtos();
+        if(blockchainDatabase.addBlockDtos(blockDtos) != BLOCK_COUNT){
+            throw new RuntimeException("add blocks failed.");
+        }
+        long firstTimestamp = blockDtos.get(0).getTimestamp();
+        long fromTimestamp = firstTimestamp + BLOCK_COUNT / 4 * Setting.IncentiveSetting.BLOCK_TIME;
+        long toTimestamp = firstTimestamp + BLOCK_COUNT * 3 / 4 * Setting.IncentiveSetting.BLOCK_TIME;
+        //前几轮包含预热
+        for(int i=0; i<ROUND_COUNT; i++){
+            benchmark(blockchainDatabase, fromTimestamp, toTimestamp);
+        }
+        System.exit(0);
+    }
+
+    private static void benchmark(BlockchainDatabaseDefaultImpl blockchainDatabase, long fromTimestamp, long toTimestamp) {
+        //逐个按高度查询区块，筛选时间范围内的区块
+        blockchainDatabase.getBlockCache().invalidateAll();
+        long start = System.nanoTime();
+        int queryBlockCount = 0;
+        for(long blockHeight=1; blockHeight<=blockchainDatabase.queryBlockchainHeight(); blockHeight++){
+            Block block = blockchainDatabase.queryBlockByBlockHeight(blockHeight);
+            if(block.getTimestamp() >= fromTimestamp && block.getTimestamp() <= toTimestamp){
+                queryBlockCount++;
+            }
+        }
+        System.out.println(String.format("query blocks by timestamp: %s ms, %s blocks.", (System.nanoTime() - start) / 1000000, queryBlockCount));
+
+        start = System.nanoTime();
+        int scanBlockCount = 0;
+        try (BlockScanner blockScanner = blockchainDatabase.scanBlocksByBlockTimestamp(fromTimestamp, toTimestamp)) {
+            while (blockScanner.next() != null){
+                scanBlockCount++;
+            }
+        }
+        System.out.println(String.format("scan blocks by timestamp: %s ms, %s blocks.", (System.nanoTime() - start) / 1000000, scanBlockCount));
+
+        //逐个按高度查询区块里的交易
+        long fromBlockHeight = BLOCK_COUNT / 4;
+        long toBlockHeight = BLOCK_COUNT * 3 / 4;
+        blockchainDatabase.getBlockCache().invalidateAll();
+        blockchainDatabase.getTransactionCache().invalidateAll();
+        start = System.nanoTime();
+        int queryTransactionCount = 0;
+        for(long blockHeight=fromBlockHeight; blockHeight<=toBlockHeight; blockHeight++){
+            queryTransactionCount += blockchainDatabase.queryTransactionsByBlockHeight(blockHeight).size();
+        }
+        System.out.println(String.format("query transactions by block height: %s ms, %s transactions.", (System.nanoTime() - start) / 1000000, queryTransactionCount));
+
+        start = System.nanoTime();
+        int scanTransactionCount = 0;
+        try (TransactionScanner transactionScanner = blockchainDatabase.scanTransactionsByBlockHeight(fromBlockHeight, toBlockHeight)) {
+            while (transactionScanner.next() != null){
+                scanTransactionCount++;
+            }
+        }
+        System.out.println(String.format("scan transactions by block height: %s ms, %s transactions.", (System.nanoTime() - start) / 1000000, scanTransactionCount));
+
+        if(queryBlockCount != scanBlockCount || queryTransactionCount != scanTransactionCount){
+            throw new RuntimeException("scan result mismatch.");
+        }
+    }
+
+    /**
+     * 生成区块：每个区块只有挖矿奖励交易，区块时间戳间隔一个出块时间。
+     */
+    private static List<BlockDto> generateBlockDtos() {
+        List<BlockDto> blockDtos = new ArrayList<>();
+        String previousHash = Setting.GenesisBlockSetting.HASH;
+        long timestamp = System.currentTimeMillis() - (BLOCK_COUNT + 10L) * Setting.IncentiveSetting.BLOCK_TIME;
+        BigInteger difficulty = new BigInteger(Setting.GenesisBlockSetting.DIFFICULTY, 16);
+        for(int height=1; height<=BLOCK_COUNT; height++){
+            TransactionOutput output = new TransactionOutput();
+            String address = AccountUtil.randomAccount().getAddress();
+            output.setAddress(address);
+            output.setValue(incentiveValue(height));
+            output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+            Transaction transaction = new Transaction();
+            transaction.setTransactionType(TransactionType.GENESIS_TRANSACTION);
+            transaction.setOutputs(new ArrayList<>(Collections.singletonList(output)));
+            transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+            List<Transaction> transactions = new ArrayList<>(Collections.singletonList(transaction));
+            Block block = new Block();
+            block.setTimestamp(timestamp + height * Setting.IncentiveSetting.BLOCK_TIME);
+            block.setPreviousHash(previousHash);
+            block.setHeight(height);
+            block.setTransactions(transactions);
+            block.setMerkleTreeRoot(BlockTool.calculateBlockMerkleTreeRoot(block));
+            do {
+                block.setNonce(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+                block.setHash(BlockTool.calculateBlockHash(block));
+            } while (difficulty.compareTo(new BigInteger(block.getHash(), 16)) <= 0);
+            blockDtos.add(Model2DtoTool.block2BlockDto(block));
+            previousHash = block.getHash();
+        }
+        return blockDtos;
+    }
+    private static long incentiveValue(long blockHeight) {
+        long incentiveValue = Setting.IncentiveSetting.BLOCK_INIT_INCENTIVE;
+        for(long i=(blockHeight-1)/Setting.IncentiveSetting.INCENTIVE_HALVING_INTERVAL; i>0; i--){
+            incentiveValue /= 2;
+        }
+        return incentiveValue;
+    }
+}
@@ -0,0 +1,178 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.ReadView;
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockDtoTool;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.util.FileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class ReadViewTest {
+
+    /**
+     * 读视图打开期间其它线程新增、删除区块，读视图中读取的仍然是打开那一刻的数据。
+     */
+    @Test
+    public void snapshotTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(30,5);
+        Assert.assertEquals(20,blockchainDatabase.addBlockDtos(blockDtos.subList(0,20)));
+        Block tailBlock = blockchainDatabase.queryTailBlock();
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            Assert.assertEquals(20,readView.getBlockchainHeight());
+            runInOtherThread(() -> blockchainDatabase.addBlockDtos(blockDtos.subList(20,30)));
+            Assert.assertEquals(20,blockchainDatabase.queryBlockchainHeight());
+            Assert.assertEquals(tailBlock.getHash(),blockchainDatabase.queryTailBlock().getHash());
+            Assert.assertNull(blockchainDatabase.queryBlockByBlockHeight(21));
+            Assert.assertNull(blockchainDatabase.queryBlockByBlockHash(BlockDtoTool.calculateBlockHash(blockDtos.get(20))));
+
+            runInOtherThread(() -> blockchainDatabase.deleteBlocks(11));
+            Assert.assertEquals(20,blockchainDatabase.queryBlockchainHeight());
+            Block block = blockchainDatabase.queryBlockByBlockHeight(15);
+            Assert.assertEquals(BlockDtoTool.calculateBlockHash(blockDtos.get(14)),block.getHash());
+            Assert.assertEquals(block.getTransactionCount(),blockchainDatabase.queryTransactionsByBlockHeight(15).size());
+            Assert.assertNotNull(blockchainDatabase.queryTransactionByTransactionHeight(blockchainDatabase.queryBlockchainTransactionHeight()));
+        }
+        Assert.assertEquals(10,blockchainDatabase.queryBlockchainHeight());
+        Assert.assertNull(blockchainDatabase.queryBlockByBlockHeight(15));
+    }
+
+    /**
+     * 同一线程中嵌套打开读视图时返回外层的读视图，最外层关闭之后才读取最新的数据。
+     */
+    @Test
+    public void nestedTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(20,5);
+        Assert.assertEquals(10,blockchainDatabase.addBlockDtos(blockDtos.subList(0,10)));
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            try (ReadView nestedReadView = blockchainDatabase.openReadView()) {
+                Assert.assertSame(readView,nestedReadView);
+            }
+            runInOtherThread(() -> blockchainDatabase.addBlockDtos(blockDtos.subList(10,20)));
+            Assert.assertEquals(10,blockchainDatabase.queryBlockchainHeight());
+        }
+        Assert.assertEquals(20,blockchainDatabase.queryBlockchainHeight());
+        //其它线程不受当前线程读视图的影响
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            runInOtherThread(() -> {
+                try (ReadView otherReadView = blockchainDatabase.openReadView()) {
+                    Assert.assertNotSame(readView,otherReadView);
+                }
+            });
+        }
+    }
+
+    /**
+     * 只能在打开读视图的线程中关闭读视图，在其它线程中关闭时读视图保持打开。
+     */
+    @Test
+    public void closeThreadTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(20,5);
+        Assert.assertEquals(10,blockchainDatabase.addBlockDtos(blockDtos.subList(0,10)));
+        ReadView readView = blockchainDatabase.openReadView();
+        AtomicReference<RuntimeException> exception = new AtomicReference<>();
+        runInOtherThread(() -> {
+            try {
+                readView.close();
+            } catch (RuntimeException e){
+                exception.set(e);
+            }
+        });
+        Assert.assertEquals("read view must be closed in the thread that opened it.",exception.get().getMessage());
+        runInOtherThread(() -> blockchainDatabase.addBlockDtos(blockDtos.subList(10,20)));
+        Assert.assertEquals(10,blockchainDatabase.queryBlockchainHeight());
+        readView.close();
+        Assert.assertEquals(20,blockchainDatabase.queryBlockchainHeight());
+    }
+
+    /**
+     * 读视图打开期间删除区块不截断区块文件，读视图仍然可以读取被删除的区块里的交易；关闭之后启动时的恢复截断没有被引用的数据。
+     */
+    @Test
+    public void truncateTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,4096);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(30,5);
+        Assert.assertEquals(30,blockchainDatabase.addBlockDtos(blockDtos));
+        long blockFileLength = blockFileLength(coreConfiguration);
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            runInOtherThread(() -> blockchainDatabase.deleteBlocks(11));
+            Assert.assertEquals(blockFileLength,blockFileLength(coreConfiguration));
+            for(long blockHeight=11; blockHeight<=30; blockHeight++){
+                Assert.assertEquals(blockchainDatabase.queryBlockByBlockHeight(blockHeight).getTransactionCount(),blockchainDatabase.queryTransactionsByBlockHeight(blockHeight).size());
+            }
+        }
+        Assert.assertEquals(blockFileLength,blockFileLength(coreConfiguration));
+        blockchainDatabase.recoverBlockFile();
+        Assert.assertTrue(blockFileLength(coreConfiguration) < blockFileLength);
+    }
+
+    /**
+     * 读视图打开期间裁剪区块不删除区块文件的数据段，读视图仍然可以读取被裁剪的区块里的交易。
+     */
+    @Test
+    public void deleteSegmentTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(10,1024);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        List<BlockDto> blockDtos = BlockchainDatabaseTestTool.generateBlockDtos(40,5);
+        Assert.assertEquals(40,blockchainDatabase.addBlockDtos(blockDtos));
+        File firstSegmentFile = new File(FileUtil.newPath(coreConfiguration.getCorePath(),BlockchainDatabaseDefaultImpl.BLOCK_FILE_DIRECTORY_NAME),"blk00000000.dat");
+        Assert.assertTrue(firstSegmentFile.exists());
+        try (ReadView readView = blockchainDatabase.openReadView()) {
+            runInOtherThread(blockchainDatabase::pruneBlocks);
+            Assert.assertTrue(firstSegmentFile.exists());
+            Assert.assertEquals(0,blockchainDatabase.queryPrunedBlockHeight());
+            Assert.assertEquals(blockchainDatabase.queryBlockByBlockHeight(1).getTransactionCount(),blockchainDatabase.queryTransactionsByBlockHeight(1).size());
+        }
+        Assert.assertEquals(30,blockchainDatabase.queryPrunedBlockHeight());
+        Assert.assertNull(blockchainDatabase.queryTransactionsByBlockHeight(1));
+    }
+
+
+    private void runInOtherThread(Runnable runnable) {
+        AtomicReference<Throwable> throwable = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+            } catch (Throwable e){
+                throwable.set(e);
+            }
+        });
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if(throwable.get() != null){
+            throw new RuntimeException(throwable.get());
+        }
+    }
+    private long blockFileLength(CoreConfigurationDefaultImpl coreConfiguration) {
+        long length = 0;
+        File[] files = new File(FileUtil.newPath(coreConfiguration.getCorePath(),BlockchainDatabaseDefaultImpl.BLOCK_FILE_DIRECTORY_NAME)).listFiles();
+        if(files != null){
+            for(File file:files){
+                length += file.length();
+            }
+        }
+        return length;
+    }
+}
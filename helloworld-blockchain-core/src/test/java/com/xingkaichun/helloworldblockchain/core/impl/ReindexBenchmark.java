@@ -0,0 +1,152 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.BlockTool;
+import com.xingkaichun.helloworldblockchain.core.tools.Model2DtoTool;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import com.xingkaichun.helloworldblockchain.netcore.dto.BlockDto;
+import com.xingkaichun.helloworldblockchain.setting.Setting;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * 重建索引基准测试：比较新增区块(重新同步区块耗时的下限，不包含网络传输)与由数据库中的区块离线重建索引的耗时。
+ * 重建后的索引与新增区块时写入的索引完全相同，由ReindexTest校验。
+ * 不是单元测试，需要手动运行main方法。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class ReindexBenchmark {
+
+    //区块数量，不超过第一次调整挖矿难度的区块高度，生成的区块都使用创世区块的难度
+    private static final int BLOCK_COUNT = 6000;
+    //每个区块花费SPEND_DISTANCE个区块之前的挖矿奖励，花费与被花费的交易相距较远，重建时分布在不同的范围
+    private static final int SPEND_DISTANCE = 2000;
+    //花费挖矿奖励的交易的交易输出数量
+    private static final int OUTPUT_COUNT = 10;
+
+    public static void main(String[] args) throws IOException {
+        String corePath = Files.createTempDirectory("ReindexBenchmark").toString();
+        CoreConfigurationDefaultImpl coreConfiguration = new CoreConfigurationDefaultImpl(corePath){
+            @Override
+            public int getUnspentTransactionOutputCacheFlushThreshold() {
+                //每个区块都刷盘，新增区块结束后未花费交易输出都在数据库中
+                return 1;
+            }
+        };
+        BlockchainDatabaseDefaultImpl blockchainDatabase = new BlockchainDatabaseDefaultImpl(coreConfiguration,new IncentiveDefaultImpl(),new ProofOfWorkConsensusImpl(),new StackBasedVirtualMachine(null),null);
+        blockchainDatabase.recoverUnspentTransactionOutput();
+        blockchainDatabase.recoverBlockFile();
+        blockchainDatabase.recoverHashAddressFilter();
+        blockchainDatabase.recoverBlockTimestampIndex();
+        List<BlockDto> blockDtos = generateBlockDtos();
+
+        long start = System.nanoTime();
+        if(blockchainDatabase.addBlockDtos(blockDtos) != BLOCK_COUNT){
+            throw new RuntimeException("add blocks failed.");
+        }
+        System.out.println(String.format("add blocks: %s ms, %s blocks.", (System.nanoTime() - start) / 1000000, BLOCK_COUNT));
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        start = System.nanoTime();
+        blockchainDatabase.reindex(parallelism);
+        System.out.println(String.format("reindex: %s ms, parallelism %s.", (System.nanoTime() - start) / 1000000, parallelism));
+        System.exit(0);
+    }
+
+    /**
+     * 生成区块：每个区块有一个挖矿奖励交易；高度大于SPEND_DISTANCE的区块还有一笔交易，
+     * 花费SPEND_DISTANCE个区块之前的挖矿奖励，产生OUTPUT_COUNT个新地址的交易输出。
+     */
+    private static List<BlockDto> generateBlockDtos() {
+        List<BlockDto> blockDtos = new ArrayList<>();
+        List<Account> coinbaseAccounts = new ArrayList<>();
+        List<TransactionOutput> coinbaseOutputs = new ArrayList<>();
+        String previousHash = Setting.GenesisBlockSetting.HASH;
+        long timestamp = System.currentTimeMillis() - (BLOCK_COUNT + 10L) * Setting.IncentiveSetting.BLOCK_TIME;
+        BigInteger difficulty = new BigInteger(Setting.GenesisBlockSetting.DIFFICULTY, 16);
+        for(int height=1; height<=BLOCK_COUNT; height++){
+            Account minerAccount = AccountUtil.randomAccount();
+            Transaction coinbaseTransaction = transaction(TransactionType.GENESIS_TRANSACTION, null, Collections.singletonList(output(minerAccount.getAddress(), incentiveValue(height))));
+            coinbaseAccounts.add(minerAccount);
+            coinbaseOutputs.add(spendableOutput(coinbaseTransaction));
+            List<Transaction> transactions = new ArrayList<>(Collections.singletonList(coinbaseTransaction));
+            if(height > SPEND_DISTANCE){
+                transactions.add(spendTransaction(coinbaseAccounts.get(height-1-SPEND_DISTANCE), coinbaseOutputs.get(height-1-SPEND_DISTANCE)));
+            }
+            Block block = new Block();
+            block.setTimestamp(timestamp + height * Setting.IncentiveSetting.BLOCK_TIME);
+            block.setPreviousHash(previousHash);
+            block.setHeight(height);
+            block.setTransactions(transactions);
+            block.setMerkleTreeRoot(BlockTool.calculateBlockMerkleTreeRoot(block));
+            do {
+                block.setNonce(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+                block.setHash(BlockTool.calculateBlockHash(block));
+            } while (difficulty.compareTo(new BigInteger(block.getHash(), 16)) <= 0);
+            blockDtos.add(Model2DtoTool.block2BlockDto(block));
+            previousHash = block.getHash();
+        }
+        return blockDtos;
+    }
+    private static Transaction spendTransaction(Account account, TransactionOutput unspentTransactionOutput) {
+        TransactionInput input = new TransactionInput();
+        input.setUnspentTransactionOutput(unspentTransactionOutput);
+        input.setInputScript(new InputScript());
+        List<TransactionOutput> outputs = new ArrayList<>();
+        long value = unspentTransactionOutput.getValue() / OUTPUT_COUNT;
+        for(int i=0; i<OUTPUT_COUNT; i++){
+            long outputValue = i == 0 ? unspentTransactionOutput.getValue() - value * (OUTPUT_COUNT - 1) : value;
+            outputs.add(output(AccountUtil.randomAccount().getAddress(), outputValue));
+        }
+        Transaction transaction = transaction(TransactionType.STANDARD_TRANSACTION, input, outputs);
+        String signature = TransactionTool.signature(account.getPrivateKey(), transaction);
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        return transaction;
+    }
+    private static Transaction transaction(TransactionType transactionType, TransactionInput input, List<TransactionOutput> outputs) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(transactionType);
+        if(input != null){
+            transaction.setInputs(new ArrayList<>(Collections.singletonList(input)));
+        }
+        transaction.setOutputs(new ArrayList<>(outputs));
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        return transaction;
+    }
+    private static TransactionOutput output(String address, long value) {
+        TransactionOutput output = new TransactionOutput();
+        output.setAddress(address);
+        output.setValue(value);
+        output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+        return output;
+    }
+    private static TransactionOutput spendableOutput(Transaction transaction) {
+        TransactionOutput output = transaction.getOutputs().get(0);
+        TransactionOutput spendableOutput = output(output.getAddress(), output.getValue());
+        spendableOutput.setTransactionHash(transaction.getTransactionHash());
+        spendableOutput.setTransactionOutputIndex(1);
+        return spendableOutput;
+    }
+    private static long incentiveValue(long blockHeight) {
+        long incentiveValue = Setting.IncentiveSetting.BLOCK_INIT_INCENTIVE;
+        for(long i=(blockHeight-1)/Setting.IncentiveSetting.INCENTIVE_HALVING_INTERVAL; i>0; i--){
+            incentiveValue /= 2;
+        }
+        return incentiveValue;
+    }
+}
@@ -0,0 +1,53 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.tools.BlockchainDatabaseKeyTool;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvIterator;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+public class ReindexTest {
+
+    /**
+     * 重建后的索引与新增区块时写入的索引完全相同。
+     * 交易超过一个分区的交易数量，后一个分区里的交易花费了前一个分区里的挖矿奖励。
+     */
+    @Test
+    public void reindexTest() throws IOException
+    {
+        CoreConfigurationDefaultImpl coreConfiguration = BlockchainDatabaseTestTool.createCoreConfiguration(0,64*1024);
+        BlockchainDatabaseDefaultImpl blockchainDatabase = BlockchainDatabaseTestTool.createBlockchainDatabase(coreConfiguration);
+        Assert.assertEquals(800,blockchainDatabase.addBlockDtos(BlockchainDatabaseTestTool.generateBlockDtos(800,200)));
+        KvStore kvStore = coreConfiguration.getKvStore(BlockchainDatabaseDefaultImpl.BLOCKCHAIN_DATABASE_NAME);
+        Map<String,String> expectedIndexes = dumpIndexes(kvStore);
+
+        blockchainDatabase.reindex(4);
+        Assert.assertEquals(expectedIndexes,dumpIndexes(kvStore));
+        Assert.assertEquals(800,blockchainDatabase.queryBlockchainHeight());
+    }
+
+    /**
+     * 读取全部索引，以及区块链高度、交易高度、交易输出高度、未花费交易输出刷盘高度。
+     */
+    private Map<String,String> dumpIndexes(KvStore kvStore) {
+        Map<String,String> indexes = new TreeMap<>();
+        for(byte[] key:new byte[][]{BlockchainDatabaseKeyTool.buildBlockchainHeightKey(),BlockchainDatabaseKeyTool.buildBlockchainTransactionHeightKey(),
+                BlockchainDatabaseKeyTool.buildBlockchainTransactionOutputHeightKey(),BlockchainDatabaseKeyTool.buildUnspentTransactionOutputFlushHeightKey()}){
+            indexes.put(HexUtil.bytesToHexString(key), HexUtil.bytesToHexString(kvStore.get(key)));
+        }
+        try (KvIterator kvIterator = kvStore.iterator()) {
+            for(byte[] prefix:BlockchainDatabaseKeyTool.buildIndexKeyPrefixes()){
+                for(kvIterator.seek(prefix); kvIterator.isValid() && kvIterator.key()[0] == prefix[0]; kvIterator.next()){
+                    indexes.put(HexUtil.bytesToHexString(kvIterator.key()), HexUtil.bytesToHexString(kvIterator.value()));
+                }
+            }
+        }
+        return indexes;
+    }
+}
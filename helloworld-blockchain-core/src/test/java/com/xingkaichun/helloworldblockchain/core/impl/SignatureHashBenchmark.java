@@ -0,0 +1,131 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.script.Script;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 待签名数据基准测试：1、10、100个交易输入的交易，每个交易输入计算一次待签名数据与每笔交易计算一次待签名数据，签名、校验脚本的耗时。
+ * 不是单元测试，需要手动运行main方法。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class SignatureHashBenchmark {
+
+    private static final int[] INPUT_COUNTS = new int[]{1, 10, 100};
+    //每种交易重复的次数
+    private static final int REPEAT_COUNT = 20;
+
+    public static void main(String[] args) {
+        StackBasedVirtualMachine virtualMachine = new StackBasedVirtualMachine(null);
+        //预热
+        benchmark(virtualMachine, 10, false);
+        for(int inputCount:INPUT_COUNTS){
+            benchmark(virtualMachine, inputCount, true);
+        }
+        System.exit(0);
+    }
+
+    private static void benchmark(StackBasedVirtualMachine virtualMachine, int inputCount, boolean print) {
+        List<Account> accounts = new ArrayList<>();
+        Transaction transaction = unsignedTransaction(inputCount, accounts);
+
+        //待签名数据
+        long start = System.nanoTime();
+        for(int r=0; r<REPEAT_COUNT; r++){
+            TransactionTool.signatureHashAll(transaction);
+        }
+        long signatureHashNanos = (System.nanoTime() - start) / REPEAT_COUNT;
+
+        //签名：每个交易输入计算一次待签名数据
+        start = System.nanoTime();
+        for(int r=0; r<REPEAT_COUNT; r++){
+            for(int i=0; i<inputCount; i++){
+                Account account = accounts.get(i);
+                String signature = TransactionTool.signature(account.getPrivateKey(), transaction);
+                transaction.getInputs().get(i).setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+            }
+        }
+        long perInputSignNanos = (System.nanoTime() - start) / REPEAT_COUNT;
+
+        //签名：每笔交易计算一次待签名数据
+        start = System.nanoTime();
+        for(int r=0; r<REPEAT_COUNT; r++){
+            String signatureHashAll = TransactionTool.signatureHashAll(transaction);
+            for(int i=0; i<inputCount; i++){
+                Account account = accounts.get(i);
+                String signature = AccountUtil.signature(account.getPrivateKey(), signatureHashAll);
+                transaction.getInputs().get(i).setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+            }
+        }
+        long perTransactionSignNanos = (System.nanoTime() - start) / REPEAT_COUNT;
+
+        //校验：每个交易输入计算一次待签名数据
+        start = System.nanoTime();
+        for(int r=0; r<REPEAT_COUNT; r++){
+            for(TransactionInput input:transaction.getInputs()){
+                Script script = ScriptTool.createScript(input.getInputScript(), input.getUnspentTransactionOutput().getOutputScript());
+                if(virtualMachine.executeScript(transaction, script).size() != 1){
+                    throw new RuntimeException("check transaction script failed.");
+                }
+            }
+        }
+        long perInputCheckNanos = (System.nanoTime() - start) / REPEAT_COUNT;
+
+        //校验：每笔交易计算一次待签名数据
+        start = System.nanoTime();
+        for(int r=0; r<REPEAT_COUNT; r++){
+            if(!virtualMachine.checkTransactionScript(transaction)){
+                throw new RuntimeException("check transaction script failed.");
+            }
+        }
+        long perTransactionCheckNanos = (System.nanoTime() - start) / REPEAT_COUNT;
+
+        if(print){
+            System.out.println(String.format("%s inputs: signature hash %s us; sign %s us -> %s us; check %s us -> %s us.",
+                    inputCount, signatureHashNanos / 1000, perInputSignNanos / 1000, perTransactionSignNanos / 1000,
+                    perInputCheckNanos / 1000, perTransactionCheckNanos / 1000));
+        }
+    }
+
+    private static Transaction unsignedTransaction(int inputCount, List<Account> accounts) {
+        List<TransactionInput> inputs = new ArrayList<>();
+        for(int i=0; i<inputCount; i++){
+            Account account = AccountUtil.randomAccount();
+            TransactionOutput unspentTransactionOutput = output(account.getAddress(), 100);
+            unspentTransactionOutput.setTransactionHash(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+            unspentTransactionOutput.setTransactionOutputIndex(1);
+            TransactionInput input = new TransactionInput();
+            input.setUnspentTransactionOutput(unspentTransactionOutput);
+            input.setInputScript(new InputScript());
+            inputs.add(input);
+            accounts.add(account);
+        }
+        List<TransactionOutput> outputs = new ArrayList<>();
+        outputs.add(output(AccountUtil.randomAccount().getAddress(), 100L * inputCount));
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(TransactionType.STANDARD_TRANSACTION);
+        transaction.setInputs(inputs);
+        transaction.setOutputs(outputs);
+        return transaction;
+    }
+    private static TransactionOutput output(String address, long value) {
+        TransactionOutput output = new TransactionOutput();
+        output.setAddress(address);
+        output.setValue(value);
+        output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+        return output;
+    }
+}
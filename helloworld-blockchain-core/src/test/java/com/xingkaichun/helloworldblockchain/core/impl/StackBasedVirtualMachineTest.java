@@ -0,0 +1,135 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.model.script.*;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+public class StackBasedVirtualMachineTest {
+
+    private final Random random = new Random(20211018);
+
+    /**
+     * 随机脚本：编译后执行与逐个解码十六进制字符串执行的结果相同。
+     */
+    @Test
+    public void compiledScriptTest()
+    {
+        StackBasedVirtualMachine virtualMachine = new StackBasedVirtualMachine(null);
+        Account account = AccountUtil.randomAccount();
+        Transaction transaction = transaction(account);
+        String signatureHashAll = TransactionTool.signatureHashAll(transaction);
+        String signature = AccountUtil.signature(account.getPrivateKey(), signatureHashAll);
+        String[] elements = new String[]{"00", "01", "02", "03", "04", "05", "0001", "", "ff",
+                signature, account.getPublicKey(), account.getPublicKeyHash(), AccountUtil.randomAccount().getPublicKey()};
+        for(int i=0; i<20000; i++){
+            Script script = new Script();
+            int size = random.nextInt(10);
+            for(int j=0; j<size; j++){
+                script.add(elements[random.nextInt(elements.length)]);
+            }
+            Assert.assertNotNull(ScriptTool.compileScript(script));
+            Assert.assertEquals(executeStringScript(virtualMachine, signatureHashAll, script), executeScript(virtualMachine, signatureHashAll, script));
+        }
+        //P2PKH脚本
+        Script script = ScriptTool.createScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()),
+                ScriptTool.createPayToPublicKeyHashOutputScript(account.getAddress()));
+        Assert.assertEquals("[00]", executeScript(virtualMachine, signatureHashAll, script));
+        Assert.assertEquals(executeStringScript(virtualMachine, signatureHashAll, script), executeScript(virtualMachine, signatureHashAll, script));
+    }
+
+    /**
+     * 校验交易输入脚本：P2PKH快速校验、编译后执行、不能编译的脚本解释执行，结果相同。
+     */
+    @Test
+    public void checkTransactionInputScriptTest()
+    {
+        StackBasedVirtualMachine virtualMachine = new StackBasedVirtualMachine(new VerifiedSignatureCache(1000));
+        Account account = AccountUtil.randomAccount();
+        Transaction transaction = transaction(account);
+        String signatureHashAll = TransactionTool.signatureHashAll(transaction);
+        String signature = AccountUtil.signature(account.getPrivateKey(), signatureHashAll);
+        TransactionInput input = transaction.getInputs().get(0);
+
+        //P2PKH
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+        Assert.assertTrue(virtualMachine.checkTransactionInputScript(transaction, signatureHashAll, 0));
+        //命中已校验签名缓存
+        Assert.assertTrue(virtualMachine.checkTransactionInputScript(transaction, signatureHashAll, 0));
+        //公钥与公钥哈希不匹配
+        Account otherAccount = AccountUtil.randomAccount();
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, otherAccount.getPublicKey()));
+        Assert.assertFalse(virtualMachine.checkTransactionInputScript(transaction, signatureHashAll, 0));
+        //签名错误
+        String otherSignature = AccountUtil.signature(otherAccount.getPrivateKey(), signatureHashAll);
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(otherSignature, account.getPublicKey()));
+        Assert.assertFalse(virtualMachine.checkTransactionInputScript(transaction, signatureHashAll, 0));
+
+        //大写的签名不能编译，解释执行时十六进制字符串不区分大小写
+        InputScript upperCaseInputScript = ScriptTool.createPayToPublicKeyHashInputScript(signature.toUpperCase(), account.getPublicKey());
+        Assert.assertNull(ScriptTool.compileScript(upperCaseInputScript));
+        input.setInputScript(upperCaseInputScript);
+        Assert.assertTrue(virtualMachine.checkTransactionInputScript(transaction, signatureHashAll, 0));
+        //大写的公钥哈希不能编译，解释执行时与计算出的公钥哈希不相等
+        input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+        OutputScript outputScript = input.getUnspentTransactionOutput().getOutputScript();
+        outputScript.set(3, outputScript.get(3).toUpperCase());
+        Assert.assertFalse(virtualMachine.checkTransactionInputScript(transaction, signatureHashAll, 0));
+    }
+
+
+    private String executeScript(StackBasedVirtualMachine virtualMachine, String signatureHashAll, Script script) {
+        try {
+            return virtualMachine.executeScriptWithSignatureHashAll(null, signatureHashAll, script).toString();
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+    private String executeStringScript(StackBasedVirtualMachine virtualMachine, String signatureHashAll, Script script) {
+        try {
+            return virtualMachine.executeStringScript(signatureHashAll, script).toString();
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private Transaction transaction(Account account) {
+        TransactionOutput unspentTransactionOutput = new TransactionOutput();
+        unspentTransactionOutput.setTransactionHash(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+        unspentTransactionOutput.setTransactionOutputIndex(1);
+        unspentTransactionOutput.setAddress(account.getAddress());
+        unspentTransactionOutput.setValue(100);
+        unspentTransactionOutput.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(account.getAddress()));
+        TransactionInput input = new TransactionInput();
+        input.setUnspentTransactionOutput(unspentTransactionOutput);
+        input.setInputScript(new InputScript());
+        List<TransactionInput> inputs = new ArrayList<>();
+        inputs.add(input);
+        TransactionOutput output = new TransactionOutput();
+        String address = AccountUtil.randomAccount().getAddress();
+        output.setAddress(address);
+        output.setValue(100);
+        output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+        List<TransactionOutput> outputs = new ArrayList<>();
+        outputs.add(output);
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(TransactionType.STANDARD_TRANSACTION);
+        transaction.setInputs(inputs);
+        transaction.setOutputs(outputs);
+        return transaction;
+    }
+}
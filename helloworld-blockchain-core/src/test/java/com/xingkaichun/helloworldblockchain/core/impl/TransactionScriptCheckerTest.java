@@ -0,0 +1,100 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.VirtualMachine;
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.core.tools.ScriptTool;
+import com.xingkaichun.helloworldblockchain.core.tools.TransactionTool;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+
+public class TransactionScriptCheckerTest {
+
+    @Test
+    public void checkTransactionScriptsTest()
+    {
+        VirtualMachine virtualMachine = new StackBasedVirtualMachine(null);
+        TransactionScriptChecker serialChecker = new TransactionScriptChecker(virtualMachine, null);
+        TransactionScriptChecker parallelChecker = new TransactionScriptChecker(virtualMachine, new ForkJoinPool(4));
+
+        //12笔交易，第i笔交易有i%3+1个交易输入，共24个交易输入
+        List<Transaction> transactions = new ArrayList<>();
+        for(int i=0;i<12;i++){
+            transactions.add(transaction(i % 3 + 1));
+        }
+        Assert.assertTrue(serialChecker.checkTransactionScripts(transactions));
+        Assert.assertTrue(parallelChecker.checkTransactionScripts(transactions));
+
+        //第一个、最后一个以及其它位置的交易输入的签名错误时，校验结果都与依次校验相同
+        Account otherAccount = AccountUtil.randomAccount();
+        int inputPosition = 0;
+        for(Transaction transaction:transactions){
+            for(TransactionInput input:transaction.getInputs()){
+                if(inputPosition++ % 5 != 0 && inputPosition != 24){
+                    continue;
+                }
+                InputScript inputScript = input.getInputScript();
+                String otherSignature = TransactionTool.signature(otherAccount.getPrivateKey(), transaction);
+                input.setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(otherSignature, inputScript.get(3)));
+                boolean expected = true;
+                for(Transaction t:transactions){
+                    expected &= virtualMachine.checkTransactionScript(t);
+                }
+                Assert.assertFalse(expected);
+                Assert.assertEquals(expected, serialChecker.checkTransactionScripts(transactions));
+                Assert.assertEquals(expected, parallelChecker.checkTransactionScripts(transactions));
+                input.setInputScript(inputScript);
+            }
+        }
+        Assert.assertTrue(parallelChecker.checkTransactionScripts(transactions));
+    }
+
+    private Transaction transaction(int inputCount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionType(TransactionType.STANDARD_TRANSACTION);
+        List<TransactionInput> inputs = new ArrayList<>();
+        List<Account> inputAccounts = new ArrayList<>();
+        for(int i=0;i<inputCount;i++){
+            Account account = AccountUtil.randomAccount();
+            TransactionOutput unspentTransactionOutput = new TransactionOutput();
+            unspentTransactionOutput.setTransactionHash(HexUtil.bytesToHexString(RandomUtil.random32Bytes()));
+            unspentTransactionOutput.setTransactionOutputIndex(1);
+            unspentTransactionOutput.setAddress(account.getAddress());
+            unspentTransactionOutput.setValue(100);
+            unspentTransactionOutput.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(account.getAddress()));
+            TransactionInput input = new TransactionInput();
+            input.setUnspentTransactionOutput(unspentTransactionOutput);
+            input.setInputScript(new InputScript());
+            inputs.add(input);
+            inputAccounts.add(account);
+        }
+        transaction.setInputs(inputs);
+        TransactionOutput output = new TransactionOutput();
+        String address = AccountUtil.randomAccount().getAddress();
+        output.setAddress(address);
+        output.setValue(100L * inputCount);
+        output.setOutputScript(ScriptTool.createPayToPublicKeyHashOutputScript(address));
+        List<TransactionOutput> outputs = new ArrayList<>();
+        outputs.add(output);
+        transaction.setOutputs(outputs);
+        for(int i=0;i<inputCount;i++){
+            Account account = inputAccounts.get(i);
+            String signature = TransactionTool.signature(account.getPrivateKey(), transaction);
+            inputs.get(i).setInputScript(ScriptTool.createPayToPublicKeyHashInputScript(signature, account.getPublicKey()));
+        }
+        transaction.setTransactionHash(TransactionTool.calculateTransactionHash(transaction));
+        return transaction;
+    }
+}
@@ -0,0 +1,76 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.core.tools.BlockchainDatabaseKeyTool;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvWrite;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvWriteActionEnum;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvWriteBatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class UnspentTransactionOutputCacheTest {
+
+    private static final String HASH = "53b780303a801edbf75fe3463799547daf88ae152c06d16769218cec78b5d48e";
+
+    @Test
+    public void flushTest()
+    {
+        UnspentTransactionOutputCache cache = new UnspentTransactionOutputCache(BlockchainDatabaseKeyTool.TRANSACTION_OUTPUT_ID_KEY_BYTE_COUNT,100000);
+        for(int i=0;i<5000;i++){
+            cache.putDirtyUnspent(key(i),i);
+        }
+        cache.putDirtySpent(key(7));
+        Assert.assertEquals(5000,cache.getDirtyCount());
+        Assert.assertEquals(UnspentTransactionOutputCache.SPENT,cache.get(key(7)));
+        Assert.assertEquals(8,cache.get(key(8)));
+        Assert.assertEquals(UnspentTransactionOutputCache.ABSENT,cache.get(key(5000)));
+
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
+        cache.writeDirty(kvWriteBatch);
+        int putCount = 0;
+        int deleteCount = 0;
+        for(KvWrite kvWrite:kvWriteBatch.getKvWrites()){
+            if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.ADD){
+                putCount++;
+            }else {
+                deleteCount++;
+            }
+        }
+        Assert.assertEquals(4999,putCount);
+        Assert.assertEquals(1,deleteCount);
+
+        //刷盘后，已花费的缓存项被移除，未花费的缓存项变为干净的
+        cache.markClean();
+        Assert.assertFalse(cache.isDirty());
+        Assert.assertEquals(4999,cache.getSize());
+        Assert.assertEquals(UnspentTransactionOutputCache.ABSENT,cache.get(key(7)));
+        Assert.assertEquals(8,cache.get(key(8)));
+    }
+
+    @Test
+    public void putCleanTest()
+    {
+        UnspentTransactionOutputCache cache = new UnspentTransactionOutputCache(BlockchainDatabaseKeyTool.TRANSACTION_OUTPUT_ID_KEY_BYTE_COUNT,3);
+        cache.putClean(key(1),1,cache.getGeneration());
+        cache.putClean(key(2),2,cache.getGeneration());
+        cache.putDirtyUnspent(key(3),3);
+        //缓存已满时淘汰干净的缓存项，脏的缓存项不会被淘汰
+        cache.putDirtyUnspent(key(4),4);
+        Assert.assertEquals(UnspentTransactionOutputCache.ABSENT,cache.get(key(1)));
+        Assert.assertEquals(3,cache.get(key(3)));
+        Assert.assertEquals(4,cache.get(key(4)));
+
+        //读取数据库期间缓存项被移除，读取到的数据不放入缓存
+        long generation = cache.getGeneration();
+        cache.remove(key(3));
+        cache.putClean(key(5),5,generation);
+        Assert.assertEquals(UnspentTransactionOutputCache.ABSENT,cache.get(key(3)));
+        Assert.assertEquals(UnspentTransactionOutputCache.ABSENT,cache.get(key(5)));
+        Assert.assertEquals(4,cache.get(key(4)));
+        Assert.assertEquals(1,cache.getDirtyCount());
+    }
+
+    private byte[] key(long transactionOutputIndex) {
+        return BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(HASH,transactionOutputIndex);
+    }
+}
@@ -0,0 +1,65 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.setting.Setting;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvEntry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+
+public class UtxoSnapshotTest {
+
+    @Test
+    public void writeReadTest() throws IOException
+    {
+        String snapshotPath = File.createTempFile("UtxoSnapshotTest",".snapshot").getAbsolutePath();
+        String commitment = writeSnapshot(snapshotPath);
+
+        try (UtxoSnapshotReader utxoSnapshotReader = UtxoSnapshotReader.open(snapshotPath)) {
+            Assert.assertEquals(100,utxoSnapshotReader.getChainTip().getBlockchainHeight());
+            Assert.assertEquals(Setting.GenesisBlockSetting.HASH,utxoSnapshotReader.getChainTip().getTailBlockHash());
+            Assert.assertEquals(300,utxoSnapshotReader.getChainTip().getBlockchainTransactionOutputHeight());
+            for(long i=0;i<100000;i++){
+                KvEntry kvEntry = utxoSnapshotReader.next();
+                Assert.assertArrayEquals(ByteUtil.long8ToByte8(i),kvEntry.getKey());
+                Assert.assertEquals(i%7,kvEntry.getValue().length);
+            }
+            Assert.assertNull(utxoSnapshotReader.next());
+            Assert.assertEquals(commitment,utxoSnapshotReader.getCommitment());
+        }
+    }
+
+    @Test
+    public void corruptedTest() throws IOException
+    {
+        String snapshotPath = File.createTempFile("UtxoSnapshotTest",".snapshot").getAbsolutePath();
+        writeSnapshot(snapshotPath);
+        //修改第一个数据块中的一个字节
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotPath,"rw")) {
+            randomAccessFile.seek(100);
+            int b = randomAccessFile.read();
+            randomAccessFile.seek(100);
+            randomAccessFile.write(b ^ 0x01);
+        }
+        try (UtxoSnapshotReader utxoSnapshotReader = UtxoSnapshotReader.open(snapshotPath)) {
+            utxoSnapshotReader.next();
+            Assert.fail();
+        } catch (RuntimeException e){
+            Assert.assertEquals("utxo snapshot chunk is corrupted.",e.getMessage());
+        }
+    }
+
+    private String writeSnapshot(String snapshotPath) {
+        ChainTip chainTip = new ChainTip(100,Setting.GenesisBlockSetting.HASH,null,200,300);
+        try (UtxoSnapshotWriter utxoSnapshotWriter = UtxoSnapshotWriter.open(snapshotPath,chainTip)) {
+            for(long i=0;i<100000;i++){
+                utxoSnapshotWriter.write(ByteUtil.long8ToByte8(i),new byte[(int) (i%7)]);
+            }
+            return utxoSnapshotWriter.finish();
+        }
+    }
+}
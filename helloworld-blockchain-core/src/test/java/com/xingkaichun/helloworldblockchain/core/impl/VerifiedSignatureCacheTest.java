@@ -0,0 +1,57 @@
+package com.xingkaichun.helloworldblockchain.core.impl;
+
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.RandomUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class VerifiedSignatureCacheTest {
+
+    private static final byte[] PUBLIC_KEY = RandomUtil.random32Bytes();
+    private static final byte[] SIGNATURE = RandomUtil.random32Bytes();
+
+    @Test
+    public void containsTest()
+    {
+        VerifiedSignatureCache verifiedSignatureCache = new VerifiedSignatureCache(1000);
+        byte[] publicKey = randomBytes();
+        byte[] message = randomBytes();
+        byte[] signature = randomBytes();
+        Assert.assertFalse(verifiedSignatureCache.contains(publicKey,message,signature));
+        verifiedSignatureCache.add(publicKey,message,signature);
+        Assert.assertTrue(verifiedSignatureCache.contains(publicKey,message,signature));
+
+        //公钥、待签名数据、签名任意一个不同都不命中
+        Assert.assertFalse(verifiedSignatureCache.contains(randomBytes(),message,signature));
+        Assert.assertFalse(verifiedSignatureCache.contains(publicKey,randomBytes(),signature));
+        Assert.assertFalse(verifiedSignatureCache.contains(publicKey,message,randomBytes()));
+        //拼接后相同的三元组不命中
+        Assert.assertFalse(verifiedSignatureCache.contains(ByteUtil.concat(publicKey,ByteUtil.copy(message,0,1)),ByteUtil.copy(message,1,message.length-1),signature));
+    }
+
+    @Test
+    public void boundedTest()
+    {
+        //只有一组，组内有4个缓存项
+        VerifiedSignatureCache verifiedSignatureCache = new VerifiedSignatureCache(4);
+        List<byte[]> messages = new ArrayList<>();
+        for(int i=0; i<5; i++){
+            byte[] message = randomBytes();
+            messages.add(message);
+            verifiedSignatureCache.add(PUBLIC_KEY,message,SIGNATURE);
+        }
+        //第5个替换了最早放入的缓存项
+        Assert.assertFalse(verifiedSignatureCache.contains(PUBLIC_KEY,messages.get(0),SIGNATURE));
+        for(int i=1; i<5; i++){
+            Assert.assertTrue(verifiedSignatureCache.contains(PUBLIC_KEY,messages.get(i),SIGNATURE));
+        }
+    }
+
+    private byte[] randomBytes() {
+        return RandomUtil.random32Bytes();
+    }
+}
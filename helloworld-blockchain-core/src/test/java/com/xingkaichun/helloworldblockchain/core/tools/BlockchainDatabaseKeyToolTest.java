@@ -0,0 +1,63 @@
+package com.xingkaichun.helloworldblockchain.core.tools;
+
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class BlockchainDatabaseKeyToolTest {
+
+    private static final String HASH = "53b780303a801edbf75fe3463799547daf88ae152c06d16769218cec78b5d48e";
+
+    @Test
+    public void keyLengthTest()
+    {
+        Assert.assertEquals(1,BlockchainDatabaseKeyTool.buildBlockchainHeightKey().length);
+        Assert.assertEquals(33,BlockchainDatabaseKeyTool.buildHashKey(HASH).length);
+        Assert.assertEquals(9,BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(1).length);
+        Assert.assertEquals(41,BlockchainDatabaseKeyTool.buildTransactionOutputIdToUnspentTransactionOutputHeightKey(HASH,1).length);
+    }
+
+    @Test
+    public void heightKeyOrderTest()
+    {
+        long[] heights = new long[]{1,9,10,255,256,65535,65536,100000000L};
+        for(int i=1;i<heights.length;i++){
+            byte[] key1 = BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(heights[i-1]);
+            byte[] key2 = BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(heights[i]);
+            Assert.assertTrue(compareUnsigned(key1,key2) < 0);
+        }
+    }
+
+    @Test
+    public void convertLegacyKeyTest()
+    {
+        Assert.assertArrayEquals(BlockchainDatabaseKeyTool.buildBlockchainHeightKey(),
+                BlockchainDatabaseKeyTool.convertLegacyKey(ByteUtil.stringToUtf8Bytes("A#")));
+        Assert.assertArrayEquals(BlockchainDatabaseKeyTool.buildHashKey(HASH),
+                BlockchainDatabaseKeyTool.convertLegacyKey(ByteUtil.stringToUtf8Bytes("D" + HASH + "#")));
+        Assert.assertArrayEquals(BlockchainDatabaseKeyTool.buildBlockHeightToBlockKey(300),
+                BlockchainDatabaseKeyTool.convertLegacyKey(ByteUtil.stringToUtf8Bytes("E" + ByteUtil.long8ToHexString8(300) + "#")));
+        Assert.assertArrayEquals(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(300),
+                BlockchainDatabaseKeyTool.convertLegacyKey(ByteUtil.stringToUtf8Bytes("G300#")));
+        Assert.assertArrayEquals(BlockchainDatabaseKeyTool.buildTransactionOutputIdToSpentTransactionOutputHeightKey(HASH,2),
+                BlockchainDatabaseKeyTool.convertLegacyKey(ByteUtil.stringToUtf8Bytes("L" + BlockchainDatabaseKeyTool.buildTransactionOutputId(HASH,2) + "#")));
+        Assert.assertArrayEquals(BlockchainDatabaseKeyTool.buildAddressKey("1Ez69SnzzmePmZX3WpEzMKTrcBF2gpNQ55"),
+                BlockchainDatabaseKeyTool.convertLegacyKey(ByteUtil.stringToUtf8Bytes("O1Ez69SnzzmePmZX3WpEzMKTrcBF2gpNQ55#")));
+
+        //新版本的主键不会被当作旧版本的主键
+        Assert.assertNull(BlockchainDatabaseKeyTool.convertLegacyKey(BlockchainDatabaseKeyTool.buildBlockchainHeightKey()));
+        Assert.assertNull(BlockchainDatabaseKeyTool.convertLegacyKey(BlockchainDatabaseKeyTool.buildTransactionHeightToTransactionKey(35)));
+        Assert.assertNull(BlockchainDatabaseKeyTool.convertLegacyKey(BlockchainDatabaseKeyTool.buildHashKey(HASH)));
+    }
+
+    private int compareUnsigned(byte[] a, byte[] b) {
+        for(int i=0;i<Math.min(a.length,b.length);i++){
+            int compare = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if(compare != 0){
+                return compare;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -0,0 +1,153 @@
+package com.xingkaichun.helloworldblockchain.core.tools;
+
+import com.xingkaichun.helloworldblockchain.core.model.Block;
+import com.xingkaichun.helloworldblockchain.core.model.BlockUndo;
+import com.xingkaichun.helloworldblockchain.core.model.script.InputScript;
+import com.xingkaichun.helloworldblockchain.core.model.script.OperationCodeEnum;
+import com.xingkaichun.helloworldblockchain.core.model.script.OutputScript;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.Transaction;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionInput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionOutput;
+import com.xingkaichun.helloworldblockchain.core.model.transaction.TransactionType;
+import com.xingkaichun.helloworldblockchain.crypto.AccountUtil;
+import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
+import com.xingkaichun.helloworldblockchain.crypto.HexUtil;
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import com.xingkaichun.helloworldblockchain.util.JsonUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class EncodeDecodeToolTest {
+
+    @Test
+    public void encodeDecodeBlockTest()
+    {
+        Block block = new Block();
+        block.setTimestamp(1609430400000L);
+        block.setHeight(2);
+        block.setPreviousHash("53b780303a801edbf75fe3463799547daf88ae152c06d16769218cec78b5d48e");
+        block.setMerkleTreeRoot("2a8e1f6ed9a1a1c8e9f3b3c4d5e6f708192a3b4c5d6e7f8091a2b3c4d5e6f708");
+        block.setNonce("0000000000000000000000000000000000000000000000000000000000000abc");
+        block.setHash("000a2c2f3e1d9a4b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f1a0b9c8d7e6f5a4b");
+        block.setDifficulty("fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff");
+        block.setTransactionCount(1);
+        block.setPreviousTransactionHeight(1);
+
+        TransactionOutput unspentTransactionOutput = transactionOutput(1);
+        TransactionInput transactionInput = new TransactionInput();
+        transactionInput.setUnspentTransactionOutput(unspentTransactionOutput);
+        InputScript inputScript = new InputScript();
+        inputScript.add(HexUtil.bytesToHexString(OperationCodeEnum.OP_PUSHDATA.getCode()));
+        inputScript.add("3045022100c1b5d9");
+        transactionInput.setInputScript(inputScript);
+        List<TransactionInput> inputs = new ArrayList<>();
+        inputs.add(transactionInput);
+
+        List<TransactionOutput> outputs = new ArrayList<>();
+        outputs.add(transactionOutput(2));
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionHash("955c1464982a1c904b7b1029598de6ace11bd2b1955c1464982a1c904b7b1029");
+        transaction.setTransactionType(TransactionType.STANDARD_TRANSACTION);
+        transaction.setInputs(inputs);
+        transaction.setOutputs(outputs);
+        transaction.setTransactionIndex(1);
+        transaction.setTransactionHeight(2);
+        transaction.setBlockHeight(2);
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(transaction);
+        block.setTransactions(transactions);
+
+        Block resumeBlock = EncodeDecodeTool.decodeToBlock(EncodeDecodeTool.encodeBlock(block));
+        Assert.assertEquals(JsonUtil.toJson(block),JsonUtil.toJson(resumeBlock));
+
+        Transaction resumeTransaction = EncodeDecodeTool.decodeToTransaction(EncodeDecodeTool.encodeTransaction(transaction));
+        Assert.assertEquals(JsonUtil.toJson(transaction),JsonUtil.toJson(resumeTransaction));
+
+        //交易输入只编码被花费的交易输出的交易输出高度
+        byte[] bytesTransactionWithSpentTransactionOutputHeight = EncodeDecodeTool.encodeTransactionWithSpentTransactionOutputHeight(transaction);
+        Assert.assertTrue(bytesTransactionWithSpentTransactionOutputHeight.length < EncodeDecodeTool.encodeTransaction(transaction).length);
+        Transaction resumeTransactionWithSpentTransactionOutputHeight = EncodeDecodeTool.decodeToTransaction(bytesTransactionWithSpentTransactionOutputHeight);
+        Assert.assertEquals(1,resumeTransactionWithSpentTransactionOutputHeight.getInputs().get(0).getUnspentTransactionOutput().getTransactionOutputHeight());
+        Assert.assertNull(resumeTransactionWithSpentTransactionOutputHeight.getInputs().get(0).getUnspentTransactionOutput().getTransactionHash());
+        resumeTransactionWithSpentTransactionOutputHeight.getInputs().get(0).setUnspentTransactionOutput(unspentTransactionOutput);
+        Assert.assertEquals(JsonUtil.toJson(transaction),JsonUtil.toJson(resumeTransactionWithSpentTransactionOutputHeight));
+
+        //兼容旧版本的JSON编码
+        Block resumeJsonBlock = EncodeDecodeTool.decodeToBlock(ByteUtil.stringToUtf8Bytes(JsonUtil.toJson(block)));
+        Assert.assertEquals(JsonUtil.toJson(block),JsonUtil.toJson(resumeJsonBlock));
+
+        //空属性
+        Block emptyBlock = new Block();
+        Block resumeEmptyBlock = EncodeDecodeTool.decodeToBlock(EncodeDecodeTool.encodeBlock(emptyBlock));
+        Assert.assertEquals(JsonUtil.toJson(emptyBlock),JsonUtil.toJson(resumeEmptyBlock));
+    }
+
+    @Test
+    public void encodeDecodeBlockUndoTest()
+    {
+        TransactionOutput spentTransactionOutput = new TransactionOutput();
+        spentTransactionOutput.setTransactionHash("53b780303a801edbf75fe3463799547daf88ae152c06d16769218cec78b5d48e");
+        spentTransactionOutput.setTransactionOutputIndex(1);
+        spentTransactionOutput.setAddress(AccountUtil.randomAccount().getAddress());
+        spentTransactionOutput.setTransactionOutputHeight(5);
+        List<TransactionOutput> spentTransactionOutputs = new ArrayList<>();
+        spentTransactionOutputs.add(spentTransactionOutput);
+        BlockUndo blockUndo = new BlockUndo();
+        blockUndo.setTransactionHeight(3);
+        blockUndo.setTransactionCount(2);
+        blockUndo.setTransactionOutputHeight(7);
+        blockUndo.setTransactionOutputCount(3);
+        blockUndo.setSpentTransactionOutputs(spentTransactionOutputs);
+
+        BlockUndo resumeBlockUndo = EncodeDecodeTool.decodeToBlockUndo(EncodeDecodeTool.encodeBlockUndo(blockUndo));
+        Assert.assertEquals(3,resumeBlockUndo.getTransactionHeight());
+        Assert.assertEquals(2,resumeBlockUndo.getTransactionCount());
+        Assert.assertEquals(7,resumeBlockUndo.getTransactionOutputHeight());
+        Assert.assertEquals(3,resumeBlockUndo.getTransactionOutputCount());
+        Assert.assertEquals(1,resumeBlockUndo.getSpentTransactionOutputs().size());
+        TransactionOutput resumeSpentTransactionOutput = resumeBlockUndo.getSpentTransactionOutputs().get(0);
+        Assert.assertEquals(spentTransactionOutput.getTransactionHash(),resumeSpentTransactionOutput.getTransactionHash());
+        Assert.assertEquals(spentTransactionOutput.getTransactionOutputIndex(),resumeSpentTransactionOutput.getTransactionOutputIndex());
+        Assert.assertEquals(spentTransactionOutput.getAddress(),resumeSpentTransactionOutput.getAddress());
+        Assert.assertEquals(spentTransactionOutput.getTransactionOutputHeight(),resumeSpentTransactionOutput.getTransactionOutputHeight());
+
+        //旧版本的撤销记录解码为null
+        Assert.assertNull(EncodeDecodeTool.decodeToBlockUndo(new byte[]{EncodeDecodeTool.BINARY_ENCODE_VERSION,0x03,0x00}));
+    }
+
+    @Test
+    public void encodeDecodeAccountTest()
+    {
+        Account account = AccountUtil.randomAccount();
+        Account resumeAccount = EncodeDecodeTool.decodeToAccount(EncodeDecodeTool.encodeAccount(account));
+        Assert.assertEquals(JsonUtil.toJson(account),JsonUtil.toJson(resumeAccount));
+    }
+
+    private TransactionOutput transactionOutput(long transactionOutputHeight) {
+        OutputScript outputScript = new OutputScript();
+        outputScript.add(HexUtil.bytesToHexString(OperationCodeEnum.OP_DUP.getCode()));
+        outputScript.add(HexUtil.bytesToHexString(OperationCodeEnum.OP_HASH160.getCode()));
+        outputScript.add(HexUtil.bytesToHexString(OperationCodeEnum.OP_PUSHDATA.getCode()));
+        outputScript.add("955c1464982a1c904b7b1029598de6ace11bd2b1");
+        outputScript.add(HexUtil.bytesToHexString(OperationCodeEnum.OP_EQUALVERIFY.getCode()));
+        outputScript.add(HexUtil.bytesToHexString(OperationCodeEnum.OP_CHECKSIG.getCode()));
+
+        TransactionOutput transactionOutput = new TransactionOutput();
+        transactionOutput.setValue(5000000000L);
+        transactionOutput.setOutputScript(outputScript);
+        transactionOutput.setTransactionHash("53b780303a801edbf75fe3463799547daf88ae152c06d16769218cec78b5d48e");
+        transactionOutput.setTransactionOutputIndex(1);
+        transactionOutput.setAddress("1Ez69SnzzmePmZX3WpEzMKTrcBF2gpNQ55");
+        transactionOutput.setBlockHeight(1);
+        transactionOutput.setBlockHash("000a2c2f3e1d9a4b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f1a0b9c8d7e6f5a4b");
+        transactionOutput.setTransactionHeight(1);
+        transactionOutput.setTransactionIndex(1);
+        transactionOutput.setTransactionOutputHeight(transactionOutputHeight);
+        return transactionOutput;
+    }
+}
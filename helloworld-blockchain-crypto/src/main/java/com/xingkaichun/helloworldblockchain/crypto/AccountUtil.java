@@ -8,10 +8,10 @@ import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.DERSequenceGenerator;
 import org.bouncycastle.asn1.DLSequence;
-import org.bouncycastle.asn1.sec.SECNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
@@ -19,6 +19,8 @@ import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.bouncycastle.crypto.params.ECPublicKeyParameters;
 import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +31,12 @@ import java.security.SecureRandom;
 /**
  * 账户工具类
  *
+ * secp256k1曲线使用BouncyCastle的专用实现(CustomNamedCurves)：专用的模p运算，并配置了GLV自同态。
+ * 验证签名计算u1*G+u2*Q时，ECDSASigner用Shamir技巧同时计算两个点乘，自同态又把两个256位的标量拆分为四个128位的标量，
+ * 点加倍的次数减半；G的预计算表在第一次验证签名时生成，之后一直复用。
+ * 生成公钥、签名计算k*G时，使用启动时生成的G的固定基点梳状预计算表。
+ * 解码后的公钥连同它的预计算表缓存起来，同一个公钥的多个签名只解码、预计算一次。
+ *
  * @author 邢开春 409060350@qq.com
  */
 public class AccountUtil {
@@ -39,6 +47,10 @@ public class AccountUtil {
     private static final SecureRandom SECURE_RANDOM;
     private static final boolean COMPRESSED = true;
     private static final BigInteger HALF_CURVE_ORDER;
+    //缓存的已解码公钥的数量，每个公钥连同它的预计算表占用几KB内存
+    private static final int PUBLIC_KEY_CACHE_SIZE = 1024;
+    //已解码公钥缓存，主键是原始公钥，并行校验签名的线程不会在同一把锁上排队
+    private static final PublicKeyCache PUBLIC_KEY_CACHE = new PublicKeyCache(PUBLIC_KEY_CACHE_SIZE);
 
 
     private static final byte VERSION = 0x00;
@@ -48,10 +60,12 @@ public class AccountUtil {
     }
 
     static {
-        X9ECParameters params = SECNamedCurves.getByName("secp256k1");
+        X9ECParameters params = CustomNamedCurves.getByName("secp256k1");
         CURVE = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
         SECURE_RANDOM = new SecureRandom();
         HALF_CURVE_ORDER = CURVE.getN().shiftRight(1);
+        //生成G的固定基点梳状预计算表，FixedPointCombMultiplier复用它
+        FixedPointUtil.precompute(CURVE.getG());
     }
 
     /**
@@ -141,6 +155,13 @@ public class AccountUtil {
         }
     }
 
+    /**
+     * 原始公钥生成原始公钥哈希
+     */
+    public static byte[] publicKeyHashFromRawPublicKey(byte[] publicKey) {
+        return publicKeyHashFromPublicKey0(publicKey);
+    }
+
     /**
      * 地址生成公钥哈希
      */
@@ -186,6 +207,13 @@ public class AccountUtil {
         }
     }
 
+    /**
+     * 用原始公钥验证原始消息的原始签名
+     */
+    public static boolean verifyRawSignature(byte[] publicKey, byte[] message, byte[] signature) {
+        return verifySignature0(publicKey,message,signature);
+    }
+
     /**
      * 格式化私钥
      * 前置填零，返回[长度为64位][十六进制字符串][形式的]私钥
@@ -231,7 +259,7 @@ public class AccountUtil {
      * 由原始私钥推导出原始公钥
      */
     private static byte[] publicKeyFromPrivateKey0(BigInteger bigIntegerPrivateKey) {
-        byte[] bytePublicKey = CURVE.getG().multiply(bigIntegerPrivateKey).getEncoded(COMPRESSED);
+        byte[] bytePublicKey = new FixedPointCombMultiplier().multiply(CURVE.getG(), bigIntegerPrivateKey).getEncoded(COMPRESSED);
         return bytePublicKey;
     }
     /**
@@ -295,7 +323,7 @@ public class AccountUtil {
     private static boolean verifySignature0(byte[] publicKey, byte[] message, byte[] signature) {
         try {
             ECDSASigner signer = new ECDSASigner();
-            ECPublicKeyParameters ecPublicKeyParameters = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(publicKey), CURVE);
+            ECPublicKeyParameters ecPublicKeyParameters = publicKeyParameters0(publicKey);
             signer.init(false, ecPublicKeyParameters);
             ASN1InputStream decoder = new ASN1InputStream(signature);
             DLSequence seq = (DLSequence) decoder.readObject();
@@ -312,6 +340,18 @@ public class AccountUtil {
         }
     }
 
+    /**
+     * 解码公钥，先查询已解码公钥缓存。缓存的是同一个对象，它的预计算表在第一次验证签名时生成，之后验证签名时复用。
+     */
+    private static ECPublicKeyParameters publicKeyParameters0(byte[] publicKey) {
+        ECPublicKeyParameters ecPublicKeyParameters = PUBLIC_KEY_CACHE.get(publicKey);
+        if(ecPublicKeyParameters == null){
+            ecPublicKeyParameters = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(publicKey), CURVE);
+            PUBLIC_KEY_CACHE.put(publicKey, ecPublicKeyParameters);
+        }
+        return ecPublicKeyParameters;
+    }
+
     /**
      * 公钥生成base58格式地址
      */
@@ -0,0 +1,88 @@
+package com.xingkaichun.helloworldblockchain.crypto;
+
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+
+import java.util.Arrays;
+
+/**
+ * 已解码公钥缓存：原始公钥到解码后的公钥(连同它的预计算表)的映射。
+ *
+ * 主键是原始公钥字节，查询时不需要编码为十六进制字符串。
+ * 缓存是组相联的哈希表：原始公钥的哈希决定缓存项所在的组，组满时轮流替换组内的缓存项，缓存大小因此是有界的。
+ * 不同的组由不同的锁保护，并行校验签名的多个线程可以同时读写。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class PublicKeyCache {
+
+    //每组的缓存项数量
+    private static final int WAYS = 4;
+    //锁的数量
+    private static final int LOCK_COUNT = 64;
+
+    //组的数量
+    private final int setCount;
+    //全部缓存项的原始公钥，第i组第j个缓存项的下标是i*WAYS+j
+    private final byte[][] keys;
+    //全部缓存项的已解码公钥
+    private final ECPublicKeyParameters[] values;
+    //每组下一次替换的缓存项
+    private final byte[] nextWays;
+    private final Object[] locks;
+
+    /**
+     * @param maxSize 最多缓存的公钥数量，实际数量是不小于它的WAYS的倍数。
+     */
+    PublicKeyCache(int maxSize) {
+        this.setCount = Math.max(1, (maxSize + WAYS - 1) / WAYS);
+        this.keys = new byte[setCount * WAYS][];
+        this.values = new ECPublicKeyParameters[setCount * WAYS];
+        this.nextWays = new byte[setCount];
+        this.locks = new Object[LOCK_COUNT];
+        for(int i=0; i<LOCK_COUNT; i++){
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 查询已解码公钥，没有缓存时返回null。
+     */
+    ECPublicKeyParameters get(byte[] publicKey) {
+        int set = set(publicKey);
+        synchronized (locks[set % LOCK_COUNT]){
+            int index = indexOf(set, publicKey);
+            return index >= 0 ? values[index] : null;
+        }
+    }
+
+    /**
+     * 放入已解码公钥
+     */
+    void put(byte[] publicKey, ECPublicKeyParameters ecPublicKeyParameters) {
+        int set = set(publicKey);
+        synchronized (locks[set % LOCK_COUNT]){
+            if(indexOf(set, publicKey) >= 0){
+                return;
+            }
+            int index = set * WAYS + nextWays[set];
+            nextWays[set] = (byte) ((nextWays[set] + 1) % WAYS);
+            //调用方可能复用字节数组，缓存它的副本
+            keys[index] = ByteUtil.copy(publicKey, 0, publicKey.length);
+            values[index] = ecPublicKeyParameters;
+        }
+    }
+
+
+    private int set(byte[] publicKey) {
+        return (Arrays.hashCode(publicKey) & Integer.MAX_VALUE) % setCount;
+    }
+    private int indexOf(int set, byte[] publicKey) {
+        for(int way=0; way<WAYS; way++){
+            int index = set * WAYS + way;
+            if(keys[index] != null && Arrays.equals(keys[index], publicKey)){
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,60 @@
+package com.xingkaichun.helloworldblockchain.crypto;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class PublicKeyCacheTest {
+
+    private static final X9ECParameters PARAMS = CustomNamedCurves.getByName("secp256k1");
+    private static final ECDomainParameters CURVE = new ECDomainParameters(PARAMS.getCurve(), PARAMS.getG(), PARAMS.getN(), PARAMS.getH());
+
+    @Test
+    public void getTest()
+    {
+        PublicKeyCache publicKeyCache = new PublicKeyCache(1000);
+        byte[] publicKey = randomPublicKey();
+        Assert.assertNull(publicKeyCache.get(publicKey));
+        ECPublicKeyParameters ecPublicKeyParameters = decodePublicKey(publicKey);
+        publicKeyCache.put(publicKey, ecPublicKeyParameters);
+        //按内容查询，内容相同的另一个字节数组命中
+        byte[] copyPublicKey = ByteUtil.copy(publicKey, 0, publicKey.length);
+        Assert.assertSame(ecPublicKeyParameters, publicKeyCache.get(copyPublicKey));
+        Assert.assertNull(publicKeyCache.get(randomPublicKey()));
+        //缓存的是公钥的副本，放入之后修改调用方的字节数组不影响缓存
+        publicKey[1] = (byte) (publicKey[1] + 1);
+        Assert.assertSame(ecPublicKeyParameters, publicKeyCache.get(copyPublicKey));
+    }
+
+    @Test
+    public void boundedTest()
+    {
+        //只有一组，组内有4个缓存项
+        PublicKeyCache publicKeyCache = new PublicKeyCache(4);
+        List<byte[]> publicKeys = new ArrayList<>();
+        for(int i=0; i<5; i++){
+            byte[] publicKey = randomPublicKey();
+            publicKeys.add(publicKey);
+            publicKeyCache.put(publicKey, decodePublicKey(publicKey));
+        }
+        //第5个替换了最早放入的缓存项
+        Assert.assertNull(publicKeyCache.get(publicKeys.get(0)));
+        for(int i=1; i<5; i++){
+            Assert.assertNotNull(publicKeyCache.get(publicKeys.get(i)));
+        }
+    }
+
+    private byte[] randomPublicKey() {
+        return HexUtil.hexStringToBytes(AccountUtil.randomAccount().getPublicKey());
+    }
+    private ECPublicKeyParameters decodePublicKey(byte[] publicKey) {
+        return new ECPublicKeyParameters(CURVE.getCurve().decodePoint(publicKey), CURVE);
+    }
+}
@@ -0,0 +1,78 @@
+package com.xingkaichun.helloworldblockchain.crypto;
+
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequenceGenerator;
+import org.bouncycastle.asn1.DLSequence;
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+
+/**
+ * 签名、验证签名的参照实现：通用的secp256k1曲线(SECNamedCurves)，没有预计算，不缓存公钥。
+ * 与AccountUtil优化前的实现相同，用于对比测试与基准测试。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class ReferenceSignatureUtil {
+
+    static final ECDomainParameters CURVE;
+    private static final BigInteger HALF_CURVE_ORDER;
+
+    static {
+        X9ECParameters params = SECNamedCurves.getByName("secp256k1");
+        CURVE = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
+        HALF_CURVE_ORDER = CURVE.getN().shiftRight(1);
+    }
+
+    static byte[] signature(BigInteger privateKey, byte[] message) {
+        try {
+            ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+            signer.init(true, new ECPrivateKeyParameters(privateKey, CURVE));
+            BigInteger[] signature = signer.generateSignature(message);
+            BigInteger s = signature[1];
+            if (!isCanonical(s)) {
+                s = CURVE.getN().subtract(s);
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DERSequenceGenerator seq = new DERSequenceGenerator(bos);
+            seq.addObject(new ASN1Integer(signature[0]));
+            seq.addObject(new ASN1Integer(s));
+            seq.close();
+            return bos.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static boolean verifySignature(byte[] publicKey, byte[] message, byte[] signature) {
+        try {
+            ECDSASigner signer = new ECDSASigner();
+            ECPublicKeyParameters ecPublicKeyParameters = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(publicKey), CURVE);
+            signer.init(false, ecPublicKeyParameters);
+            ASN1InputStream decoder = new ASN1InputStream(signature);
+            DLSequence seq = (DLSequence) decoder.readObject();
+            ASN1Integer r = (ASN1Integer) seq.getObjectAt(0);
+            ASN1Integer s = (ASN1Integer) seq.getObjectAt(1);
+            if (!isCanonical(s.getValue())) {
+                return false;
+            }
+            decoder.close();
+            return signer.verifySignature(message, r.getValue(), s.getValue());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    static boolean isCanonical(BigInteger s) {
+        return s.compareTo(HALF_CURVE_ORDER) <= 0;
+    }
+}
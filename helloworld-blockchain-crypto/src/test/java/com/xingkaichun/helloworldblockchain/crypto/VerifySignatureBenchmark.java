@@ -0,0 +1,72 @@
+package com.xingkaichun.helloworldblockchain.crypto;
+
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+
+/**
+ * 验证签名基准测试：单线程每秒验证签名的次数，对比参照实现(优化前的实现)与AccountUtil。
+ * 不是单元测试，需要手动运行main方法。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class VerifySignatureBenchmark {
+
+    //不同公钥的数量
+    private static final int ACCOUNT_COUNT = 2000;
+    private static final int ROUND_COUNT = 5;
+
+    public static void main(String[] args) {
+        String[] publicKeys = new String[ACCOUNT_COUNT];
+        String[] messages = new String[ACCOUNT_COUNT];
+        String[] signatures = new String[ACCOUNT_COUNT];
+        for(int i=0; i<ACCOUNT_COUNT; i++){
+            Account account = AccountUtil.randomAccount();
+            publicKeys[i] = account.getPublicKey();
+            messages[i] = HexUtil.bytesToHexString(RandomUtil.random32Bytes());
+            signatures[i] = AccountUtil.signature(account.getPrivateKey(), messages[i]);
+        }
+        //前几轮是预热
+        for(int round=0; round<ROUND_COUNT; round++){
+            long start = System.nanoTime();
+            for(int i=0; i<ACCOUNT_COUNT; i++){
+                if(!ReferenceSignatureUtil.verifySignature(HexUtil.hexStringToBytes(publicKeys[i]), HexUtil.hexStringToBytes(messages[i]), HexUtil.hexStringToBytes(signatures[i]))){
+                    throw new RuntimeException("verify signature failed.");
+                }
+            }
+            long referenceNanos = System.nanoTime() - start;
+
+            //每一轮的公钥都不同，不命中已解码公钥缓存
+            String[] roundPublicKeys = publicKeys.clone();
+            String[] roundMessages = messages.clone();
+            String[] roundSignatures = signatures.clone();
+            for(int i=0; i<ACCOUNT_COUNT; i++){
+                Account account = AccountUtil.randomAccount();
+                roundPublicKeys[i] = account.getPublicKey();
+                roundSignatures[i] = AccountUtil.signature(account.getPrivateKey(), roundMessages[i]);
+            }
+            start = System.nanoTime();
+            for(int i=0; i<ACCOUNT_COUNT; i++){
+                if(!AccountUtil.verifySignature(roundPublicKeys[i], roundMessages[i], roundSignatures[i])){
+                    throw new RuntimeException("verify signature failed.");
+                }
+            }
+            long newPublicKeyNanos = System.nanoTime() - start;
+
+            //同一个公钥的多个签名
+            start = System.nanoTime();
+            for(int i=0; i<ACCOUNT_COUNT; i++){
+                if(!AccountUtil.verifySignature(roundPublicKeys[0], roundMessages[0], roundSignatures[0])){
+                    throw new RuntimeException("verify signature failed.");
+                }
+            }
+            long samePublicKeyNanos = System.nanoTime() - start;
+
+            System.out.println(String.format("round %s verifies per second per core: reference %s, new public keys %s, same public key %s.",
+                    round, perSecond(referenceNanos), perSecond(newPublicKeyNanos), perSecond(samePublicKeyNanos)));
+        }
+        System.exit(0);
+    }
+
+    private static long perSecond(long nanos) {
+        return ACCOUNT_COUNT * 1000000000L / nanos;
+    }
+}
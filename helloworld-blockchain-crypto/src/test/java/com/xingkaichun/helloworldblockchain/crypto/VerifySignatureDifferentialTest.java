@@ -0,0 +1,125 @@
+package com.xingkaichun.helloworldblockchain.crypto;
+
+import com.xingkaichun.helloworldblockchain.crypto.model.Account;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequenceGenerator;
+import org.bouncycastle.asn1.DLSequence;
+import org.bouncycastle.math.ec.ECPoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 对比测试：AccountUtil的签名、验证签名与参照实现(优化前的实现)的结果相同。
+ */
+public class VerifySignatureDifferentialTest {
+
+    private static final int ACCOUNT_COUNT = 500;
+    private static final BigInteger N = ReferenceSignatureUtil.CURVE.getN();
+
+    private final Random random = new Random(20211018);
+    private int vectorCount;
+
+    @Test
+    public void differentialTest() throws Exception
+    {
+        Account lastAccount = AccountUtil.randomAccount();
+        for(int i=0; i<ACCOUNT_COUNT; i++){
+            Account account = AccountUtil.randomAccount();
+            BigInteger privateKey = new BigInteger(account.getPrivateKey(), 16);
+            byte[] publicKey = HexUtil.hexStringToBytes(account.getPublicKey());
+            byte[] message = randomBytes(32);
+
+            //签名相同
+            byte[] signature = HexUtil.hexStringToBytes(AccountUtil.signature(account.getPrivateKey(), HexUtil.bytesToHexString(message)));
+            Assert.assertArrayEquals(ReferenceSignatureUtil.signature(privateKey, message), signature);
+            assertSame(publicKey, message, signature, true);
+
+            //消息、公钥不匹配
+            assertSame(publicKey, randomBytes(32), signature, false);
+            assertSame(HexUtil.hexStringToBytes(lastAccount.getPublicKey()), message, signature, false);
+
+            //非压缩、混合格式的公钥
+            ECPoint point = ReferenceSignatureUtil.CURVE.getCurve().decodePoint(publicKey);
+            byte[] uncompressedPublicKey = point.getEncoded(false);
+            assertSame(uncompressedPublicKey, message, signature, null);
+            byte[] hybridPublicKey = uncompressedPublicKey.clone();
+            hybridPublicKey[0] = (byte) (point.getAffineYCoord().testBitZero() ? 0x07 : 0x06);
+            assertSame(hybridPublicKey, message, signature, null);
+
+            //不合法的公钥
+            byte[] invalidPublicKey = publicKey.clone();
+            invalidPublicKey[1 + random.nextInt(32)] ^= (byte) (1 << random.nextInt(8));
+            assertSame(invalidPublicKey, message, signature, null);
+            invalidPublicKey = publicKey.clone();
+            invalidPublicKey[0] = (byte) random.nextInt(256);
+            assertSame(invalidPublicKey, message, signature, null);
+            assertSame(Arrays.copyOf(publicKey, random.nextInt(publicKey.length)), message, signature, null);
+            assertSame(new byte[]{0x00}, message, signature, null);
+
+            //r、s的边界值，高s值
+            BigInteger[] rs = decodeSignature(signature);
+            assertSame(publicKey, message, encodeSignature(rs[0], N.subtract(rs[1])), false);
+            assertSame(publicKey, message, encodeSignature(BigInteger.ZERO, rs[1]), false);
+            assertSame(publicKey, message, encodeSignature(rs[0], BigInteger.ZERO), false);
+            assertSame(publicKey, message, encodeSignature(rs[0].add(N), rs[1]), false);
+            assertSame(publicKey, message, encodeSignature(N, rs[1]), false);
+            assertSame(publicKey, message, encodeSignature(rs[0].negate(), rs[1]), false);
+
+            //被篡改的签名
+            byte[] tamperedSignature = signature.clone();
+            tamperedSignature[random.nextInt(tamperedSignature.length)] ^= (byte) (1 << random.nextInt(8));
+            assertSame(publicKey, message, tamperedSignature, null);
+            assertSame(publicKey, message, Arrays.copyOf(signature, random.nextInt(signature.length)), null);
+            assertSame(publicKey, message, randomBytes(signature.length), false);
+
+            //不是32字节的消息
+            byte[] otherLengthMessage = randomBytes(new int[]{0, 1, 20, 33, 64}[i % 5]);
+            byte[] otherLengthSignature = ReferenceSignatureUtil.signature(privateKey, otherLengthMessage);
+            assertSame(publicKey, otherLengthMessage, otherLengthSignature, null);
+
+            lastAccount = account;
+        }
+        //每个账户19组测试数据
+        Assert.assertEquals(ACCOUNT_COUNT * 19, vectorCount);
+    }
+
+    /**
+     * 两种实现的结果相同。expected不为null时，还要求结果等于expected。
+     */
+    private void assertSame(byte[] publicKey, byte[] message, byte[] signature, Boolean expected) {
+        boolean referenceResult = ReferenceSignatureUtil.verifySignature(publicKey, message, signature);
+        boolean result = AccountUtil.verifySignature(HexUtil.bytesToHexString(publicKey), HexUtil.bytesToHexString(message), HexUtil.bytesToHexString(signature));
+        Assert.assertEquals(referenceResult, result);
+        if(expected != null){
+            Assert.assertEquals(expected, result);
+        }
+        vectorCount++;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static BigInteger[] decodeSignature(byte[] signature) throws Exception {
+        try (ASN1InputStream decoder = new ASN1InputStream(signature)) {
+            DLSequence seq = (DLSequence) decoder.readObject();
+            return new BigInteger[]{((ASN1Integer) seq.getObjectAt(0)).getValue(), ((ASN1Integer) seq.getObjectAt(1)).getValue()};
+        }
+    }
+    private static byte[] encodeSignature(BigInteger r, BigInteger s) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DERSequenceGenerator seq = new DERSequenceGenerator(bos);
+        seq.addObject(new ASN1Integer(r));
+        seq.addObject(new ASN1Integer(s));
+        seq.close();
+        return bos.toByteArray();
+    }
+}
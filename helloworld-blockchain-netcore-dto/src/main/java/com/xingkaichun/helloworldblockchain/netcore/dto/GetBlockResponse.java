@@ -7,6 +7,8 @@ package com.xingkaichun.helloworldblockchain.netcore.dto;
 public class GetBlockResponse {
 
     private BlockDto block;
+    //节点已裁剪的区块高度：这个高度及之前的区块只保留了区块头，节点不能提供它们
+    private long prunedBlockHeight;
 
     public BlockDto getBlock() {
         return block;
@@ -15,4 +17,12 @@ public class GetBlockResponse {
     public void setBlock(BlockDto block) {
         this.block = block;
     }
+
+    public long getPrunedBlockHeight() {
+        return prunedBlockHeight;
+    }
+
+    public void setPrunedBlockHeight(long prunedBlockHeight) {
+        this.prunedBlockHeight = prunedBlockHeight;
+    }
 }
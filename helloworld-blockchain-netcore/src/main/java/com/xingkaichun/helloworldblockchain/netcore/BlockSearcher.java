@@ -14,6 +14,7 @@ import com.xingkaichun.helloworldblockchain.netcore.service.NodeService;
 import com.xingkaichun.helloworldblockchain.setting.Setting;
 import com.xingkaichun.helloworldblockchain.util.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +25,9 @@ import java.util.List;
  */
 public class BlockSearcher {
 
+    //每批次从远程节点获取、添加到本地区块链的区块数量
+    private static final int SYNCHRONIZE_BLOCKS_BATCH_SIZE = 100;
+
     private NetCoreConfiguration netCoreConfiguration;
     private NodeService nodeService;
     private BlockchainCore blockchainCore;
@@ -101,8 +105,8 @@ public class BlockSearcher {
      * @param slaveBlockchainCore 从区块链核心
      */
     private void copyMasterBlockchainCoreToSlaveBlockchainCore(BlockchainCore masterBlockchainCore,BlockchainCore slaveBlockchainCore) {
-        Block masterBlockchainTailBlock = masterBlockchainCore.queryTailBlock() ;
-        Block slaveBlockchainTailBlock = slaveBlockchainCore.queryTailBlock() ;
+        Block masterBlockchainTailBlock = masterBlockchainCore.queryTailBlockHeader() ;
+        Block slaveBlockchainTailBlock = slaveBlockchainCore.queryTailBlockHeader() ;
         if(masterBlockchainTailBlock == null){
             //清空slave
             slaveBlockchainCore.deleteBlocks(Setting.GenesisBlockSetting.HEIGHT);
@@ -113,12 +117,18 @@ public class BlockSearcher {
             if(slaveBlockchainTailBlock == null){
                 break;
             }
-            Block masterBlockchainBlock = masterBlockchainCore.queryBlockByBlockHeight(slaveBlockchainTailBlock.getHeight());
+            Block masterBlockchainBlock = masterBlockchainCore.queryBlockHeaderByBlockHeight(slaveBlockchainTailBlock.getHeight());
             if(BlockTool.simpleCheckBlockEquals(masterBlockchainBlock,slaveBlockchainTailBlock)){
                 break;
             }
             slaveBlockchainCore.deleteTailBlock();
-            slaveBlockchainTailBlock = slaveBlockchainCore.queryTailBlock();
+            Block deletedSlaveBlockchainTailBlock = slaveBlockchainTailBlock;
+            slaveBlockchainTailBlock = slaveBlockchainCore.queryTailBlockHeader();
+            //裁剪模式下，最多只能删除[保留完整数据的区块数量]个区块
+            if(slaveBlockchainTailBlock != null && StringUtil.isEquals(slaveBlockchainTailBlock.getHash(),deletedSlaveBlockchainTailBlock.getHash())){
+                LogUtil.debug("从区块链核心与主区块链核心的分叉超过了可以删除的区块数量，无法同步。");
+                return;
+            }
         }
         //复制master数据至slave
         while(true){
@@ -142,8 +152,8 @@ public class BlockSearcher {
      */
     private void promoteMasterBlockchainCore(BlockchainCore masterBlockchainCore,
                                                  BlockchainCore slaveBlockchainCore) {
-        Block masterBlockchainTailBlock = masterBlockchainCore.queryTailBlock();
-        Block slaveBlockchainTailBlock = slaveBlockchainCore.queryTailBlock() ;
+        Block masterBlockchainTailBlock = masterBlockchainCore.queryTailBlockHeader();
+        Block slaveBlockchainTailBlock = slaveBlockchainCore.queryTailBlockHeader() ;
         //不需要调整：主区块链的高度一定大于或等于辅区块链的高度
         if(slaveBlockchainTailBlock == null){
             return;
@@ -155,7 +165,7 @@ public class BlockSearcher {
             if(!isAddBlockToBlockchainSuccess){
                 return;
             }
-            masterBlockchainTailBlock = masterBlockchainCore.queryTailBlock();
+            masterBlockchainTailBlock = masterBlockchainCore.queryTailBlockHeader();
         }
         //至此，主链、从链高度至少都为1
         //判断主链是否需要同步从链
@@ -169,8 +179,8 @@ public class BlockSearcher {
             if(NumberUtil.isLessEqualThan(blockHeight, Setting.GenesisBlockSetting.HEIGHT)){
                 break;
             }
-            Block masterBlock = masterBlockchainCore.queryBlockByBlockHeight(blockHeight);
-            Block slaveBlock = slaveBlockchainCore.queryBlockByBlockHeight(blockHeight);
+            Block masterBlock = masterBlockchainCore.queryBlockHeaderByBlockHeight(blockHeight);
+            Block slaveBlock = slaveBlockchainCore.queryBlockHeaderByBlockHeight(blockHeight);
             if(BlockTool.simpleCheckBlockEquals(masterBlock,slaveBlock)){
                 break;
             }
@@ -188,12 +198,16 @@ public class BlockSearcher {
             if(NumberUtil.isLessEqualThan(masterBlockchainTailBlockHeight, Setting.GenesisBlockSetting.HEIGHT)){
                 break;
             }
-            Block masterBlock = masterBlockchainCore.queryBlockByBlockHeight(masterBlockchainTailBlockHeight);
-            Block slaveBlock = slaveBlockchainCore.queryBlockByBlockHeight(masterBlockchainTailBlockHeight);
+            Block masterBlock = masterBlockchainCore.queryBlockHeaderByBlockHeight(masterBlockchainTailBlockHeight);
+            Block slaveBlock = slaveBlockchainCore.queryBlockHeaderByBlockHeight(masterBlockchainTailBlockHeight);
             if(StringUtil.isEquals(masterBlock.getHash(),slaveBlock.getHash())){
                 break;
             }
             masterBlockchainCore.deleteTailBlock();
+            if(NumberUtil.isEquals(masterBlockchainTailBlockHeight,masterBlockchainCore.queryBlockchainHeight())){
+                //裁剪模式下，最多只能删除[保留完整数据的区块数量]个区块
+                return;
+            }
             masterBlockchainTailBlockHeight = masterBlockchainCore.queryBlockchainHeight();
         }
 
@@ -217,7 +231,7 @@ public class BlockSearcher {
      */
     public void synchronizeRemoteNodeBlock(BlockchainCore masterBlockchainCore, BlockchainCore slaveBlockchainCore, NodeService nodeService, Node node) {
 
-        Block masterBlockchainCoreTailBlock = masterBlockchainCore.queryTailBlock();
+        Block masterBlockchainCoreTailBlock = masterBlockchainCore.queryTailBlockHeader();
         long masterBlockchainCoreTailBlockHeight = masterBlockchainCore.queryBlockchainHeight();
 
         //本地区块链与node区块链是否分叉？
@@ -261,7 +275,7 @@ public class BlockSearcher {
                     return;
                 }
                 String blockHash = BlockDtoTool.calculateBlockHash(blockDto);
-                Block localBlock = slaveBlockchainCore.queryBlockByBlockHeight(forkBlockHeight);
+                Block localBlock = slaveBlockchainCore.queryBlockHeaderByBlockHeight(forkBlockHeight);
                 if(StringUtil.isEquals(blockHash,localBlock.getHash())){
                     break;
                 }
@@ -280,23 +294,18 @@ public class BlockSearcher {
             //从分叉高度开始同步
             slaveBlockchainCore.deleteBlocks(forkBlockHeight);
             while (true){
-                GetBlockRequest getBlockRequest = new GetBlockRequest();
-                getBlockRequest.setBlockHeight(forkBlockHeight);
-                GetBlockResponse getBlockResponse = new BlockchainNodeClientImpl(node.getIp()).getBlock(getBlockRequest);
-                if(getBlockResponse == null){
-                    return;
-                }
-                BlockDto blockDto = getBlockResponse.getBlock();
-                if(blockDto == null){
+                //若是有分叉时，一次同步的最后一个区块至少要比本地区块链的高度大于N个
+                long blockCount = Math.min(SYNCHRONIZE_BLOCKS_BATCH_SIZE, masterBlockchainCoreTailBlockHeight + netCoreConfiguration.getForkBlockCount() - forkBlockHeight);
+                List<BlockDto> blockDtos = getBlocks(node, forkBlockHeight, blockCount);
+                if(blockDtos.isEmpty()){
                     return;
                 }
-                boolean isAddBlockSuccess = slaveBlockchainCore.addBlockDto(blockDto);
-                if(!isAddBlockSuccess){
+                long addedBlockCount = slaveBlockchainCore.addBlockDtos(blockDtos);
+                if(addedBlockCount < blockDtos.size()){
                     return;
                 }
-                forkBlockHeight++;
+                forkBlockHeight += addedBlockCount;
 
-                //若是有分叉时，一次同步的最后一个区块至少要比本地区块链的高度大于N个
                 if(NumberUtil.isGreatEqualThan(forkBlockHeight,masterBlockchainCoreTailBlockHeight + netCoreConfiguration.getForkBlockCount())){
                     return;
                 }
@@ -305,24 +314,39 @@ public class BlockSearcher {
             //未分叉
             while (true){
                 long nextBlockHeight = masterBlockchainCore.queryBlockchainHeight()+1;
-                GetBlockRequest getBlockRequest = new GetBlockRequest();
-                getBlockRequest.setBlockHeight(nextBlockHeight);
-                GetBlockResponse getBlockResponse = new BlockchainNodeClientImpl(node.getIp()).getBlock(getBlockRequest);
-                if(getBlockResponse == null){
+                List<BlockDto> blockDtos = getBlocks(node, nextBlockHeight, SYNCHRONIZE_BLOCKS_BATCH_SIZE);
+                if(blockDtos.isEmpty()){
                     return;
                 }
-                BlockDto blockDto = getBlockResponse.getBlock();
-                if(blockDto == null){
-                    return;
-                }
-                boolean isAddBlockSuccess = masterBlockchainCore.addBlockDto(blockDto);
-                if(!isAddBlockSuccess){
+                long addedBlockCount = masterBlockchainCore.addBlockDtos(blockDtos);
+                if(addedBlockCount < blockDtos.size()){
                     return;
                 }
             }
         }
     }
 
+    /**
+     * 从远程节点依次获取从blockHeight开始的至多blockCount个区块
+     */
+    private List<BlockDto> getBlocks(Node node, long blockHeight, long blockCount) {
+        List<BlockDto> blockDtos = new ArrayList<>();
+        while (blockDtos.size() < blockCount){
+            GetBlockRequest getBlockRequest = new GetBlockRequest();
+            getBlockRequest.setBlockHeight(blockHeight + blockDtos.size());
+            GetBlockResponse getBlockResponse = new BlockchainNodeClientImpl(node.getIp()).getBlock(getBlockRequest);
+            if(getBlockResponse == null){
+                break;
+            }
+            BlockDto blockDto = getBlockResponse.getBlock();
+            if(blockDto == null){
+                break;
+            }
+            blockDtos.add(blockDto);
+        }
+        return blockDtos;
+    }
+
     public void deleteBlocks(long blockHeight) {
         blockchainCore.deleteBlocks(blockHeight);
         slaveBlockchainCore.deleteBlocks(blockHeight);
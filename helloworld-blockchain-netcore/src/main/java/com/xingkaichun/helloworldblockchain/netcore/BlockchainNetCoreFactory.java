@@ -39,6 +39,8 @@ public class BlockchainNetCoreFactory {
         BlockchainCore blockchainCore = BlockchainCoreFactory.createBlockchainCore(blockchainCorePath);
         String slaveBlockchainCorePath = FileUtil.newPath(netcorePath,"SlaveBlockchainCore");
         BlockchainCore slaveBlockchainCore = BlockchainCoreFactory.createBlockchainCore(slaveBlockchainCorePath);
+        //从区块链核心复制主区块链核心的区块，两者使用相同的裁剪模式
+        slaveBlockchainCore.getCoreConfiguration().setPruneBlockCount(blockchainCore.getCoreConfiguration().getPruneBlockCount());
 
 
         NodeDao nodeDao = new NodeDaoImpl(netCoreConfiguration);
@@ -4,10 +4,12 @@ import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
 import com.xingkaichun.helloworldblockchain.netcore.dao.NodeDao;
 import com.xingkaichun.helloworldblockchain.netcore.po.NodePo;
 import com.xingkaichun.helloworldblockchain.netcore.service.NetCoreConfiguration;
-import com.xingkaichun.helloworldblockchain.util.FileUtil;
 import com.xingkaichun.helloworldblockchain.util.JsonUtil;
-import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
 import com.xingkaichun.helloworldblockchain.util.StringUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvCursor;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvEntry;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvPage;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +21,11 @@ import java.util.List;
 public class NodeDaoImpl implements NodeDao {
 
     private static final String NODE_DATABASE_NAME = "NodeDatabase";
+    //分页查询节点时的页大小
+    private static final long QUERY_PAGE_SIZE = 1000;
     private NetCoreConfiguration netCoreConfiguration;
+    //节点数据库的存储引擎，第一次使用时获取
+    private volatile KvStore nodeKvStore;
 
     public NodeDaoImpl(NetCoreConfiguration netCoreConfiguration) {
         this.netCoreConfiguration = netCoreConfiguration;
@@ -40,34 +46,44 @@ public class NodeDaoImpl implements NodeDao {
 
     @Override
     public void addNode(NodePo node){
-        KvDbUtil.put(getNodeDatabasePath(),getKeyByNodePo(node), encode(node));
+        getNodeKvStore().put(getKeyByNodePo(node), encode(node));
     }
 
     @Override
     public void updateNode(NodePo node){
-        KvDbUtil.put(getNodeDatabasePath(),getKeyByNodePo(node),encode(node));
+        getNodeKvStore().put(getKeyByNodePo(node),encode(node));
     }
 
     @Override
     public void deleteNode(String ip){
-        KvDbUtil.delete(getNodeDatabasePath(),getKeyByIp(ip));
+        getNodeKvStore().delete(getKeyByIp(ip));
     }
 
     @Override
     public List<NodePo> queryAllNodeList(){
         List<NodePo> list = new ArrayList<>();
-        //获取所有
-        List<byte[]> bytesNodePoList = KvDbUtil.gets(getNodeDatabasePath(),1,100000000);
-        if(bytesNodePoList != null){
-            for(byte[] bytesNodePo:bytesNodePoList){
-                NodePo nodePo = decodeToNodePo(bytesNodePo);
+        //按页获取所有
+        byte[] fromKey = null;
+        while (true){
+            KvPage kvPage = KvCursor.forward(getNodeKvStore(),null,fromKey,QUERY_PAGE_SIZE);
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                NodePo nodePo = decodeToNodePo(kvEntry.getValue());
                 list.add(nodePo);
             }
+            if(!kvPage.hasMore()){
+                break;
+            }
+            fromKey = kvPage.getContinuationToken();
         }
         return list;
     }
-    private String getNodeDatabasePath(){
-        return FileUtil.newPath(netCoreConfiguration.getNetCorePath(), NODE_DATABASE_NAME);
+    private KvStore getNodeKvStore(){
+        KvStore nodeKvStore = this.nodeKvStore;
+        if(nodeKvStore == null){
+            nodeKvStore = netCoreConfiguration.getKvStore(NODE_DATABASE_NAME);
+            this.nodeKvStore = nodeKvStore;
+        }
+        return nodeKvStore;
     }
     private byte[] getKeyByNodePo(NodePo node){
         return getKeyByIp(node.getIp());
@@ -1,6 +1,7 @@
 package com.xingkaichun.helloworldblockchain.netcore.server;
 
 import com.xingkaichun.helloworldblockchain.core.BlockchainCore;
+import com.xingkaichun.helloworldblockchain.core.ReadView;
 import com.xingkaichun.helloworldblockchain.core.UnconfirmedTransactionDatabase;
 import com.xingkaichun.helloworldblockchain.core.model.Block;
 import com.xingkaichun.helloworldblockchain.core.tools.Dto2ModelTool;
@@ -11,6 +12,7 @@ import com.xingkaichun.helloworldblockchain.netcore.service.NetCoreConfiguration
 import com.xingkaichun.helloworldblockchain.netcore.service.NodeService;
 import com.xingkaichun.helloworldblockchain.setting.Setting;
 import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import com.xingkaichun.helloworldblockchain.util.NumberUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -55,12 +57,18 @@ public class HttpServerHandlerResolver {
 
     /**
      * 根据区块高度查询区块
+     * 响应中带有本节点已裁剪的区块高度，请求的区块已被裁剪时，响应中没有区块。
      */
     public GetBlockResponse getBlock(GetBlockRequest request){
-        try {
+        try (ReadView readView = blockchainCore.openReadView()) {
+            long prunedBlockHeight = blockchainCore.queryPrunedBlockHeight();
+            GetBlockResponse response = new GetBlockResponse();
+            response.setPrunedBlockHeight(prunedBlockHeight);
+            if(NumberUtil.isLessEqualThan(request.getBlockHeight(),prunedBlockHeight)){
+                return response;
+            }
             Block blockByBlockHeight = blockchainCore.queryBlockByBlockHeight(request.getBlockHeight());
             BlockDto block = Model2DtoTool.block2BlockDto(blockByBlockHeight);
-            GetBlockResponse response = new GetBlockResponse();
             response.setBlock(block);
             return response;
         } catch (Exception e){
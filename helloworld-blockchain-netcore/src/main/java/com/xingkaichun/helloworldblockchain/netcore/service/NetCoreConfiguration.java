@@ -1,5 +1,7 @@
 package com.xingkaichun.helloworldblockchain.netcore.service;
 
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreOptions;
 
 /**
  * NetCore配置: BlockchainNetCore的配置。
@@ -16,6 +18,15 @@ public interface NetCoreConfiguration {
      */
     String getNetCorePath();
 
+    /**
+     * 获取数据库的KV存储引擎。BlockchainNetCore的各个数据库都通过这个方法获取存储引擎。
+     */
+    KvStore getKvStore(String databaseName);
+    /**
+     * 数据库使用的存储引擎参数
+     */
+    KvStoreOptions getKvStoreOptions(String databaseName);
+
     /**
      * 是否"自动搜索新区块"
      */
@@ -3,6 +3,9 @@ package com.xingkaichun.helloworldblockchain.netcore.service;
 import com.xingkaichun.helloworldblockchain.crypto.ByteUtil;
 import com.xingkaichun.helloworldblockchain.util.FileUtil;
 import com.xingkaichun.helloworldblockchain.util.KvDbUtil;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStore;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreEngineEnum;
+import com.xingkaichun.helloworldblockchain.util.kvstore.KvStoreOptions;
 
 /**
  *
@@ -12,6 +15,10 @@ public class NetCoreConfigurationImpl implements NetCoreConfiguration {
 
     private String netcorePath;
     private static final String NETCORE_CONFIGURATION_DATABASE_NAME = "NetCoreConfigurationDatabase";
+    //配置数据库的存储引擎，第一次使用时获取
+    private volatile KvStore configurationKvStore;
+    //BlockchainNetCore数据库使用的存储引擎
+    private static final KvStoreEngineEnum KV_STORE_ENGINE = KvStoreEngineEnum.LEVELDB;
 
     //节点搜索器"是否是自动搜索新区块"状态存入到数据库时的主键
     private static final String AUTO_SEARCH_BLOCK_OPTION_KEY = "IS_AUTO_SEARCH_BLOCK";
@@ -55,6 +62,24 @@ public class NetCoreConfigurationImpl implements NetCoreConfiguration {
         return netcorePath;
     }
 
+    @Override
+    public KvStore getKvStore(String databaseName) {
+        return KvDbUtil.getKvStore(FileUtil.newPath(netcorePath, databaseName), KV_STORE_ENGINE, getKvStoreOptions(databaseName));
+    }
+
+    @Override
+    public KvStoreOptions getKvStoreOptions(String databaseName) {
+        //BlockchainNetCore的数据库(节点、配置)数据量都很小
+        KvStoreOptions kvStoreOptions = new KvStoreOptions();
+        kvStoreOptions.setCacheSize(1024 * 1024);
+        kvStoreOptions.setWriteBufferSize(1024 * 1024);
+        kvStoreOptions.setMaxOpenFiles(100);
+        kvStoreOptions.setCompression(false);
+        //配置不能丢失，使用同步写；节点可以重新发现，使用异步写。
+        kvStoreOptions.setSync(NETCORE_CONFIGURATION_DATABASE_NAME.equals(databaseName));
+        return kvStoreOptions;
+    }
+
     @Override
     public boolean isAutoSearchBlock() {
         byte[] bytesConfigurationValue = getConfigurationValue(ByteUtil.stringToUtf8Bytes(AUTO_SEARCH_BLOCK_OPTION_KEY));
@@ -139,16 +164,20 @@ public class NetCoreConfigurationImpl implements NetCoreConfiguration {
     }
 
 
+    private KvStore getConfigurationKvStore(){
+        KvStore configurationKvStore = this.configurationKvStore;
+        if(configurationKvStore == null){
+            configurationKvStore = getKvStore(NETCORE_CONFIGURATION_DATABASE_NAME);
+            this.configurationKvStore = configurationKvStore;
+        }
+        return configurationKvStore;
+    }
     private byte[] getConfigurationValue(byte[] configurationKey) {
-        byte[] bytesConfigurationValue = KvDbUtil.get(getNetCoreConfigurationDatabasePath(), configurationKey);
+        byte[] bytesConfigurationValue = getConfigurationKvStore().get(configurationKey);
         return bytesConfigurationValue;
     }
 
     private void addOrUpdateConfiguration(byte[] configurationKey, byte[] configurationValue) {
-        KvDbUtil.put(getNetCoreConfigurationDatabasePath(), configurationKey, configurationValue);
-    }
-
-    private String getNetCoreConfigurationDatabasePath(){
-        return FileUtil.newPath(netcorePath, NETCORE_CONFIGURATION_DATABASE_NAME);
+        getConfigurationKvStore().put(configurationKey, configurationValue);
     }
 }
\ No newline at end of file
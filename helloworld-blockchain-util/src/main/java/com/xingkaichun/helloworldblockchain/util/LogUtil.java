@@ -14,6 +14,11 @@ public class LogUtil {
         LoggerFactory.getLogger(stackTraceElement.getClassName()).error("["+stackTraceElement.getLineNumber()+"] - "+message,exception);
     }
 
+    public static void info(String message) {
+        StackTraceElement stackTraceElement = getStackTraceElement();
+        LoggerFactory.getLogger(stackTraceElement.getClassName()).info("["+stackTraceElement.getLineNumber()+"] - "+message);
+    }
+
     public static void debug(String message) {
         StackTraceElement stackTraceElement = getStackTraceElement();
         LoggerFactory.getLogger(stackTraceElement.getClassName()).debug("["+stackTraceElement.getLineNumber()+"] - "+message);
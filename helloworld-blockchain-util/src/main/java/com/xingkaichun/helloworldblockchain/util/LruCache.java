@@ -0,0 +1,119 @@
+package com.xingkaichun.helloworldblockchain.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按权重限制大小的LRU缓存
+ *
+ * 每个缓存项都有一个权重(一般是估算的占用字节数)，缓存项的总权重超过最大权重时，淘汰最久没有被访问的缓存项。
+ * 缓存记录命中次数、未命中次数、淘汰次数、失效次数，用于评估缓存大小是否合适。
+ *
+ * 读取数据与放入缓存不是原子的：读取数据之后、放入缓存之前，数据可能已经失效。
+ * 因此读取数据之前先记下失效次数，放入缓存时传入，期间发生过失效的数据不会被放入缓存。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class LruCache<K, V> {
+
+    private final long maxWeight;
+    private final LinkedHashMap<K, CacheEntry<V>> map;
+
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidateCount;
+
+    public LruCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 查询缓存，未命中返回null。
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> cacheEntry = map.get(key);
+        if(cacheEntry == null){
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return cacheEntry.value;
+    }
+
+    /**
+     * 放入缓存。invalidateCount是读取数据之前的失效次数，读取数据期间发生过失效时不放入缓存。
+     */
+    public synchronized void put(K key, V value, long valueWeight, long invalidateCount) {
+        if(invalidateCount != this.invalidateCount || valueWeight > maxWeight){
+            return;
+        }
+        CacheEntry<V> oldCacheEntry = map.put(key, new CacheEntry<>(value, valueWeight));
+        if(oldCacheEntry != null){
+            weight -= oldCacheEntry.weight;
+        }
+        weight += valueWeight;
+        Iterator<Map.Entry<K, CacheEntry<V>>> iterator = map.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()){
+            Map.Entry<K, CacheEntry<V>> eldest = iterator.next();
+            weight -= eldest.getValue().weight;
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 使缓存项失效
+     */
+    public synchronized void invalidate(K key) {
+        invalidateCount++;
+        CacheEntry<V> cacheEntry = map.remove(key);
+        if(cacheEntry != null){
+            weight -= cacheEntry.weight;
+        }
+    }
+
+    /**
+     * 使所有缓存项失效
+     */
+    public synchronized void invalidateAll() {
+        invalidateCount++;
+        map.clear();
+        weight = 0;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+    public synchronized long getWeight() {
+        return weight;
+    }
+    public synchronized long getSize() {
+        return map.size();
+    }
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    public synchronized long getInvalidateCount() {
+        return invalidateCount;
+    }
+
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long weight;
+        private CacheEntry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 游标：按主键范围分页读取数据。
+ *
+ * 每次读取都在一个新建的迭代器上进行，迭代器读取的是创建那一刻的数据，读取过程中不需要加锁。
+ * 读取一页数据的代价与页大小成正比，与页所在的位置无关。
+ * 读取下一页时，将上一页返回的continuationToken作为起始主键传入即可。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvCursor {
+
+    /**
+     * 正向读取：按主键从小到大，读取主键以prefix开头、大于等于fromKey的最多limit条数据。
+     * prefix为null代表不限制主键前缀，fromKey为null代表从前缀范围内的第一条数据开始。
+     */
+    public static KvPage forward(KvStore kvStore, byte[] prefix, byte[] fromKey, long limit) {
+        List<KvEntry> kvEntries = new ArrayList<>();
+        try (KvIterator iterator = kvStore.iterator()) {
+            //起始主键在前缀范围之前时，从前缀范围内的第一条数据开始
+            if(fromKey != null && prefix != null && UnsignedBytesComparator.INSTANCE.compare(fromKey,prefix) < 0){
+                fromKey = null;
+            }
+            if(fromKey != null){
+                iterator.seek(fromKey);
+            }else if(prefix != null){
+                iterator.seek(prefix);
+            }else {
+                iterator.seekToFirst();
+            }
+            while (isValid(iterator,prefix) && kvEntries.size()<limit){
+                kvEntries.add(new KvEntry(iterator.key(),iterator.value()));
+                iterator.next();
+            }
+            return new KvPage(kvEntries, isValid(iterator,prefix) ? iterator.key() : null);
+        }
+    }
+
+    /**
+     * 反向读取：按主键从大到小，读取主键以prefix开头、小于等于toKey的最多limit条数据。
+     * prefix为null代表不限制主键前缀，toKey为null代表从前缀范围内的最后一条数据开始。
+     * LevelDB引擎不支持反向遍历，从前缀范围的开头正向读取到toKey，读取的代价与前缀范围内toKey之前的数据条数成正比，只保留最后limit+1条数据。
+     */
+    public static KvPage backward(KvStore kvStore, byte[] prefix, byte[] toKey, long limit) {
+        byte[] prefixUpperBound = prefix == null ? null : buildPrefixUpperBound(prefix);
+        //起始主键在前缀范围之后时，从前缀范围内的最后一条数据开始
+        if(toKey != null && prefixUpperBound != null && UnsignedBytesComparator.INSTANCE.compare(toKey,prefixUpperBound) >= 0){
+            toKey = null;
+        }
+        if(kvStore.getKvStoreEngine() == KvStoreEngineEnum.LEVELDB){
+            return forwardScanBackward(kvStore, prefix, toKey, limit);
+        }
+        List<KvEntry> kvEntries = new ArrayList<>();
+        try (KvIterator iterator = kvStore.iterator()) {
+            if(toKey != null){
+                iterator.seekForPrev(toKey);
+            }else if(prefix != null){
+                if(prefixUpperBound == null){
+                    iterator.seekToLast();
+                }else {
+                    //前缀范围之后的第一个主键本身不在前缀范围内
+                    iterator.seekForPrev(prefixUpperBound);
+                    if(iterator.isValid() && UnsignedBytesComparator.INSTANCE.compare(iterator.key(),prefixUpperBound) == 0){
+                        iterator.prev();
+                    }
+                }
+            }else {
+                iterator.seekToLast();
+            }
+            while (isValid(iterator,prefix) && kvEntries.size()<limit){
+                kvEntries.add(new KvEntry(iterator.key(),iterator.value()));
+                iterator.prev();
+            }
+            return new KvPage(kvEntries, isValid(iterator,prefix) ? iterator.key() : null);
+        }
+    }
+
+    /**
+     * 只能正向遍历的存储引擎的反向读取：正向读取前缀范围内小于等于toKey的数据，用环形缓冲区保留最后limit+1条，
+     * 其中最早的一条是下一页的起始主键。
+     */
+    private static KvPage forwardScanBackward(KvStore kvStore, byte[] prefix, byte[] toKey, long limit) {
+        Deque<KvEntry> lastKvEntries = new ArrayDeque<>();
+        try (KvIterator iterator = kvStore.iterator()) {
+            if(prefix != null){
+                iterator.seek(prefix);
+            }else {
+                iterator.seekToFirst();
+            }
+            while (isValid(iterator,prefix) && (toKey == null || UnsignedBytesComparator.INSTANCE.compare(iterator.key(),toKey) <= 0)){
+                lastKvEntries.addLast(new KvEntry(iterator.key(),iterator.value()));
+                if(lastKvEntries.size() > limit + 1){
+                    lastKvEntries.removeFirst();
+                }
+                iterator.next();
+            }
+        }
+        byte[] continuationToken = null;
+        if(lastKvEntries.size() > limit){
+            continuationToken = lastKvEntries.removeFirst().getKey();
+        }
+        List<KvEntry> kvEntries = new ArrayList<>(lastKvEntries.size());
+        while (!lastKvEntries.isEmpty()){
+            kvEntries.add(lastKvEntries.removeLast());
+        }
+        return new KvPage(kvEntries, continuationToken);
+    }
+
+    /**
+     * 迭代器是否指向一条主键以prefix开头的数据
+     */
+    private static boolean isValid(KvIterator iterator, byte[] prefix) {
+        if(!iterator.isValid()){
+            return false;
+        }
+        if(prefix == null){
+            return true;
+        }
+        byte[] key = iterator.key();
+        if(key.length < prefix.length){
+            return false;
+        }
+        for(int i=0; i<prefix.length; i++){
+            if(key[i] != prefix[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 比所有以prefix开头的主键都大的最小主键，不存在(prefix全是0xFF)返回null。
+     */
+    private static byte[] buildPrefixUpperBound(byte[] prefix) {
+        for(int i=prefix.length-1; i>=0; i--){
+            if(prefix[i] != (byte) 0xFF){
+                byte[] prefixUpperBound = new byte[i+1];
+                System.arraycopy(prefix,0,prefixUpperBound,0,i+1);
+                prefixUpperBound[i]++;
+                return prefixUpperBound;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvEntry {
+    private byte[] key;
+    private byte[] value;
+    public KvEntry(byte[] key, byte[] value) {
+        this.key = key;
+        this.value = value;
+    }
+    public byte[] getKey() {
+        return key;
+    }
+    public byte[] getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,55 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ * KV存储引擎的迭代器：按主键无符号字节序遍历，可以正向遍历，也可以反向遍历。
+ *
+ * 用法：先定位(seekToFirst、seek、seekToLast或seekForPrev)，然后在isValid()为true时读取key()、value()，
+ * 调用next()移动到下一条数据，调用prev()移动到上一条数据。
+ * LevelDB引擎(iq80)的迭代器只能正向遍历，seekToLast、seekForPrev、prev抛出UnsupportedOperationException。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public interface KvIterator extends AutoCloseable {
+
+    /**
+     * 定位到第一条数据
+     */
+    void seekToFirst();
+
+    /**
+     * 定位到第一条主键大于等于key的数据
+     */
+    void seek(byte[] key);
+
+    /**
+     * 定位到最后一条数据
+     */
+    void seekToLast();
+
+    /**
+     * 定位到最后一条主键小于等于key的数据
+     */
+    void seekForPrev(byte[] key);
+
+    /**
+     * 当前是否指向一条数据
+     */
+    boolean isValid();
+
+    /**
+     * 移动到下一条数据
+     */
+    void next();
+
+    /**
+     * 移动到上一条数据
+     */
+    void prev();
+
+    byte[] key();
+
+    byte[] value();
+
+    @Override
+    void close();
+}
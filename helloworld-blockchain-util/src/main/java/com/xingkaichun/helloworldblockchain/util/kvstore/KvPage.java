@@ -0,0 +1,36 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.List;
+
+/**
+ * 游标读取的一页数据
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvPage {
+
+    //本页数据
+    private List<KvEntry> kvEntries;
+    //继续读取下一页时传入的主键，null代表没有更多数据了。
+    private byte[] continuationToken;
+
+    public KvPage(List<KvEntry> kvEntries, byte[] continuationToken) {
+        this.kvEntries = kvEntries;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<KvEntry> getKvEntries() {
+        return kvEntries;
+    }
+
+    public byte[] getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * 是否还有更多数据
+     */
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
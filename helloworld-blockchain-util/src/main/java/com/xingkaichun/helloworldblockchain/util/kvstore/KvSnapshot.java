@@ -0,0 +1,25 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ * KV存储引擎的快照：快照创建之后的写入对快照不可见。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public interface KvSnapshot extends AutoCloseable {
+
+    /**
+     * 查询快照中主键对应的值，不存在返回null。
+     */
+    byte[] get(byte[] key);
+
+    /**
+     * 创建遍历快照的迭代器。使用完毕后需要关闭。
+     */
+    KvIterator iterator();
+
+    /**
+     * 释放快照
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,70 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.List;
+
+/**
+ * KV存储引擎
+ *
+ * 数据库只依赖于这个接口，不依赖于具体的存储引擎，存储引擎可以按数据库配置。
+ * 主键按无符号字节序排序。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public interface KvStore {
+
+    /**
+     * 存储引擎类型
+     */
+    KvStoreEngineEnum getKvStoreEngine();
+
+    /**
+     * 查询主键对应的值，不存在返回null。
+     */
+    byte[] get(byte[] key);
+
+    /**
+     * 批量查询，返回的值与主键一一对应，不存在的主键对应null。
+     */
+    List<byte[]> multiGet(List<byte[]> keys);
+
+    void put(byte[] key, byte[] value);
+
+    void delete(byte[] key);
+
+    /**
+     * 原子的写入一批数据
+     */
+    void write(KvWriteBatch kvWriteBatch);
+
+    /**
+     * 创建迭代器，迭代器读取的是创建那一刻的数据。使用完毕后需要关闭。
+     */
+    KvIterator iterator();
+
+    /**
+     * 创建快照，快照读取的是创建那一刻的数据。使用完毕后需要关闭。
+     */
+    KvSnapshot snapshot();
+
+    /**
+     * 估算主键范围[fromKey,toKey)内的数据占用的磁盘空间(字节)，不包括写缓冲区中还未落盘的数据。
+     * fromKey为null代表从第一个主键开始，toKey为null代表到最后一个主键结束。
+     */
+    long getApproximateSize(byte[] fromKey, byte[] toKey);
+
+    /**
+     * 压缩主键范围[fromKey,toKey]内的数据：清除被覆盖、被删除的数据，并把数据移动到最底层。
+     * 压缩期间会占用大量磁盘读写，应该在空闲时进行。fromKey、toKey为null的含义同上。
+     */
+    void compactRange(byte[] fromKey, byte[] toKey);
+
+    /**
+     * 查询存储引擎统计信息
+     */
+    KvStoreStatistics getStatistics();
+
+    /**
+     * 关闭存储引擎
+     */
+    void close();
+}
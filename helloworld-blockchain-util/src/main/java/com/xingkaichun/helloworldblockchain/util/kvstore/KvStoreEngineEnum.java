@@ -0,0 +1,21 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ * KV存储引擎类型
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public enum KvStoreEngineEnum {
+    /**
+     * LevelDB(纯Java实现iq80)
+     */
+    LEVELDB,
+    /**
+     * RocksDB(JNI，本地文件)
+     */
+    ROCKSDB,
+    /**
+     * 内存有序表，数据不持久化，用于测试。
+     */
+    MEMORY
+}
@@ -0,0 +1,83 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ * KV存储引擎参数
+ *
+ * 存储引擎不支持的参数会被忽略，存储引擎打开数据库时会打印实际生效的参数。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvStoreOptions {
+
+    //数据块缓存大小(字节)
+    private long cacheSize = 8 * 1024 * 1024;
+    //数据块大小(字节)
+    private int blockSize = 4 * 1024;
+    //写缓冲区大小(字节)，写缓冲区写满后才会落盘为数据文件。
+    private int writeBufferSize = 4 * 1024 * 1024;
+    //最多同时打开的数据文件数
+    private int maxOpenFiles = 1000;
+    //是否压缩数据块
+    private boolean compression = true;
+    //布隆过滤器每个主键占用的位数，0代表不使用布隆过滤器。布隆过滤器可以让查询不存在的主键时不读取数据块。
+    private int bloomFilterBitsPerKey = 0;
+    //是否同步写：每次写入都等待数据落盘后才返回。
+    private boolean sync = false;
+
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public void setMaxOpenFiles(int maxOpenFiles) {
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public int getBloomFilterBitsPerKey() {
+        return bloomFilterBitsPerKey;
+    }
+
+    public void setBloomFilterBitsPerKey(int bloomFilterBitsPerKey) {
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+}
@@ -0,0 +1,60 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录存储引擎的写入耗时与手动压缩耗时。
+ *
+ * 存储引擎没有暴露写停顿(写入等待后台压缩)的时间，这里用耗时近似：
+ * 一次写入的耗时超过"固定耗时+每条数据耗时*数据条数"，就认为发生了写停顿，超出的部分计入写停顿耗时。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+class KvStoreRecorder {
+
+    //一次写入正常的固定耗时(纳秒)
+    private static final long WRITE_STALL_BASE_NANOS = 10L * 1000 * 1000;
+    //一条数据正常的写入耗时(纳秒)
+    private static final long WRITE_STALL_NANOS_PER_ENTRY = 10L * 1000;
+
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong writeStallCount = new AtomicLong();
+    private final AtomicLong writeStallNanos = new AtomicLong();
+    private final AtomicLong compactRangeCount = new AtomicLong();
+    private final AtomicLong compactRangeNanos = new AtomicLong();
+
+    /**
+     * 记录一次写入，startNanos是写入开始时的System.nanoTime()。
+     */
+    void recordWrite(int entryCount, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        writeCount.incrementAndGet();
+        writeNanos.addAndGet(nanos);
+        long stallNanos = nanos - WRITE_STALL_BASE_NANOS - WRITE_STALL_NANOS_PER_ENTRY * entryCount;
+        if(stallNanos > 0){
+            writeStallCount.incrementAndGet();
+            writeStallNanos.addAndGet(stallNanos);
+        }
+    }
+
+    /**
+     * 记录一次手动压缩，startNanos是压缩开始时的System.nanoTime()。
+     */
+    void recordCompactRange(long startNanos) {
+        compactRangeCount.incrementAndGet();
+        compactRangeNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 把记录的耗时填入统计信息
+     */
+    void fill(KvStoreStatistics kvStoreStatistics) {
+        kvStoreStatistics.setWriteCount(writeCount.get());
+        kvStoreStatistics.setWriteMillis(writeNanos.get() / 1000000);
+        kvStoreStatistics.setWriteStallCount(writeStallCount.get());
+        kvStoreStatistics.setWriteStallMillis(writeStallNanos.get() / 1000000);
+        kvStoreStatistics.setCompactRangeCount(compactRangeCount.get());
+        kvStoreStatistics.setCompactRangeMillis(compactRangeNanos.get() / 1000000);
+    }
+}
@@ -0,0 +1,125 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.List;
+
+/**
+ * KV存储引擎统计信息
+ *
+ * 写入与手动压缩的统计从打开数据库开始累计。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvStoreStatistics {
+
+    //存储引擎类型
+    private KvStoreEngineEnum kvStoreEngine;
+    //每一层的数据文件数量，下标是层号。不分层的存储引擎为空列表。
+    private List<Integer> levelFileCounts;
+    //每一层的数据文件大小(字节)，下标是层号。
+    private List<Long> levelSizes;
+    //数据文件总大小(字节)，不包括写缓冲区中还未落盘的数据。
+    private long totalSize;
+    //估算的待压缩字节数：需要重写多少数据才能让每一层回到目标大小以内。
+    private long pendingCompactionBytes;
+    //写入次数，一批数据算一次。
+    private long writeCount;
+    //写入总耗时(毫秒)
+    private long writeMillis;
+    //写停顿次数：耗时明显超过同等数据量正常耗时的写入，通常是写入在等待后台压缩。
+    private long writeStallCount;
+    //写停顿总耗时(毫秒)，只统计超出正常耗时的部分。
+    private long writeStallMillis;
+    //手动压缩主键范围的次数
+    private long compactRangeCount;
+    //手动压缩主键范围的总耗时(毫秒)
+    private long compactRangeMillis;
+
+
+    public KvStoreEngineEnum getKvStoreEngine() {
+        return kvStoreEngine;
+    }
+
+    public void setKvStoreEngine(KvStoreEngineEnum kvStoreEngine) {
+        this.kvStoreEngine = kvStoreEngine;
+    }
+
+    public List<Integer> getLevelFileCounts() {
+        return levelFileCounts;
+    }
+
+    public void setLevelFileCounts(List<Integer> levelFileCounts) {
+        this.levelFileCounts = levelFileCounts;
+    }
+
+    public List<Long> getLevelSizes() {
+        return levelSizes;
+    }
+
+    public void setLevelSizes(List<Long> levelSizes) {
+        this.levelSizes = levelSizes;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public long getPendingCompactionBytes() {
+        return pendingCompactionBytes;
+    }
+
+    public void setPendingCompactionBytes(long pendingCompactionBytes) {
+        this.pendingCompactionBytes = pendingCompactionBytes;
+    }
+
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    public void setWriteCount(long writeCount) {
+        this.writeCount = writeCount;
+    }
+
+    public long getWriteMillis() {
+        return writeMillis;
+    }
+
+    public void setWriteMillis(long writeMillis) {
+        this.writeMillis = writeMillis;
+    }
+
+    public long getWriteStallCount() {
+        return writeStallCount;
+    }
+
+    public void setWriteStallCount(long writeStallCount) {
+        this.writeStallCount = writeStallCount;
+    }
+
+    public long getWriteStallMillis() {
+        return writeStallMillis;
+    }
+
+    public void setWriteStallMillis(long writeStallMillis) {
+        this.writeStallMillis = writeStallMillis;
+    }
+
+    public long getCompactRangeCount() {
+        return compactRangeCount;
+    }
+
+    public void setCompactRangeCount(long compactRangeCount) {
+        this.compactRangeCount = compactRangeCount;
+    }
+
+    public long getCompactRangeMillis() {
+        return compactRangeMillis;
+    }
+
+    public void setCompactRangeMillis(long compactRangeMillis) {
+        this.compactRangeMillis = compactRangeMillis;
+    }
+}
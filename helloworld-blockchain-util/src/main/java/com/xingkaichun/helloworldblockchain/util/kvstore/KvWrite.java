@@ -0,0 +1,25 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvWrite {
+    private KvWriteActionEnum kvWriteActionEnum;
+    private byte[] key;
+    private byte[] value;
+    public KvWrite(KvWriteActionEnum kvWriteActionEnum, byte[] key, byte[] value) {
+        this.kvWriteActionEnum = kvWriteActionEnum;
+        this.key = key;
+        this.value = value;
+    }
+    public KvWriteActionEnum getKvWriteActionEnum() {
+        return kvWriteActionEnum;
+    }
+    public byte[] getKey() {
+        return key;
+    }
+    public byte[] getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,9 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public enum KvWriteActionEnum {
+    ADD,DELETE
+}
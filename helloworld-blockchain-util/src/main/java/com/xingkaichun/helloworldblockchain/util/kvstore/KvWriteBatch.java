@@ -0,0 +1,27 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvWriteBatch {
+    private List<KvWrite> kvWrites;
+    public KvWriteBatch() {
+        this.kvWrites = new ArrayList<>();
+    }
+    public List<KvWrite> getKvWrites() {
+        return kvWrites;
+    }
+    public void setKvWrites(List<KvWrite> kvWrites) {
+        this.kvWrites = kvWrites;
+    }
+    public void put(byte[] key, byte[] value) {
+        kvWrites.add(new KvWrite(KvWriteActionEnum.ADD,key,value));
+    }
+    public void delete(byte[] key) {
+        kvWrites.add(new KvWrite(KvWriteActionEnum.DELETE,key,null));
+    }
+}
@@ -0,0 +1,338 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import org.iq80.leveldb.*;
+import org.iq80.leveldb.impl.*;
+import org.iq80.leveldb.util.Slice;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LevelDB存储引擎(纯Java实现iq80)
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class LevelDbKvStore implements KvStore {
+
+    //第一层数据文件的目标大小(字节)，之后每一层是上一层的10倍，与iq80 LevelDB相同。
+    private static final long LEVEL1_MAX_BYTES = 10L * 1024 * 1024;
+
+    private final String dbPath;
+    private final DB db;
+    private final WriteOptions writeOptions;
+    private final KvStoreRecorder kvStoreRecorder = new KvStoreRecorder();
+
+    public LevelDbKvStore(String dbPath, DB db, WriteOptions writeOptions) {
+        this.dbPath = dbPath;
+        this.db = db;
+        this.writeOptions = writeOptions;
+    }
+
+    /**
+     * 创建或打开LevelDB数据库
+     * iq80 LevelDB不支持布隆过滤器，参数中的布隆过滤器会被忽略。
+     */
+    public static LevelDbKvStore open(String dbPath, KvStoreOptions kvStoreOptions) {
+        try {
+            DBFactory factory = new Iq80DBFactory();
+            Options options = new Options();
+            options.cacheSize(kvStoreOptions.getCacheSize());
+            options.blockSize(kvStoreOptions.getBlockSize());
+            options.writeBufferSize(kvStoreOptions.getWriteBufferSize());
+            options.maxOpenFiles(kvStoreOptions.getMaxOpenFiles());
+            options.compressionType(kvStoreOptions.isCompression() ? CompressionType.SNAPPY : CompressionType.NONE);
+            WriteOptions writeOptions = new WriteOptions().sync(kvStoreOptions.isSync());
+            DB db = factory.open(new File(dbPath), options);
+            LogUtil.info(String.format("open LevelDB database %s. cacheSize=%s blockSize=%s writeBufferSize=%s maxOpenFiles=%s compression=%s bloomFilter=unsupported sync=%s.",
+                    dbPath,options.cacheSize(),options.blockSize(),options.writeBufferSize(),options.maxOpenFiles(),options.compressionType(),writeOptions.sync()));
+            return new LevelDbKvStore(dbPath, db, writeOptions);
+        } catch (IOException e) {
+            LogUtil.error(String.format("create or load LevelDB database failed. LevelDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public KvStoreEngineEnum getKvStoreEngine() {
+        return KvStoreEngineEnum.LEVELDB;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return db.get(key);
+    }
+
+    @Override
+    public List<byte[]> multiGet(List<byte[]> keys) {
+        List<byte[]> values = new ArrayList<>(keys.size());
+        try (KvSnapshot kvSnapshot = snapshot()) {
+            for(byte[] key:keys){
+                values.add(kvSnapshot.get(key));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        long startNanos = System.nanoTime();
+        db.put(key,value,writeOptions);
+        kvStoreRecorder.recordWrite(1, startNanos);
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        long startNanos = System.nanoTime();
+        db.delete(key,writeOptions);
+        kvStoreRecorder.recordWrite(1, startNanos);
+    }
+
+    @Override
+    public void write(KvWriteBatch kvWriteBatch) {
+        long startNanos = System.nanoTime();
+        WriteBatch writeBatch = new WriteBatchImpl();
+        if(kvWriteBatch != null){
+            for (KvWrite kvWrite : kvWriteBatch.getKvWrites()){
+                if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.ADD){
+                    writeBatch.put(kvWrite.getKey(), kvWrite.getValue());
+                }else if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.DELETE){
+                    writeBatch.delete(kvWrite.getKey());
+                }else {
+                    throw new RuntimeException();
+                }
+            }
+        }
+        db.write(writeBatch,writeOptions);
+        kvStoreRecorder.recordWrite(kvWriteBatch == null ? 0 : kvWriteBatch.getKvWrites().size(), startNanos);
+    }
+
+    @Override
+    public KvIterator iterator() {
+        //LevelDB的迭代器创建时会固定读取的数据版本
+        return new LevelDbKvIterator(db.iterator());
+    }
+
+    @Override
+    public KvSnapshot snapshot() {
+        return new LevelDbKvSnapshot(db.getSnapshot());
+    }
+
+    @Override
+    public long getApproximateSize(byte[] fromKey, byte[] toKey) {
+        if(toKey == null){
+            //最大主键之后追加一个字节，范围包含最大主键
+            byte[] largestKey = largestKey(versionSet().getLiveFiles());
+            if(largestKey == null){
+                return 0;
+            }
+            toKey = Arrays.copyOf(largestKey, largestKey.length + 1);
+        }
+        return db.getApproximateSizes(new Range(fromKey == null ? new byte[0] : fromKey, toKey))[0];
+    }
+
+    /**
+     * iq80 LevelDB的compactRange(byte[],byte[])没有实现，这里按LevelDB的做法逐层调用按层压缩：
+     * 从第0层开始，把与范围重叠的数据文件逐层合并到下一层，直到与范围重叠的最深一层。
+     * 写缓冲区中的数据不参与压缩：iq80 LevelDB的compactMemTable与后台落盘并发时会产生重叠的数据文件。
+     */
+    @Override
+    public void compactRange(byte[] fromKey, byte[] toKey) {
+        long startNanos = System.nanoTime();
+        DbImpl dbImpl = (DbImpl) db;
+        VersionSet versionSet = versionSet();
+        if(toKey == null){
+            toKey = largestKey(versionSet.getLiveFiles());
+        }
+        if(toKey == null){
+            //没有数据文件
+            kvStoreRecorder.recordCompactRange(startNanos);
+            return;
+        }
+        Slice begin = new Slice(fromKey == null ? new byte[0] : fromKey);
+        Slice end = new Slice(toKey);
+        Version version = versionSet.getCurrent();
+        int maxLevelWithFiles = 1;
+        for(int level=1; level<DbConstants.NUM_LEVELS; level++){
+            if(version.overlapInLevel(level, begin, end)){
+                maxLevelWithFiles = level;
+            }
+        }
+        for(int level=0; level<maxLevelWithFiles; level++){
+            dbImpl.compactRange(level, begin, end);
+        }
+        kvStoreRecorder.recordCompactRange(startNanos);
+    }
+
+    /**
+     * iq80 LevelDB的getProperty没有实现，每一层的数据文件从VersionSet读取。
+     * 待压缩字节数按LevelDB的压缩规则估算：第0层的文件数达到压缩阈值时第0层全部待压缩，其它层超出目标大小的部分待压缩。
+     */
+    @Override
+    public KvStoreStatistics getStatistics() {
+        Version version = versionSet().getCurrent();
+        List<Integer> levelFileCounts = new ArrayList<>();
+        List<Long> levelSizes = new ArrayList<>();
+        long totalSize = 0;
+        long pendingCompactionBytes = 0;
+        long levelMaxBytes = LEVEL1_MAX_BYTES;
+        for(int level=0; level<DbConstants.NUM_LEVELS; level++){
+            List<FileMetaData> files = version.getFiles(level);
+            long levelSize = 0;
+            for(FileMetaData file:files){
+                levelSize += file.getFileSize();
+            }
+            levelFileCounts.add(files.size());
+            levelSizes.add(levelSize);
+            totalSize += levelSize;
+            if(level == 0){
+                if(files.size() >= DbConstants.L0_COMPACTION_TRIGGER){
+                    pendingCompactionBytes += levelSize;
+                }
+            }else {
+                if(level < DbConstants.NUM_LEVELS-1){
+                    pendingCompactionBytes += Math.max(0, levelSize - levelMaxBytes);
+                }
+                levelMaxBytes *= 10;
+            }
+        }
+        KvStoreStatistics kvStoreStatistics = new KvStoreStatistics();
+        kvStoreStatistics.setKvStoreEngine(getKvStoreEngine());
+        kvStoreStatistics.setLevelFileCounts(levelFileCounts);
+        kvStoreStatistics.setLevelSizes(levelSizes);
+        kvStoreStatistics.setTotalSize(totalSize);
+        kvStoreStatistics.setPendingCompactionBytes(pendingCompactionBytes);
+        kvStoreRecorder.fill(kvStoreStatistics);
+        return kvStoreStatistics;
+    }
+
+    @Override
+    public void close() {
+        try {
+            db.close();
+        } catch (IOException e) {
+            LogUtil.error(String.format("close LevelDB database failed. LevelDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * iq80 LevelDB没有公开数据文件信息，通过反射读取。
+     */
+    private VersionSet versionSet() {
+        try {
+            Field field = DbImpl.class.getDeclaredField("versions");
+            field.setAccessible(true);
+            return (VersionSet) field.get(db);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            LogUtil.error(String.format("read LevelDB version set failed. LevelDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 数据文件中最大的主键，没有数据文件返回null。
+     */
+    private static byte[] largestKey(List<FileMetaData> files) {
+        byte[] largestKey = null;
+        for(FileMetaData file:files){
+            byte[] key = file.getLargest().getUserKey().getBytes();
+            if(largestKey == null || UnsignedBytesComparator.INSTANCE.compare(key,largestKey) > 0){
+                largestKey = key;
+            }
+        }
+        return largestKey;
+    }
+
+
+    private class LevelDbKvSnapshot implements KvSnapshot {
+        private final Snapshot snapshot;
+        private LevelDbKvSnapshot(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+        @Override
+        public byte[] get(byte[] key) {
+            return db.get(key, new ReadOptions().snapshot(snapshot));
+        }
+        @Override
+        public KvIterator iterator() {
+            return new LevelDbKvIterator(db.iterator(new ReadOptions().snapshot(snapshot)));
+        }
+        @Override
+        public void close() {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                LogUtil.error(String.format("release LevelDB snapshot failed. LevelDB database file path is %s.",dbPath),e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * iq80 LevelDB的迭代器只支持正向遍历，反向定位、反向移动需要从第一条数据开始读取，不提供。
+     */
+    private class LevelDbKvIterator implements KvIterator {
+        private final DBIterator dbIterator;
+        //当前指向的数据，null代表迭代器无效
+        private Map.Entry<byte[], byte[]> entry;
+        private LevelDbKvIterator(DBIterator dbIterator) {
+            this.dbIterator = dbIterator;
+        }
+        @Override
+        public void seekToFirst() {
+            dbIterator.seekToFirst();
+            forwardNext();
+        }
+        @Override
+        public void seek(byte[] key) {
+            dbIterator.seek(key);
+            forwardNext();
+        }
+        @Override
+        public void seekToLast() {
+            throw new UnsupportedOperationException("LevelDB iterator does not support backward iteration.");
+        }
+        @Override
+        public void seekForPrev(byte[] key) {
+            throw new UnsupportedOperationException("LevelDB iterator does not support backward iteration.");
+        }
+        @Override
+        public boolean isValid() {
+            return entry != null;
+        }
+        @Override
+        public void next() {
+            forwardNext();
+        }
+        @Override
+        public void prev() {
+            throw new UnsupportedOperationException("LevelDB iterator does not support backward iteration.");
+        }
+        @Override
+        public byte[] key() {
+            return entry.getKey();
+        }
+        @Override
+        public byte[] value() {
+            return entry.getValue();
+        }
+        @Override
+        public void close() {
+            try {
+                dbIterator.close();
+            } catch (IOException e) {
+                LogUtil.error(String.format("close LevelDB iterator failed. LevelDB database file path is %s.",dbPath),e);
+                throw new RuntimeException(e);
+            }
+        }
+        private void forwardNext() {
+            entry = dbIterator.hasNext() ? dbIterator.next() : null;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 内存存储引擎：数据存放在内存有序表中，不持久化，用于测试。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class MemoryKvStore implements KvStore {
+
+    private final ConcurrentSkipListMap<byte[],byte[]> map;
+    private final KvStoreRecorder kvStoreRecorder = new KvStoreRecorder();
+
+    public MemoryKvStore(ConcurrentSkipListMap<byte[],byte[]> map) {
+        this.map = map;
+    }
+
+    public static MemoryKvStore open() {
+        return new MemoryKvStore(new ConcurrentSkipListMap<>(UnsignedBytesComparator.INSTANCE));
+    }
+
+    @Override
+    public KvStoreEngineEnum getKvStoreEngine() {
+        return KvStoreEngineEnum.MEMORY;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return map.get(key);
+    }
+
+    @Override
+    public List<byte[]> multiGet(List<byte[]> keys) {
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for(byte[] key:keys){
+            values.add(map.get(key));
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized void put(byte[] key, byte[] value) {
+        long startNanos = System.nanoTime();
+        map.put(key,value);
+        kvStoreRecorder.recordWrite(1, startNanos);
+    }
+
+    @Override
+    public synchronized void delete(byte[] key) {
+        long startNanos = System.nanoTime();
+        map.remove(key);
+        kvStoreRecorder.recordWrite(1, startNanos);
+    }
+
+    @Override
+    public synchronized void write(KvWriteBatch kvWriteBatch) {
+        if(kvWriteBatch == null){
+            return;
+        }
+        long startNanos = System.nanoTime();
+        for (KvWrite kvWrite : kvWriteBatch.getKvWrites()){
+            if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.ADD){
+                map.put(kvWrite.getKey(), kvWrite.getValue());
+            }else if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.DELETE){
+                map.remove(kvWrite.getKey());
+            }else {
+                throw new RuntimeException();
+            }
+        }
+        kvStoreRecorder.recordWrite(kvWriteBatch.getKvWrites().size(), startNanos);
+    }
+
+    @Override
+    public KvIterator iterator() {
+        return new MemoryKvIterator(copy());
+    }
+
+    @Override
+    public KvSnapshot snapshot() {
+        return new MemoryKvSnapshot(copy());
+    }
+
+    /**
+     * 数据占用的空间按主键与值的字节数计算
+     */
+    @Override
+    public long getApproximateSize(byte[] fromKey, byte[] toKey) {
+        NavigableMap<byte[],byte[]> range = map;
+        if(fromKey != null){
+            range = range.tailMap(fromKey, true);
+        }
+        if(toKey != null){
+            range = range.headMap(toKey, false);
+        }
+        long size = 0;
+        for(Map.Entry<byte[],byte[]> entry:range.entrySet()){
+            size += entry.getKey().length + entry.getValue().length;
+        }
+        return size;
+    }
+
+    /**
+     * 内存有序表不需要压缩
+     */
+    @Override
+    public void compactRange(byte[] fromKey, byte[] toKey) {
+    }
+
+    @Override
+    public KvStoreStatistics getStatistics() {
+        KvStoreStatistics kvStoreStatistics = new KvStoreStatistics();
+        kvStoreStatistics.setKvStoreEngine(getKvStoreEngine());
+        kvStoreStatistics.setLevelFileCounts(new ArrayList<>());
+        kvStoreStatistics.setLevelSizes(new ArrayList<>());
+        kvStoreStatistics.setTotalSize(getApproximateSize(null, null));
+        kvStoreRecorder.fill(kvStoreStatistics);
+        return kvStoreStatistics;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 复制一份当前数据。写入与复制互斥，因此复制得到的是某一批写入完成时的数据。
+     */
+    private synchronized NavigableMap<byte[],byte[]> copy() {
+        return new TreeMap<>(map);
+    }
+
+
+    private static class MemoryKvSnapshot implements KvSnapshot {
+        private final NavigableMap<byte[],byte[]> map;
+        private MemoryKvSnapshot(NavigableMap<byte[],byte[]> map) {
+            this.map = map;
+        }
+        @Override
+        public byte[] get(byte[] key) {
+            return map.get(key);
+        }
+        @Override
+        public KvIterator iterator() {
+            return new MemoryKvIterator(map);
+        }
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class MemoryKvIterator implements KvIterator {
+        private final NavigableMap<byte[],byte[]> map;
+        //当前指向的数据，null代表迭代器无效
+        private Map.Entry<byte[],byte[]> entry;
+        private MemoryKvIterator(NavigableMap<byte[],byte[]> map) {
+            this.map = map;
+        }
+        @Override
+        public void seekToFirst() {
+            entry = map.firstEntry();
+        }
+        @Override
+        public void seek(byte[] key) {
+            entry = map.ceilingEntry(key);
+        }
+        @Override
+        public void seekToLast() {
+            entry = map.lastEntry();
+        }
+        @Override
+        public void seekForPrev(byte[] key) {
+            entry = map.floorEntry(key);
+        }
+        @Override
+        public boolean isValid() {
+            return entry != null;
+        }
+        @Override
+        public void next() {
+            entry = map.higherEntry(entry.getKey());
+        }
+        @Override
+        public void prev() {
+            entry = map.lowerEntry(entry.getKey());
+        }
+        @Override
+        public byte[] key() {
+            return entry.getKey();
+        }
+        @Override
+        public byte[] value() {
+            return entry.getValue();
+        }
+        @Override
+        public void close() {
+        }
+    }
+}
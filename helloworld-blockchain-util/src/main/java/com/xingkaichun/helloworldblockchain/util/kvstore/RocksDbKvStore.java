@@ -0,0 +1,289 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import com.xingkaichun.helloworldblockchain.util.LogUtil;
+import org.rocksdb.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RocksDB存储引擎(JNI，本地文件)
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class RocksDbKvStore implements KvStore {
+
+    static {
+        RocksDB.loadLibrary();
+    }
+
+    private final String dbPath;
+    private final Options options;
+    private final WriteOptions writeOptions;
+    private final RocksDB db;
+    private final KvStoreRecorder kvStoreRecorder = new KvStoreRecorder();
+
+    public RocksDbKvStore(String dbPath, Options options, WriteOptions writeOptions, RocksDB db) {
+        this.dbPath = dbPath;
+        this.options = options;
+        this.writeOptions = writeOptions;
+        this.db = db;
+    }
+
+    /**
+     * 创建或打开RocksDB数据库
+     */
+    public static RocksDbKvStore open(String dbPath, KvStoreOptions kvStoreOptions) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setBlockCache(new LRUCache(kvStoreOptions.getCacheSize()));
+        tableConfig.setBlockSize(kvStoreOptions.getBlockSize());
+        if(kvStoreOptions.getBloomFilterBitsPerKey() > 0){
+            tableConfig.setFilterPolicy(new BloomFilter(kvStoreOptions.getBloomFilterBitsPerKey(), false));
+        }
+        Options options = new Options();
+        options.setCreateIfMissing(true);
+        options.setTableFormatConfig(tableConfig);
+        options.setWriteBufferSize(kvStoreOptions.getWriteBufferSize());
+        options.setMaxOpenFiles(kvStoreOptions.getMaxOpenFiles());
+        options.setCompressionType(kvStoreOptions.isCompression() ? CompressionType.LZ4_COMPRESSION : CompressionType.NO_COMPRESSION);
+        //后台压缩、落盘使用多个线程
+        options.setIncreaseParallelism(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        WriteOptions writeOptions = new WriteOptions().setSync(kvStoreOptions.isSync());
+        try {
+            RocksDB db = RocksDB.open(options, dbPath);
+            LogUtil.info(String.format("open RocksDB database %s. cacheSize=%s blockSize=%s writeBufferSize=%s maxOpenFiles=%s compression=%s bloomFilterBitsPerKey=%s sync=%s.",
+                    dbPath,kvStoreOptions.getCacheSize(),tableConfig.blockSize(),options.writeBufferSize(),options.maxOpenFiles(),options.compressionType(),kvStoreOptions.getBloomFilterBitsPerKey(),writeOptions.sync()));
+            return new RocksDbKvStore(dbPath, options, writeOptions, db);
+        } catch (RocksDBException e) {
+            writeOptions.close();
+            options.close();
+            LogUtil.error(String.format("create or load RocksDB database failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public KvStoreEngineEnum getKvStoreEngine() {
+        return KvStoreEngineEnum.ROCKSDB;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        try {
+            return db.get(key);
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB get failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<byte[]> multiGet(List<byte[]> keys) {
+        try {
+            return db.multiGetAsList(keys);
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB multiGet failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        try {
+            long startNanos = System.nanoTime();
+            db.put(writeOptions,key,value);
+            kvStoreRecorder.recordWrite(1, startNanos);
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB put failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        try {
+            long startNanos = System.nanoTime();
+            db.delete(writeOptions,key);
+            kvStoreRecorder.recordWrite(1, startNanos);
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB delete failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void write(KvWriteBatch kvWriteBatch) {
+        long startNanos = System.nanoTime();
+        try (WriteBatch writeBatch = new WriteBatch()) {
+            if(kvWriteBatch != null){
+                for (KvWrite kvWrite : kvWriteBatch.getKvWrites()){
+                    if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.ADD){
+                        writeBatch.put(kvWrite.getKey(), kvWrite.getValue());
+                    }else if(kvWrite.getKvWriteActionEnum() == KvWriteActionEnum.DELETE){
+                        writeBatch.delete(kvWrite.getKey());
+                    }else {
+                        throw new RuntimeException();
+                    }
+                }
+            }
+            db.write(writeOptions, writeBatch);
+            kvStoreRecorder.recordWrite(kvWriteBatch == null ? 0 : kvWriteBatch.getKvWrites().size(), startNanos);
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB write failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public KvIterator iterator() {
+        //RocksDB的迭代器创建时会固定读取的数据版本
+        ReadOptions readOptions = new ReadOptions();
+        return new RocksDbKvIterator(readOptions, db.newIterator(readOptions));
+    }
+
+    @Override
+    public KvSnapshot snapshot() {
+        return new RocksDbKvSnapshot(db.getSnapshot());
+    }
+
+    @Override
+    public long getApproximateSize(byte[] fromKey, byte[] toKey) {
+        if(toKey == null){
+            //RocksDB的范围不能没有结束主键，使用比最大主键大的主键
+            try (RocksIterator rocksIterator = db.newIterator()) {
+                rocksIterator.seekToLast();
+                if(!rocksIterator.isValid()){
+                    return 0;
+                }
+                byte[] largestKey = rocksIterator.key();
+                toKey = new byte[largestKey.length + 1];
+                System.arraycopy(largestKey, 0, toKey, 0, largestKey.length);
+            }
+        }
+        try (Slice start = new Slice(fromKey == null ? new byte[0] : fromKey); Slice limit = new Slice(toKey)) {
+            return db.getApproximateSizes(Collections.singletonList(new Range(start, limit)), SizeApproximationFlag.INCLUDE_FILES)[0];
+        }
+    }
+
+    @Override
+    public void compactRange(byte[] fromKey, byte[] toKey) {
+        try {
+            long startNanos = System.nanoTime();
+            db.compactRange(fromKey, toKey);
+            kvStoreRecorder.recordCompactRange(startNanos);
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB compact range failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public KvStoreStatistics getStatistics() {
+        List<Integer> levelFileCounts = new ArrayList<>();
+        List<Long> levelSizes = new ArrayList<>();
+        long totalSize = 0;
+        for(LevelMetaData levelMetaData:db.getColumnFamilyMetaData().levels()){
+            levelFileCounts.add(levelMetaData.files().size());
+            levelSizes.add(levelMetaData.size());
+            totalSize += levelMetaData.size();
+        }
+        KvStoreStatistics kvStoreStatistics = new KvStoreStatistics();
+        kvStoreStatistics.setKvStoreEngine(getKvStoreEngine());
+        kvStoreStatistics.setLevelFileCounts(levelFileCounts);
+        kvStoreStatistics.setLevelSizes(levelSizes);
+        kvStoreStatistics.setTotalSize(totalSize);
+        try {
+            kvStoreStatistics.setPendingCompactionBytes(db.getLongProperty("rocksdb.estimate-pending-compaction-bytes"));
+        } catch (RocksDBException e) {
+            LogUtil.error(String.format("RocksDB get property failed. RocksDB database file path is %s.",dbPath),e);
+            throw new RuntimeException(e);
+        }
+        kvStoreRecorder.fill(kvStoreStatistics);
+        return kvStoreStatistics;
+    }
+
+    @Override
+    public void close() {
+        db.close();
+        writeOptions.close();
+        options.close();
+    }
+
+
+    private class RocksDbKvSnapshot implements KvSnapshot {
+        private final Snapshot snapshot;
+        private RocksDbKvSnapshot(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+        @Override
+        public byte[] get(byte[] key) {
+            try (ReadOptions readOptions = new ReadOptions().setSnapshot(snapshot)) {
+                return db.get(readOptions, key);
+            } catch (RocksDBException e) {
+                LogUtil.error(String.format("RocksDB get failed. RocksDB database file path is %s.",dbPath),e);
+                throw new RuntimeException(e);
+            }
+        }
+        @Override
+        public KvIterator iterator() {
+            ReadOptions readOptions = new ReadOptions().setSnapshot(snapshot);
+            return new RocksDbKvIterator(readOptions, db.newIterator(readOptions));
+        }
+        @Override
+        public void close() {
+            db.releaseSnapshot(snapshot);
+        }
+    }
+
+    private static class RocksDbKvIterator implements KvIterator {
+        //迭代器关闭之前，迭代器使用的ReadOptions不能关闭
+        private final ReadOptions readOptions;
+        private final RocksIterator rocksIterator;
+        private RocksDbKvIterator(ReadOptions readOptions, RocksIterator rocksIterator) {
+            this.readOptions = readOptions;
+            this.rocksIterator = rocksIterator;
+        }
+        @Override
+        public void seekToFirst() {
+            rocksIterator.seekToFirst();
+        }
+        @Override
+        public void seek(byte[] key) {
+            rocksIterator.seek(key);
+        }
+        @Override
+        public void seekToLast() {
+            rocksIterator.seekToLast();
+        }
+        @Override
+        public void seekForPrev(byte[] key) {
+            rocksIterator.seekForPrev(key);
+        }
+        @Override
+        public boolean isValid() {
+            return rocksIterator.isValid();
+        }
+        @Override
+        public void next() {
+            rocksIterator.next();
+        }
+        @Override
+        public void prev() {
+            rocksIterator.prev();
+        }
+        @Override
+        public byte[] key() {
+            return rocksIterator.key();
+        }
+        @Override
+        public byte[] value() {
+            return rocksIterator.value();
+        }
+        @Override
+        public void close() {
+            rocksIterator.close();
+            readOptions.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.util.Comparator;
+
+/**
+ * 主键比较器：按无符号字节序比较，与LevelDB、RocksDB的默认排序一致。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class UnsignedBytesComparator implements Comparator<byte[]> {
+
+    public static final UnsignedBytesComparator INSTANCE = new UnsignedBytesComparator();
+
+    @Override
+    public int compare(byte[] key1, byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for(int i=0; i<length; i++){
+            int compare = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+            if(compare != 0){
+                return compare;
+            }
+        }
+        return key1.length - key2.length;
+    }
+}
@@ -0,0 +1,42 @@
+package com.xingkaichun.helloworldblockchain.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class LruCacheTest {
+
+    @Test
+    public void evictionTest()
+    {
+        LruCache<Long,String> lruCache = new LruCache<>(10);
+        lruCache.put(1L,"1",4,lruCache.getInvalidateCount());
+        lruCache.put(2L,"2",4,lruCache.getInvalidateCount());
+        //访问1之后，2成为最久没有被访问的缓存项
+        Assert.assertEquals("1",lruCache.get(1L));
+        lruCache.put(3L,"3",4,lruCache.getInvalidateCount());
+        Assert.assertNull(lruCache.get(2L));
+        Assert.assertEquals("1",lruCache.get(1L));
+        Assert.assertEquals("3",lruCache.get(3L));
+        Assert.assertEquals(8,lruCache.getWeight());
+        Assert.assertEquals(3,lruCache.getHitCount());
+        Assert.assertEquals(1,lruCache.getMissCount());
+        Assert.assertEquals(1,lruCache.getEvictionCount());
+    }
+
+    @Test
+    public void invalidateTest()
+    {
+        LruCache<Long,String> lruCache = new LruCache<>(10);
+        lruCache.put(1L,"1",4,lruCache.getInvalidateCount());
+        lruCache.invalidate(1L);
+        Assert.assertNull(lruCache.get(1L));
+        Assert.assertEquals(0,lruCache.getWeight());
+
+        //读取数据期间发生过失效，读取到的数据不放入缓存
+        long invalidateCount = lruCache.getInvalidateCount();
+        lruCache.invalidate(2L);
+        lruCache.put(2L,"2",4,invalidateCount);
+        Assert.assertNull(lruCache.get(2L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * 存储引擎点查询基准测试：查询不存在的主键(例如校验哈希、地址是否已被使用)时，布隆过滤器对查询耗时的影响。
+ * 不是单元测试，需要手动运行main方法。
+ *
+ * @author 邢开春 409060350@qq.com
+ */
+public class KvStoreBenchmark {
+
+    private static final int KEY_COUNT = 500000;
+    private static final int QUERY_COUNT = 200000;
+
+    public static void main(String[] args) throws IOException {
+        KvStoreOptions withoutBloomFilter = new KvStoreOptions();
+        withoutBloomFilter.setCacheSize(1024 * 1024);
+        KvStoreOptions withBloomFilter = new KvStoreOptions();
+        withBloomFilter.setCacheSize(1024 * 1024);
+        withBloomFilter.setBloomFilterBitsPerKey(10);
+
+        benchmark("LevelDB", LevelDbKvStore.open(Files.createTempDirectory("LevelDbKvStoreBenchmark").toString(), withoutBloomFilter));
+        benchmark("RocksDB without bloom filter", RocksDbKvStore.open(Files.createTempDirectory("RocksDbKvStoreBenchmark").toString(), withoutBloomFilter));
+        benchmark("RocksDB with bloom filter", RocksDbKvStore.open(Files.createTempDirectory("RocksDbKvStoreBenchmark").toString(), withBloomFilter));
+    }
+
+    private static void benchmark(String name, KvStore kvStore) {
+        Random random = new Random(1);
+        for(int i=0; i<KEY_COUNT; i+=1000){
+            KvWriteBatch kvWriteBatch = new KvWriteBatch();
+            for(int j=0; j<1000; j++){
+                kvWriteBatch.put(randomKey(random), new byte[32]);
+            }
+            kvStore.write(kvWriteBatch);
+        }
+        //预热
+        query(kvStore, random, QUERY_COUNT);
+        long start = System.nanoTime();
+        query(kvStore, random, QUERY_COUNT);
+        long costNanos = System.nanoTime() - start;
+        System.out.println(String.format("%s: %s ns per absent key lookup.", name, costNanos / QUERY_COUNT));
+        kvStore.close();
+    }
+
+    private static void query(KvStore kvStore, Random random, int queryCount) {
+        for(int i=0; i<queryCount; i++){
+            kvStore.get(randomKey(random));
+        }
+    }
+
+    private static byte[] randomKey(Random random) {
+        byte[] key = new byte[33];
+        key[0] = 'D';
+        for(int i=1; i<key.length; i++){
+            key[i] = (byte) random.nextInt(256);
+        }
+        return key;
+    }
+}
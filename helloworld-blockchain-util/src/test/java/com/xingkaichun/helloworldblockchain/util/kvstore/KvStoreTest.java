@@ -0,0 +1,243 @@
+package com.xingkaichun.helloworldblockchain.util.kvstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+public class KvStoreTest {
+
+    @Test
+    public void memoryKvStoreTest()
+    {
+        kvStoreTest(MemoryKvStore.open());
+    }
+
+    @Test
+    public void levelDbKvStoreTest() throws IOException
+    {
+        kvStoreTest(LevelDbKvStore.open(Files.createTempDirectory("LevelDbKvStoreTest").toString(), new KvStoreOptions()));
+    }
+
+    @Test
+    public void rocksDbKvStoreTest() throws IOException
+    {
+        kvStoreTest(RocksDbKvStore.open(Files.createTempDirectory("RocksDbKvStoreTest").toString(), new KvStoreOptions()));
+    }
+
+    @Test
+    public void memoryKvCursorTest()
+    {
+        kvCursorTest(MemoryKvStore.open());
+    }
+
+    @Test
+    public void levelDbKvCursorTest() throws IOException
+    {
+        kvCursorTest(LevelDbKvStore.open(Files.createTempDirectory("LevelDbKvCursorTest").toString(), new KvStoreOptions()));
+    }
+
+    /**
+     * LevelDB的迭代器只支持正向遍历，反向分页由正向读取前缀范围实现。
+     */
+    @Test
+    public void levelDbBackwardIteratorTest() throws IOException
+    {
+        KvStore kvStore = LevelDbKvStore.open(Files.createTempDirectory("LevelDbBackwardIteratorTest").toString(), new KvStoreOptions());
+        kvStore.put(new byte[]{0x01}, new byte[]{1});
+        try (KvIterator iterator = kvStore.iterator()) {
+            iterator.seekToFirst();
+            try {
+                iterator.prev();
+                Assert.fail();
+            } catch (UnsupportedOperationException e){
+            }
+            try {
+                iterator.seekToLast();
+                Assert.fail();
+            } catch (UnsupportedOperationException e){
+            }
+        }
+        kvStore.close();
+    }
+
+    @Test
+    public void rocksDbKvCursorTest() throws IOException
+    {
+        kvCursorTest(RocksDbKvStore.open(Files.createTempDirectory("RocksDbKvCursorTest").toString(), new KvStoreOptions()));
+    }
+
+    @Test
+    public void memoryKvStoreCompactRangeTest()
+    {
+        compactRangeTest(MemoryKvStore.open());
+    }
+
+    @Test
+    public void levelDbKvStoreCompactRangeTest() throws IOException
+    {
+        compactRangeTest(LevelDbKvStore.open(Files.createTempDirectory("LevelDbKvStoreCompactRangeTest").toString(), smallWriteBufferKvStoreOptions()));
+    }
+
+    @Test
+    public void rocksDbKvStoreCompactRangeTest() throws IOException
+    {
+        compactRangeTest(RocksDbKvStore.open(Files.createTempDirectory("RocksDbKvStoreCompactRangeTest").toString(), smallWriteBufferKvStoreOptions()));
+    }
+
+    /**
+     * 写缓冲区中的数据不参与压缩与空间估算，使用较小的写缓冲区让绝大部分数据落盘
+     */
+    private KvStoreOptions smallWriteBufferKvStoreOptions()
+    {
+        KvStoreOptions kvStoreOptions = new KvStoreOptions();
+        kvStoreOptions.setWriteBufferSize(64 * 1024);
+        return kvStoreOptions;
+    }
+
+    private void kvStoreTest(KvStore kvStore)
+    {
+        byte[] key1 = new byte[]{0x01};
+        byte[] key2 = new byte[]{0x01,0x00};
+        byte[] key3 = new byte[]{(byte) 0xFF};
+        kvStore.put(key3, new byte[]{3});
+        KvWriteBatch kvWriteBatch = new KvWriteBatch();
+        kvWriteBatch.put(key1, new byte[]{1});
+        kvWriteBatch.put(key2, new byte[]{2});
+        kvStore.write(kvWriteBatch);
+        Assert.assertArrayEquals(new byte[]{2}, kvStore.get(key2));
+
+        List<byte[]> values = kvStore.multiGet(Arrays.asList(key1, new byte[]{0x02}, key3));
+        Assert.assertArrayEquals(new byte[]{1}, values.get(0));
+        Assert.assertNull(values.get(1));
+        Assert.assertArrayEquals(new byte[]{3}, values.get(2));
+
+        KvSnapshot kvSnapshot = kvStore.snapshot();
+        kvStore.delete(key1);
+        Assert.assertNull(kvStore.get(key1));
+        Assert.assertArrayEquals(new byte[]{1}, kvSnapshot.get(key1));
+
+        //主键按无符号字节序排序，快照之后的删除对快照不可见。
+        try (KvIterator iterator = kvSnapshot.iterator()) {
+            iterator.seekToFirst();
+            Assert.assertArrayEquals(key1, iterator.key());
+            iterator.next();
+            Assert.assertArrayEquals(key2, iterator.key());
+            iterator.next();
+            Assert.assertArrayEquals(key3, iterator.key());
+            iterator.next();
+            Assert.assertFalse(iterator.isValid());
+        }
+        kvSnapshot.close();
+
+        try (KvIterator iterator = kvStore.iterator()) {
+            iterator.seek(new byte[]{0x01,0x00,0x00});
+            Assert.assertArrayEquals(key3, iterator.key());
+            Assert.assertArrayEquals(new byte[]{3}, iterator.value());
+        }
+        kvStore.close();
+    }
+
+    private void kvCursorTest(KvStore kvStore)
+    {
+        //前缀0x01下有10条数据，前缀0x00、0x02下各有1条数据
+        kvStore.put(new byte[]{0x00,0x05}, new byte[]{0});
+        for(int i=0;i<10;i++){
+            kvStore.put(new byte[]{0x01,(byte) i}, new byte[]{(byte) i});
+        }
+        kvStore.put(new byte[]{0x02}, new byte[]{0});
+        byte[] prefix = new byte[]{0x01};
+
+        //正向分页读取
+        List<byte[]> values = new ArrayList<>();
+        byte[] continuationToken = null;
+        int pageCount = 0;
+        do {
+            KvPage kvPage = KvCursor.forward(kvStore, prefix, continuationToken, 3);
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                values.add(kvEntry.getValue());
+            }
+            continuationToken = kvPage.getContinuationToken();
+            pageCount++;
+        } while (continuationToken != null);
+        Assert.assertEquals(4, pageCount);
+        Assert.assertEquals(10, values.size());
+        for(int i=0;i<10;i++){
+            Assert.assertArrayEquals(new byte[]{(byte) i}, values.get(i));
+        }
+
+        //反向分页读取
+        values.clear();
+        continuationToken = null;
+        do {
+            KvPage kvPage = KvCursor.backward(kvStore, prefix, continuationToken, 4);
+            for(KvEntry kvEntry:kvPage.getKvEntries()){
+                values.add(kvEntry.getValue());
+            }
+            continuationToken = kvPage.getContinuationToken();
+        } while (continuationToken != null);
+        Assert.assertEquals(10, values.size());
+        for(int i=0;i<10;i++){
+            Assert.assertArrayEquals(new byte[]{(byte) (9-i)}, values.get(i));
+        }
+
+        //从指定主键开始读取
+        KvPage kvPage = KvCursor.backward(kvStore, prefix, new byte[]{0x01,0x04,0x00}, 2);
+        Assert.assertArrayEquals(new byte[]{0x01,0x04}, kvPage.getKvEntries().get(0).getKey());
+        Assert.assertArrayEquals(new byte[]{0x01,0x02}, kvPage.getContinuationToken());
+        kvPage = KvCursor.forward(kvStore, null, new byte[]{0x01,0x09}, 10);
+        Assert.assertEquals(2, kvPage.getKvEntries().size());
+        Assert.assertFalse(kvPage.hasMore());
+        kvStore.close();
+    }
+
+    private void compactRangeTest(KvStore kvStore)
+    {
+        //前缀0x01、0x02下各有20000条数据，值是随机的不可压缩数据。前缀0x01下的数据写入两遍，再删除一半。
+        Random random = new Random(1);
+        for(int round=0;round<2;round++){
+            for(byte prefix=0x01;prefix<=0x02;prefix++){
+                if(round == 1 && prefix == 0x02){
+                    continue;
+                }
+                KvWriteBatch kvWriteBatch = new KvWriteBatch();
+                for(int i=0;i<20000;i++){
+                    byte[] value = new byte[100];
+                    random.nextBytes(value);
+                    kvWriteBatch.put(new byte[]{prefix,(byte) (i >> 8),(byte) i}, value);
+                }
+                kvStore.write(kvWriteBatch);
+            }
+        }
+        for(int i=0;i<20000;i+=2){
+            kvStore.delete(new byte[]{0x01,(byte) (i >> 8),(byte) i});
+        }
+
+        //压缩全部数据后，数据不变，数据文件都不在第0层
+        kvStore.compactRange(null, null);
+        Assert.assertNull(kvStore.get(new byte[]{0x01,0x00,0x00}));
+        Assert.assertNotNull(kvStore.get(new byte[]{0x01,0x00,0x01}));
+        Assert.assertNotNull(kvStore.get(new byte[]{0x02,0x00,0x00}));
+        KvStoreStatistics kvStoreStatistics = kvStore.getStatistics();
+        Assert.assertEquals(kvStore.getKvStoreEngine(), kvStoreStatistics.getKvStoreEngine());
+        Assert.assertEquals(3 + 10000, kvStoreStatistics.getWriteCount());
+        if(!kvStoreStatistics.getLevelFileCounts().isEmpty()){
+            Assert.assertEquals(0, (int) kvStoreStatistics.getLevelFileCounts().get(0));
+            Assert.assertEquals(1, kvStoreStatistics.getCompactRangeCount());
+        }
+
+        //前缀0x01下剩余10000条数据，少于前缀0x02下的20000条数据
+        long size1 = kvStore.getApproximateSize(new byte[]{0x01}, new byte[]{0x02});
+        long size2 = kvStore.getApproximateSize(new byte[]{0x02}, null);
+        Assert.assertTrue(size2 > 20000 * 100);
+        Assert.assertTrue(size1 > 10000 * 100 && size1 < size2);
+        Assert.assertTrue(kvStoreStatistics.getTotalSize() >= size1 + size2);
+        kvStore.close();
+    }
+}